@@ -1,81 +1,332 @@
 package se.kth.iv1350.pos.controller;
 
 import se.kth.iv1350.pos.integration.AccountingRegistry;
-import se.kth.iv1350.pos.integration.InventoryRegistry;
+import se.kth.iv1350.pos.integration.AccountingSystem;
+import se.kth.iv1350.pos.integration.ArchivedReceiptDTO;
+import se.kth.iv1350.pos.integration.CheckpointLineDTO;
+import se.kth.iv1350.pos.integration.InventorySystem;
+import se.kth.iv1350.pos.integration.ItemCatalog;
 import se.kth.iv1350.pos.integration.ItemDTO;
-import se.kth.iv1350.pos.integration.Printer;
+import se.kth.iv1350.pos.integration.ReceiptArchive;
+import se.kth.iv1350.pos.integration.ReceiptPrinter;
 import se.kth.iv1350.pos.integration.RegistryCreator;
+import se.kth.iv1350.pos.integration.SaleCheckpoint;
+import se.kth.iv1350.pos.integration.SaleCheckpointDTO;
+import se.kth.iv1350.pos.integration.SalesAnalytics;
 import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.BatchEntryDTO;
 import se.kth.iv1350.pos.model.CashRegister;
+import se.kth.iv1350.pos.model.CashRegisters;
+import se.kth.iv1350.pos.model.ItemEntryDTO;
+import se.kth.iv1350.pos.model.LaneReconciliationDTO;
 import se.kth.iv1350.pos.model.Receipt;
+import se.kth.iv1350.pos.model.Refund;
 import se.kth.iv1350.pos.model.Sale;
+import se.kth.iv1350.pos.model.SaleDTO;
 import se.kth.iv1350.pos.model.SaleItemDTO;
+import se.kth.iv1350.pos.model.TillCountDTO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The  <code>Controller</code> handles all calls to the model layer and coordinates the sale process.
  * It acts as the only entry point from the view to the model, ensuring low coupling between layers.
+ * <p>
+ * Every sale is watched by a {@link SaleMonitor}, which reclaims it on another thread if it is idle for too long.
+ * The methods that use the current sale therefore hold a lock. It is a {@link ReentrantLock} rather than a monitor,
+ * since a payment waits for the external systems while holding it, and a virtual thread that waits inside a
+ * <code>synchronized</code> block keeps its carrier thread.
+ * <p>
+ * If a {@link SaleCheckpoint} is given, every change of the current sale is written to it, and a new
+ * <code>Controller</code> for the same lane can take over the sale with {@link #resumeSale()} after a crash.
+ * <p>
+ * If the {@link RegistryCreator} has a {@link ReceiptArchive}, the receipt of every paid sale is archived, and can be
+ * printed again with {@link #reprintReceipt(long)}. Items of an archived sale can then be returned with
+ * {@link #refund(long, List)}.
+ * <p>
+ * The cash register of the lane is one of the {@link CashRegisters} of the store, which every lane can count and
+ * reconcile against the revenue booked in accounting.
  */
 public class Controller {
-    private final InventoryRegistry inventoryRegistry;
+    private static final int DEFAULT_LANE_ID = 1;
+    private final InventorySystem inventorySystem;
+    private final AccountingSystem accountingSystem;
+    private final SalesAnalytics salesAnalytics;
     private final AccountingRegistry accountingRegistry;
-    private final Printer printer;
+    private final ReceiptPrinter printer;
+    private final CashRegisters cashRegisters;
     private final CashRegister cashRegister;
+    private final SaleMonitor saleMonitor;
+    private final SaleCheckpoint checkpoint;
+    private final ReceiptArchive receiptArchive;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<SaleDTO> pendingRefundAccounting = new ArrayDeque<>();
+    private final Deque<SaleDTO> pendingReturnInventory = new ArrayDeque<>();
     private Sale currentSale;
+    private ItemCatalog saleCatalog;
+    private SaleMonitor.Watch watch;
+
+    /**
+     * Creates a new <code>Controller</code> instance, with the given {@link RegistryCreator} and {@link ReceiptPrinter}.
+     * Also, instantiates the {@link CashRegister}, as the only register of the store.
+     *
+     * @param registryCreator Used to get access to external systems.
+     * @param printer         Used to print the {@link Receipt}.
+     */
+    public Controller(RegistryCreator registryCreator, ReceiptPrinter printer) {
+        this(registryCreator, printer, new SaleMonitor());
+    }
+
+    /**
+     * Creates a new <code>Controller</code> instance whose sales are watched by the specified {@link SaleMonitor},
+     * which can be shared by all checkout lanes.
+     *
+     * @param registryCreator Used to get access to external systems.
+     * @param printer         Used to print the {@link Receipt}.
+     * @param saleMonitor     Reclaims sales that are idle for too long.
+     */
+    public Controller(RegistryCreator registryCreator, ReceiptPrinter printer, SaleMonitor saleMonitor) {
+        this(registryCreator, printer, saleMonitor, null);
+    }
+
+    /**
+     * Creates a new <code>Controller</code> instance that writes every change of the current sale to the specified
+     * checkpoint, so the sale can be resumed with {@link #resumeSale()} if the lane crashes.
+     *
+     * @param registryCreator Used to get access to external systems.
+     * @param printer         Used to print the {@link Receipt}.
+     * @param saleMonitor     Reclaims sales that are idle for too long.
+     * @param checkpoint      The checkpoint of the lane, or <code>null</code> to not keep one.
+     */
+    public Controller(RegistryCreator registryCreator, ReceiptPrinter printer, SaleMonitor saleMonitor,
+                      SaleCheckpoint checkpoint) {
+        this(registryCreator, printer, saleMonitor, checkpoint, new CashRegisters(), DEFAULT_LANE_ID);
+    }
 
     /**
-     * Creates a new <code>Controller</code> instance, with the given {@link RegistryCreator} and {@link Printer}.
-     * Also, instantiates the {@link CashRegister}.
+     * Creates a new <code>Controller</code> instance for the specified checkout lane, whose cash register is one of
+     * the cash registers of the store.
      *
      * @param registryCreator Used to get access to external systems.
      * @param printer         Used to print the {@link Receipt}.
+     * @param saleMonitor     Reclaims sales that are idle for too long.
+     * @param checkpoint      The checkpoint of the lane, or <code>null</code> to not keep one.
+     * @param cashRegisters   The cash registers of the store, shared by all lanes.
+     * @param laneID          The ID of the checkout lane.
      */
-    public Controller(RegistryCreator registryCreator, Printer printer) {
-        inventoryRegistry = registryCreator.getInventoryRegistry();
+    public Controller(RegistryCreator registryCreator, ReceiptPrinter printer, SaleMonitor saleMonitor,
+                      SaleCheckpoint checkpoint, CashRegisters cashRegisters, int laneID) {
+        this.saleMonitor = saleMonitor;
+        this.checkpoint = checkpoint;
+        inventorySystem = registryCreator.getInventorySystem();
+        accountingSystem = registryCreator.getAccountingSystem();
+        salesAnalytics = registryCreator.getSalesAnalytics();
         accountingRegistry = registryCreator.getAccountingRegistry();
+        receiptArchive = registryCreator.getReceiptArchive();
         this.printer = printer;
-        this.cashRegister = new CashRegister();
+        this.cashRegisters = cashRegisters;
+        this.cashRegister = cashRegisters.getCashRegister(laneID);
     }
 
     /**
-     * Starts a new <code>Sale</code>.
+     * Starts a new <code>Sale</code>. The sale keeps the catalog version that is current when it starts,
+     * so prices stay the same for the whole sale even if the catalog is updated meanwhile.
+     * If an earlier sale was started but never paid, it is abandoned and its reserved stock is released.
      *
      * @return <code>true</code> if the <code>Sale</code> was successfully started.
      */
     public boolean startSale() {
-        currentSale = new Sale(cashRegister);
-        return true;
+        lock.lock();
+        try {
+            abandonCurrentSale();
+            currentSale = new Sale(cashRegister);
+            saleCatalog = inventorySystem.getCatalog();
+            watch = saleMonitor.watch(this, watch);
+            if (checkpoint != null) {
+                checkpoint.startSale(currentSale.getSaleID(), currentSale.getTimeOfSale());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Adds an item to the current {@link Sale}.
+     * Resumes the sale that was in progress when the lane stopped, as it was written to the checkpoint. The sale
+     * keeps its ID, items and quantities, and its totals are calculated again from its lines, so they are exactly
+     * what they were. Prices are the ones the items had when they were entered. Stock that was reserved for the sale
+     * is still committed when it is paid, and items whose reservation has expired meanwhile are taken from stock then.
+     *
+     * @return <code>true</code> if a sale was resumed, <code>false</code> if there is no checkpoint, no sale was in
+     * progress, or an unpaid sale is already started.
+     */
+    public boolean resumeSale() {
+        lock.lock();
+        try {
+            if (checkpoint == null || currentSale != null && currentSale.getReceipt() == null) {
+                return false;
+            }
+            SaleCheckpointDTO savedSale = checkpoint.restore();
+            if (savedSale == null) {
+                return false;
+            }
+            currentSale = new Sale(cashRegister, savedSale.saleID(), savedSale.timeOfSale());
+            List<ItemDTO> items = new ArrayList<>(savedSale.lines().size());
+            int[] quantities = new int[savedSale.lines().size()];
+            for (CheckpointLineDTO line : savedSale.lines()) {
+                quantities[items.size()] = line.quantity();
+                items.add(line.item());
+            }
+            currentSale.addItems(items, quantities);
+            saleCatalog = inventorySystem.getCatalog();
+            watch = saleMonitor.watch(this, watch);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an item to the current {@link Sale}, reserving one of it in the inventory.
      *
      * @param itemID The <code>String</code> ID of the item to add.
-     * @return Information about the added item as a {@link SaleItemDTO},
-     * or <code>null</code> if the item was not found or no <code>Sale</code> is started.
+     * @return Information about the added item as a {@link SaleItemDTO}, or <code>null</code> if the item was not
+     * found, is out of stock, or no <code>Sale</code> is started.
      */
     public SaleItemDTO enterItem(String itemID) {
-        if (currentSale == null) {
-            return null;
+        lock.lock();
+        try {
+            if (currentSale == null) {
+                return null;
+            }
+            watch = saleMonitor.watch(this, watch);
+            ItemDTO item = saleCatalog.findItemById(itemID);
+            if (item == null) {
+                return null;
+            }
+            if (!inventorySystem.reserve(currentSale.getSaleID(), itemID, 1)) {
+                return null;
+            }
+            SaleItemDTO saleItem = currentSale.addItem(item);
+            if (saleItem == null) {
+                inventorySystem.releaseReservation(currentSale.getSaleID(), itemID, 1);
+            } else {
+                checkpointLine(saleItem.item(), saleItem.quantity());
+            }
+            return saleItem;
+        } finally {
+            lock.unlock();
         }
-        ItemDTO item = inventoryRegistry.findItemById(itemID);
-        if (item == null) {
-            return null;
+    }
+
+    /**
+     * Adds a batch of items to the current {@link Sale}, for example a scanner burst or an imported order.
+     * All IDs are resolved with one batched inventory lookup and the running total is updated once.
+     * Entries for the same ID are combined, and entries with a quantity below one are ignored.
+     * Every entered quantity is reserved in the inventory; entries that can not be reserved in full, or whose total
+     * would not fit in an <code>int</code>, are not added.
+     *
+     * @param entries The items to add, as a list of {@link ItemEntryDTO}.
+     * @return The result of the batch as a {@link BatchEntryDTO}, listing the IDs that were not found and the IDs
+     * that are out of stock, or <code>null</code> if no <code>Sale</code> is started.
+     */
+    public BatchEntryDTO enterItems(List<ItemEntryDTO> entries) {
+        lock.lock();
+        try {
+            if (currentSale == null) {
+                return null;
+            }
+            watch = saleMonitor.watch(this, watch);
+            Map<String, Integer> quantities = new LinkedHashMap<>();
+            for (ItemEntryDTO entry : entries) {
+                if (entry.itemID() != null && entry.quantity() > 0) {
+                    quantities.merge(entry.itemID(), entry.quantity(), Controller::addQuantities);
+                }
+            }
+            Map<String, ItemDTO> foundItems = saleCatalog.findItemsById(quantities.keySet());
+            List<ItemDTO> items = new ArrayList<>(foundItems.size());
+            int[] itemQuantities = new int[foundItems.size()];
+            List<String> unknownItemIDs = new ArrayList<>();
+            List<String> unavailableItemIDs = new ArrayList<>();
+            int enteredQuantity = 0;
+            for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+                ItemDTO item = foundItems.get(entry.getKey());
+                if (item == null) {
+                    unknownItemIDs.add(entry.getKey());
+                    continue;
+                }
+                int quantity = entry.getValue();
+                SaleItemDTO line = currentSale.findItem(item.id());
+                if (addQuantities(line == null ? 0 : line.quantity(), quantity) < 0
+                        || addQuantities(enteredQuantity, quantity) < 0
+                        || !inventorySystem.reserve(currentSale.getSaleID(), entry.getKey(), quantity)) {
+                    unavailableItemIDs.add(entry.getKey());
+                    continue;
+                }
+                itemQuantities[items.size()] = quantity;
+                items.add(item);
+                enteredQuantity += quantity;
+            }
+            currentSale.addItems(items, itemQuantities);
+            for (ItemDTO item : items) {
+                SaleItemDTO line = currentSale.findItem(item.id());
+                if (line != null) {
+                    checkpointLine(item, line.quantity());
+                }
+            }
+            return new BatchEntryDTO(enteredQuantity, List.copyOf(unknownItemIDs), List.copyOf(unavailableItemIDs),
+                    currentSale.getTotalCost(), currentSale.getTotalVat());
+        } finally {
+            lock.unlock();
         }
-        return currentSale.addItem(item);
     }
 
     /**
-     * Updates the quantity of the last entered item in the current {@link Sale}.
+     * Updates the quantity of the last entered item in the current {@link Sale}. The reserved stock follows the new
+     * quantity, and a quantity of zero removes the line and releases its reservation.
      *
      * @param quantity The <code>int</code> quantity to add.
-     * @return Updated information about the item as a {@link SaleItemDTO} with new quantity,
-     * or <code>null</code> if no sale is started.
+     * @return Updated information about the item as a {@link SaleItemDTO} with new quantity, or <code>null</code> if
+     * no sale is started, the line was removed, or the added quantity is out of stock.
      */
     public SaleItemDTO enterQuantity(int quantity) {
-        if (currentSale == null) {
-            return null;
+        lock.lock();
+        try {
+            if (currentSale == null) {
+                return null;
+            }
+            watch = saleMonitor.watch(this, watch);
+            SaleItemDTO lastItem = currentSale.getLastItem();
+            if (lastItem == null || quantity < 0) {
+                return currentSale.updateQuantity(quantity);
+            }
+            long saleID = currentSale.getSaleID();
+            String itemID = lastItem.item().id();
+            int change = quantity - lastItem.quantity();
+            if (change > 0 && !inventorySystem.reserve(saleID, itemID, change)) {
+                return null;
+            }
+            SaleItemDTO updatedItem = currentSale.updateQuantity(quantity);
+            boolean updated = updatedItem != null || quantity == 0;
+            if (change < 0 && updated) {
+                inventorySystem.releaseReservation(saleID, itemID, -change);
+            } else if (change > 0 && !updated) {
+                inventorySystem.releaseReservation(saleID, itemID, change);
+            }
+            if (updated) {
+                checkpointLine(lastItem.item(), quantity);
+            }
+            return updatedItem;
+        } finally {
+            lock.unlock();
         }
-        return currentSale.updateQuantity(quantity);
     }
 
     /**
@@ -84,47 +335,261 @@ public class Controller {
      * @return The total cost of the sale as an {@link Amount}, or <code>null</code> if no sale is started.
      */
     public Amount endSale() {
-        if (currentSale == null) {
-            return null;
+        lock.lock();
+        try {
+            if (currentSale == null) {
+                return null;
+            }
+            watch = saleMonitor.watch(this, watch);
+            return currentSale.completeSale();
+        } finally {
+            lock.unlock();
         }
-        return currentSale.completeSale();
     }
 
     /**
      * Handles a payment for the current <code>Sale</code>.
      * Including updating the cash register and printing the{@link Receipt}.
-     * And updating the {@link AccountingRegistry} and {@link InventoryRegistry}.
-     * Also prints the {@link Receipt} using the {@link Printer}.
+     * And updating the {@link AccountingSystem} and {@link InventorySystem}.
+     * Also prints the {@link Receipt} using the {@link ReceiptPrinter}.
      *
      * @param amountPaid The amount paid by the customer as an {@link Amount}.
      * @return The change to give back to the customer as an {@link Amount}, or <code>null</code> if no sale is started.
      */
     public Amount enterPayment(Amount amountPaid) {
-        if (currentSale == null) {
-            return null;
+        lock.lock();
+        try {
+            if (currentSale == null) {
+                return null;
+            }
+            Amount change = currentSale.pay(amountPaid);
+            if (change == null) {
+                return null;
+            }
+            saleMonitor.unwatch(watch);
+            watch = null;
+            if (checkpoint != null) {
+                checkpoint.clear();
+            }
+
+            updateRegistries();
+            archiveReceipt(amountPaid, change);
+            printReceipt();
+            return change;
+        } finally {
+            lock.unlock();
         }
-        Amount change = currentSale.pay(amountPaid);
+    }
 
-        updateRegistries();
-        printReceipt();
-        return change;
+    /**
+     * Prints the receipt of a sale that was paid earlier again, for example when the customer asks for a copy.
+     *
+     * @param saleID The ID of the paid sale.
+     * @return <code>true</code> if the receipt was printed, <code>false</code> if receipts are not archived or the
+     * sale is not in the archive.
+     */
+    public boolean reprintReceipt(long saleID) {
+        if (receiptArchive == null) {
+            return false;
+        }
+        ArchivedReceiptDTO archivedReceipt = receiptArchive.findBySaleID(saleID);
+        if (archivedReceipt == null) {
+            return false;
+        }
+        Receipt receipt = new Receipt(archivedReceipt.sale(), archivedReceipt.amountPaid(), archivedReceipt.change());
+        printer.printReceipt(receipt.createReceiptString());
+        return true;
     }
 
     /**
-     * Updates external systems.
+     * Refunds items returned from a sale that was paid earlier, on this lane or any other. The sale is found in the
+     * receipt archive, and the items are refunded at the prices they were sold for. The refund is paid out from the
+     * cash register of this lane, the items are put back in stock, and the refund is booked in the accounting system.
+     * The return is recorded in the archive only after the cash is paid out, and the payout is cancelled if the
+     * return can not be recorded. Once the cash is paid out the refund is not undone: if the accounting or inventory
+     * system fails, the refund is queued for that system and sent again before the next refund and after every paid
+     * sale, which is safe since both ignore a refund they have already applied. The current sale, if any, is not
+     * affected.
+     *
+     * @param saleID        The ID of the paid sale.
+     * @param returnedItems The IDs and quantities of the returned items.
+     * @return The refunded amount as an {@link Amount}, or <code>null</code> if receipts are not archived, the sale is
+     * not in the archive, an item is not in the sale or more of it is returned than was sold and not yet returned,
+     * nothing is returned, or the cash register does not hold enough cash. Nothing is refunded in that case.
+     */
+    public Amount refund(long saleID, List<ItemEntryDTO> returnedItems) {
+        lock.lock();
+        try {
+            if (receiptArchive == null) {
+                return null;
+            }
+            ArchivedReceiptDTO archivedReceipt = receiptArchive.findBySaleID(saleID);
+            if (archivedReceipt == null) {
+                return null;
+            }
+            Refund refund = new Refund(cashRegister, archivedReceipt.sale(), receiptArchive.findReturnedQuantities(saleID));
+            for (ItemEntryDTO entry : returnedItems) {
+                if (!refund.addItem(entry.itemID(), entry.quantity())) {
+                    return null;
+                }
+            }
+            SaleDTO refundDTO = refund.toDTO();
+            Amount refunded = refund.payOut();
+            if (refunded == null) {
+                return null;
+            }
+            if (!receiptArchive.recordReturn(saleID, refundDTO.items())) {
+                refund.cancelPayOut();
+                return null;
+            }
+            retryPendingRefunds();
+            if (!bookRefundAccounting(refundDTO)) {
+                pendingRefundAccounting.addLast(refundDTO);
+            }
+            if (!returnRefundInventory(refundDTO)) {
+                pendingReturnInventory.addLast(refundDTO);
+            }
+            return refunded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of refunds waiting to be sent again to the accounting or inventory system after it failed.
+     *
+     * @return The number of queued refunds, counted once per system.
+     */
+    public int getPendingRefunds() {
+        lock.lock();
+        try {
+            return pendingRefundAccounting.size() + pendingReturnInventory.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts the cash in the cash registers of every lane of the store, as it all was at one point in time.
+     *
+     * @return A {@link TillCountDTO} with the balance of every lane and the total.
+     */
+    public TillCountDTO countTills() {
+        return cashRegisters.countTills();
+    }
+
+    /**
+     * Compares the cash taken by the cash register of every lane since opening with the revenue booked for the lane
+     * in accounting, typically at the end of the day. Sales that have not yet reached accounting, for example because
+     * they are spilled, show up as a difference.
+     *
+     * @return A {@link LaneReconciliationDTO} for every lane, ordered by lane ID, flagging the lanes that differ.
+     */
+    public List<LaneReconciliationDTO> reconcileCashRegisters() {
+        return cashRegisters.reconcile(accountingRegistry.getSalesStore().getRevenuePerLane());
+    }
+
+    /**
+     * Reclaims the current sale if it is still unpaid and the specified watch is the latest one, meaning nothing has
+     * happened in the sale since the watch was started. Called by the {@link SaleMonitor} when the watch times out.
+     *
+     * @param expiredWatch The watch that timed out.
+     */
+    void reclaimIdleSale(SaleMonitor.Watch expiredWatch) {
+        lock.lock();
+        try {
+            if (expiredWatch != watch) {
+                return;
+            }
+            abandonCurrentSale();
+            currentSale = null;
+            saleCatalog = null;
+            watch = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int addQuantities(int first, int second) {
+        if (first < 0 || second < 0 || first > Integer.MAX_VALUE - second) {
+            return -1;
+        }
+        return first + second;
+    }
+
+    private void abandonCurrentSale() {
+        if (currentSale != null && currentSale.getReceipt() == null) {
+            inventorySystem.releaseReservations(currentSale.getSaleID());
+            saleMonitor.saleAbandoned();
+            if (checkpoint != null) {
+                checkpoint.clear();
+            }
+        }
+    }
+
+    private void checkpointLine(ItemDTO item, int quantity) {
+        if (checkpoint != null) {
+            checkpoint.recordLine(item, quantity);
+        }
+    }
+
+    /**
+     * Updates external systems. All systems are given the same frozen {@link SaleDTO} snapshot of the paid sale.
+     * The accounting system and the inventory are updated at the same time, so a payment waits for the slower of the
+     * two rather than for both in turn.
      */
     private void updateRegistries() {
-        accountingRegistry.updateAccounting(currentSale.toDTO());
-        inventoryRegistry.updateInventory(currentSale.toDTO());
+        SaleDTO saleDTO = currentSale.toDTO();
+        CompletableFuture.allOf(
+                accountingSystem.updateAccountingAsync(saleDTO),
+                inventorySystem.updateInventoryAsync(saleDTO)).join();
+        salesAnalytics.recordSale(saleDTO);
+        retryPendingRefunds();
+    }
+
+    private void retryPendingRefunds() {
+        while (!pendingRefundAccounting.isEmpty() && bookRefundAccounting(pendingRefundAccounting.peekFirst())) {
+            pendingRefundAccounting.removeFirst();
+        }
+        while (!pendingReturnInventory.isEmpty() && returnRefundInventory(pendingReturnInventory.peekFirst())) {
+            pendingReturnInventory.removeFirst();
+        }
+    }
+
+    private boolean bookRefundAccounting(SaleDTO refundDTO) {
+        try {
+            accountingSystem.refundAccounting(refundDTO);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean returnRefundInventory(SaleDTO refundDTO) {
+        try {
+            inventorySystem.returnInventory(refundDTO);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Archives the receipt of the paid current <code>Sale</code>, if receipts are archived.
+     */
+    private void archiveReceipt(Amount amountPaid, Amount change) {
+        if (receiptArchive != null) {
+            receiptArchive.archive(currentSale.toDTO(), amountPaid, change);
+        }
     }
 
     /**
-     * Prints the {@link Receipt} for the current <code>Sale</code> using the {@link Printer}.
+     * Prints the {@link Receipt} for the current <code>Sale</code> using the {@link ReceiptPrinter}.
      */
     private void printReceipt() {
         Receipt receipt = currentSale.getReceipt();
         if (receipt != null) {
-            printer.printReceipt(currentSale.getReceipt().createReceiptString());
+            printer.printReceipt(receipt.createReceiptString());
         }
     }
 } 
\ No newline at end of file
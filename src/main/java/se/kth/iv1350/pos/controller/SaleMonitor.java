@@ -0,0 +1,135 @@
+package se.kth.iv1350.pos.controller;
+
+import se.kth.iv1350.pos.util.TimerWheel;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Watches the sales of one or more {@link Controller}s, and reclaims a sale that has been idle for too long.
+ * A reclaimed sale is dropped from its controller, its reserved stock is released, and it is counted as abandoned.
+ * <p>
+ * One monitor can be shared by all checkout lanes. Idle timeouts are kept in one {@link TimerWheel} driven by one
+ * daemon thread, so thousands of sales are watched without a thread or a scan per sale, and each activity only
+ * reschedules one timeout.
+ */
+public class SaleMonitor {
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(15);
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SLOTS = 1024;
+    private final TimerWheel<Watch> idleSales;
+    private final long idleTimeoutMillis;
+    private final AtomicLong abandonedSales = new AtomicLong();
+    private volatile boolean started;
+
+    /**
+     * Creates a new monitor that reclaims sales after 15 minutes without activity.
+     */
+    public SaleMonitor() {
+        this(DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Creates a new monitor with the specified idle timeout.
+     *
+     * @param idleTimeout How long a sale may go without activity before it is reclaimed.
+     */
+    public SaleMonitor(Duration idleTimeout) {
+        this(idleTimeout, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new monitor that reads the time from the specified source. Used by tests to control the time.
+     *
+     * @param idleTimeout       How long a sale may go without activity before it is reclaimed.
+     * @param currentTimeMillis Gives the current time in milliseconds.
+     */
+    SaleMonitor(Duration idleTimeout, LongSupplier currentTimeMillis) {
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.idleSales = new TimerWheel<>(TICK_MILLIS, WHEEL_SLOTS, currentTimeMillis,
+                watch -> watch.controller.reclaimIdleSale(watch));
+    }
+
+    /**
+     * Gets the number of sales that were started but never paid, either because they were idle for too long or
+     * because a new sale was started in their place.
+     *
+     * @return The number of abandoned sales.
+     */
+    public long getAbandonedSaleCount() {
+        return abandonedSales.get();
+    }
+
+    /**
+     * Gets the number of sales that are being watched.
+     *
+     * @return The number of started sales that are neither paid nor abandoned.
+     */
+    public int getActiveSaleCount() {
+        return idleSales.size();
+    }
+
+    /**
+     * Starts, or restarts, the idle timeout of the current sale of a controller.
+     *
+     * @param controller The controller whose sale had activity.
+     * @param previous   The earlier watch of the controller, which is cancelled, or <code>null</code>.
+     * @return The new watch, which the controller keeps until the next activity.
+     */
+    Watch watch(Controller controller, Watch previous) {
+        unwatch(previous);
+        startTicking();
+        Watch watch = new Watch(controller);
+        watch.timeout = idleSales.schedule(watch, idleTimeoutMillis);
+        return watch;
+    }
+
+    /**
+     * Stops watching a sale, for example when it is paid.
+     *
+     * @param watch The watch to cancel, or <code>null</code>.
+     */
+    void unwatch(Watch watch) {
+        if (watch != null) {
+            watch.timeout.cancel();
+        }
+    }
+
+    /**
+     * Counts one abandoned sale.
+     */
+    void saleAbandoned() {
+        abandonedSales.incrementAndGet();
+    }
+
+    /**
+     * Reclaims every sale whose idle timeout has passed. Normally done once a second by a background thread,
+     * and used by tests that control the time.
+     *
+     * @return The number of timeouts that passed.
+     */
+    int reclaimIdleSales() {
+        return idleSales.advance();
+    }
+
+    private void startTicking() {
+        if (!started) {
+            started = true;
+            idleSales.start("sale-monitor");
+        }
+    }
+
+    /**
+     * One idle timeout of one controller. A new watch is created on every activity, so a controller can tell a
+     * timeout that passed just as the sale was used again from its current one.
+     */
+    static final class Watch {
+        private final Controller controller;
+        private TimerWheel.Timeout<Watch> timeout;
+
+        private Watch(Controller controller) {
+            this.controller = controller;
+        }
+    }
+}
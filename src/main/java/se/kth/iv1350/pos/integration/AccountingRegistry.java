@@ -1,26 +1,145 @@
 package se.kth.iv1350.pos.integration;
 
+import se.kth.iv1350.pos.model.Amount;
 import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.VatRateTotalDTO;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.LongSupplier;
 
 /**
  * Simulates an external <code>AccountingRegistry</code> system. Receives sale data as {@link se.kth.iv1350.pos.model.SaleDTO} from the controller.
+ * Sales from several lanes may be booked at the same time, so all totals are kept in thread-safe structures.
+ * <p>
+ * Booking is idempotent: a sale whose ID has already been booked is ignored, so a sale that is sent again, for
+ * example when a spill queue is replayed after an outage, is never counted twice. The IDs of the most recent
+ * {@link #REMEMBERED_SALES} sales are remembered. Refunds have IDs of their own and are remembered the same way.
+ * <p>
+ * A refund is taken off the totals and added to the sales store as negative lines, so no booked sale is looked up
+ * or changed. A refund of a sale booked before this run can take the net VAT and store totals below zero, so they
+ * are kept as signed values. The revenue of recent periods counts sales as they were made, and is not changed by
+ * refunds.
  */
-public class AccountingRegistry {
-    private double totalRevenue;
+public class AccountingRegistry implements AccountingSystem {
+    /**
+     * The number of booked sale IDs that are remembered to ignore sales sent twice.
+     */
+    public static final int REMEMBERED_SALES = 100_000;
+    private static final Duration BUCKET_LENGTH = Duration.ofSeconds(1);
+    private static final int BUCKET_COUNT = 3600;
+    private static final double ORE_PER_KRONA = 100.0;
+    private final Set<Long> bookedSaleIDs = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > REMEMBERED_SALES;
+        }
+    });
+    private final Map<Double, Amount> vatPerRate = new ConcurrentSkipListMap<>();
+    private final SalesStore salesStore = new SalesStore();
+    private final RevenueWindow revenueWindow;
+    private final DoubleAdder totalRevenue = new DoubleAdder();
 
     AccountingRegistry() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new instance that reads the time from the specified source. Used by tests to control the time.
+     *
+     * @param currentTimeMillis Gives the current time in milliseconds.
+     */
+    AccountingRegistry(LongSupplier currentTimeMillis) {
+        revenueWindow = new RevenueWindow(BUCKET_LENGTH, BUCKET_COUNT, currentTimeMillis);
     }
 
     /**
      * Updates the <code>AccountingRegistry</code> system with the completed sale data.
      * This method simulates updating an external accounting system by printing a message to the console.
+     * A sale that has already been booked is ignored.
      *
      * @param saleDTO The {@link SaleDTO} containing sale information.
      */
+    @Override
     public void updateAccounting(SaleDTO saleDTO) {
+        if (!markBooked(saleDTO)) {
+            return;
+        }
         double saleTotal = saleDTO.total().getValue();
-        totalRevenue += saleTotal;
+        totalRevenue.add(saleTotal);
+        for (VatRateTotalDTO vatRateTotal : saleDTO.vatRateTotals()) {
+            vatPerRate.merge(vatRateTotal.vatRate(), vatRateTotal.vat(), Amount::add);
+        }
+        salesStore.append(saleDTO);
+        revenueWindow.record(Math.round(saleTotal * ORE_PER_KRONA), Math.round(saleDTO.totalVat().getValue() * ORE_PER_KRONA));
+
+        System.out.printf("[%s]: Accounting updated. Total revenue: %.2f%n", this.getClass().getSimpleName().toUpperCase(), totalRevenue.sum());
+    }
+
+    /**
+     * Takes a refund off the booked revenue and VAT, and adds its lines to the sales store as negative lines.
+     * A refund that has already been booked is ignored.
+     *
+     * @param refundDTO The returned lines, as created by {@link se.kth.iv1350.pos.model.Refund Refund}.
+     */
+    @Override
+    public void refundAccounting(SaleDTO refundDTO) {
+        if (!markBooked(refundDTO)) {
+            return;
+        }
+        totalRevenue.add(-refundDTO.total().getValue());
+        for (VatRateTotalDTO vatRateTotal : refundDTO.vatRateTotals()) {
+            vatPerRate.merge(vatRateTotal.vatRate(), Amount.ofOre(-Math.round(vatRateTotal.vat().getValue() * ORE_PER_KRONA)), Amount::add);
+        }
+        salesStore.appendRefund(refundDTO);
+
+        System.out.printf("[%s]: Refund booked. Total revenue: %.2f%n", this.getClass().getSimpleName().toUpperCase(), totalRevenue.sum());
+    }
+
+    /**
+     * Gets the store of every line sold today, used for end-of-day reports.
+     *
+     * @return The {@link SalesStore}.
+     */
+    public SalesStore getSalesStore() {
+        return salesStore;
+    }
+
+    /**
+     * Gets the VAT booked so far for the specified VAT rate.
+     *
+     * @param vatRate The VAT rate, for example <code>0.25</code>.
+     * @return The booked VAT as an {@link Amount}, zero if no sale has had items with that rate, and negative if
+     * refunds of earlier sales exceed the sales booked so far.
+     */
+    public Amount getVatForRate(double vatRate) {
+        return vatPerRate.getOrDefault(vatRate, Amount.zero());
+    }
+
+    /**
+     * Gets the revenue, VAT and number of sales of the most recent period, for example the last five minutes.
+     * Sales are counted in one-second buckets covering the last hour, so the period is rounded up to whole seconds
+     * and limited to one hour. Cheap enough to poll every second.
+     *
+     * @param window The length of the period, ending now.
+     * @return A {@link RevenueWindowDTO} with the totals of the period.
+     */
+    public RevenueWindowDTO getRevenueForLast(Duration window) {
+        return revenueWindow.query(window);
+    }
 
-        System.out.printf("[%s]: Accounting updated. Total revenue: %.2f%n", this.getClass().getSimpleName().toUpperCase(), totalRevenue);
+    private boolean markBooked(SaleDTO saleDTO) {
+        synchronized (bookedSaleIDs) {
+            if (!bookedSaleIDs.add(saleDTO.saleID())) {
+                System.out.printf("[%s]: Sale %d already booked.%n", this.getClass().getSimpleName().toUpperCase(), saleDTO.saleID());
+                return false;
+            }
+            return true;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The accounting system as seen by the {@link se.kth.iv1350.pos.controller.Controller Controller}.
+ * Implemented by {@link AccountingRegistry}, and by {@link DelayedAccountingSystem} to simulate a slow backend.
+ */
+public interface AccountingSystem {
+    /**
+     * Books a completed sale.
+     *
+     * @param saleDTO The {@link SaleDTO} containing sale information.
+     */
+    void updateAccounting(SaleDTO saleDTO);
+
+    /**
+     * Books a refund, taking the returned lines off the booked revenue and VAT.
+     *
+     * @param refundDTO The returned lines, as created by {@link se.kth.iv1350.pos.model.Refund Refund}.
+     */
+    void refundAccounting(SaleDTO refundDTO);
+
+    /**
+     * Books a completed sale without waiting for it to be booked.
+     * The default implementation runs {@link #updateAccounting(SaleDTO)} on the common fork-join pool.
+     *
+     * @param saleDTO The {@link SaleDTO} containing sale information.
+     * @return A {@link CompletableFuture} completed when the sale is booked.
+     */
+    default CompletableFuture<Void> updateAccountingAsync(SaleDTO saleDTO) {
+        return CompletableFuture.runAsync(() -> updateAccounting(saleDTO));
+    }
+}
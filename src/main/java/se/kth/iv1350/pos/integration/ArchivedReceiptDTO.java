@@ -0,0 +1,12 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+
+/**
+ * Data Transfer Object for a receipt read from the {@link ReceiptArchive}, used to transfer sale data between layers.
+ * Contains the paid sale as a {@link SaleDTO}, and the <code>amountPaid</code> and <code>change</code> of the payment,
+ * which is all that is needed to print the receipt again.
+ */
+public record ArchivedReceiptDTO(SaleDTO sale, Amount amountPaid, Amount change) {
+}
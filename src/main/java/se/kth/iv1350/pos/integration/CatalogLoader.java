@@ -0,0 +1,354 @@
+package se.kth.iv1350.pos.integration;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads the item catalog into an {@link InventoryRegistry}, either from the nightly CSV export or from a binary snapshot.
+ * <p>
+ * The CSV file is split into chunks that end at line breaks, and the chunks are parsed in parallel on the common
+ * {@link ForkJoinPool}, each parser adding its items straight into the registry. After a CSV load a compact binary
+ * snapshot is written next to it, and later starts read that snapshot instead. The snapshot is read through
+ * memory-mapped windows of at most {@link #MAX_WINDOW_BYTES}, so a snapshot of any size can be read, and if it can
+ * not be read at all the CSV file is parsed again.
+ * <p>
+ * The CSV file starts with a header line, which is skipped. Each following line has the format
+ * <code>id,name,description,price,vatRate,quantity</code>. The description may contain commas, since the three number
+ * fields are read from the end of the line. Lines that can not be parsed are ignored.
+ */
+class CatalogLoader {
+    static final long DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    static final long MAX_WINDOW_BYTES = Integer.MAX_VALUE;
+    private static final int SNAPSHOT_MAGIC = 0x504F5343;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int ESTIMATED_BYTES_PER_LINE = 64;
+    private static final byte LINE_BREAK = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SEPARATOR = ',';
+
+    private CatalogLoader() {
+    }
+
+    /**
+     * Loads the catalog, preferring the snapshot if it is at least as new as the CSV file.
+     * If the CSV file had to be parsed, a new snapshot is written. A snapshot that can not be read is replaced the
+     * same way, as long as the CSV file exists.
+     *
+     * @param csvFile      The CSV catalog export.
+     * @param snapshotFile The binary snapshot to read or write.
+     * @return A new {@link InventoryRegistry} holding the catalog.
+     * @throws IOException If neither file can be read, or the snapshot can not be written.
+     */
+    static InventoryRegistry load(Path csvFile, Path snapshotFile) throws IOException {
+        if (isSnapshotCurrent(csvFile, snapshotFile)) {
+            try {
+                return loadSnapshot(snapshotFile);
+            } catch (IOException e) {
+                if (!Files.exists(csvFile)) {
+                    throw e;
+                }
+            }
+        }
+        InventoryRegistry registry = loadCsv(csvFile, DEFAULT_CHUNK_SIZE);
+        writeSnapshot(registry, snapshotFile);
+        return registry;
+    }
+
+    /**
+     * Parses a CSV catalog export in parallel.
+     *
+     * @param csvFile   The CSV catalog export.
+     * @param chunkSize The approximate number of bytes parsed by each task.
+     * @return A new {@link InventoryRegistry} holding the catalog.
+     * @throws IOException If the file can not be read.
+     */
+    static InventoryRegistry loadCsv(Path csvFile, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            InventoryRegistry registry = new InventoryRegistry((int) Math.min(Integer.MAX_VALUE, fileSize / ESTIMATED_BYTES_PER_LINE));
+            List<long[]> chunks = splitIntoChunks(channel, fileSize, chunkSize);
+            try {
+                ForkJoinPool.commonPool().invoke(new ChunkParser(channel, chunks, 0, chunks.size(), registry));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            registry.finishLoading();
+            return registry;
+        }
+    }
+
+    /**
+     * Writes all items of the registry to a binary snapshot. The snapshot is first written to a temporary file,
+     * which then replaces the old snapshot, so a crash never leaves a half-written snapshot behind.
+     *
+     * @param registry     The registry to write.
+     * @param snapshotFile The snapshot file.
+     * @throws IOException If the snapshot can not be written.
+     */
+    static void writeSnapshot(InventoryRegistry registry, Path snapshotFile) throws IOException {
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(registry.size());
+            registry.forEachItem((item, quantity) -> {
+                try {
+                    writeString(out, item.id());
+                    writeString(out, item.name());
+                    writeString(out, item.description());
+                    out.writeDouble(item.price());
+                    out.writeDouble(item.vatRate());
+                    out.writeInt(quantity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a binary snapshot through memory-mapped windows of the largest size that can be mapped.
+     *
+     * @param snapshotFile The snapshot file.
+     * @return A new {@link InventoryRegistry} holding the catalog.
+     * @throws IOException If the file can not be read or is not a catalog snapshot.
+     */
+    static InventoryRegistry loadSnapshot(Path snapshotFile) throws IOException {
+        return loadSnapshot(snapshotFile, MAX_WINDOW_BYTES);
+    }
+
+    /**
+     * Reads a binary snapshot through memory-mapped windows of the specified size. Used by tests to read a small
+     * snapshot through many windows.
+     *
+     * @param snapshotFile The snapshot file.
+     * @param windowBytes  The size of each mapped window, at most {@link #MAX_WINDOW_BYTES}.
+     * @return A new {@link InventoryRegistry} holding the catalog.
+     * @throws IOException If the file can not be read or is not a catalog snapshot.
+     */
+    static InventoryRegistry loadSnapshot(Path snapshotFile, long windowBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            SnapshotReader in = new SnapshotReader(channel, windowBytes);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a catalog snapshot: " + snapshotFile);
+            }
+            int itemCount = in.readInt();
+            InventoryRegistry registry = new InventoryRegistry(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                String id = in.readString();
+                String name = in.readString();
+                String description = in.readString();
+                double price = in.readDouble();
+                double vatRate = in.readDouble();
+                int quantity = in.readInt();
+                registry.putItem(new ItemDTO(id, name, description, price, vatRate), quantity);
+            }
+            registry.finishLoading();
+            return registry;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Truncated catalog snapshot: " + snapshotFile, e);
+        }
+    }
+
+    private static boolean isSnapshotCurrent(Path csvFile, Path snapshotFile) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        if (!Files.exists(csvFile)) {
+            return true;
+        }
+        return Files.getLastModifiedTime(snapshotFile).compareTo(Files.getLastModifiedTime(csvFile)) >= 0;
+    }
+
+    private static List<long[]> splitIntoChunks(FileChannel channel, long fileSize, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long start = endOfLine(channel, 0, fileSize);
+        while (start < fileSize) {
+            long end = start + chunkSize >= fileSize ? fileSize : endOfLine(channel, start + chunkSize, fileSize);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long endOfLine(FileChannel channel, long position, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == LINE_BREAK) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    private static void parseChunk(FileChannel channel, long start, long end, InventoryRegistry registry) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == LINE_BREAK) {
+                parseLine(bytes, lineStart, i, registry);
+                lineStart = i + 1;
+            }
+        }
+    }
+
+    private static void parseLine(byte[] bytes, int start, int end, InventoryRegistry registry) {
+        if (end > start && bytes[end - 1] == CARRIAGE_RETURN) {
+            end--;
+        }
+        int idEnd = indexOf(bytes, start, end);
+        int nameEnd = idEnd < 0 ? -1 : indexOf(bytes, idEnd + 1, end);
+        int vatRateEnd = lastIndexOf(bytes, start, end);
+        int priceEnd = vatRateEnd < 0 ? -1 : lastIndexOf(bytes, start, vatRateEnd);
+        int descriptionEnd = priceEnd < 0 ? -1 : lastIndexOf(bytes, start, priceEnd);
+        if (idEnd <= start || nameEnd < 0 || descriptionEnd <= nameEnd) {
+            return;
+        }
+        try {
+            String id = decode(bytes, start, idEnd);
+            String name = decode(bytes, idEnd + 1, nameEnd);
+            String description = decode(bytes, nameEnd + 1, descriptionEnd);
+            double price = Double.parseDouble(decode(bytes, descriptionEnd + 1, priceEnd));
+            double vatRate = Double.parseDouble(decode(bytes, priceEnd + 1, vatRateEnd));
+            int quantity = Integer.parseInt(decode(bytes, vatRateEnd + 1, end));
+            registry.putItem(new ItemDTO(id, name, description, price, vatRate), quantity);
+        } catch (NumberFormatException e) {
+            // Lines with malformed numbers are ignored, as documented for the file format.
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == SEPARATOR) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (bytes[i] == SEPARATOR) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8).trim();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a snapshot through a window that is mapped again, starting at the next unread byte, whenever the next
+     * value does not fit in what is left of it.
+     */
+    private static final class SnapshotReader {
+        private final FileChannel channel;
+        private final long windowBytes;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        private SnapshotReader(FileChannel channel, long windowBytes) {
+            this.channel = channel;
+            this.windowBytes = Math.min(windowBytes, MAX_WINDOW_BYTES);
+        }
+
+        private int readInt() throws IOException {
+            return ensure(Integer.BYTES).getInt();
+        }
+
+        private double readDouble() throws IOException {
+            return ensure(Double.BYTES).getDouble();
+        }
+
+        private String readString() throws IOException {
+            byte[] bytes = new byte[readInt()];
+            ensure(bytes.length).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (window != null && window.remaining() >= bytes) {
+                return window;
+            }
+            long position = window == null ? 0 : windowStart + window.position();
+            long length = Math.min(Math.max(windowBytes, bytes), channel.size() - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(length, 0));
+            windowStart = position;
+            return window;
+        }
+    }
+
+    /**
+     * Parses a range of chunks, splitting the range in half until each task parses a single chunk.
+     * The tasks are never serialized, so their fields are <code>transient</code>.
+     */
+    private static final class ChunkParser extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient FileChannel channel;
+        private final transient List<long[]> chunks;
+        private final int from;
+        private final int to;
+        private final transient InventoryRegistry registry;
+
+        private ChunkParser(FileChannel channel, List<long[]> chunks, int from, int to, InventoryRegistry registry) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.registry = registry;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        parseChunk(channel, chunks.get(i)[0], chunks.get(i)[1], registry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkParser(channel, chunks, from, middle, registry),
+                    new ChunkParser(channel, chunks, middle, to, registry));
+        }
+    }
+}
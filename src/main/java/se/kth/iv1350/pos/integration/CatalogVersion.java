@@ -0,0 +1,135 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * One immutable version of the item catalog, published by {@link InventoryRegistry}.
+ * <p>
+ * A version consists of a large base map and a small map of changes made since the base was built. A new version
+ * copies only the changes, so publishing a price change does not copy the whole catalog. When the changes grow past
+ * a fraction of the base they are folded into a new base.
+ */
+final class CatalogVersion implements ItemCatalog {
+    private static final int COMPACTION_DIVISOR = 8;
+    private static final int MIN_CHANGES_BEFORE_COMPACTION = 1024;
+
+    private final long version;
+    private final Map<String, ItemDTO> base;
+    private final Map<String, ItemDTO> changes;
+
+    private CatalogVersion(long version, Map<String, ItemDTO> base, Map<String, ItemDTO> changes) {
+        this.version = version;
+        this.base = base;
+        this.changes = changes;
+    }
+
+    /**
+     * Creates the first version of a catalog, which is empty.
+     *
+     * @return A new, empty catalog with version number one.
+     */
+    static CatalogVersion createInitial() {
+        return new CatalogVersion(1, Map.of(), Map.of());
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public ItemDTO findItemById(String itemID) {
+        if (itemID == null) {
+            return null;
+        }
+        ItemDTO changed = changes.get(itemID);
+        if (changed != null) {
+            return changed;
+        }
+        return base.get(itemID);
+    }
+
+    @Override
+    public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+        Map<String, ItemDTO> foundItems = new HashMap<>(itemIDs.size() * 2);
+        for (String itemID : itemIDs) {
+            if (itemID == null || foundItems.containsKey(itemID)) {
+                continue;
+            }
+            ItemDTO item = findItemById(itemID);
+            if (item != null) {
+                foundItems.put(itemID, item);
+            }
+        }
+        return foundItems;
+    }
+
+    /**
+     * Builds the next version, with the items of a loaded catalog added. The loaded map becomes the base of the new
+     * version if this version is empty, so a large catalog is not copied, and must not be changed afterwards.
+     * This version is not changed.
+     *
+     * @param loadedItems The loaded items, by item ID.
+     * @return A new <code>CatalogVersion</code> with the next version number.
+     */
+    CatalogVersion withLoadedItems(Map<String, ItemDTO> loadedItems) {
+        if (base.isEmpty() && changes.isEmpty()) {
+            return new CatalogVersion(version + 1, Collections.unmodifiableMap(loadedItems), Map.of());
+        }
+        Map<String, ItemDTO> compactedBase = new HashMap<>(base);
+        compactedBase.putAll(changes);
+        compactedBase.putAll(loadedItems);
+        return new CatalogVersion(version + 1, Collections.unmodifiableMap(compactedBase), Map.of());
+    }
+
+    /**
+     * Builds the next version, with the specified items added or replaced. This version is not changed.
+     *
+     * @param changedItems The new or changed items.
+     * @return A new <code>CatalogVersion</code> with the next version number.
+     */
+    CatalogVersion withChanges(Collection<ItemDTO> changedItems) {
+        Map<String, ItemDTO> mergedChanges = new HashMap<>(changes);
+        for (ItemDTO item : changedItems) {
+            mergedChanges.put(item.id(), item);
+        }
+        if (mergedChanges.size() > Math.max(MIN_CHANGES_BEFORE_COMPACTION, base.size() / COMPACTION_DIVISOR)) {
+            Map<String, ItemDTO> compactedBase = new HashMap<>(base);
+            compactedBase.putAll(mergedChanges);
+            return new CatalogVersion(version + 1, Collections.unmodifiableMap(compactedBase), Map.of());
+        }
+        return new CatalogVersion(version + 1, base, Collections.unmodifiableMap(mergedChanges));
+    }
+
+    /**
+     * Builds the next version, with the specified items removed. The remaining items are folded into a new base,
+     * so this is meant for rare bulk removals such as moving items to another node. This version is not changed.
+     *
+     * @param removedItemIDs The IDs of the items to remove.
+     * @return A new <code>CatalogVersion</code> with the next version number.
+     */
+    CatalogVersion withoutItems(Collection<String> removedItemIDs) {
+        Map<String, ItemDTO> compactedBase = new HashMap<>(base);
+        compactedBase.putAll(changes);
+        compactedBase.keySet().removeAll(removedItemIDs);
+        return new CatalogVersion(version + 1, Collections.unmodifiableMap(compactedBase), Map.of());
+    }
+
+    /**
+     * Passes every item in this version to the specified consumer.
+     *
+     * @param consumer Receives each item.
+     */
+    void forEachItem(Consumer<ItemDTO> consumer) {
+        for (ItemDTO item : base.values()) {
+            if (!changes.containsKey(item.id())) {
+                consumer.accept(item);
+            }
+        }
+        changes.values().forEach(consumer);
+    }
+}
@@ -0,0 +1,11 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for a batch of changes read from an inventory change log.
+ * Contains the changes as {@link ItemChangeDTO}, the sequence number of the newest change in the log when the batch
+ * was read, and whether the requested changes are no longer kept, so the reader must start over from a snapshot.
+ */
+public record ChangeBatchDTO(List<ItemChangeDTO> changes, long lastSequence, boolean snapshotRequired) {
+}
@@ -0,0 +1,169 @@
+package se.kth.iv1350.pos.integration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Applies a bulk feed of price and stock changes from head office to an {@link InventoryRegistry}.
+ * <p>
+ * The feed is streamed line by line, and repeated changes to the same item are combined so only the last price and
+ * the last quantity of each item are applied. All price changes are published as one new catalog version. Stock
+ * changes are split into partitions by item ID and the partitions are applied in parallel. Lookups keep running on
+ * the current catalog meanwhile.
+ * <p>
+ * Each line has the format <code>PRICE,itemID,price</code> or <code>STOCK,itemID,quantity</code>. Lines that can
+ * not be parsed, negative values, and changes to unknown items are rejected. The report counts records, so the
+ * records combined into one change are all applied or all rejected together.
+ */
+class ChangeFeed {
+    private static final String PRICE = "PRICE";
+    private static final String STOCK = "STOCK";
+    private static final int FIELD_COUNT = 3;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final InventoryRegistry registry;
+    private final Map<String, Change> changes = new HashMap<>();
+    private long records;
+    private long rejectedRecords;
+
+    /**
+     * Creates a new instance that applies changes to the specified registry.
+     *
+     * @param registry The registry to update.
+     */
+    ChangeFeed(InventoryRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Reads and applies the specified change file.
+     *
+     * @param changeFile The change file to apply.
+     * @return A {@link ChangeFeedReportDTO} with counts and throughput.
+     * @throws IOException If the file can not be read.
+     */
+    ChangeFeedReportDTO apply(Path changeFile) throws IOException {
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(changeFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records++;
+                    readRecord(line);
+                }
+            }
+        }
+        LongAdder applied = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        applyPrices(applied, rejected);
+        applyStock(applied, rejected);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        return new ChangeFeedReportDTO(records, applied.sum(), rejectedRecords + rejected.sum(),
+                records * NANOS_PER_SECOND / elapsed);
+    }
+
+    private void readRecord(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != FIELD_COUNT || fields[1].isBlank()) {
+            rejectedRecords++;
+            return;
+        }
+        String type = fields[0].trim();
+        String itemID = fields[1].trim();
+        try {
+            if (PRICE.equals(type)) {
+                double price = Double.parseDouble(fields[2].trim());
+                if (price < 0) {
+                    rejectedRecords++;
+                    return;
+                }
+                Change change = changes.computeIfAbsent(itemID, Change::new);
+                change.price = price;
+                change.priceRecords++;
+            } else if (STOCK.equals(type)) {
+                int quantity = Integer.parseInt(fields[2].trim());
+                if (quantity < 0) {
+                    rejectedRecords++;
+                    return;
+                }
+                Change change = changes.computeIfAbsent(itemID, Change::new);
+                change.quantity = quantity;
+                change.stockRecords++;
+            } else {
+                rejectedRecords++;
+            }
+        } catch (NumberFormatException e) {
+            rejectedRecords++;
+        }
+    }
+
+    private void applyPrices(LongAdder applied, LongAdder rejected) {
+        ItemCatalog catalog = registry.getCatalog();
+        List<ItemDTO> changedItems = new ArrayList<>();
+        long appliedRecords = 0;
+        for (Change change : changes.values()) {
+            if (change.price == null) {
+                continue;
+            }
+            ItemDTO item = catalog.findItemById(change.itemID);
+            if (item == null) {
+                rejected.add(change.priceRecords);
+                continue;
+            }
+            changedItems.add(new ItemDTO(item.id(), item.name(), item.description(), change.price, item.vatRate()));
+            appliedRecords += change.priceRecords;
+        }
+        if (!changedItems.isEmpty()) {
+            registry.updateCatalog(changedItems);
+            applied.add(appliedRecords);
+        }
+    }
+
+    private void applyStock(LongAdder applied, LongAdder rejected) {
+        int partitionCount = Runtime.getRuntime().availableProcessors();
+        List<List<Change>> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Change change : changes.values()) {
+            if (change.quantity != null) {
+                partitions.get(Math.floorMod(change.itemID.hashCode(), partitionCount)).add(change);
+            }
+        }
+        IntStream.range(0, partitionCount).parallel().forEach(partition -> {
+            for (Change change : partitions.get(partition)) {
+                if (registry.findItemById(change.itemID) == null) {
+                    rejected.add(change.stockRecords);
+                    continue;
+                }
+                registry.updateQuantity(change.itemID, change.quantity);
+                applied.add(change.stockRecords);
+            }
+        });
+    }
+
+    /**
+     * The combined changes to one item, and the number of records combined into each. A <code>null</code> field means
+     * the feed did not change that value.
+     */
+    private static final class Change {
+        private final String itemID;
+        private Double price;
+        private Integer quantity;
+        private int priceRecords;
+        private int stockRecords;
+
+        private Change(String itemID) {
+            this.itemID = itemID;
+        }
+    }
+}
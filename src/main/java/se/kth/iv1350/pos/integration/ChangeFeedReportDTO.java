@@ -0,0 +1,10 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Data Transfer Object for the result of applying a price and stock change feed.
+ * Contains the number of records read, the number of applied and rejected records, and the throughput in records per
+ * second. Every record is either applied or rejected, also when repeated records for the same item were combined
+ * into one change, so the applied and rejected records add up to the records read.
+ */
+public record ChangeFeedReportDTO(long records, long appliedRecords, long rejectedRecords, double recordsPerSecond) {
+}
@@ -0,0 +1,72 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An append-only, sequenced log of inventory changes, read by replicas to follow an {@link InventoryRegistry}.
+ * <p>
+ * Every entry holds the full state of one item after a change, so the log is correct even if concurrent changes of the
+ * same item are appended out of order: the state is read while appending, under the log lock, so the last entry of an
+ * item always holds its latest state. Only the newest entries are kept, in a ring. A reader that falls further behind
+ * than that must start over from a snapshot.
+ */
+class ChangeLog {
+    private final ItemChangeDTO[] entries;
+    private long lastSequence;
+
+    /**
+     * Creates a new, empty log.
+     *
+     * @param retainedChanges The number of newest entries kept.
+     */
+    ChangeLog(int retainedChanges) {
+        entries = new ItemChangeDTO[retainedChanges];
+    }
+
+    /**
+     * Appends the current state of an item.
+     *
+     * @param itemID       The ID of the changed item.
+     * @param currentState Reads the current state of the item, called while the log is locked. Returns
+     *                     <code>null</code> if the item no longer exists, in which case nothing is appended.
+     */
+    synchronized void append(String itemID, Function<String, ItemChangeDTO> currentState) {
+        ItemChangeDTO state = currentState.apply(itemID);
+        if (state == null) {
+            return;
+        }
+        lastSequence++;
+        entries[(int) (lastSequence % entries.length)] = new ItemChangeDTO(lastSequence, state.item(), state.quantity());
+    }
+
+    /**
+     * Reads the entries after the specified sequence number.
+     *
+     * @param afterSequence The sequence number of the last entry the reader has applied.
+     * @param maxChanges    The maximum number of entries to read.
+     * @return A {@link ChangeBatchDTO} with the entries, which requires a snapshot if they are no longer kept.
+     */
+    synchronized ChangeBatchDTO read(long afterSequence, int maxChanges) {
+        long oldestKept = Math.max(1, lastSequence - entries.length + 1);
+        if (afterSequence + 1 < oldestKept) {
+            return new ChangeBatchDTO(List.of(), lastSequence, true);
+        }
+        long last = Math.min(lastSequence, afterSequence + maxChanges);
+        List<ItemChangeDTO> changes = new ArrayList<>((int) Math.max(0, last - afterSequence));
+        for (long sequence = afterSequence + 1; sequence <= last; sequence++) {
+            changes.add(entries[(int) (sequence % entries.length)]);
+        }
+        return new ChangeBatchDTO(changes, lastSequence, false);
+    }
+
+    /**
+     * Gets the sequence number of the newest entry.
+     *
+     * @return The sequence number, zero if nothing has been appended.
+     */
+    synchronized long getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,8 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Data Transfer Object for one line of a sale restored from a {@link SaleCheckpoint}, used to transfer sale data
+ * between layers. Contains the {@link ItemDTO} as it was when the item was entered, and the <code>quantity</code>.
+ */
+public record CheckpointLineDTO(ItemDTO item, int quantity) {
+}
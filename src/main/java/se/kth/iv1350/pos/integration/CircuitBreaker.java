@@ -0,0 +1,99 @@
+package se.kth.iv1350.pos.integration;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to a backend that keeps failing, so that callers fail fast instead of waiting for it.
+ * <p>
+ * The breaker starts {@link State#CLOSED}, letting every call through. After a number of failures in a row it
+ * opens, and rejects every call for a while. When that time has passed it is half open, and lets one trial call
+ * through: if the trial succeeds the breaker closes again, if it fails the breaker opens for another period.
+ */
+public class CircuitBreaker {
+    /**
+     * The state of a {@link CircuitBreaker}.
+     */
+    public enum State {
+        /** Calls are let through. */
+        CLOSED,
+        /** Calls are rejected. */
+        OPEN,
+        /** One trial call is let through to see if the backend has recovered. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier currentTimeMillis;
+    private State state = State.CLOSED;
+    private int failuresInRow;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    /**
+     * Creates a new closed breaker.
+     *
+     * @param failureThreshold  The number of failures in a row that opens the breaker.
+     * @param openDuration      How long the breaker stays open before it lets a trial call through.
+     * @param currentTimeMillis Gives the current time in milliseconds.
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier currentTimeMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Asks whether a call may be made now. When half open, only the first caller is allowed, and it must report the
+     * outcome with {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @return <code>true</code> if the call may be made, <code>false</code> if it should be rejected.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && currentTimeMillis.getAsLong() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInProgress = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInProgress) {
+                return false;
+            }
+            trialInProgress = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Reports that a call succeeded. Closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        failuresInRow = 0;
+        trialInProgress = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Reports that a call failed or was too slow. Opens the breaker if the trial call failed, or if there have been
+     * too many failures in a row.
+     */
+    public synchronized void recordFailure() {
+        failuresInRow++;
+        if (state == State.HALF_OPEN || failuresInRow >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = currentTimeMillis.getAsLong();
+            trialInProgress = false;
+        }
+    }
+
+    /**
+     * Gets the current state. An open breaker whose open period has passed is reported as open until the next call
+     * is asked for.
+     *
+     * @return The current {@link State}.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,101 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Decides which store node owns an item, by placing both nodes and item IDs on a ring of 64-bit hash values.
+ * An item is owned by the first node at or after its own position, going round the ring.
+ * <p>
+ * Each node is placed at many positions, its virtual nodes, so the items are spread evenly. When a node is added,
+ * only the items that now fall just before its positions move to it, about <code>1 / N</code> of all items, and every
+ * other item keeps its owner. A ring is never changed; adding a node builds a new ring.
+ */
+final class ConsistentHashRing {
+    private final NavigableMap<Long, String> positions;
+    private final Set<String> nodeIDs;
+    private final int virtualNodes;
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param virtualNodes The number of positions of each node.
+     */
+    ConsistentHashRing(int virtualNodes) {
+        this(new TreeMap<>(), new LinkedHashSet<>(), virtualNodes);
+    }
+
+    private ConsistentHashRing(NavigableMap<Long, String> positions, Set<String> nodeIDs, int virtualNodes) {
+        this.positions = positions;
+        this.nodeIDs = nodeIDs;
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Creates a ring of the specified nodes, the same ring as adding them one by one to an empty ring.
+     *
+     * @param nodeIDs      The IDs of the nodes, in the order they were added.
+     * @param virtualNodes The number of positions of each node.
+     * @return The new <code>ConsistentHashRing</code>.
+     */
+    static ConsistentHashRing of(Collection<String> nodeIDs, int virtualNodes) {
+        ConsistentHashRing ring = new ConsistentHashRing(virtualNodes);
+        for (String nodeID : nodeIDs) {
+            ring = ring.withNode(nodeID);
+        }
+        return ring;
+    }
+
+    /**
+     * Builds a new ring with one more node. This ring is not changed.
+     *
+     * @param nodeID The ID of the node to add.
+     * @return A new <code>ConsistentHashRing</code> that also contains the node.
+     */
+    ConsistentHashRing withNode(String nodeID) {
+        NavigableMap<Long, String> newPositions = new TreeMap<>(positions);
+        for (int i = 0; i < virtualNodes; i++) {
+            newPositions.put(KeyHash.hash64(nodeID + "#" + i), nodeID);
+        }
+        Set<String> newNodeIDs = new LinkedHashSet<>(nodeIDs);
+        newNodeIDs.add(nodeID);
+        return new ConsistentHashRing(newPositions, newNodeIDs, virtualNodes);
+    }
+
+    /**
+     * Finds the node that owns an item.
+     *
+     * @param itemID The ID of the item.
+     * @return The ID of the owning node, or <code>null</code> if the ring has no nodes.
+     */
+    String ownerOf(String itemID) {
+        if (positions.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = positions.ceilingEntry(KeyHash.hash64(itemID));
+        return owner != null ? owner.getValue() : positions.firstEntry().getValue();
+    }
+
+    /**
+     * Gets the IDs of all nodes on the ring, in the order they were added.
+     *
+     * @return The node IDs.
+     */
+    Set<String> getNodeIDs() {
+        return Collections.unmodifiableSet(nodeIDs);
+    }
+
+    /**
+     * Gets the number of positions of each node.
+     *
+     * @return The number of virtual nodes per node.
+     */
+    int getVirtualNodes() {
+        return virtualNodes;
+    }
+}
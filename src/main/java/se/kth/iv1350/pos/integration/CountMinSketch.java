@@ -0,0 +1,74 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * A Count-Min sketch, estimating how much has been counted for any key in a fixed amount of memory.
+ * <p>
+ * With width <code>ceil(e / epsilon)</code> and depth <code>ceil(ln(1 / delta))</code>, an estimate is never below
+ * the true count, and is above the true count by more than <code>epsilon * N</code> with probability at most
+ * <code>delta</code>, where <code>N</code> is the sum of everything counted.
+ * <p>
+ * Each key is hashed once to 64 bits, and row <code>i</code> uses column <code>h1 + i * h2</code> of the two 32-bit
+ * halves. The rows are then independent of each other and of {@link String#hashCode()}, so keys that collide there
+ * do not collide in every row.
+ */
+class CountMinSketch {
+    private final long[][] counts;
+    private final int width;
+    private long total;
+
+    /**
+     * Creates a new sketch with the specified error bounds.
+     *
+     * @param epsilon The maximum overestimate, as a fraction of the total count.
+     * @param delta   The probability that an estimate exceeds that bound.
+     */
+    CountMinSketch(double epsilon, double delta) {
+        width = (int) Math.ceil(Math.E / epsilon);
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        counts = new long[depth][width];
+    }
+
+    /**
+     * Adds the specified amount to the count of a key.
+     *
+     * @param key    The key to count.
+     * @param amount The amount to add, must not be negative.
+     */
+    void add(String key, long amount) {
+        long hash = KeyHash.hash64(key);
+        for (int row = 0; row < counts.length; row++) {
+            counts[row][column(hash, row)] += amount;
+        }
+        total += amount;
+    }
+
+    /**
+     * Estimates the count of a key.
+     *
+     * @param key The key.
+     * @return The estimated count, never below the true count.
+     */
+    long estimate(String key) {
+        long hash = KeyHash.hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            estimate = Math.min(estimate, counts[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Gets the sum of everything counted.
+     *
+     * @return The total count.
+     */
+    long getTotal() {
+        return total;
+    }
+
+    private int column(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return (int) Math.floorMod(h1 + (long) row * h2, (long) width);
+    }
+}
@@ -0,0 +1,48 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A stand-in for a remote accounting system, used to see how the POS performs against a slow backend. Every sale is
+ * passed on to another {@link AccountingSystem} after a delay drawn from a {@link LatencyModel}.
+ */
+public class DelayedAccountingSystem implements AccountingSystem {
+    private final AccountingSystem accountingSystem;
+    private final SimulatedLatency latency;
+
+    /**
+     * Creates a new instance that delays every call to the specified accounting system.
+     *
+     * @param accountingSystem The accounting system that books the sales.
+     * @param latencyModel     Draws the delay of each call.
+     */
+    public DelayedAccountingSystem(AccountingSystem accountingSystem, LatencyModel latencyModel) {
+        this.accountingSystem = accountingSystem;
+        this.latency = new SimulatedLatency(latencyModel);
+    }
+
+    @Override
+    public void updateAccounting(SaleDTO saleDTO) {
+        latency.pause();
+        accountingSystem.updateAccounting(saleDTO);
+    }
+
+    @Override
+    public void refundAccounting(SaleDTO refundDTO) {
+        latency.pause();
+        accountingSystem.refundAccounting(refundDTO);
+    }
+
+    /**
+     * Books the sale after the delay, without holding a thread while waiting.
+     *
+     * @param saleDTO The {@link SaleDTO} containing sale information.
+     * @return A {@link CompletableFuture} completed when the sale is booked.
+     */
+    @Override
+    public CompletableFuture<Void> updateAccountingAsync(SaleDTO saleDTO) {
+        return CompletableFuture.runAsync(() -> accountingSystem.updateAccounting(saleDTO), latency.after());
+    }
+}
@@ -0,0 +1,138 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A stand-in for a remote inventory, used to see how the POS performs against a slow backend. Every call is passed
+ * on to another {@link InventorySystem} after a delay drawn from a {@link LatencyModel}. Lookups in the catalogs it
+ * hands out are delayed too, since a sale looks up its items in its catalog.
+ */
+public class DelayedInventorySystem implements InventorySystem {
+    private final InventorySystem inventorySystem;
+    private final SimulatedLatency latency;
+
+    /**
+     * Creates a new instance that delays every call to the specified inventory.
+     *
+     * @param inventorySystem The inventory that answers the calls.
+     * @param latencyModel    Draws the delay of each call.
+     */
+    public DelayedInventorySystem(InventorySystem inventorySystem, LatencyModel latencyModel) {
+        this.inventorySystem = inventorySystem;
+        this.latency = new SimulatedLatency(latencyModel);
+    }
+
+    @Override
+    public ItemDTO findItemById(String itemID) {
+        latency.pause();
+        return inventorySystem.findItemById(itemID);
+    }
+
+    @Override
+    public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+        latency.pause();
+        return inventorySystem.findItemsById(itemIDs);
+    }
+
+    @Override
+    public ItemCatalog getCatalog() {
+        latency.pause();
+        return new DelayedCatalog(inventorySystem.getCatalog());
+    }
+
+    @Override
+    public long updateCatalog(Collection<ItemDTO> changedItems) {
+        latency.pause();
+        return inventorySystem.updateCatalog(changedItems);
+    }
+
+    @Override
+    public void updateQuantity(String itemID, int quantity) {
+        latency.pause();
+        inventorySystem.updateQuantity(itemID, quantity);
+    }
+
+    @Override
+    public boolean reserve(long saleID, String itemID, int quantity) {
+        latency.pause();
+        return inventorySystem.reserve(saleID, itemID, quantity);
+    }
+
+    @Override
+    public void releaseReservation(long saleID, String itemID, int quantity) {
+        latency.pause();
+        inventorySystem.releaseReservation(saleID, itemID, quantity);
+    }
+
+    @Override
+    public void releaseReservations(long saleID) {
+        latency.pause();
+        inventorySystem.releaseReservations(saleID);
+    }
+
+    @Override
+    public void updateInventory(SaleDTO saleDTO) {
+        latency.pause();
+        inventorySystem.updateInventory(saleDTO);
+    }
+
+    @Override
+    public void returnInventory(SaleDTO refundDTO) {
+        latency.pause();
+        inventorySystem.returnInventory(refundDTO);
+    }
+
+    /**
+     * Finds an item after the delay, without holding a thread while waiting.
+     *
+     * @param itemID The ID of the item to find.
+     * @return A {@link CompletableFuture} completed with the {@link ItemDTO}, or with <code>null</code> if not found.
+     */
+    @Override
+    public CompletableFuture<ItemDTO> findItemByIdAsync(String itemID) {
+        return CompletableFuture.supplyAsync(() -> inventorySystem.findItemById(itemID), latency.after());
+    }
+
+    /**
+     * Updates the inventory after the delay, without holding a thread while waiting.
+     *
+     * @param saleDTO The <code>SaleDTO</code> containing sale information.
+     * @return A {@link CompletableFuture} completed when the inventory is updated.
+     */
+    @Override
+    public CompletableFuture<Void> updateInventoryAsync(SaleDTO saleDTO) {
+        return CompletableFuture.runAsync(() -> inventorySystem.updateInventory(saleDTO), latency.after());
+    }
+
+    /**
+     * A catalog whose lookups are delayed like the calls to the inventory.
+     */
+    private final class DelayedCatalog implements ItemCatalog {
+        private final ItemCatalog catalog;
+
+        private DelayedCatalog(ItemCatalog catalog) {
+            this.catalog = catalog;
+        }
+
+        @Override
+        public long getVersion() {
+            return catalog.getVersion();
+        }
+
+        @Override
+        public ItemDTO findItemById(String itemID) {
+            latency.pause();
+            return catalog.findItemById(itemID);
+        }
+
+        @Override
+        public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+            latency.pause();
+            return catalog.findItemsById(itemIDs);
+        }
+    }
+}
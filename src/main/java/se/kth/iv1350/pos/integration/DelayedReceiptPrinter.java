@@ -0,0 +1,40 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A stand-in for a slow receipt printer. Every receipt is passed on to another {@link ReceiptPrinter} after a delay
+ * drawn from a {@link LatencyModel}.
+ */
+public class DelayedReceiptPrinter implements ReceiptPrinter {
+    private final ReceiptPrinter printer;
+    private final SimulatedLatency latency;
+
+    /**
+     * Creates a new instance that delays every receipt sent to the specified printer.
+     *
+     * @param printer      The printer that prints the receipts.
+     * @param latencyModel Draws the delay of each receipt.
+     */
+    public DelayedReceiptPrinter(ReceiptPrinter printer, LatencyModel latencyModel) {
+        this.printer = printer;
+        this.latency = new SimulatedLatency(latencyModel);
+    }
+
+    @Override
+    public void printReceipt(String receipt) {
+        latency.pause();
+        printer.printReceipt(receipt);
+    }
+
+    /**
+     * Prints the receipt after the delay, without holding a thread while waiting.
+     *
+     * @param receipt The receipt string to print.
+     * @return A {@link CompletableFuture} completed when the receipt is printed.
+     */
+    @Override
+    public CompletableFuture<Void> printReceiptAsync(String receipt) {
+        return CompletableFuture.runAsync(() -> printer.printReceipt(receipt), latency.after());
+    }
+}
@@ -0,0 +1,62 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link AccountingSystem} that sends sales to another accounting system through a {@link RegistryGuard}, so that
+ * a slow or failing accounting system does not hold up the checkout. Refunds are passed on unguarded, since the
+ * spill queue of the guard holds sales only, and a refund is rare enough to wait for the accounting system.
+ */
+public class GuardedAccountingSystem implements AccountingSystem {
+    private final AccountingSystem accountingSystem;
+    private final RegistryGuard guard;
+
+    /**
+     * Creates a new instance that books sales through the specified guard.
+     *
+     * @param accountingSystem The accounting system that books the refunds.
+     * @param guard            A guard whose backend is {@link AccountingSystem#updateAccountingAsync(SaleDTO)} of the
+     *                         same accounting system.
+     */
+    public GuardedAccountingSystem(AccountingSystem accountingSystem, RegistryGuard guard) {
+        this.accountingSystem = accountingSystem;
+        this.guard = guard;
+    }
+
+    /**
+     * Books the sale, waiting at most until the deadline of the guard.
+     *
+     * @param saleDTO The {@link SaleDTO} containing sale information.
+     */
+    @Override
+    public void updateAccounting(SaleDTO saleDTO) {
+        guard.submit(saleDTO).join();
+    }
+
+    /**
+     * Books the sale through the guard.
+     *
+     * @param saleDTO The {@link SaleDTO} containing sale information.
+     * @return A {@link CompletableFuture} completed when the sale is booked or spilled, or at the deadline.
+     */
+    @Override
+    public CompletableFuture<Void> updateAccountingAsync(SaleDTO saleDTO) {
+        return guard.submit(saleDTO);
+    }
+
+    @Override
+    public void refundAccounting(SaleDTO refundDTO) {
+        accountingSystem.refundAccounting(refundDTO);
+    }
+
+    /**
+     * Gets the guard in front of the accounting system, to see its state and spilled sales.
+     *
+     * @return The {@link RegistryGuard}.
+     */
+    public RegistryGuard getGuard() {
+        return guard;
+    }
+}
@@ -0,0 +1,110 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link InventorySystem} that sends completed sales to another inventory through a {@link RegistryGuard}, so that
+ * a slow or failing inventory does not hold up payments. Lookups and reservations are passed on unguarded, since a
+ * sale can not go on without their answers, and so are returned items, since the spill queue holds sales only.
+ */
+public class GuardedInventorySystem implements InventorySystem {
+    private final InventorySystem inventorySystem;
+    private final RegistryGuard guard;
+
+    /**
+     * Creates a new instance that guards the stock updates of the specified inventory.
+     *
+     * @param inventorySystem The inventory that answers the calls.
+     * @param guard           A guard whose backend is {@link InventorySystem#updateInventoryAsync(SaleDTO)} of the
+     *                        same inventory.
+     */
+    public GuardedInventorySystem(InventorySystem inventorySystem, RegistryGuard guard) {
+        this.inventorySystem = inventorySystem;
+        this.guard = guard;
+    }
+
+    @Override
+    public ItemDTO findItemById(String itemID) {
+        return inventorySystem.findItemById(itemID);
+    }
+
+    @Override
+    public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+        return inventorySystem.findItemsById(itemIDs);
+    }
+
+    @Override
+    public ItemCatalog getCatalog() {
+        return inventorySystem.getCatalog();
+    }
+
+    @Override
+    public long updateCatalog(Collection<ItemDTO> changedItems) {
+        return inventorySystem.updateCatalog(changedItems);
+    }
+
+    @Override
+    public void updateQuantity(String itemID, int quantity) {
+        inventorySystem.updateQuantity(itemID, quantity);
+    }
+
+    @Override
+    public boolean reserve(long saleID, String itemID, int quantity) {
+        return inventorySystem.reserve(saleID, itemID, quantity);
+    }
+
+    @Override
+    public void releaseReservation(long saleID, String itemID, int quantity) {
+        inventorySystem.releaseReservation(saleID, itemID, quantity);
+    }
+
+    @Override
+    public void releaseReservations(long saleID) {
+        inventorySystem.releaseReservations(saleID);
+    }
+
+    /**
+     * Updates the inventory with a completed sale, waiting at most until the deadline of the guard.
+     *
+     * @param saleDTO The <code>SaleDTO</code> containing sale information.
+     */
+    @Override
+    public void updateInventory(SaleDTO saleDTO) {
+        guard.submit(saleDTO).join();
+    }
+
+    @Override
+    public void returnInventory(SaleDTO refundDTO) {
+        inventorySystem.returnInventory(refundDTO);
+    }
+
+    @Override
+    public CompletableFuture<ItemDTO> findItemByIdAsync(String itemID) {
+        return inventorySystem.findItemByIdAsync(itemID);
+    }
+
+    /**
+     * Updates the inventory with a completed sale through the guard.
+     *
+     * @param saleDTO The <code>SaleDTO</code> containing sale information.
+     * @return A {@link CompletableFuture} completed when the inventory is updated or the sale is spilled, or at the
+     * deadline.
+     */
+    @Override
+    public CompletableFuture<Void> updateInventoryAsync(SaleDTO saleDTO) {
+        return guard.submit(saleDTO);
+    }
+
+    /**
+     * Gets the guard in front of the stock updates, to see its state and spilled sales.
+     *
+     * @return The {@link RegistryGuard}.
+     */
+    public RegistryGuard getGuard() {
+        return guard;
+    }
+}
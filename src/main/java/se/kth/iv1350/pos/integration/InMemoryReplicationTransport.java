@@ -0,0 +1,44 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link ReplicationTransport} for a leader and replicas running in the same process. Creating the transport starts
+ * the change log of the leader. Requests are served asynchronously, on the common fork-join pool.
+ */
+public class InMemoryReplicationTransport implements ReplicationTransport {
+    static final int DEFAULT_RETAINED_CHANGES = 64 * 1024;
+    private final InventoryRegistry leader;
+    private final ChangeLog changeLog;
+
+    /**
+     * Creates a new transport that replicates the specified registry, keeping a default number of changes.
+     *
+     * @param leader The registry to replicate.
+     */
+    public InMemoryReplicationTransport(InventoryRegistry leader) {
+        this(leader, DEFAULT_RETAINED_CHANGES);
+    }
+
+    /**
+     * Creates a new transport that replicates the specified registry.
+     *
+     * @param leader          The registry to replicate.
+     * @param retainedChanges The number of newest changes kept in the change log. A replica that falls further behind
+     *                        starts over from a snapshot.
+     */
+    public InMemoryReplicationTransport(InventoryRegistry leader, int retainedChanges) {
+        this.leader = leader;
+        this.changeLog = leader.startChangeLog(retainedChanges);
+    }
+
+    @Override
+    public CompletableFuture<ChangeBatchDTO> fetchChanges(long afterSequence, int maxChanges) {
+        return CompletableFuture.supplyAsync(() -> changeLog.read(afterSequence, maxChanges));
+    }
+
+    @Override
+    public CompletableFuture<InventorySnapshotDTO> fetchSnapshot() {
+        return CompletableFuture.supplyAsync(leader::snapshot);
+    }
+}
@@ -0,0 +1,148 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A {@link ShardTransport} for store nodes running in the same process. Each node holds its part of the catalog in
+ * an {@link InventoryRegistry}, and every node has its own request thread, so requests to one node run one at a time
+ * and in order, while requests to different nodes run in parallel, as they would on separate machines.
+ */
+public class InMemoryShardTransport implements ShardTransport {
+    private static final int NODE_CAPACITY = 1024;
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+    @Override
+    public void startNode(String nodeID) {
+        ExecutorService requestThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-node-" + nodeID);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Node previous = nodes.put(nodeID, new Node(new InventoryRegistry(NODE_CAPACITY), requestThread));
+        if (previous != null) {
+            previous.requestThread.shutdown();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ItemDTO> findItemById(String nodeID, String itemID) {
+        return dispatch(nodeID, node -> node.findItemById(itemID));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, ItemDTO>> findItemsById(String nodeID, Collection<String> itemIDs) {
+        return dispatch(nodeID, node -> node.findItemsById(itemIDs));
+    }
+
+    @Override
+    public CompletableFuture<ItemCatalog> getCatalog(String nodeID) {
+        return dispatch(nodeID, InventoryRegistry::getCatalog);
+    }
+
+    @Override
+    public CompletableFuture<Long> updateCatalog(String nodeID, Collection<ItemDTO> changedItems) {
+        return dispatch(nodeID, node -> node.updateCatalog(changedItems));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateQuantity(String nodeID, String itemID, int quantity) {
+        return dispatch(nodeID, node -> {
+            node.updateQuantity(itemID, quantity);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> reserve(String nodeID, long saleID, String itemID, int quantity) {
+        return dispatch(nodeID, node -> node.reserve(saleID, itemID, quantity));
+    }
+
+    @Override
+    public CompletableFuture<Void> releaseReservation(String nodeID, long saleID, String itemID, int quantity) {
+        return dispatch(nodeID, node -> {
+            node.releaseReservation(saleID, itemID, quantity);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> releaseReservations(String nodeID, long saleID) {
+        return dispatch(nodeID, node -> {
+            node.releaseReservations(saleID);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateInventory(String nodeID, SaleDTO saleDTO) {
+        return dispatch(nodeID, node -> {
+            node.updateInventory(saleDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> returnInventory(String nodeID, SaleDTO refundDTO) {
+        return dispatch(nodeID, node -> {
+            node.returnInventory(refundDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<StockedItemDTO>> exportItems(String nodeID, List<String> ringNodeIDs,
+                                                               int virtualNodes, String ownerID) {
+        ConsistentHashRing ring = ConsistentHashRing.of(ringNodeIDs, virtualNodes);
+        return dispatch(nodeID, node -> node.exportItems(itemID -> ownerID.equals(ring.ownerOf(itemID))));
+    }
+
+    @Override
+    public CompletableFuture<Void> putItems(String nodeID, List<StockedItemDTO> items) {
+        return dispatch(nodeID, node -> {
+            node.putItems(items);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removeItems(String nodeID, Collection<String> itemIDs) {
+        return dispatch(nodeID, node -> {
+            node.removeItems(itemIDs);
+            return null;
+        });
+    }
+
+    /**
+     * Gets the registry of a node, to look at its stock directly.
+     *
+     * @param nodeID The ID of the node.
+     * @return The {@link InventoryRegistry} of the node, or <code>null</code> if the node is unknown.
+     */
+    InventoryRegistry getRegistry(String nodeID) {
+        Node node = nodes.get(nodeID);
+        return node == null ? null : node.registry;
+    }
+
+    private <T> CompletableFuture<T> dispatch(String nodeID, Function<InventoryRegistry, T> request) {
+        Node node = nodes.get(nodeID);
+        if (node == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown store node: " + nodeID));
+        }
+        return CompletableFuture.supplyAsync(() -> request.apply(node.registry), node.requestThread);
+    }
+
+    /**
+     * One store node, its registry and the thread that serves its requests.
+     */
+    private record Node(InventoryRegistry registry, ExecutorService requestThread) {
+    }
+}
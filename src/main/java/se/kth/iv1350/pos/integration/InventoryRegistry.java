@@ -1,37 +1,185 @@
 package se.kth.iv1350.pos.integration;
 
 import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+import se.kth.iv1350.pos.util.TimerWheel;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
 
 /**
  * Simulates an external inventory system, storing and retrieving item data.
  * Receives sale data as {@link SaleDTO} from the controller.
+ * <p>
+ * Item descriptions and prices are kept in immutable {@link ItemCatalog} versions. A price change builds a new version
+ * and publishes it with one atomic reference swap, so lookups never block and never see a half-updated catalog.
+ * Quantities in stock are kept separately, per item.
+ * <p>
+ * Each item can have a reorder threshold. The change that takes the stock from above the threshold to at or below it
+ * publishes one {@link LowStockEvent}, which is delivered to every {@link LowStockObserver} on a separate thread.
+ * Detecting the crossing costs one comparison per stock change, however many items the inventory holds. Events are
+ * delivered at most once: if the observers fall too far behind, new events are dropped and counted, see
+ * {@link #getDroppedLowStockEvents()}.
+ * <p>
+ * Stock is reserved for a sale when its items are scanned, so two lanes can not sell the same last item. Reservations
+ * are committed when the sale is booked with {@link #updateInventory(SaleDTO)}, and released when lines are removed or
+ * the sale is abandoned. Reservations of a sale that has not scanned anything for a while expire by themselves; the
+ * expiry times are kept in a {@link TimerWheel}, so scheduling and expiring cost the same however many are pending.
+ * <p>
+ * Updating the inventory is idempotent: a sale or refund whose ID has already been applied is ignored, so one that is
+ * sent again, for example when a replay after an outage reaches the inventory after its deadline and is then sent
+ * once more, never changes the stock twice. The IDs of the most recent {@link #REMEMBERED_SALES} sales are
+ * remembered.
+ * <p>
+ * Once replication is started, every change of an item or its quantity in stock is appended to a {@link ChangeLog},
+ * which {@link ReadReplica}s follow through a {@link ReplicationTransport}.
  */
-public class InventoryRegistry {
-    private final Map<String, ItemData> inventory = new HashMap<>();
+public class InventoryRegistry implements InventorySystem {
+    /**
+     * The number of applied sale IDs that are remembered to ignore sales sent twice.
+     */
+    public static final int REMEMBERED_SALES = 100_000;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long DEFAULT_RESERVATION_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    private static final long RESERVATION_TICK_MILLIS = 1000;
+    private static final int RESERVATION_WHEEL_SLOTS = 1024;
+    private final AtomicReference<CatalogVersion> catalog = new AtomicReference<>(CatalogVersion.createInitial());
+    private final Map<String, ItemData> inventory;
+    private final Object catalogUpdateLock = new Object();
+    private final LowStockNotifier lowStockNotifier = new LowStockNotifier(LowStockNotifier.DEFAULT_QUEUE_CAPACITY);
+    private final Map<Long, SaleReservation> reservations = new ConcurrentHashMap<>();
+    private final Set<Long> appliedSaleIDs = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > REMEMBERED_SALES;
+        }
+    });
+    private final TimerWheel<SaleReservation> reservationExpiry;
+    private final long reservationTimeoutMillis;
+    private volatile boolean reservationExpiryStarted;
+    private volatile ChangeLog changeLog;
+    private volatile Map<String, ItemDTO> loadingItems;
 
     /**
      * Package-private constructor, used only by {@link RegistryCreator}.
      * Initializes inventory.
      */
     InventoryRegistry() {
+        this(DEFAULT_CAPACITY);
         initializeInventory();
+        finishLoading();
+    }
+
+    /**
+     * Package-private constructor, used by {@link CatalogLoader} to create an empty inventory that is then filled
+     * from a catalog file with {@link #putItem(ItemDTO, int)}. The storage is thread safe, so several loader threads
+     * can add items at the same time.
+     *
+     * @param expectedItemCount The number of items the inventory is expected to hold.
+     */
+    InventoryRegistry(int expectedItemCount) {
+        this(expectedItemCount, System::currentTimeMillis, DEFAULT_RESERVATION_TIMEOUT_MILLIS);
     }
 
     /**
-     * Finds an item in the inventory by its ID.
+     * Package-private constructor, used by tests to control the time and the reservation timeout.
+     *
+     * @param expectedItemCount        The number of items the inventory is expected to hold.
+     * @param currentTimeMillis        Gives the current time in milliseconds.
+     * @param reservationTimeoutMillis How long the reservations of a sale are kept after its last scan.
+     */
+    InventoryRegistry(int expectedItemCount, LongSupplier currentTimeMillis, long reservationTimeoutMillis) {
+        this.reservationTimeoutMillis = reservationTimeoutMillis;
+        this.reservationExpiry = new TimerWheel<>(RESERVATION_TICK_MILLIS, RESERVATION_WHEEL_SLOTS, currentTimeMillis,
+                this::expireReservations);
+        int capacity = Math.max(expectedItemCount, DEFAULT_CAPACITY);
+        inventory = new ConcurrentHashMap<>(capacity);
+        loadingItems = new ConcurrentHashMap<>(capacity);
+    }
+
+    /**
+     * Finds an item in the current catalog by its ID.
      *
      * @param itemID The ID of the item to find.
      * @return An {@link ItemDTO} if found, or <code>null</code> if not found.
      */
+    @Override
     public ItemDTO findItemById(String itemID) {
-        ItemData item = inventory.get(itemID);
-        if (item == null) {
-            return null;
+        return catalog.get().findItemById(itemID);
+    }
+
+    /**
+     * Finds several items in the current catalog with one lookup per distinct ID.
+     * IDs that are <code>null</code> or not found are left out of the result.
+     *
+     * @param itemIDs The IDs of the items to find.
+     * @return A map from item ID to {@link ItemDTO} for every item that was found.
+     */
+    @Override
+    public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+        return catalog.get().findItemsById(itemIDs);
+    }
+
+    /**
+     * Gets the current version of the catalog. The returned catalog never changes, even if prices are updated later.
+     *
+     * @return The current {@link ItemCatalog}.
+     */
+    @Override
+    public ItemCatalog getCatalog() {
+        return catalog.get();
+    }
+
+    /**
+     * Publishes a new catalog version with the specified items added or replaced. The new version is built by the
+     * calling thread, typically a background update job, and then made visible with one atomic swap.
+     * Concurrent updates are applied one at a time, while lookups continue on the previous version.
+     * New items start with zero in stock.
+     *
+     * @param changedItems The new or changed items.
+     * @return The version number of the published catalog.
+     */
+    @Override
+    public long updateCatalog(Collection<ItemDTO> changedItems) {
+        synchronized (catalogUpdateLock) {
+            finishLoading();
+            CatalogVersion next = catalog.get().withChanges(changedItems);
+            for (ItemDTO item : changedItems) {
+                inventory.putIfAbsent(item.id(), new ItemData(item.id(), 0, lowStockNotifier));
+            }
+            catalog.set(next);
+            for (ItemDTO item : changedItems) {
+                logChange(item.id());
+            }
+            return next.getVersion();
         }
-        return item.toDTO();
+    }
+
+    /**
+     * Applies a bulk feed of price and stock changes, see {@link ChangeFeed} for the file format.
+     * Repeated changes to the same item are combined, and lookups are not stalled while the feed is applied.
+     *
+     * @param changeFile The change file to apply.
+     * @return A {@link ChangeFeedReportDTO} with the applied and rejected counts and the throughput.
+     * @throws IOException If the file can not be read.
+     */
+    public ChangeFeedReportDTO applyChangeFeed(Path changeFile) throws IOException {
+        return new ChangeFeed(this).apply(changeFile);
     }
 
     /**
@@ -41,6 +189,7 @@ public class InventoryRegistry {
      * @param itemID   The ID of the item to update.
      * @param quantity The new quantity to set (must be non-negative).
      */
+    @Override
     public void updateQuantity(String itemID, int quantity) {
         if (itemID == null) {
             return;
@@ -48,56 +197,535 @@ public class InventoryRegistry {
         if (quantity < 0) {
             return;
         }
-        if (!inventory.containsKey(itemID)) {
+        ItemData item = inventory.get(itemID);
+        if (item == null) {
             return;
         }
-        inventory.get(itemID).updateQuantity(quantity);
+        item.updateQuantity(quantity);
+        logChange(itemID);
+    }
+
+    /**
+     * Reserves stock of an item for a sale, so it can not be sold by another sale. The reservation is taken only if
+     * enough stock is available, checked and taken in one atomic step. Reserving again for the same sale adds to its
+     * reservation and restarts the timeout of all its reservations.
+     *
+     * @param saleID   The ID of the sale.
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity to reserve.
+     * @return <code>true</code> if the stock was reserved, <code>false</code> if the item is not found, the quantity
+     * is below one, or not enough stock is available.
+     */
+    @Override
+    public boolean reserve(long saleID, String itemID, int quantity) {
+        if (itemID == null || quantity < 1) {
+            return false;
+        }
+        ItemData item = inventory.get(itemID);
+        if (item == null || !item.tryReserve(quantity)) {
+            return false;
+        }
+        addToReservation(saleID, itemID, quantity);
+        return true;
+    }
+
+    /**
+     * Releases part of the stock reserved for a sale, for example when a line is removed or its quantity lowered.
+     * At most the reserved quantity is released. Does nothing if the sale has no reservation for the item.
+     *
+     * @param saleID   The ID of the sale.
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity to release.
+     */
+    @Override
+    public void releaseReservation(long saleID, String itemID, int quantity) {
+        SaleReservation reservation = reservations.get(saleID);
+        if (reservation == null || itemID == null || quantity < 1) {
+            return;
+        }
+        synchronized (reservation) {
+            Integer reserved = reservation.quantities.get(itemID);
+            if (reservation.closed || reserved == null) {
+                return;
+            }
+            int released = Math.min(reserved, quantity);
+            if (released == reserved) {
+                reservation.quantities.remove(itemID);
+            } else {
+                reservation.quantities.put(itemID, reserved - released);
+            }
+            releaseStock(itemID, released);
+        }
+    }
+
+    /**
+     * Releases all stock reserved for a sale, for example when the sale is abandoned.
+     *
+     * @param saleID The ID of the sale.
+     */
+    @Override
+    public void releaseReservations(long saleID) {
+        Map<String, Integer> reserved = closeReservation(saleID);
+        reserved.forEach(this::releaseStock);
+    }
+
+    /**
+     * Sets the reorder threshold of an item. A {@link LowStockEvent} is published the next time the stock falls from
+     * above the threshold to at or below it. If the item is not found or the threshold is negative, this method does
+     * nothing.
+     *
+     * @param itemID           The ID of the item.
+     * @param reorderThreshold The quantity at which the item should be reordered.
+     */
+    public void setReorderThreshold(String itemID, int reorderThreshold) {
+        if (itemID == null || reorderThreshold < 0) {
+            return;
+        }
+        ItemData item = inventory.get(itemID);
+        if (item != null) {
+            item.reorderThreshold = reorderThreshold;
+        }
+    }
+
+    /**
+     * Adds an observer that is notified when an item runs low.
+     *
+     * @param observer The {@link LowStockObserver} to notify.
+     */
+    public void addLowStockObserver(LowStockObserver observer) {
+        lowStockNotifier.addObserver(observer);
+    }
+
+    /**
+     * Gets the number of low stock events that were dropped, without being delivered, because the observers were
+     * too far behind.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedLowStockEvents() {
+        return lowStockNotifier.getDroppedEvents();
+    }
+
+    /**
+     * Gets the quantity in stock of an item.
+     *
+     * @param itemID The ID of the item.
+     * @return The quantity in stock, or <code>-1</code> if the item is not found.
+     */
+    int getQuantity(String itemID) {
+        ItemData item = inventory.get(itemID);
+        if (item == null) {
+            return -1;
+        }
+        return item.quantity.get();
+    }
+
+    /**
+     * Gets the quantity of an item that is in stock and not reserved.
+     *
+     * @param itemID The ID of the item.
+     * @return The available quantity, or <code>-1</code> if the item is not found.
+     */
+    int getAvailableQuantity(String itemID) {
+        ItemData item = inventory.get(itemID);
+        if (item == null) {
+            return -1;
+        }
+        return item.available.get();
+    }
+
+    /**
+     * Expires the reservations of every sale whose timeout has passed. Normally done once a second by a background
+     * thread, and used by tests that control the time.
+     *
+     * @return The number of sales whose reservations expired.
+     */
+    int expirePendingReservations() {
+        return reservationExpiry.advance();
+    }
+
+    /**
+     * Adds an item to the catalog being loaded, replacing any item with the same ID. The loaded items can not be
+     * found until {@link #finishLoading()} publishes them, and no more items can be added after that.
+     *
+     * @param item     The item data as an {@link ItemDTO}.
+     * @param quantity The quantity in stock.
+     * @return <code>true</code> if the item was added, <code>false</code> if loading has already finished.
+     */
+    boolean putItem(ItemDTO item, int quantity) {
+        Map<String, ItemDTO> loading = loadingItems;
+        if (loading == null) {
+            return false;
+        }
+        loading.put(item.id(), item);
+        inventory.put(item.id(), new ItemData(item.id(), quantity, lowStockNotifier));
+        return true;
+    }
+
+    /**
+     * Publishes the items added with {@link #putItem(ItemDTO, int)} as one new catalog version. Later changes are made
+     * with {@link #updateCatalog(Collection)}, which also finishes loading if that has not been done. Does nothing if
+     * loading has already finished.
+     */
+    void finishLoading() {
+        synchronized (catalogUpdateLock) {
+            Map<String, ItemDTO> loaded = loadingItems;
+            if (loaded == null) {
+                return;
+            }
+            loadingItems = null;
+            catalog.set(catalog.get().withLoadedItems(loaded));
+            loaded.keySet().forEach(this::logChange);
+        }
+    }
+
+    /**
+     * Sets the quantity in stock of an item to a value copied from another node. Unlike
+     * {@link #updateQuantity(String, int)} a negative quantity is accepted, since the leader's stock goes below zero
+     * when more is sold than it knew it had. Used by {@link ReadReplica}. If the item is not found, this method does
+     * nothing.
+     *
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity in stock on the other node.
+     */
+    void replicateQuantity(String itemID, int quantity) {
+        ItemData item = inventory.get(itemID);
+        if (item == null) {
+            return;
+        }
+        item.updateQuantity(quantity);
+        logChange(itemID);
+    }
+
+    /**
+     * Starts appending every change to a change log, if that is not already done.
+     *
+     * @param retainedChanges The number of newest changes kept in the log.
+     * @return The change log.
+     */
+    synchronized ChangeLog startChangeLog(int retainedChanges) {
+        if (changeLog == null) {
+            changeLog = new ChangeLog(retainedChanges);
+        }
+        return changeLog;
+    }
+
+    /**
+     * Copies every item and its quantity in stock, for a replica that starts following the change log.
+     * The copy is consistent with the sequence number read before copying: a change made while copying may already be
+     * in the copy, but is also in the log after that sequence number and is applied again, which does no harm.
+     *
+     * @return An {@link InventorySnapshotDTO} of the inventory.
+     */
+    InventorySnapshotDTO snapshot() {
+        long sequence = changeLog == null ? 0 : changeLog.getLastSequence();
+        List<ItemChangeDTO> items = new ArrayList<>(inventory.size());
+        forEachItem((item, quantity) -> items.add(new ItemChangeDTO(sequence, item, quantity)));
+        return new InventorySnapshotDTO(sequence, items);
+    }
+
+    /**
+     * Copies the selected items with their quantity in stock and the quantity each open sale has reserved, so they
+     * can be moved to another node with {@link #putItems(Collection)}.
+     *
+     * @param selected Tells, by item ID, which items to copy.
+     * @return The selected items as {@link StockedItemDTO}s.
+     */
+    List<StockedItemDTO> exportItems(Predicate<String> selected) {
+        Map<String, Map<Long, Integer>> reservedByItem = new HashMap<>();
+        for (SaleReservation reservation : reservations.values()) {
+            synchronized (reservation) {
+                if (reservation.closed) {
+                    continue;
+                }
+                reservation.quantities.forEach((itemID, quantity) -> {
+                    if (selected.test(itemID)) {
+                        reservedByItem.computeIfAbsent(itemID, id -> new HashMap<>()).put(reservation.saleID, quantity);
+                    }
+                });
+            }
+        }
+        List<StockedItemDTO> items = new ArrayList<>();
+        forEachItem((item, quantity) -> {
+            if (selected.test(item.id())) {
+                items.add(new StockedItemDTO(item, quantity,
+                        Map.copyOf(reservedByItem.getOrDefault(item.id(), Map.of()))));
+            }
+        });
+        return items;
+    }
+
+    /**
+     * Adds items copied from another node with {@link #exportItems(Predicate)}, replacing any items with the same IDs.
+     * The reservations of the items are taken again for the same sales, so the reserved stock stays unavailable, and
+     * expire after the reservation timeout unless the sales go on.
+     *
+     * @param items The items as {@link StockedItemDTO}s.
+     */
+    void putItems(Collection<StockedItemDTO> items) {
+        for (StockedItemDTO stocked : items) {
+            inventory.put(stocked.item().id(), new ItemData(stocked.item().id(), stocked.quantity(), lowStockNotifier));
+        }
+        updateCatalog(items.stream().map(StockedItemDTO::item).toList());
+        for (StockedItemDTO stocked : items) {
+            ItemData item = inventory.get(stocked.item().id());
+            stocked.reservations().forEach((saleID, quantity) -> {
+                item.available.addAndGet(-quantity);
+                addToReservation(saleID, stocked.item().id(), quantity);
+            });
+        }
+    }
+
+    /**
+     * Removes items from the catalog and the inventory, for example when they are moved to another node.
+     * Stock reserved for the removed items is taken out of the reservations, without being released.
+     *
+     * @param itemIDs The IDs of the items to remove.
+     */
+    void removeItems(Collection<String> itemIDs) {
+        synchronized (catalogUpdateLock) {
+            finishLoading();
+            catalog.set(catalog.get().withoutItems(itemIDs));
+            inventory.keySet().removeAll(itemIDs);
+        }
+        Set<String> removed = new HashSet<>(itemIDs);
+        for (SaleReservation reservation : reservations.values()) {
+            synchronized (reservation) {
+                reservation.quantities.keySet().removeIf(removed::contains);
+            }
+        }
+    }
+
+    /**
+     * Passes every item and its quantity in stock to the specified consumer. Used when writing a catalog snapshot.
+     *
+     * @param consumer Receives each item as an {@link ItemDTO} together with its quantity.
+     */
+    void forEachItem(ObjIntConsumer<ItemDTO> consumer) {
+        catalog.get().forEachItem(item -> {
+            ItemData stock = inventory.get(item.id());
+            consumer.accept(item, stock == null ? 0 : stock.quantity.get());
+        });
+    }
+
+    /**
+     * Gets the number of items in the inventory.
+     *
+     * @return The number of items.
+     */
+    int size() {
+        return inventory.size();
     }
 
     private void initializeInventory() {
-        inventory.put("1", new ItemData("1", "Medicine", "Pain relief medicine", 10, 0.0, 4));
-        inventory.put("2", new ItemData("2", "Newspaper", "Aftonbladet", 20, 0.06, 6));
-        inventory.put("3", new ItemData("3", "Egg", "Free-range eggs", 30, 0.12, 8));
-        inventory.put("4", new ItemData("4", "Phone", "Smartphone", 40, 0.25, 8));
+        putItem(new ItemDTO("1", "Medicine", "Pain relief medicine", 10, 0.0), 4);
+        putItem(new ItemDTO("2", "Newspaper", "Aftonbladet", 20, 0.06), 6);
+        putItem(new ItemDTO("3", "Egg", "Free-range eggs", 30, 0.12), 8);
+        putItem(new ItemDTO("4", "Phone", "Smartphone", 40, 0.25), 8);
     }
 
     /**
-     * Updates the inventory system with the completed sale data.
-     * Currently, does not perform any actual operations.
+     * Updates the inventory system with the completed sale data, taking the sold quantity of every line out of stock.
+     * Stock reserved for the sale is committed, and any reserved stock that was not sold is released.
+     * Lines with unknown items are skipped, and a sale that has already been applied is ignored.
      *
      * @param saleDTO The <code>SaleDTO</code> containing sale information.
      */
+    @Override
     public void updateInventory(SaleDTO saleDTO) {
+        if (!markApplied(saleDTO)) {
+            return;
+        }
+        Map<String, Integer> reserved = closeReservation(saleDTO.saleID());
+        for (SaleItemDTO line : saleDTO.items()) {
+            ItemData item = inventory.get(line.item().id());
+            if (item != null) {
+                int committed = Math.min(line.quantity(), reserved.getOrDefault(line.item().id(), 0));
+                reserved.merge(line.item().id(), -committed, Integer::sum);
+                item.decreaseQuantity(line.quantity(), committed);
+                logChange(line.item().id());
+            }
+        }
+        reserved.forEach((itemID, quantity) -> {
+            if (quantity > 0) {
+                releaseStock(itemID, quantity);
+            }
+        });
         System.out.printf("[%s]: Inventory updated.%n", this.getClass().getSimpleName().toUpperCase());
     }
 
     /**
-     * Represents a database item, including its ID, name, description, price, VAT rate, and quantity.
+     * Puts the returned quantity of every line back in stock, where it is available for new reservations at once.
+     * Lines with unknown items are skipped, and a refund that has already been applied is ignored.
+     *
+     * @param refundDTO The returned lines, as created by {@link se.kth.iv1350.pos.model.Refund Refund}.
+     */
+    @Override
+    public void returnInventory(SaleDTO refundDTO) {
+        if (!markApplied(refundDTO)) {
+            return;
+        }
+        for (SaleItemDTO line : refundDTO.items()) {
+            ItemData item = inventory.get(line.item().id());
+            if (item != null) {
+                item.increaseQuantity(line.quantity());
+                logChange(line.item().id());
+            }
+        }
+        System.out.printf("[%s]: Returned items put back in stock.%n", this.getClass().getSimpleName().toUpperCase());
+    }
+
+    private boolean markApplied(SaleDTO saleDTO) {
+        synchronized (appliedSaleIDs) {
+            if (!appliedSaleIDs.add(saleDTO.saleID())) {
+                System.out.printf("[%s]: Sale %d already applied.%n", this.getClass().getSimpleName().toUpperCase(), saleDTO.saleID());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void startReservationExpiry() {
+        if (!reservationExpiryStarted) {
+            reservationExpiryStarted = true;
+            reservationExpiry.start("reservation-expiry");
+        }
+    }
+
+    private void logChange(String itemID) {
+        ChangeLog log = changeLog;
+        if (log != null) {
+            log.append(itemID, this::currentState);
+        }
+    }
+
+    private ItemChangeDTO currentState(String itemID) {
+        ItemDTO item = catalog.get().findItemById(itemID);
+        ItemData stock = inventory.get(itemID);
+        if (item == null || stock == null) {
+            return null;
+        }
+        return new ItemChangeDTO(0, item, stock.quantity.get());
+    }
+
+    private void addToReservation(long saleID, String itemID, int quantity) {
+        startReservationExpiry();
+        while (true) {
+            SaleReservation reservation = reservations.computeIfAbsent(saleID, SaleReservation::new);
+            synchronized (reservation) {
+                if (reservation.closed) {
+                    continue;
+                }
+                reservation.quantities.merge(itemID, quantity, Integer::sum);
+                if (reservation.timeout != null) {
+                    reservation.timeout.cancel();
+                }
+                reservation.timeout = reservationExpiry.schedule(reservation, reservationTimeoutMillis);
+                return;
+            }
+        }
+    }
+
+    private void releaseStock(String itemID, int quantity) {
+        ItemData item = inventory.get(itemID);
+        if (item != null) {
+            item.release(quantity);
+        }
+    }
+
+    private void expireReservations(SaleReservation reservation) {
+        releaseReservations(reservation.saleID);
+    }
+
+    private Map<String, Integer> closeReservation(long saleID) {
+        SaleReservation reservation = reservations.remove(saleID);
+        if (reservation == null) {
+            return new HashMap<>();
+        }
+        synchronized (reservation) {
+            reservation.closed = true;
+            if (reservation.timeout != null) {
+                reservation.timeout.cancel();
+            }
+            return reservation.quantities;
+        }
+    }
+
+    /**
+     * The stock reserved for one sale, per item ID. Closed when it is removed from the reservations, after which
+     * nothing more is added to it.
+     */
+    private static final class SaleReservation {
+        private final long saleID;
+        private final Map<String, Integer> quantities = new HashMap<>();
+        private TimerWheel.Timeout<SaleReservation> timeout;
+        private boolean closed;
+
+        private SaleReservation(long saleID) {
+            this.saleID = saleID;
+        }
+    }
+
+    /**
+     * Represents the stock of a database item, its ID, quantity in stock, quantity available for new reservations, and
+     * reorder threshold. The name, description, price and VAT rate are kept in the catalog.
+     * The quantities are changed atomically, so exactly one change sees the stock cross the threshold, and a
+     * reservation never takes more than is available.
      * Can not be seen by other classes.
      */
     private static final class ItemData {
+        private static final int NO_REORDER_THRESHOLD = Integer.MIN_VALUE;
         private final String itemID;
-        private final String name;
-        private final String description;
-        private final double price;
-        private final double vatRate;
-        private int quantity;
+        private final AtomicInteger quantity;
+        private final AtomicInteger available;
+        private final LowStockNotifier lowStockNotifier;
+        private volatile int reorderThreshold = NO_REORDER_THRESHOLD;
 
-        private ItemData(String itemID, String name, String description, double price, double vatRate, int quantity) {
+        private ItemData(String itemID, int quantity, LowStockNotifier lowStockNotifier) {
             this.itemID = itemID;
-            this.name = name;
-            this.description = description;
-            this.price = price;
-            this.vatRate = vatRate;
-            this.quantity = quantity;
+            this.quantity = new AtomicInteger(quantity);
+            this.available = new AtomicInteger(quantity);
+            this.lowStockNotifier = lowStockNotifier;
         }
 
-        private ItemDTO toDTO() {
-            return new ItemDTO(itemID, name, description, price, vatRate);
+        private void updateQuantity(int quantity) {
+            int before = this.quantity.getAndSet(quantity);
+            available.addAndGet(quantity - before);
+            checkThreshold(before, quantity);
         }
 
-        private void updateQuantity(int quantity) {
-            this.quantity = quantity;
+        private void decreaseQuantity(int soldQuantity, int reservedQuantity) {
+            available.addAndGet(reservedQuantity - soldQuantity);
+            int after = quantity.addAndGet(-soldQuantity);
+            checkThreshold(after + soldQuantity, after);
+        }
+
+        private void increaseQuantity(int returnedQuantity) {
+            quantity.addAndGet(returnedQuantity);
+            available.addAndGet(returnedQuantity);
+        }
+
+        private boolean tryReserve(int reservedQuantity) {
+            while (true) {
+                int current = available.get();
+                if (current < reservedQuantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - reservedQuantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release(int releasedQuantity) {
+            available.addAndGet(releasedQuantity);
+        }
+
+        private void checkThreshold(int before, int after) {
+            int threshold = reorderThreshold;
+            if (before > threshold && after <= threshold) {
+                lowStockNotifier.publish(new LowStockEvent(itemID, after, threshold));
+            }
         }
     }
 
@@ -0,0 +1,11 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for a full copy of an inventory, used to start replication.
+ * Contains every item as an {@link ItemChangeDTO}, and the sequence number of the change log it is consistent with:
+ * applying every change after that sequence number brings the copy up to date.
+ */
+public record InventorySnapshotDTO(long sequence, List<ItemChangeDTO> items) {
+}
@@ -0,0 +1,121 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The inventory as seen by the {@link se.kth.iv1350.pos.controller.Controller Controller}: item lookups, stock
+ * reservations and stock updates. Implemented by {@link InventoryRegistry} for a single store node, and by
+ * {@link ShardedInventory} for a catalog split across several nodes, and by {@link DelayedInventorySystem} to simulate
+ * a slow backend.
+ * <p>
+ * The asynchronous variants return at once with a {@link CompletableFuture}. Their default implementations run the
+ * blocking method on the common fork-join pool; implementations that talk to a remote system can do better.
+ */
+public interface InventorySystem {
+    /**
+     * Finds an item in the current catalog by its ID.
+     *
+     * @param itemID The ID of the item to find.
+     * @return An {@link ItemDTO} if found, or <code>null</code> if not found.
+     */
+    ItemDTO findItemById(String itemID);
+
+    /**
+     * Finds several items in the current catalog with one lookup per distinct ID.
+     * IDs that are <code>null</code> or not found are left out of the result.
+     *
+     * @param itemIDs The IDs of the items to find.
+     * @return A map from item ID to {@link ItemDTO} for every item that was found.
+     */
+    Map<String, ItemDTO> findItemsById(Collection<String> itemIDs);
+
+    /**
+     * Gets the current version of the catalog. The returned catalog never changes, even if prices are updated later.
+     *
+     * @return The current {@link ItemCatalog}.
+     */
+    ItemCatalog getCatalog();
+
+    /**
+     * Publishes a new catalog version with the specified items added or replaced. New items start with zero in stock.
+     *
+     * @param changedItems The new or changed items.
+     * @return The version number of the published catalog.
+     */
+    long updateCatalog(Collection<ItemDTO> changedItems);
+
+    /**
+     * Updates the quantity of an item in the inventory.
+     * If the item ID is invalid, the quantity is negative, or the item is not found, this method does nothing.
+     *
+     * @param itemID   The ID of the item to update.
+     * @param quantity The new quantity to set (must be non-negative).
+     */
+    void updateQuantity(String itemID, int quantity);
+
+    /**
+     * Reserves stock of an item for a sale, so it can not be sold by another sale.
+     *
+     * @param saleID   The ID of the sale.
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity to reserve.
+     * @return <code>true</code> if the stock was reserved, <code>false</code> if the item is not found, the quantity
+     * is below one, or not enough stock is available.
+     */
+    boolean reserve(long saleID, String itemID, int quantity);
+
+    /**
+     * Releases part of the stock reserved for a sale. At most the reserved quantity is released.
+     *
+     * @param saleID   The ID of the sale.
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity to release.
+     */
+    void releaseReservation(long saleID, String itemID, int quantity);
+
+    /**
+     * Releases all stock reserved for a sale, for example when the sale is abandoned.
+     *
+     * @param saleID The ID of the sale.
+     */
+    void releaseReservations(long saleID);
+
+    /**
+     * Updates the inventory with a completed sale, taking the sold quantities out of stock and committing the stock
+     * reserved for the sale.
+     *
+     * @param saleDTO The <code>SaleDTO</code> containing sale information.
+     */
+    void updateInventory(SaleDTO saleDTO);
+
+    /**
+     * Puts the returned items of a refund back in stock.
+     *
+     * @param refundDTO The returned lines, as created by {@link se.kth.iv1350.pos.model.Refund Refund}.
+     */
+    void returnInventory(SaleDTO refundDTO);
+
+    /**
+     * Finds an item in the current catalog by its ID without waiting for the answer.
+     *
+     * @param itemID The ID of the item to find.
+     * @return A {@link CompletableFuture} completed with the {@link ItemDTO}, or with <code>null</code> if not found.
+     */
+    default CompletableFuture<ItemDTO> findItemByIdAsync(String itemID) {
+        return CompletableFuture.supplyAsync(() -> findItemById(itemID));
+    }
+
+    /**
+     * Updates the inventory with a completed sale without waiting for the update to finish.
+     *
+     * @param saleDTO The <code>SaleDTO</code> containing sale information.
+     * @return A {@link CompletableFuture} completed when the inventory is updated.
+     */
+    default CompletableFuture<Void> updateInventoryAsync(SaleDTO saleDTO) {
+        return CompletableFuture.runAsync(() -> updateInventory(saleDTO));
+    }
+}
@@ -0,0 +1,34 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A read-only view of the item catalog at one point in time. A catalog never changes once it has been handed out,
+ * so a {@link se.kth.iv1350.pos.model.Sale Sale} that keeps the catalog it started on sees the same prices throughout.
+ */
+public interface ItemCatalog {
+    /**
+     * Gets the version number of this catalog. A higher number means a newer catalog.
+     *
+     * @return The version number.
+     */
+    long getVersion();
+
+    /**
+     * Finds an item in this catalog by its ID.
+     *
+     * @param itemID The ID of the item to find.
+     * @return An {@link ItemDTO} if found, or <code>null</code> if not found.
+     */
+    ItemDTO findItemById(String itemID);
+
+    /**
+     * Finds several items in this catalog with one lookup per distinct ID.
+     * IDs that are <code>null</code> or not found are left out of the result.
+     *
+     * @param itemIDs The IDs of the items to find.
+     * @return A map from item ID to {@link ItemDTO} for every item that was found.
+     */
+    Map<String, ItemDTO> findItemsById(Collection<String> itemIDs);
+}
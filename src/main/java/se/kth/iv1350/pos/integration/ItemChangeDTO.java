@@ -0,0 +1,10 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Data Transfer Object for one entry of an inventory change log, used to replicate the inventory between store nodes.
+ * Contains the sequence number of the change, and the full state of the item right after it: the item as an
+ * {@link ItemDTO} and the quantity in stock. Applying a change overwrites the item, so a change can be applied
+ * more than once without harm.
+ */
+public record ItemChangeDTO(long sequence, ItemDTO item, int quantity) {
+}
@@ -0,0 +1,34 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Hashes keys, such as item IDs, to 64 bits for the structures that place keys by their hash, the
+ * {@link CountMinSketch} and the {@link ConsistentHashRing}.
+ * <p>
+ * The characters of the key are hashed with FNV-1a, and the finalizer of MurmurHash3 then spreads the result over
+ * both 32-bit halves, so either half can be used on its own.
+ */
+final class KeyHash {
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private KeyHash() {
+    }
+
+    /**
+     * Hashes a key to 64 bits.
+     *
+     * @param key The key.
+     * @return The hash of the key.
+     */
+    static long hash64(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,79 @@
+package se.kth.iv1350.pos.integration;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws the delay of one simulated call to a backend system, used by the delayed stand-ins such as
+ * {@link DelayedInventorySystem}. The factory methods cover common shapes of real latency, from a fixed delay to the
+ * long tail of a log-normal distribution.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+    /**
+     * Draws the delay of the next call.
+     *
+     * @return The delay in nanoseconds, never negative.
+     */
+    long nextDelayNanos();
+
+    /**
+     * Creates a model without any delay.
+     *
+     * @return A model that always returns zero.
+     */
+    static LatencyModel none() {
+        return () -> 0;
+    }
+
+    /**
+     * Creates a model with the same delay for every call.
+     *
+     * @param delay The delay.
+     * @return A model that always returns the delay.
+     */
+    static LatencyModel fixed(Duration delay) {
+        long nanos = delay.toNanos();
+        return () -> nanos;
+    }
+
+    /**
+     * Creates a model with a base delay and a uniformly distributed jitter added to it.
+     *
+     * @param base   The smallest delay.
+     * @param jitter The largest extra delay.
+     * @return A model returning delays evenly spread between <code>base</code> and <code>base + jitter</code>.
+     */
+    static LatencyModel uniform(Duration base, Duration jitter) {
+        long baseNanos = base.toNanos();
+        long jitterNanos = jitter.toNanos();
+        return () -> baseNanos + (jitterNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterNanos + 1));
+    }
+
+    /**
+     * Creates a model with normally distributed delays. Delays below zero are returned as zero.
+     *
+     * @param mean              The mean delay.
+     * @param standardDeviation The standard deviation of the delay.
+     * @return A model returning normally distributed delays.
+     */
+    static LatencyModel normal(Duration mean, Duration standardDeviation) {
+        long meanNanos = mean.toNanos();
+        long deviationNanos = standardDeviation.toNanos();
+        return () -> Math.max(0, Math.round(meanNanos + ThreadLocalRandom.current().nextGaussian() * deviationNanos));
+    }
+
+    /**
+     * Creates a model with log-normally distributed delays, where most calls are close to the median and a few are
+     * much slower, as is typical for network calls.
+     *
+     * @param median The median delay.
+     * @param sigma  The spread of the logarithm of the delay. At <code>1.0</code>, one call in a hundred is about ten
+     *               times slower than the median.
+     * @return A model returning log-normally distributed delays.
+     */
+    static LatencyModel logNormal(Duration median, double sigma) {
+        double logMedian = Math.log(median.toNanos());
+        return () -> Math.round(Math.exp(logMedian + ThreadLocalRandom.current().nextGaussian() * sigma));
+    }
+}
@@ -0,0 +1,8 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Sent to every {@link LowStockObserver} when the stock of an item falls to or below its reorder threshold.
+ * Contains the <code>itemID</code>, the quantity left right after the change, and the reorder threshold.
+ */
+public record LowStockEvent(String itemID, int quantity, int reorderThreshold) {
+}
@@ -0,0 +1,87 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers {@link LowStockEvent}s to the registered {@link LowStockObserver}s on a separate thread.
+ * <p>
+ * Events are put in a bounded queue and taken from it by one daemon thread, which is started when the first observer
+ * is added. Publishing never blocks the thread that changed the stock: if the queue is full, the event is dropped and
+ * counted instead. Delivery is therefore at most once, and an observer that must not miss a low stock item should
+ * check the stock of every item when the dropped count has grown.
+ */
+class LowStockNotifier {
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private final BlockingQueue<LowStockEvent> queue;
+    private final List<LowStockObserver> observers = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private Thread dispatcher;
+
+    /**
+     * Creates a new instance with the specified queue capacity.
+     *
+     * @param queueCapacity The maximum number of events waiting to be delivered.
+     */
+    LowStockNotifier(int queueCapacity) {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Adds an observer, which is notified of every event published from now on.
+     *
+     * @param observer The observer to add.
+     */
+    synchronized void addObserver(LowStockObserver observer) {
+        observers.add(observer);
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::dispatch, "low-stock-notifier");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Queues an event for delivery. Does nothing if there are no observers.
+     *
+     * @param event The event to deliver.
+     */
+    void publish(LowStockEvent event) {
+        if (observers.isEmpty()) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of events dropped because the queue was full.
+     *
+     * @return The number of dropped events.
+     */
+    long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private void dispatch() {
+        while (true) {
+            LowStockEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (LowStockObserver observer : observers) {
+                try {
+                    observer.lowStock(event);
+                } catch (RuntimeException e) {
+                    System.out.printf("[%s]: Observer failed: %s%n", getClass().getSimpleName().toUpperCase(), e);
+                }
+            }
+        }
+    }
+}
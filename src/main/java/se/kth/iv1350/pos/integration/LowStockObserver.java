@@ -0,0 +1,14 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Implemented by classes that want to be notified when an item in the inventory runs low.
+ */
+public interface LowStockObserver {
+    /**
+     * Called once each time the stock of an item falls to or below its reorder threshold.
+     * Called on the notification thread of the inventory, never on the thread that changed the stock.
+     *
+     * @param event The {@link LowStockEvent} describing the item.
+     */
+    void lowStock(LowStockEvent event);
+}
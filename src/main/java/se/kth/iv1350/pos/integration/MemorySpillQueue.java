@@ -0,0 +1,62 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link SpillQueue} kept in memory, holding at most a fixed number of sales. Its content is lost if the
+ * application stops.
+ */
+class MemorySpillQueue implements SpillQueue {
+    static final int DEFAULT_CAPACITY = 10_000;
+    private final ArrayDeque<SaleDTO> sales = new ArrayDeque<>();
+    private final int capacity;
+
+    MemorySpillQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty queue.
+     *
+     * @param capacity The largest number of sales the queue holds.
+     */
+    MemorySpillQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized boolean offer(SaleDTO saleDTO) {
+        if (sales.size() >= capacity) {
+            return false;
+        }
+        sales.addLast(saleDTO);
+        return true;
+    }
+
+    @Override
+    public synchronized List<SaleDTO> peek(int maxCount) {
+        List<SaleDTO> head = new ArrayList<>(Math.min(maxCount, sales.size()));
+        Iterator<SaleDTO> iterator = sales.iterator();
+        while (head.size() < maxCount && iterator.hasNext()) {
+            head.add(iterator.next());
+        }
+        return head;
+    }
+
+    @Override
+    public synchronized void remove(int count) {
+        for (int i = 0; i < count && !sales.isEmpty(); i++) {
+            sales.removeFirst();
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return sales.size();
+    }
+}
@@ -5,12 +5,13 @@ import se.kth.iv1350.pos.model.Receipt;
 /**
  * This class is responsible for printing the {@link Receipt} to the console.
  */
-public class Printer {
+public class Printer implements ReceiptPrinter {
     /**
      * Prints the specified receipt.
      *
      * @param receipt The receipt string to print.
      */
+    @Override
     public void printReceipt(String receipt) {
         System.out.println(receipt);
     }
@@ -0,0 +1,196 @@
+package se.kth.iv1350.pos.integration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * A read-only copy of another store node's inventory, kept up to date by following its change log through a
+ * {@link ReplicationTransport}.
+ * <p>
+ * A follower thread fetches the changes in batches and applies each batch to a local {@link InventoryRegistry}, with
+ * one catalog version per batch. A new replica, or one that has fallen further behind than the log keeps, first copies
+ * a snapshot and then applies the log from the snapshot's sequence number.
+ * <p>
+ * Reads are served with bounded staleness: they are answered only if the replica has been fully caught up with the
+ * leader within the maximum staleness, and return nothing otherwise. A failed fetch or apply only delays the next
+ * attempt, so the follower thread keeps running until {@link #stop()} is called.
+ */
+public class ReadReplica {
+    private static final int BATCH_SIZE = 1024;
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    private final ReplicationTransport transport;
+    private final long maxStalenessMillis;
+    private final LongSupplier currentTimeMillis;
+    private volatile InventoryRegistry copy;
+    private volatile long appliedSequence = -1;
+    private volatile long caughtUpAtMillis = Long.MIN_VALUE;
+    private Thread follower;
+
+    /**
+     * Creates a new replica. Nothing is copied until {@link #start()} is called.
+     *
+     * @param transport    The transport used to reach the leader.
+     * @param maxStaleness How long ago the replica may last have been caught up for reads to be answered.
+     */
+    public ReadReplica(ReplicationTransport transport, Duration maxStaleness) {
+        this(transport, maxStaleness, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new replica that reads the time from the specified source. Used by tests to control the time.
+     *
+     * @param transport         The transport used to reach the leader.
+     * @param maxStaleness      How long ago the replica may last have been caught up for reads to be answered.
+     * @param currentTimeMillis Gives the current time in milliseconds.
+     */
+    ReadReplica(ReplicationTransport transport, Duration maxStaleness, LongSupplier currentTimeMillis) {
+        this.transport = transport;
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Starts the follower thread, a daemon thread that keeps the replica up to date. Does nothing if it is already
+     * started.
+     */
+    public synchronized void start() {
+        if (follower != null) {
+            return;
+        }
+        follower = new Thread(this::follow, "read-replica");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    /**
+     * Stops the follower thread. The copy is kept, and reads are answered until it becomes too stale. Does nothing if
+     * the follower thread is not started.
+     */
+    public synchronized void stop() {
+        if (follower == null) {
+            return;
+        }
+        follower.interrupt();
+        follower = null;
+    }
+
+    /**
+     * Finds an item by its ID, if the replica is fresh enough.
+     *
+     * @param itemID The ID of the item to find.
+     * @return An {@link ItemDTO} if found, or <code>null</code> if not found or the replica is too stale.
+     */
+    public ItemDTO findItemById(String itemID) {
+        if (!isFresh()) {
+            return null;
+        }
+        return copy.findItemById(itemID);
+    }
+
+    /**
+     * Gets the quantity in stock of an item, if the replica is fresh enough.
+     *
+     * @param itemID The ID of the item.
+     * @return The quantity in stock, or <code>-1</code> if the item is not found or the replica is too stale.
+     */
+    public int getQuantity(String itemID) {
+        if (!isFresh()) {
+            return -1;
+        }
+        return copy.getQuantity(itemID);
+    }
+
+    /**
+     * Tells if the replica has been fully caught up with the leader within the maximum staleness.
+     *
+     * @return <code>true</code> if reads are answered.
+     */
+    public boolean isFresh() {
+        return copy != null && currentTimeMillis.getAsLong() - caughtUpAtMillis <= maxStalenessMillis;
+    }
+
+    /**
+     * Gets the sequence number of the last applied change.
+     *
+     * @return The sequence number, or <code>-1</code> if nothing has been copied yet.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Fetches and applies one batch of changes, or a snapshot if the replica is new or too far behind.
+     * Called repeatedly by the follower thread, and used by tests to replicate step by step.
+     *
+     * @return The number of changes or snapshot items applied.
+     */
+    int replicateOnce() {
+        if (copy == null) {
+            return applySnapshot();
+        }
+        long requestedAt = currentTimeMillis.getAsLong();
+        ChangeBatchDTO batch = transport.fetchChanges(appliedSequence, BATCH_SIZE).join();
+        if (batch.snapshotRequired()) {
+            return applySnapshot();
+        }
+        applyChanges(batch.changes());
+        if (appliedSequence >= batch.lastSequence()) {
+            caughtUpAtMillis = requestedAt;
+        }
+        return batch.changes().size();
+    }
+
+    private void follow() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int applied;
+            try {
+                applied = replicateOnce();
+            } catch (RuntimeException e) {
+                applied = 0;
+            }
+            if (applied == 0) {
+                try {
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int applySnapshot() {
+        long requestedAt = currentTimeMillis.getAsLong();
+        InventorySnapshotDTO snapshot = transport.fetchSnapshot().join();
+        InventoryRegistry fresh = new InventoryRegistry(snapshot.items().size());
+        for (ItemChangeDTO item : snapshot.items()) {
+            fresh.putItem(item.item(), item.quantity());
+        }
+        fresh.finishLoading();
+        copy = fresh;
+        appliedSequence = snapshot.sequence();
+        caughtUpAtMillis = requestedAt;
+        return snapshot.items().size();
+    }
+
+    private void applyChanges(List<ItemChangeDTO> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        InventoryRegistry target = copy;
+        List<ItemDTO> changedItems = new ArrayList<>();
+        for (ItemChangeDTO change : changes) {
+            if (!change.item().equals(target.findItemById(change.item().id()))) {
+                changedItems.add(change.item());
+            }
+        }
+        if (!changedItems.isEmpty()) {
+            target.updateCatalog(changedItems);
+        }
+        for (ItemChangeDTO change : changes) {
+            target.replicateQuantity(change.item().id(), change.quantity());
+        }
+        appliedSequence = changes.get(changes.size() - 1).sequence();
+    }
+}
@@ -0,0 +1,523 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the receipts of paid sales, so that a receipt can be printed again, for example when a customer asks for a
+ * copy or returns an item.
+ * <p>
+ * A receipt is stored as its paid {@link SaleDTO}, encoded by {@link SaleRecordCodec}, together with the amount paid
+ * and the change, and is printed again by rendering a new {@link se.kth.iv1350.pos.model.Receipt Receipt} from
+ * them. Receipts are collected into blocks of about {@link #DEFAULT_BLOCK_BYTES} bytes, and each full block is
+ * compressed and appended to the file <code>receipts.blk</code>. Since the receipts of one block repeat the same item
+ * names and descriptions, a compressed receipt takes a small fraction of its printed text. The block being filled
+ * is kept uncompressed in the file <code>receipts.pending</code> until it is full.
+ * <p>
+ * The memory-mapped file <code>receipts.idx</code> holds one fixed-size entry per receipt, in the order they were
+ * archived: the sale ID, the time of sale, the position of the block, the position of the receipt within the block,
+ * and how many seconds the time of sale lies before the latest time archived so far. The time of sale is kept as it
+ * is even when a clock was set back, and the latest time so far only grows, so receipts of a period are found by
+ * binary search on it and then filtered by their own time. A hash table over the entries, built when the archive is
+ * opened, finds a receipt by sale ID. A lookup reads and inflates a single block.
+ * <p>
+ * Writes reach the operating system at once and survive a crash of the application. When the archive is opened,
+ * receipts in the pending file that are missing from the index are added to it.
+ * <p>
+ * Items returned from an archived sale are appended to the file <code>receipts.returns</code>, and the quantity
+ * returned of each item is kept in memory per sale, read from the file when the archive is opened. A return is
+ * checked against the archived sale and the earlier returns of the same sale in one step, so an item can not be
+ * returned twice, not even by two lanes at the same time.
+ */
+public class ReceiptArchive implements Closeable {
+    /**
+     * The default size of an uncompressed block.
+     */
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+    private static final String BLOCK_FILE = "receipts.blk";
+    private static final String PENDING_FILE = "receipts.pending";
+    private static final String INDEX_FILE = "receipts.idx";
+    private static final String RETURNS_FILE = "receipts.returns";
+    private static final int INDEX_MAGIC = 0x52435054;
+    private static final int INDEX_HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 8;
+    private static final int ENTRY_BYTES = 32;
+    private static final int SALE_ID_FIELD = 0;
+    private static final int TIME_FIELD = 8;
+    private static final int BLOCK_FIELD = 16;
+    private static final int RECORD_FIELD = 24;
+    private static final int LATENESS_FIELD = 28;
+    private static final long PENDING = -1;
+    private static final int INITIAL_ENTRY_CAPACITY = 1024;
+    private static final int BLOCK_HEADER_BYTES = 8;
+    private static final int EMPTY_SLOT = 0;
+
+    private final int blockBytes;
+    private final FileChannel blockChannel;
+    private final FileChannel pendingChannel;
+    private final FileChannel indexChannel;
+    private final FileChannel returnsChannel;
+    private final Map<Long, Map<String, Integer>> returnedQuantities = new HashMap<>();
+    private final ByteArrayOutputStream pendingBlock = new ByteArrayOutputStream();
+    private MappedByteBuffer index;
+    private int entryCapacity;
+    private int entryCount;
+    private long maxLateness;
+    private int[] saleIDTable = new int[2 * INITIAL_ENTRY_CAPACITY];
+    private long cachedBlockOffset = PENDING;
+    private byte[] cachedBlock;
+
+    /**
+     * Opens the archive in the specified directory with the default block size, creating it if needed.
+     *
+     * @param directory The directory of the archive files.
+     * @throws IOException If the files can not be opened or created.
+     */
+    public ReceiptArchive(Path directory) throws IOException {
+        this(directory, DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * Opens the archive in the specified directory, creating it if needed.
+     *
+     * @param directory  The directory of the archive files.
+     * @param blockBytes The size an uncompressed block grows to before it is compressed.
+     * @throws IOException If the files can not be opened or created.
+     */
+    public ReceiptArchive(Path directory, int blockBytes) throws IOException {
+        this.blockBytes = blockBytes;
+        Files.createDirectories(directory);
+        blockChannel = open(directory.resolve(BLOCK_FILE));
+        pendingChannel = open(directory.resolve(PENDING_FILE));
+        indexChannel = open(directory.resolve(INDEX_FILE));
+        returnsChannel = open(directory.resolve(RETURNS_FILE));
+        openIndex();
+        recoverPending();
+        loadReturns();
+    }
+
+    /**
+     * Archives the receipt of a paid sale.
+     *
+     * @param saleDTO    The paid sale.
+     * @param amountPaid The amount paid.
+     * @param change     The change given back.
+     * @return <code>true</code> if the receipt was archived, <code>false</code> if the files could not be written.
+     */
+    public synchronized boolean archive(SaleDTO saleDTO, Amount amountPaid, Amount change) {
+        byte[] sale = SaleRecordCodec.encode(saleDTO);
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + sale.length + 2 * Double.BYTES);
+        record.putInt(sale.length).put(sale).putDouble(amountPaid.getValue()).putDouble(change.getValue()).flip();
+        try {
+            int recordOffset = pendingBlock.size();
+            long position = recordOffset;
+            while (record.hasRemaining()) {
+                position += pendingChannel.write(record, position);
+            }
+            pendingBlock.write(record.array(), 0, record.limit());
+            addEntry(saleDTO.saleID(), timeKey(saleDTO.timeOfSale()), recordOffset);
+            if (pendingBlock.size() >= blockBytes) {
+                sealBlock();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the receipt of a sale.
+     *
+     * @param saleID The ID of the sale.
+     * @return The receipt as an {@link ArchivedReceiptDTO}, or <code>null</code> if the sale is not archived or
+     * its block can not be read.
+     */
+    public synchronized ArchivedReceiptDTO findBySaleID(long saleID) {
+        int entry = findEntry(saleID);
+        if (entry < 0) {
+            return null;
+        }
+        return readReceipt(entry);
+    }
+
+    /**
+     * Finds the receipts of the sales paid in a period, in the order they were paid.
+     *
+     * @param from The start of the period, inclusive.
+     * @param to   The end of the period, inclusive.
+     * @return The receipts as {@link ArchivedReceiptDTO}s, ordered by time of sale. Empty if there are none.
+     */
+    public synchronized List<ArchivedReceiptDTO> findByTime(LocalDateTime from, LocalDateTime to) {
+        long fromKey = timeKey(from);
+        long toKey = timeKey(to);
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (latestTimeOf(middle) < fromKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<ArchivedReceiptDTO> receipts = new ArrayList<>();
+        // No later entry can be in the period once even the latest lateness can not bring it back.
+        for (int entry = low; entry < entryCount && latestTimeOf(entry) - maxLateness <= toKey; entry++) {
+            long time = timeOf(entry);
+            if (time < fromKey || time > toKey) {
+                continue;
+            }
+            ArchivedReceiptDTO receipt = readReceipt(entry);
+            if (receipt != null) {
+                receipts.add(receipt);
+            }
+        }
+        receipts.sort(Comparator.comparing(receipt -> receipt.sale().timeOfSale()));
+        return receipts;
+    }
+
+    /**
+     * Records items returned from an archived sale, if the sale holds that many of every item, less what has been
+     * returned before.
+     *
+     * @param saleID        The ID of the archived sale.
+     * @param returnedLines The returned lines, of which the item ID and quantity are used.
+     * @return <code>true</code> if the return was recorded, <code>false</code> if the sale is not archived, a quantity
+     * is more than can still be returned, or the file could not be written.
+     */
+    public synchronized boolean recordReturn(long saleID, List<SaleItemDTO> returnedLines) {
+        ArchivedReceiptDTO original = findBySaleID(saleID);
+        if (original == null) {
+            return false;
+        }
+        Map<String, Integer> returnable = new HashMap<>();
+        for (SaleItemDTO line : original.sale().items()) {
+            returnable.merge(line.item().id(), line.quantity(), Integer::sum);
+        }
+        findReturnedQuantities(saleID).forEach((itemID, quantity) -> returnable.merge(itemID, -quantity, Integer::sum));
+        for (SaleItemDTO line : returnedLines) {
+            if (returnable.merge(line.item().id(), -line.quantity(), Integer::sum) < 0) {
+                return false;
+            }
+        }
+        try {
+            for (SaleItemDTO line : returnedLines) {
+                byte[] itemID = line.item().id().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES + itemID.length);
+                record.putLong(saleID).putInt(line.quantity()).putInt(itemID.length).put(itemID).flip();
+                long position = returnsChannel.size();
+                while (record.hasRemaining()) {
+                    position += returnsChannel.write(record, position);
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        for (SaleItemDTO line : returnedLines) {
+            addReturned(saleID, line.item().id(), line.quantity());
+        }
+        return true;
+    }
+
+    /**
+     * Gets the quantity of each item that has been returned from an archived sale.
+     *
+     * @param saleID The ID of the sale.
+     * @return The returned quantity by item ID. Empty if nothing has been returned.
+     */
+    public synchronized Map<String, Integer> findReturnedQuantities(long saleID) {
+        return Map.copyOf(returnedQuantities.getOrDefault(saleID, Map.of()));
+    }
+
+    /**
+     * Gets the number of archived receipts.
+     *
+     * @return The number of receipts.
+     */
+    public synchronized int getReceiptCount() {
+        return entryCount;
+    }
+
+    /**
+     * Gets the number of bytes taken by the archived receipts, compressed and pending, not counting the index.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long getArchivedBytes() {
+        try {
+            return blockChannel.size() + pendingBlock.size();
+        } catch (IOException e) {
+            return pendingBlock.size();
+        }
+    }
+
+    /**
+     * Compresses the pending receipts into a block, even if the block is not full, and closes the files.
+     *
+     * @throws IOException If the block can not be written or a file can not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (pendingBlock.size() > 0) {
+            sealBlock();
+        }
+        blockChannel.close();
+        pendingChannel.close();
+        indexChannel.close();
+        returnsChannel.close();
+    }
+
+    private void sealBlock() throws IOException {
+        byte[] uncompressed = pendingBlock.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(uncompressed);
+        deflater.finish();
+        byte[] compressed = new byte[uncompressed.length + 64];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        deflater.end();
+        long blockOffset = blockChannel.size();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + compressedLength);
+        block.putInt(compressedLength).putInt(uncompressed.length).put(compressed, 0, compressedLength).flip();
+        long position = blockOffset;
+        while (block.hasRemaining()) {
+            position += blockChannel.write(block, position);
+        }
+        blockChannel.force(false);
+        for (int entry = entryCount - 1; entry >= 0 && blockOf(entry) == PENDING; entry--) {
+            index.putLong(entryPosition(entry) + BLOCK_FIELD, blockOffset);
+        }
+        index.force();
+        pendingChannel.truncate(0);
+        pendingBlock.reset();
+    }
+
+    private ArchivedReceiptDTO readReceipt(int entry) {
+        long blockOffset = blockOf(entry);
+        int recordOffset = index.getInt(entryPosition(entry) + RECORD_FIELD);
+        byte[] block = blockOffset == PENDING ? pendingBlock.toByteArray() : readBlock(blockOffset);
+        if (block == null) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.wrap(block, recordOffset, block.length - recordOffset);
+        int saleLength = record.getInt();
+        SaleDTO sale = SaleRecordCodec.decode(record.slice(record.position(), saleLength));
+        record.position(record.position() + saleLength);
+        return new ArchivedReceiptDTO(sale, Amount.of(record.getDouble()), Amount.of(record.getDouble()));
+    }
+
+    private byte[] readBlock(long blockOffset) {
+        if (blockOffset == cachedBlockOffset) {
+            return cachedBlock;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            readFully(blockChannel, header, blockOffset);
+            int compressedLength = header.flip().getInt();
+            byte[] uncompressed = new byte[header.getInt()];
+            ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+            readFully(blockChannel, compressed, blockOffset + BLOCK_HEADER_BYTES);
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed.array());
+            inflater.inflate(uncompressed);
+            inflater.end();
+            cachedBlockOffset = blockOffset;
+            cachedBlock = uncompressed;
+            return uncompressed;
+        } catch (IOException | DataFormatException e) {
+            return null;
+        }
+    }
+
+    private void openIndex() throws IOException {
+        long fileEntries = (indexChannel.size() - INDEX_HEADER_BYTES) / ENTRY_BYTES;
+        mapIndex((int) Math.max(INITIAL_ENTRY_CAPACITY, fileEntries));
+        if (index.getInt(0) != INDEX_MAGIC) {
+            index.putLong(COUNT_OFFSET, 0);
+            index.putInt(0, INDEX_MAGIC);
+        }
+        int count = (int) index.getLong(COUNT_OFFSET);
+        saleIDTable = new int[Integer.highestOneBit(Math.max(count, INITIAL_ENTRY_CAPACITY)) * 4];
+        for (int entry = 0; entry < count; entry++) {
+            insertIntoTable(entry);
+            maxLateness = Math.max(maxLateness, latenessOf(entry));
+        }
+        entryCount = count;
+    }
+
+    private void recoverPending() throws IOException {
+        long pendingSize = pendingChannel.size();
+        ByteBuffer pending = ByteBuffer.allocate((int) pendingSize);
+        readFully(pendingChannel, pending, 0);
+        pending.flip();
+        int wholeRecords = 0;
+        while (pending.remaining() >= Integer.BYTES) {
+            int recordOffset = pending.position();
+            int saleLength = pending.getInt();
+            if (saleLength < 0 || pending.remaining() < saleLength + 2 * Double.BYTES) {
+                break;
+            }
+            SaleDTO sale = SaleRecordCodec.decode(pending.slice(pending.position(), saleLength));
+            pending.position(pending.position() + saleLength + 2 * Double.BYTES);
+            if (sale == null) {
+                break;
+            }
+            int entry = findEntry(sale.saleID());
+            if (entry >= 0 && blockOf(entry) != PENDING) {
+                pendingChannel.truncate(0);
+                return;
+            }
+            if (entry < 0) {
+                addEntry(sale.saleID(), timeKey(sale.timeOfSale()), recordOffset);
+            }
+            wholeRecords = pending.position();
+        }
+        pendingChannel.truncate(wholeRecords);
+        pendingBlock.write(pending.array(), 0, wholeRecords);
+    }
+
+    private void loadReturns() throws IOException {
+        ByteBuffer returns = ByteBuffer.allocate((int) returnsChannel.size());
+        readFully(returnsChannel, returns, 0);
+        returns.flip();
+        int wholeRecords = 0;
+        try {
+            while (returns.hasRemaining()) {
+                long saleID = returns.getLong();
+                int quantity = returns.getInt();
+                byte[] itemID = new byte[returns.getInt()];
+                returns.get(itemID);
+                addReturned(saleID, new String(itemID, StandardCharsets.UTF_8), quantity);
+                wholeRecords = returns.position();
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            returnsChannel.truncate(wholeRecords);
+        }
+    }
+
+    private void addReturned(long saleID, String itemID, int quantity) {
+        returnedQuantities.computeIfAbsent(saleID, id -> new HashMap<>()).merge(itemID, quantity, Integer::sum);
+    }
+
+    private void addEntry(long saleID, long timeKey, int recordOffset) throws IOException {
+        if (entryCount == entryCapacity) {
+            index.force();
+            mapIndex(entryCapacity * 2);
+        }
+        long latestTime = entryCount > 0 ? Math.max(timeKey, latestTimeOf(entryCount - 1)) : timeKey;
+        int lateness = (int) Math.min(latestTime - timeKey, Integer.MAX_VALUE);
+        maxLateness = Math.max(maxLateness, lateness);
+        int position = entryPosition(entryCount);
+        index.putLong(position + SALE_ID_FIELD, saleID);
+        index.putLong(position + TIME_FIELD, timeKey);
+        index.putLong(position + BLOCK_FIELD, PENDING);
+        index.putInt(position + RECORD_FIELD, recordOffset);
+        index.putInt(position + LATENESS_FIELD, lateness);
+        if ((entryCount + 1) * 2 > saleIDTable.length) {
+            saleIDTable = new int[saleIDTable.length * 2];
+            for (int entry = 0; entry < entryCount; entry++) {
+                insertIntoTable(entry);
+            }
+        }
+        insertIntoTable(entryCount);
+        entryCount++;
+        index.putLong(COUNT_OFFSET, entryCount);
+    }
+
+    private int findEntry(long saleID) {
+        int mask = saleIDTable.length - 1;
+        for (int slot = slotOf(saleID, mask); saleIDTable[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            int entry = saleIDTable[slot] - 1;
+            if (index.getLong(entryPosition(entry) + SALE_ID_FIELD) == saleID) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private void insertIntoTable(int entry) {
+        long saleID = index.getLong(entryPosition(entry) + SALE_ID_FIELD);
+        int mask = saleIDTable.length - 1;
+        int slot = slotOf(saleID, mask);
+        while (saleIDTable[slot] != EMPTY_SLOT
+                && index.getLong(entryPosition(saleIDTable[slot] - 1) + SALE_ID_FIELD) != saleID) {
+            slot = (slot + 1) & mask;
+        }
+        saleIDTable[slot] = entry + 1;
+    }
+
+    private static int slotOf(long saleID, int mask) {
+        long hash = saleID * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void mapIndex(int capacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES + (long) capacity * ENTRY_BYTES);
+        entryCapacity = capacity;
+    }
+
+    private long timeOf(int entry) {
+        return index.getLong(entryPosition(entry) + TIME_FIELD);
+    }
+
+    private int latenessOf(int entry) {
+        return index.getInt(entryPosition(entry) + LATENESS_FIELD);
+    }
+
+    private long latestTimeOf(int entry) {
+        return timeOf(entry) + latenessOf(entry);
+    }
+
+    private long blockOf(int entry) {
+        return index.getLong(entryPosition(entry) + BLOCK_FIELD);
+    }
+
+    private static int entryPosition(int entry) {
+        return INDEX_HEADER_BYTES + entry * ENTRY_BYTES;
+    }
+
+    private static long timeKey(LocalDateTime timeOfSale) {
+        return timeOfSale.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+}
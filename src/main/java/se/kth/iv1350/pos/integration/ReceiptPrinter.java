@@ -0,0 +1,27 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The receipt printer as seen by the {@link se.kth.iv1350.pos.controller.Controller Controller}.
+ * Implemented by {@link Printer}, and by {@link DelayedReceiptPrinter} to simulate a slow printer.
+ */
+public interface ReceiptPrinter {
+    /**
+     * Prints the specified receipt.
+     *
+     * @param receipt The receipt string to print.
+     */
+    void printReceipt(String receipt);
+
+    /**
+     * Prints the specified receipt without waiting for it to be printed.
+     * The default implementation runs {@link #printReceipt(String)} on the common fork-join pool.
+     *
+     * @param receipt The receipt string to print.
+     * @return A {@link CompletableFuture} completed when the receipt is printed.
+     */
+    default CompletableFuture<Void> printReceiptAsync(String receipt) {
+        return CompletableFuture.runAsync(() -> printReceipt(receipt));
+    }
+}
@@ -1,29 +1,119 @@
 package se.kth.iv1350.pos.integration;
 
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
 /**
- * Creates and provides access to external system registries such as {@link InventoryRegistry} and {@link AccountingRegistry}.
+ * Creates and provides access to external system registries such as the {@link InventorySystem} and {@link AccountingRegistry}.
  * Used by the {@link se.kth.iv1350.pos.controller.Controller} to access integration layer systems.
+ * <p>
+ * Completed sales are sent to the inventory and the accounting system through a {@link RegistryGuard} each, so a
+ * backend that is slow or down delays a payment by at most {@link #BACKEND_DEADLINE}. The sales it misses are kept
+ * in a spill queue and replayed when it recovers. The spill queues are kept in memory, unless a directory is given
+ * for them, in which case they are kept on disk as {@link SegmentFileQueue}s and survive a restart. The receipts of
+ * paid sales are kept in a {@link ReceiptArchive} in the same directory, so that they can be printed again.
  */
 public class RegistryCreator {
-    private final InventoryRegistry inventoryRegistry;
+    /**
+     * The longest time a payment waits for one backend.
+     */
+    public static final Duration BACKEND_DEADLINE = Duration.ofMillis(500);
+    private static final int MAX_CONCURRENT_CALLS = 16;
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+    private final GuardedInventorySystem inventorySystem;
     private final AccountingRegistry accountingRegistry;
+    private final GuardedAccountingSystem accountingSystem;
+    private final SalesAnalytics salesAnalytics = new SalesAnalytics();
+    private final ReceiptArchive receiptArchive;
 
     /**
      * Creates a new instance of <code>RegistryCreator</code>.
      * Initializes the {@link InventoryRegistry} and {@link AccountingRegistry}.
      */
     public RegistryCreator() {
-        inventoryRegistry = new InventoryRegistry();
+        this(new InventoryRegistry());
+    }
+
+    /**
+     * Creates a new instance of <code>RegistryCreator</code> whose inventory and accounting system answer after
+     * simulated delays, to see how the POS performs against remote backends. The registries behind the delays are
+     * the same as with {@link #RegistryCreator()}, and {@link #getAccountingRegistry()} gives direct access to the
+     * accounting registry for reports.
+     *
+     * @param inventoryLatency  Draws the delay of each call to the inventory.
+     * @param accountingLatency Draws the delay of each call to the accounting system.
+     */
+    public RegistryCreator(LatencyModel inventoryLatency, LatencyModel accountingLatency) {
+        this(new DelayedInventorySystem(new InventoryRegistry(), inventoryLatency),
+                registry -> new DelayedAccountingSystem(registry, accountingLatency),
+                new MemorySpillQueue(), new MemorySpillQueue(), null);
+    }
+
+    /**
+     * Creates a new instance of <code>RegistryCreator</code> with the specified inventory, for example a
+     * {@link ShardedInventory} spread across several store nodes.
+     *
+     * @param inventorySystem The inventory to use.
+     */
+    public RegistryCreator(InventorySystem inventorySystem) {
+        this(inventorySystem, registry -> registry, new MemorySpillQueue(), new MemorySpillQueue(), null);
+    }
+
+    /**
+     * Creates a new instance of <code>RegistryCreator</code> with the specified inventory, whose sales that do not
+     * reach the backends are kept on disk until they can be replayed. The sales for the inventory are kept in the
+     * subdirectory <code>inventory</code> and those for the accounting system in <code>accounting</code>. Sales left
+     * there by an earlier run are replayed as soon as the backends take sales again. Receipts are archived in the
+     * subdirectory <code>receipts</code>.
+     *
+     * @param inventorySystem The inventory to use.
+     * @param dataDirectory   The directory of the spill queues and the receipt archive.
+     * @throws IOException If the spill queues or the receipt archive can not be opened.
+     */
+    public RegistryCreator(InventorySystem inventorySystem, Path dataDirectory) throws IOException {
+        this(inventorySystem, registry -> registry, new SegmentFileQueue(dataDirectory.resolve("inventory")),
+                new SegmentFileQueue(dataDirectory.resolve("accounting")),
+                new ReceiptArchive(dataDirectory.resolve("receipts")));
+    }
+
+    /**
+     * Creates a new instance of <code>RegistryCreator</code> with the inventory loaded from a catalog file.
+     * A binary snapshot named like the catalog file with the suffix <code>.snapshot</code> is used if it is at least
+     * as new as the catalog file, otherwise the catalog file is parsed and the snapshot is written.
+     *
+     * @param catalogFile The CSV catalog export, see {@link CatalogLoader} for the format.
+     * @throws IOException If the catalog can not be loaded.
+     */
+    public RegistryCreator(Path catalogFile) throws IOException {
+        this(CatalogLoader.load(catalogFile, catalogFile.resolveSibling(catalogFile.getFileName() + ".snapshot")));
+    }
+
+    private RegistryCreator(InventorySystem inventoryBackend,
+                            Function<AccountingRegistry, AccountingSystem> accountingConnection,
+                            SpillQueue inventorySpillQueue, SpillQueue accountingSpillQueue,
+                            ReceiptArchive receiptArchive) {
+        this.receiptArchive = receiptArchive;
         accountingRegistry = new AccountingRegistry();
+        AccountingSystem accountingBackend = accountingConnection.apply(accountingRegistry);
+        inventorySystem = new GuardedInventorySystem(inventoryBackend,
+                createGuard(inventoryBackend::updateInventoryAsync, inventorySpillQueue));
+        accountingSystem = new GuardedAccountingSystem(accountingBackend,
+                createGuard(accountingBackend::updateAccountingAsync, accountingSpillQueue));
     }
 
     /**
-     * Returns the {@link InventoryRegistry} instance.
+     * Returns the {@link InventorySystem} instance.
      *
-     * @return The <code>InventoryRegistry</code> instance.
+     * @return The <code>InventorySystem</code> instance.
      */
-    public InventoryRegistry getInventoryRegistry() {
-        return inventoryRegistry;
+    public InventorySystem getInventorySystem() {
+        return inventorySystem;
     }
 
     /**
@@ -34,4 +124,56 @@ public class RegistryCreator {
     public AccountingRegistry getAccountingRegistry() {
         return accountingRegistry;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Returns the {@link AccountingSystem} that sales are booked in. Sales reach the {@link AccountingRegistry}
+     * through a {@link RegistryGuard}, and through a simulated delay if one is configured.
+     *
+     * @return The <code>AccountingSystem</code> instance.
+     */
+    public AccountingSystem getAccountingSystem() {
+        return accountingSystem;
+    }
+
+    /**
+     * Returns the guard in front of the stock updates of the inventory.
+     *
+     * @return The inventory {@link RegistryGuard}.
+     */
+    public RegistryGuard getInventoryGuard() {
+        return inventorySystem.getGuard();
+    }
+
+    /**
+     * Returns the guard in front of the accounting system.
+     *
+     * @return The accounting {@link RegistryGuard}.
+     */
+    public RegistryGuard getAccountingGuard() {
+        return accountingSystem.getGuard();
+    }
+
+    /**
+     * Returns the {@link SalesAnalytics} instance.
+     *
+     * @return The <code>SalesAnalytics</code> instance.
+     */
+    public SalesAnalytics getSalesAnalytics() {
+        return salesAnalytics;
+    }
+
+    /**
+     * Returns the archive of the receipts of paid sales.
+     *
+     * @return The {@link ReceiptArchive}, or <code>null</code> if receipts are not archived, which is the case unless
+     * a data directory is given.
+     */
+    public ReceiptArchive getReceiptArchive() {
+        return receiptArchive;
+    }
+
+    private static RegistryGuard createGuard(Function<SaleDTO, CompletableFuture<Void>> backend, SpillQueue spillQueue) {
+        return new RegistryGuard(backend, spillQueue, MAX_CONCURRENT_CALLS, BACKEND_DEADLINE,
+                new CircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION, System::currentTimeMillis));
+    }
+}
@@ -0,0 +1,218 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Protects the checkout from one slow or failing backend, such as the accounting system, when completed sales are
+ * sent to it.
+ * <ul>
+ *     <li>A bulkhead limits the number of calls in progress, so a backend that stops answering ties up only its own
+ *     share of threads and connections.</li>
+ *     <li>A deadline limits how long the checkout waits. A call that is still running at the deadline is left to
+ *     finish in the background.</li>
+ *     <li>A {@link CircuitBreaker} stops calling a backend after repeated failures or missed deadlines.</li>
+ * </ul>
+ * A sale that is rejected by the bulkhead or the breaker, or whose call fails, is put in a {@link SpillQueue}.
+ * A full bulkhead only means the backend is busy, so it spills the sale without counting as a failure of the
+ * backend, and the bulkhead is taken before the breaker is asked, so a rejected call never uses up the trial call
+ * of a half open breaker.
+ * Spilled sales are replayed in order once a call succeeds again, or when {@link #replaySpilled()} is called.
+ * <p>
+ * A call that misses its deadline but succeeds later is not spilled, so no sale is sent twice because it was slow.
+ */
+public class RegistryGuard {
+    /**
+     * The number of spilled sales read from the spill queue at a time when it is replayed.
+     */
+    public static final int REPLAY_BATCH_SIZE = 256;
+    private final Function<SaleDTO, CompletableFuture<Void>> backend;
+    private final SpillQueue spillQueue;
+    private final Semaphore bulkhead;
+    private final long deadlineNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final AtomicLong missedDeadlines = new AtomicLong();
+    private final AtomicLong droppedSales = new AtomicLong();
+
+    /**
+     * Creates a new guard for one backend.
+     *
+     * @param backend            Sends a sale to the backend. The returned future completes when the backend has
+     *                           taken the sale, or completes exceptionally if it failed.
+     * @param spillQueue         Holds the sales that could not be sent.
+     * @param maxConcurrentCalls The largest number of calls to the backend in progress at the same time.
+     * @param deadline           The longest time the caller waits for a call.
+     * @param circuitBreaker     Decides when to stop calling the backend.
+     */
+    public RegistryGuard(Function<SaleDTO, CompletableFuture<Void>> backend, SpillQueue spillQueue,
+                         int maxConcurrentCalls, Duration deadline, CircuitBreaker circuitBreaker) {
+        this.backend = backend;
+        this.spillQueue = spillQueue;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.deadlineNanos = deadline.toNanos();
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Sends a completed sale to the backend, or spills it if the backend can not take it now.
+     *
+     * @param saleDTO The completed sale.
+     * @return A {@link CompletableFuture} that completes normally when the backend has taken the sale, when the sale
+     * has been spilled, or at the deadline, whichever comes first.
+     */
+    public CompletableFuture<Void> submit(SaleDTO saleDTO) {
+        if (!bulkhead.tryAcquire()) {
+            spill(saleDTO);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!circuitBreaker.allowRequest()) {
+            bulkhead.release();
+            spill(saleDTO);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> caller = new CompletableFuture<>();
+        AtomicBoolean settled = new AtomicBoolean();
+        call(saleDTO).whenComplete((result, failure) -> {
+            bulkhead.release();
+            boolean inTime = settled.compareAndSet(false, true);
+            if (failure != null) {
+                if (inTime) {
+                    circuitBreaker.recordFailure();
+                }
+                spill(saleDTO);
+            } else if (inTime) {
+                circuitBreaker.recordSuccess();
+                if (spillQueue.size() > 0) {
+                    replaySpilled();
+                }
+            }
+            caller.complete(null);
+        });
+        CompletableFuture.delayedExecutor(deadlineNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            if (settled.compareAndSet(false, true)) {
+                missedDeadlines.incrementAndGet();
+                circuitBreaker.recordFailure();
+                caller.complete(null);
+            }
+        });
+        return caller;
+    }
+
+    /**
+     * Starts sending the spilled sales to the backend in the background, oldest first, unless that is already in
+     * progress. Sales are read from the spill queue in batches of {@link #REPLAY_BATCH_SIZE} and sent one at a time,
+     * and each batch is removed from the queue at once when it has been sent. The replay stops at the first failure or
+     * missed deadline, leaving the rest in the queue. A sale that missed the deadline may still reach the backend
+     * and will then be sent again, so backends must ignore sales they have already taken, as
+     * {@link AccountingRegistry} does.
+     */
+    public void replaySpilled() {
+        if (replaying.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::replay);
+        }
+    }
+
+    /**
+     * Gets the state of the circuit breaker of this guard.
+     *
+     * @return The {@link CircuitBreaker.State}.
+     */
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Gets the number of sales waiting to be replayed.
+     *
+     * @return The number of spilled sales.
+     */
+    public int getSpilledSales() {
+        return spillQueue.size();
+    }
+
+    /**
+     * Gets the number of calls the caller stopped waiting for because they missed the deadline.
+     *
+     * @return The number of missed deadlines.
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines.get();
+    }
+
+    /**
+     * Gets the number of sales that could neither be sent nor spilled, because the spill queue was full.
+     *
+     * @return The number of dropped sales.
+     */
+    public long getDroppedSales() {
+        return droppedSales.get();
+    }
+
+    private void replay() {
+        try {
+            if (!bulkhead.tryAcquire()) {
+                return;
+            }
+            try {
+                if (!circuitBreaker.allowRequest()) {
+                    return;
+                }
+                List<SaleDTO> batch = spillQueue.peek(REPLAY_BATCH_SIZE);
+                while (!batch.isEmpty()) {
+                    int sent = 0;
+                    while (sent < batch.size() && replayed(batch.get(sent))) {
+                        sent++;
+                    }
+                    spillQueue.remove(sent);
+                    if (sent < batch.size()) {
+                        return;
+                    }
+                    batch = spillQueue.peek(REPLAY_BATCH_SIZE);
+                }
+            } finally {
+                bulkhead.release();
+            }
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    private boolean replayed(SaleDTO saleDTO) {
+        try {
+            call(saleDTO).get(deadlineNanos, TimeUnit.NANOSECONDS);
+            circuitBreaker.recordSuccess();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            circuitBreaker.recordFailure();
+            return false;
+        }
+    }
+
+    private CompletableFuture<Void> call(SaleDTO saleDTO) {
+        try {
+            return backend.apply(saleDTO);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void spill(SaleDTO saleDTO) {
+        if (!spillQueue.offer(saleDTO)) {
+            droppedSales.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries change log batches and snapshots from the leading store node to a {@link ReadReplica}. Implemented by
+ * {@link InMemoryReplicationTransport} for nodes running in the same process.
+ */
+public interface ReplicationTransport {
+    /**
+     * Reads the changes after the specified sequence number from the leader's change log.
+     *
+     * @param afterSequence The sequence number of the last change the replica has applied.
+     * @param maxChanges    The maximum number of changes to read.
+     * @return A {@link CompletableFuture} completed with a {@link ChangeBatchDTO}.
+     */
+    CompletableFuture<ChangeBatchDTO> fetchChanges(long afterSequence, int maxChanges);
+
+    /**
+     * Copies the whole inventory of the leader.
+     *
+     * @return A {@link CompletableFuture} completed with an {@link InventorySnapshotDTO}.
+     */
+    CompletableFuture<InventorySnapshotDTO> fetchSnapshot();
+}
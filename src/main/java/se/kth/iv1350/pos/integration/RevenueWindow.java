@@ -0,0 +1,91 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.Amount;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps revenue, VAT and sale count in a ring of fixed-length time buckets, so totals for a recent period can be read
+ * without looking at individual sales.
+ * <p>
+ * Each slot of the ring holds an immutable bucket tagged with the time period it counts. A sale replaces the bucket
+ * of the current period with a compare-and-set, starting a fresh bucket if the slot still holds an older period, so
+ * lanes never block each other. A query sums the buckets that fall within the requested period, which costs one pass
+ * over the ring whatever the number of sales.
+ */
+class RevenueWindow {
+    private static final double ORE_PER_KRONA = 100.0;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final long bucketMillis;
+    private final LongSupplier currentTimeMillis;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bucketLength      The length of the period counted by each bucket.
+     * @param bucketCount       The number of buckets, which together cover the longest period that can be queried.
+     * @param currentTimeMillis Gives the current time in milliseconds.
+     */
+    RevenueWindow(Duration bucketLength, int bucketCount, LongSupplier currentTimeMillis) {
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+        this.bucketMillis = bucketLength.toMillis();
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Counts one sale in the bucket of the current period.
+     *
+     * @param revenueOre The revenue of the sale, in öre.
+     * @param vatOre     The VAT of the sale, in öre.
+     */
+    void record(long revenueOre, long vatOre) {
+        long period = currentTimeMillis.getAsLong() / bucketMillis;
+        int slot = (int) Math.floorMod(period, (long) buckets.length());
+        while (true) {
+            Bucket current = buckets.get(slot);
+            if (current != null && current.period > period) {
+                // The slot has already moved a whole ring ahead, so this period is too old to be queried.
+                return;
+            }
+            Bucket next = current != null && current.period == period
+                    ? new Bucket(period, current.revenueOre + revenueOre, current.vatOre + vatOre, current.saleCount + 1)
+                    : new Bucket(period, revenueOre, vatOre, 1);
+            if (buckets.compareAndSet(slot, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sums the buckets of the most recent period. The period is rounded up to whole buckets, and is limited to the
+     * period covered by the ring.
+     *
+     * @param window The length of the period, ending now.
+     * @return A {@link RevenueWindowDTO} with the revenue, VAT and sale count of the period.
+     */
+    RevenueWindowDTO query(Duration window) {
+        long now = currentTimeMillis.getAsLong() / bucketMillis;
+        long periods = Math.min(buckets.length(), (window.toMillis() + bucketMillis - 1) / bucketMillis);
+        long oldest = now - periods + 1;
+        long revenueOre = 0;
+        long vatOre = 0;
+        long saleCount = 0;
+        for (int slot = 0; slot < buckets.length(); slot++) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.period >= oldest && bucket.period <= now) {
+                revenueOre += bucket.revenueOre;
+                vatOre += bucket.vatOre;
+                saleCount += bucket.saleCount;
+            }
+        }
+        return new RevenueWindowDTO(window, Amount.of(revenueOre / ORE_PER_KRONA), Amount.of(vatOre / ORE_PER_KRONA), saleCount);
+    }
+
+    /**
+     * The totals of one period. Never changed after creation, so it can be read without a lock.
+     */
+    private record Bucket(long period, long revenueOre, long vatOre, long saleCount) {
+    }
+}
@@ -0,0 +1,12 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.Amount;
+
+import java.time.Duration;
+
+/**
+ * Data Transfer Object for the revenue of a recent period, used to transfer accounting data between layers.
+ * Contains the length of the period, the revenue, the VAT, and the number of sales.
+ */
+public record RevenueWindowDTO(Duration window, Amount revenue, Amount vat, long saleCount) {
+}
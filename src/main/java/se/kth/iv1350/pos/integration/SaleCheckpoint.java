@@ -0,0 +1,239 @@
+package se.kth.iv1350.pos.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a copy of the sale in progress at one checkout lane in a memory-mapped file, so that the sale can be resumed
+ * if the lane crashes.
+ * <p>
+ * The file is a fixed-size slot: a header with the sale ID, the time the sale was started and the length of the
+ * line log, followed by two log regions. Each change of a line is appended to the active region as one record
+ * holding the item and its new quantity, where a quantity of zero means the line was removed, so a scan writes only
+ * the line that changed. A record is published by writing the new log length to the header after the record itself,
+ * with a single 8-byte write that also holds the active region, so a crash at any point leaves either the old or
+ * the new state. When the active region is full, the current lines are written compacted to the other region, which
+ * then becomes the active one.
+ * <p>
+ * Writes reach the operating system at once and survive a crash of the application, but are not forced to the disk,
+ * so they may be lost if the machine itself loses power.
+ */
+public class SaleCheckpoint implements Closeable {
+    /**
+     * The default size of the checkpoint file.
+     */
+    public static final int DEFAULT_SLOT_BYTES = 256 * 1024;
+    private static final int MAGIC = 0x53414C45;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SALE_ID_OFFSET = 8;
+    private static final int EPOCH_SECOND_OFFSET = 16;
+    private static final int NANO_OFFSET = 24;
+    private static final int LOG_STATE_OFFSET = 32;
+    private static final int HEADER_BYTES = 64;
+    private static final long NO_SALE = -1;
+    private static final int RECORD_FIXED_BYTES = Integer.BYTES * 2 + Double.BYTES * 2 + Short.BYTES * 3;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer slot;
+    private final int regionBytes;
+    private final Map<String, byte[]> lines = new LinkedHashMap<>();
+    private int region;
+    private int logLength;
+    private boolean saleInProgress;
+
+    /**
+     * Opens the checkpoint file with the default size, creating it if needed.
+     *
+     * @param file The checkpoint file of the lane.
+     * @throws IOException If the file can not be opened or mapped.
+     */
+    public SaleCheckpoint(Path file) throws IOException {
+        this(file, DEFAULT_SLOT_BYTES);
+    }
+
+    /**
+     * Opens the checkpoint file, creating it if needed. A sale left in the file by an earlier run is kept until it is
+     * read with {@link #restore()} or replaced by {@link #startSale(long, LocalDateTime)}.
+     *
+     * @param file      The checkpoint file of the lane.
+     * @param slotBytes The size of the file. Half of it, less the header, is available for the line log.
+     * @throws IOException If the file can not be opened or mapped.
+     */
+    public SaleCheckpoint(Path file, int slotBytes) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slot = channel.map(FileChannel.MapMode.READ_WRITE, 0, slotBytes);
+        regionBytes = (slotBytes - HEADER_BYTES) / 2;
+        if (slot.getInt(MAGIC_OFFSET) != MAGIC) {
+            slot.putLong(LOG_STATE_OFFSET, NO_SALE);
+            slot.putInt(MAGIC_OFFSET, MAGIC);
+        }
+    }
+
+    /**
+     * Starts the checkpoint of a new sale, replacing the one in the file.
+     *
+     * @param saleID     The ID of the sale.
+     * @param timeOfSale The time the sale was started.
+     */
+    public synchronized void startSale(long saleID, LocalDateTime timeOfSale) {
+        slot.putLong(LOG_STATE_OFFSET, NO_SALE);
+        slot.putLong(SALE_ID_OFFSET, saleID);
+        slot.putLong(EPOCH_SECOND_OFFSET, timeOfSale.toEpochSecond(ZoneOffset.UTC));
+        slot.putInt(NANO_OFFSET, timeOfSale.getNano());
+        lines.clear();
+        region = 0;
+        logLength = 0;
+        saleInProgress = true;
+        publish();
+    }
+
+    /**
+     * Records the new quantity of one line of the sale in progress. Does nothing if no sale is in progress.
+     *
+     * @param item     The item of the line.
+     * @param quantity The new quantity of the line, or zero if the line was removed.
+     * @return <code>true</code> if the change was recorded, <code>false</code> if no sale is in progress or the lines
+     * of the sale no longer fit in the file, in which case the checkpoint is dropped.
+     */
+    public synchronized boolean recordLine(ItemDTO item, int quantity) {
+        if (!saleInProgress) {
+            return false;
+        }
+        byte[] record = encode(item, quantity);
+        if (quantity > 0) {
+            lines.put(item.id(), record);
+        } else {
+            lines.remove(item.id());
+        }
+        if (logLength + record.length <= regionBytes) {
+            slot.put(regionStart(region) + logLength, record);
+            logLength += record.length;
+            publish();
+            return true;
+        }
+        return compact();
+    }
+
+    /**
+     * Ends the checkpoint of the sale in progress, for example when it is paid or abandoned.
+     */
+    public synchronized void clear() {
+        saleInProgress = false;
+        lines.clear();
+        slot.putLong(LOG_STATE_OFFSET, NO_SALE);
+    }
+
+    /**
+     * Reads the sale in progress from the file, and continues its checkpoint from where it was.
+     *
+     * @return The sale as a {@link SaleCheckpointDTO}, or <code>null</code> if no sale is in progress.
+     */
+    public synchronized SaleCheckpointDTO restore() {
+        long logState = slot.getLong(LOG_STATE_OFFSET);
+        if (logState == NO_SALE) {
+            return null;
+        }
+        region = (int) (logState >>> 32);
+        logLength = (int) logState;
+        long saleID = slot.getLong(SALE_ID_OFFSET);
+        LocalDateTime timeOfSale = LocalDateTime.ofEpochSecond(slot.getLong(EPOCH_SECOND_OFFSET),
+                slot.getInt(NANO_OFFSET), ZoneOffset.UTC);
+        Map<String, CheckpointLineDTO> restored = new LinkedHashMap<>();
+        lines.clear();
+        ByteBuffer log = slot.duplicate().position(regionStart(region)).limit(regionStart(region) + logLength).slice();
+        while (log.hasRemaining()) {
+            int start = log.position();
+            CheckpointLineDTO line = decode(log);
+            byte[] record = new byte[log.position() - start];
+            log.get(start, record);
+            if (line.quantity() > 0) {
+                restored.put(line.item().id(), line);
+                lines.put(line.item().id(), record);
+            } else {
+                restored.remove(line.item().id());
+                lines.remove(line.item().id());
+            }
+        }
+        saleInProgress = true;
+        return new SaleCheckpointDTO(saleID, timeOfSale, List.copyOf(restored.values()));
+    }
+
+    /**
+     * Closes the checkpoint file. The sale in progress is kept in the file.
+     *
+     * @throws IOException If the file can not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean compact() {
+        int target = 1 - region;
+        int length = 0;
+        for (byte[] record : lines.values()) {
+            if (length + record.length > regionBytes) {
+                clear();
+                return false;
+            }
+            slot.put(regionStart(target) + length, record);
+            length += record.length;
+        }
+        region = target;
+        logLength = length;
+        publish();
+        return true;
+    }
+
+    private void publish() {
+        slot.putLong(LOG_STATE_OFFSET, ((long) region << 32) | logLength);
+    }
+
+    private int regionStart(int logRegion) {
+        return HEADER_BYTES + logRegion * regionBytes;
+    }
+
+    private static byte[] encode(ItemDTO item, int quantity) {
+        byte[] id = item.id().getBytes(StandardCharsets.UTF_8);
+        byte[] name = item.name().getBytes(StandardCharsets.UTF_8);
+        byte[] description = item.description().getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_FIXED_BYTES + id.length + name.length + description.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length).putInt(quantity).putDouble(item.price()).putDouble(item.vatRate());
+        putString(record, id);
+        putString(record, name);
+        putString(record, description);
+        return record.array();
+    }
+
+    private static CheckpointLineDTO decode(ByteBuffer log) {
+        log.getInt();
+        int quantity = log.getInt();
+        double price = log.getDouble();
+        double vatRate = log.getDouble();
+        ItemDTO item = new ItemDTO(getString(log), getString(log), getString(log), price, vatRate);
+        return new CheckpointLineDTO(item, quantity);
+    }
+
+    private static void putString(ByteBuffer record, byte[] bytes) {
+        record.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer log) {
+        byte[] bytes = new byte[Short.toUnsignedInt(log.getShort())];
+        log.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,12 @@
+package se.kth.iv1350.pos.integration;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object for a sale in progress restored from a {@link SaleCheckpoint}, used to transfer sale data
+ * between layers. Contains the <code>saleID</code>, the time the sale was started, and its lines in the order they
+ * were entered.
+ */
+public record SaleCheckpointDTO(long saleID, LocalDateTime timeOfSale, List<CheckpointLineDTO> lines) {
+}
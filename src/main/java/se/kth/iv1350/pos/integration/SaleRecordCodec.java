@@ -0,0 +1,110 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+import se.kth.iv1350.pos.model.VatRateTotalDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a {@link SaleDTO} to and from a compact binary record, used to keep completed sales on disk.
+ * Amounts are stored as <code>double</code>, like {@link Amount#getValue()} returns them, and strings as their
+ * length followed by their UTF-8 bytes.
+ */
+final class SaleRecordCodec {
+    private static final byte FORMAT_VERSION = 1;
+
+    private SaleRecordCodec() {
+    }
+
+    /**
+     * Encodes a sale.
+     *
+     * @param saleDTO The sale to encode.
+     * @return The encoded record.
+     */
+    static byte[] encode(SaleDTO saleDTO) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + 64 * saleDTO.items().size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(saleDTO.saleID());
+            out.writeInt(saleDTO.laneID());
+            out.writeLong(saleDTO.timeOfSale().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(saleDTO.timeOfSale().getNano());
+            out.writeDouble(saleDTO.total().getValue());
+            out.writeDouble(saleDTO.totalVat().getValue());
+            out.writeInt(saleDTO.items().size());
+            for (SaleItemDTO line : saleDTO.items()) {
+                writeString(out, line.item().id());
+                writeString(out, line.item().name());
+                writeString(out, line.item().description());
+                out.writeDouble(line.item().price());
+                out.writeDouble(line.item().vatRate());
+                out.writeInt(line.quantity());
+                out.writeDouble(line.total().getValue());
+                out.writeDouble(line.totalVat().getValue());
+            }
+            out.writeInt(saleDTO.vatRateTotals().size());
+            for (VatRateTotalDTO vatRateTotal : saleDTO.vatRateTotals()) {
+                out.writeDouble(vatRateTotal.vatRate());
+                out.writeDouble(vatRateTotal.total().getValue());
+                out.writeDouble(vatRateTotal.vat().getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a sale.
+     *
+     * @param record The encoded record, positioned at its start.
+     * @return The decoded sale, or <code>null</code> if the record was written in an unknown format.
+     */
+    static SaleDTO decode(ByteBuffer record) {
+        if (record.get() != FORMAT_VERSION) {
+            return null;
+        }
+        long saleID = record.getLong();
+        int laneID = record.getInt();
+        LocalDateTime timeOfSale = LocalDateTime.ofEpochSecond(record.getLong(), record.getInt(), ZoneOffset.UTC);
+        Amount total = Amount.of(record.getDouble());
+        Amount totalVat = Amount.of(record.getDouble());
+        int lineCount = record.getInt();
+        List<SaleItemDTO> items = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            ItemDTO item = new ItemDTO(readString(record), readString(record), readString(record),
+                    record.getDouble(), record.getDouble());
+            items.add(new SaleItemDTO(item, record.getInt(), Amount.of(record.getDouble()), Amount.of(record.getDouble())));
+        }
+        int rateCount = record.getInt();
+        List<VatRateTotalDTO> vatRateTotals = new ArrayList<>(rateCount);
+        for (int i = 0; i < rateCount; i++) {
+            vatRateTotals.add(new VatRateTotalDTO(record.getDouble(), Amount.of(record.getDouble()), Amount.of(record.getDouble())));
+        }
+        return new SaleDTO(saleID, List.copyOf(items), total, totalVat, List.copyOf(vatRateTotals), laneID, timeOfSale);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.util.List;
+
+/**
+ * Simulates an external analytics system that keeps live best-seller lists for the store dashboard.
+ * Receives completed sales as {@link SaleDTO} from the controller.
+ * <p>
+ * Memory is fixed, however many items are sold. Best sellers by quantity and by revenue are kept with
+ * {@link SpaceSaving}, and the sold quantity of any item can be estimated with a {@link CountMinSketch}.
+ * With <code>k</code> tracked items, every item with more than <code>1 / k</code> of the total is guaranteed to be
+ * in the lists, and no estimate is more than <code>1 / k</code> of the total too high. A quantity estimate for any
+ * item is never too low, and with probability <code>1 - delta</code> at most <code>epsilon</code> of the total
+ * quantity too high.
+ */
+public class SalesAnalytics {
+    private static final int DEFAULT_TRACKED_ITEMS = 1000;
+    private static final double DEFAULT_EPSILON = 0.0001;
+    private static final double DEFAULT_DELTA = 0.001;
+    private static final double ORE_PER_KRONA = 100.0;
+
+    private final SpaceSaving topByQuantity;
+    private final SpaceSaving topByRevenue;
+    private final CountMinSketch quantities;
+
+    /**
+     * Creates a new instance with default accuracy.
+     */
+    SalesAnalytics() {
+        this(DEFAULT_TRACKED_ITEMS, DEFAULT_EPSILON, DEFAULT_DELTA);
+    }
+
+    /**
+     * Creates a new instance with the specified accuracy.
+     *
+     * @param trackedItems The number of items kept in each best-seller list.
+     * @param epsilon      The maximum overestimate of a quantity estimate, as a fraction of the total quantity.
+     * @param delta        The probability that a quantity estimate exceeds that bound.
+     */
+    SalesAnalytics(int trackedItems, double epsilon, double delta) {
+        topByQuantity = new SpaceSaving(trackedItems);
+        topByRevenue = new SpaceSaving(trackedItems);
+        quantities = new CountMinSketch(epsilon, delta);
+    }
+
+    /**
+     * Records every line of a completed sale.
+     *
+     * @param saleDTO The completed sale.
+     */
+    public synchronized void recordSale(SaleDTO saleDTO) {
+        for (SaleItemDTO line : saleDTO.items()) {
+            String itemID = line.item().id();
+            topByQuantity.add(itemID, line.quantity());
+            topByRevenue.add(itemID, Math.round(line.total().getValue() * ORE_PER_KRONA));
+            quantities.add(itemID, line.quantity());
+        }
+    }
+
+    /**
+     * Gets the best-selling items by quantity.
+     *
+     * @param n The maximum number of items to return.
+     * @return Up to <code>n</code> items as {@link TopItemDTO}, with estimated quantities, highest first.
+     */
+    public synchronized List<TopItemDTO> getTopItemsByQuantity(int n) {
+        return topByQuantity.top(n);
+    }
+
+    /**
+     * Gets the best-selling items by revenue.
+     *
+     * @param n The maximum number of items to return.
+     * @return Up to <code>n</code> items as {@link TopItemDTO}, with estimated revenue in öre, highest first.
+     */
+    public synchronized List<TopItemDTO> getTopItemsByRevenue(int n) {
+        return topByRevenue.top(n);
+    }
+
+    /**
+     * Estimates the sold quantity of any item.
+     *
+     * @param itemID The ID of the item.
+     * @return The estimated quantity, never below the true quantity.
+     */
+    public synchronized long estimateQuantity(String itemID) {
+        return quantities.estimate(itemID);
+    }
+
+    /**
+     * Gets the total quantity of all sold items.
+     *
+     * @return The total quantity.
+     */
+    public synchronized long getTotalQuantity() {
+        return quantities.getTotal();
+    }
+}
@@ -0,0 +1,305 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Simulates an external end-of-day reporting store, keeping every sold line of the day in memory.
+ * <p>
+ * Lines are stored in columns of primitive arrays: item index, quantity, line total, line VAT, VAT rate index, lane
+ * index and time of sale. Item IDs, VAT rates and lane IDs are stored once in dictionaries and referred to by compact
+ * indexes, so reports need one counter per distinct key however large or sparse the keys are. Amounts are stored in
+ * whole öre. Reports are aggregations over the columns, split into ranges that are summed in parallel on the common
+ * fork-join pool. Appending is serialized, while reports can run at the same time and see every line appended
+ * before they started.
+ * <p>
+ * Refunds are stored as negative lines, and a refund of a sale made before the store was started has no positive
+ * lines to offset it, so every reported amount is a signed net value that may be negative.
+ */
+public class SalesStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int ROWS_PER_TASK = 64 * 1024;
+    private static final int HOURS_PER_DAY = 24;
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final double ORE_PER_KRONA = 100.0;
+    private static final double BASIS_POINTS = 10_000.0;
+
+    private final Dictionary<String> itemIDs = new Dictionary<>();
+    private final Dictionary<Integer> vatRates = new Dictionary<>();
+    private final Dictionary<Integer> laneIDs = new Dictionary<>();
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private volatile int size;
+
+    SalesStore() {
+    }
+
+    /**
+     * Appends every line of a completed sale.
+     *
+     * @param saleDTO The completed sale.
+     */
+    public void append(SaleDTO saleDTO) {
+        append(saleDTO, 1);
+    }
+
+    /**
+     * Appends every line of a refund, with negative quantities and amounts, so that the reports count the returned
+     * items as no longer sold.
+     *
+     * @param refundDTO The returned lines, as created by {@link se.kth.iv1350.pos.model.Refund Refund}.
+     */
+    public void appendRefund(SaleDTO refundDTO) {
+        append(refundDTO, -1);
+    }
+
+    private synchronized void append(SaleDTO saleDTO, int sign) {
+        long timeOfSale = saleDTO.timeOfSale().toEpochSecond(ZoneOffset.UTC);
+        int row = size;
+        int laneIndex = laneIDs.indexOf(saleDTO.laneID());
+        Columns target = columns;
+        if (row + saleDTO.items().size() > target.capacity()) {
+            target = target.grow(row + saleDTO.items().size());
+        }
+        for (SaleItemDTO line : saleDTO.items()) {
+            target.itemIndex[row] = itemIDs.indexOf(line.item().id());
+            target.quantity[row] = sign * line.quantity();
+            target.lineTotal[row] = sign * toOre(line.total());
+            target.lineVat[row] = sign * toOre(line.totalVat());
+            target.vatRateIndex[row] = vatRates.indexOf((int) Math.round(line.item().vatRate() * BASIS_POINTS));
+            target.laneIndex[row] = laneIndex;
+            target.timeOfSale[row] = timeOfSale;
+            row++;
+        }
+        columns = target;
+        size = row;
+    }
+
+    /**
+     * Gets the number of lines in the store.
+     *
+     * @return The number of lines.
+     */
+    public int getLineCount() {
+        return size;
+    }
+
+    /**
+     * Gets the revenue of every sold item.
+     *
+     * @return A map from item ID to revenue, in the order the items were first sold.
+     */
+    public Map<String, Amount> getRevenuePerItem() {
+        int rows = size;
+        Columns source = columns;
+        List<String> soldItemIDs = keysOf(itemIDs);
+        long[] revenue = aggregate(rows, soldItemIDs.size(), row -> source.itemIndex[row], source.lineTotal);
+        Map<String, Amount> result = new LinkedHashMap<>();
+        for (int i = 0; i < revenue.length; i++) {
+            result.put(soldItemIDs.get(i), toAmount(revenue[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the quantity sold of every item.
+     *
+     * @return A map from item ID to sold quantity, in the order the items were first sold.
+     */
+    public Map<String, Long> getQuantityPerItem() {
+        int rows = size;
+        Columns source = columns;
+        List<String> soldItemIDs = keysOf(itemIDs);
+        long[] quantities = aggregate(rows, soldItemIDs.size(), row -> source.itemIndex[row], row -> source.quantity[row]);
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < quantities.length; i++) {
+            result.put(soldItemIDs.get(i), quantities[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the revenue per VAT rate.
+     *
+     * @return A map from VAT rate to revenue, ordered by rate.
+     */
+    public Map<Double, Amount> getRevenuePerVatRate() {
+        return perVatRate(false);
+    }
+
+    /**
+     * Gets the VAT per VAT rate.
+     *
+     * @return A map from VAT rate to VAT, ordered by rate.
+     */
+    public Map<Double, Amount> getVatPerVatRate() {
+        return perVatRate(true);
+    }
+
+    /**
+     * Gets the revenue per hour of the day.
+     *
+     * @return A map from hour (0-23) to revenue, containing only hours with sales.
+     */
+    public Map<Integer, Amount> getRevenuePerHour() {
+        int rows = size;
+        Columns source = columns;
+        long[] revenue = aggregate(rows, HOURS_PER_DAY,
+                row -> Math.floorMod(source.timeOfSale[row] / SECONDS_PER_HOUR, HOURS_PER_DAY), source.lineTotal);
+        return nonZero(revenue, hour -> hour);
+    }
+
+    /**
+     * Gets the revenue per checkout lane.
+     *
+     * @return A map from lane ID to revenue, ordered by lane ID.
+     */
+    public Map<Integer, Amount> getRevenuePerLane() {
+        int rows = size;
+        Columns source = columns;
+        List<Integer> lanes = keysOf(laneIDs);
+        long[] revenue = aggregate(rows, lanes.size(), row -> source.laneIndex[row], source.lineTotal);
+        return nonZero(revenue, lanes::get);
+    }
+
+    private Map<Double, Amount> perVatRate(boolean vat) {
+        int rows = size;
+        Columns source = columns;
+        long[] values = vat ? source.lineVat : source.lineTotal;
+        List<Integer> rates = keysOf(vatRates);
+        long[] totals = aggregate(rows, rates.size(), row -> source.vatRateIndex[row], row -> values[row]);
+        long[] present = aggregate(rows, rates.size(), row -> source.vatRateIndex[row], row -> 1);
+        Map<Double, Amount> result = new TreeMap<>();
+        for (int i = 0; i < totals.length; i++) {
+            if (present[i] > 0) {
+                result.put(rates.get(i) / BASIS_POINTS, toAmount(totals[i]));
+            }
+        }
+        return result;
+    }
+
+    private long[] aggregate(int rows, int keyCount, IntUnaryOperator keyOfRow, long[] values) {
+        return aggregate(rows, keyCount, keyOfRow, row -> values[row]);
+    }
+
+    private long[] aggregate(int rows, int keyCount, IntUnaryOperator keyOfRow, RowValue valueOfRow) {
+        int tasks = (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        return IntStream.range(0, tasks).parallel()
+                .mapToObj(task -> {
+                    long[] partial = new long[keyCount];
+                    int end = Math.min(rows, (task + 1) * ROWS_PER_TASK);
+                    for (int row = task * ROWS_PER_TASK; row < end; row++) {
+                        partial[keyOfRow.applyAsInt(row)] += valueOfRow.get(row);
+                    }
+                    return partial;
+                })
+                .reduce(new long[keyCount], SalesStore::sum);
+    }
+
+    private static long[] sum(long[] first, long[] second) {
+        long[] result = new long[first.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = first[i] + second[i];
+        }
+        return result;
+    }
+
+    private static Map<Integer, Amount> nonZero(long[] totals, IntUnaryOperator keyOfIndex) {
+        Map<Integer, Amount> result = new TreeMap<>();
+        for (int i = 0; i < totals.length; i++) {
+            if (totals[i] != 0) {
+                result.put(keyOfIndex.applyAsInt(i), toAmount(totals[i]));
+            }
+        }
+        return result;
+    }
+
+    private synchronized <K> List<K> keysOf(Dictionary<K> dictionary) {
+        return List.copyOf(dictionary.keys);
+    }
+
+    private static long toOre(Amount amount) {
+        return Math.round(amount.getValue() * ORE_PER_KRONA);
+    }
+
+    private static Amount toAmount(long ore) {
+        return Amount.ofOre(ore);
+    }
+
+    /**
+     * Reads one <code>long</code> value of a row.
+     */
+    @FunctionalInterface
+    private interface RowValue {
+        long get(int row);
+    }
+
+    /**
+     * Maps keys to compact indexes, in the order the keys were first appended. Used only while holding the lock of
+     * the store.
+     */
+    private static final class Dictionary<K> {
+        private final Map<K, Integer> indexes = new HashMap<>();
+        private final List<K> keys = new ArrayList<>();
+
+        private int indexOf(K key) {
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            keys.add(key);
+            indexes.put(key, keys.size() - 1);
+            return keys.size() - 1;
+        }
+    }
+
+    /**
+     * The column arrays. Rows below the published size are never changed, so readers need no lock.
+     */
+    private static final class Columns {
+        private final int[] itemIndex;
+        private final int[] quantity;
+        private final long[] lineTotal;
+        private final long[] lineVat;
+        private final int[] vatRateIndex;
+        private final int[] laneIndex;
+        private final long[] timeOfSale;
+
+        private Columns(int capacity) {
+            itemIndex = new int[capacity];
+            quantity = new int[capacity];
+            lineTotal = new long[capacity];
+            lineVat = new long[capacity];
+            vatRateIndex = new int[capacity];
+            laneIndex = new int[capacity];
+            timeOfSale = new long[capacity];
+        }
+
+        private int capacity() {
+            return itemIndex.length;
+        }
+
+        private Columns grow(int minimumCapacity) {
+            Columns grown = new Columns(Math.max(minimumCapacity, capacity() * 2));
+            int rows = capacity();
+            System.arraycopy(itemIndex, 0, grown.itemIndex, 0, rows);
+            System.arraycopy(quantity, 0, grown.quantity, 0, rows);
+            System.arraycopy(lineTotal, 0, grown.lineTotal, 0, rows);
+            System.arraycopy(lineVat, 0, grown.lineVat, 0, rows);
+            System.arraycopy(vatRateIndex, 0, grown.vatRateIndex, 0, rows);
+            System.arraycopy(laneIndex, 0, grown.laneIndex, 0, rows);
+            System.arraycopy(timeOfSale, 0, grown.timeOfSale, 0, rows);
+            return grown;
+        }
+    }
+}
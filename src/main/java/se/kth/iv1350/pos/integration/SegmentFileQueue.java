@@ -0,0 +1,370 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * A {@link SpillQueue} kept on local disk, so that completed sales survive a restart of the application while a
+ * backend is down.
+ * <p>
+ * Sales are appended as records to segment files in a directory. A segment file is named by its number and holds up
+ * to a fixed number of bytes; when it is full a new one is started. Each record is its length, a CRC32C checksum and
+ * the sale encoded by {@link SaleRecordCodec}, and every append is forced to disk before {@link #offer(SaleDTO)}
+ * returns. The position of the head of the queue is kept in a small file named <code>head</code>.
+ * <p>
+ * Segments are compacted as the queue is drained: a segment whose records have all been removed is deleted, and the
+ * last segment is truncated when the queue becomes empty. The files never take more than a fixed number of bytes;
+ * when that is reached, <code>offer</code> returns <code>false</code>.
+ * <p>
+ * When the queue is opened, a record at the end of the last segment that was only partly written, for example because
+ * the application stopped during the write, is cut off.
+ */
+public class SegmentFileQueue implements SpillQueue, Closeable {
+    /**
+     * The default largest size of one segment file.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    /**
+     * The default largest size of all segment files together.
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String HEAD_FILE = "head";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int HEAD_BYTES = 16;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final FileChannel headChannel;
+    private long headOffset;
+    private int size;
+    private long totalBytes;
+    private FileChannel tailChannel;
+
+    /**
+     * Opens the queue in the specified directory with the default sizes, creating the directory if needed.
+     *
+     * @param directory The directory of the segment files.
+     * @throws IOException If the directory or its files can not be read or created.
+     */
+    public SegmentFileQueue(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Opens the queue in the specified directory, creating the directory if needed. Sales left in the directory by an
+     * earlier run are kept, in order.
+     *
+     * @param directory    The directory of the segment files.
+     * @param segmentBytes The largest size of one segment file. A larger record gets a segment of its own.
+     * @param maxBytes     The largest size of all segment files together.
+     * @throws IOException If the directory or its files can not be read or created.
+     */
+    public SegmentFileQueue(Path directory, int segmentBytes, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        headChannel = FileChannel.open(directory.resolve(HEAD_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Appends a sale and forces it to disk.
+     *
+     * @param saleDTO The sale to add.
+     * @return <code>true</code> if the sale was added, <code>false</code> if the files are full or could not be
+     * written.
+     */
+    @Override
+    public synchronized boolean offer(SaleDTO saleDTO) {
+        byte[] payload = SaleRecordCodec.encode(saleDTO);
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (totalBytes + recordBytes > maxBytes) {
+            return false;
+        }
+        try {
+            Segment tail = segments.getLast();
+            if (tail.length > 0 && tail.length + recordBytes > segmentBytes) {
+                tail = startSegment(tail.number + 1);
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(recordBytes);
+            record.putInt(payload.length).putInt((int) checksum.getValue()).put(payload).flip();
+            long position = tail.length;
+            while (record.hasRemaining()) {
+                position += tailChannel.write(record, position);
+            }
+            tailChannel.force(false);
+            tail.length += recordBytes;
+            totalBytes += recordBytes;
+            size++;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads sales from the head of the queue. Records that can not be read end the result early.
+     *
+     * @param maxCount The largest number of sales to read.
+     * @return Up to <code>maxCount</code> sales, oldest first.
+     */
+    @Override
+    public synchronized List<SaleDTO> peek(int maxCount) {
+        List<SaleDTO> sales = new ArrayList<>(Math.min(maxCount, size));
+        long offset = headOffset;
+        Iterator<Segment> remaining = segments.iterator();
+        try {
+            while (sales.size() < maxCount && remaining.hasNext()) {
+                Segment segment = remaining.next();
+                FileChannel channel = channelOf(segment);
+                try {
+                    while (sales.size() < maxCount && offset < segment.length) {
+                        ByteBuffer record = readRecord(channel, offset, segment.length);
+                        SaleDTO sale = record == null ? null : SaleRecordCodec.decode(record);
+                        if (sale == null) {
+                            return sales;
+                        }
+                        sales.add(sale);
+                        offset += RECORD_HEADER_BYTES + record.limit();
+                    }
+                } finally {
+                    closeUnlessTail(channel);
+                }
+                offset = 0;
+            }
+        } catch (IOException e) {
+            return sales;
+        }
+        return sales;
+    }
+
+    /**
+     * Removes sales from the head of the queue, deletes the segments that are no longer needed, and forces the new
+     * head position to disk.
+     *
+     * @param count The number of sales to remove.
+     */
+    @Override
+    public synchronized void remove(int count) {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        FileChannel channel = null;
+        try {
+            for (int removed = 0; removed < count && size > 0; removed++) {
+                if (headOffset >= segments.getFirst().length) {
+                    closeUnlessTail(channel);
+                    channel = null;
+                    dropHeadSegment();
+                }
+                if (channel == null) {
+                    channel = channelOf(segments.getFirst());
+                }
+                readFully(channel, length.clear(), headOffset);
+                headOffset += RECORD_HEADER_BYTES + length.flip().getInt();
+                size--;
+            }
+            closeUnlessTail(channel);
+            compact();
+            writeHead();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes taken by the segment files.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long getDiskBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Closes the files of the queue. The sales in the queue are kept on disk.
+     *
+     * @throws IOException If a file can not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        tailChannel.close();
+        headChannel.close();
+    }
+
+    private void recover() throws IOException {
+        long headSegment = 0;
+        if (headChannel.size() >= HEAD_BYTES) {
+            ByteBuffer head = ByteBuffer.allocate(HEAD_BYTES);
+            headChannel.read(head, 0);
+            head.flip();
+            headSegment = head.getLong();
+            headOffset = head.getLong();
+        }
+        List<Long> numbers;
+        try (Stream<Path> files = Files.list(directory)) {
+            numbers = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (long number : numbers) {
+            if (number < headSegment) {
+                Files.delete(segmentPath(number));
+            } else {
+                segments.addLast(new Segment(number, segmentPath(number)));
+            }
+        }
+        if (segments.isEmpty() || segments.getFirst().number != headSegment) {
+            headOffset = 0;
+        }
+        if (segments.isEmpty()) {
+            startSegment(headSegment);
+            return;
+        }
+        for (Segment segment : segments) {
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long fileSize = channel.size();
+                if (segment == segments.getFirst()) {
+                    headOffset = Math.min(headOffset, fileSize);
+                }
+                long offset = segment == segments.getFirst() ? headOffset : 0;
+                ByteBuffer record;
+                while (offset < fileSize && (record = readRecord(channel, offset, fileSize)) != null) {
+                    offset += RECORD_HEADER_BYTES + record.limit();
+                    size++;
+                }
+                if (offset < fileSize) {
+                    channel.truncate(offset);
+                }
+                segment.length = offset;
+                totalBytes += segment.length;
+            }
+        }
+        tailChannel = FileChannel.open(segments.getLast().path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        compact();
+        writeHead();
+    }
+
+    private ByteBuffer readRecord(FileChannel channel, long offset, long end) throws IOException {
+        if (end - offset < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(channel, header, offset);
+        int length = header.flip().getInt();
+        int expectedChecksum = header.getInt();
+        if (length < 0 || end - offset - RECORD_HEADER_BYTES < length) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + RECORD_HEADER_BYTES);
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.array());
+        if ((int) checksum.getValue() != expectedChecksum) {
+            return null;
+        }
+        return payload.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        while (segments.size() > 1 && headOffset >= segments.getFirst().length) {
+            dropHeadSegment();
+        }
+        Segment tail = segments.getLast();
+        if (size == 0 && tail.length > 0) {
+            tailChannel.truncate(0);
+            totalBytes -= tail.length;
+            tail.length = 0;
+            headOffset = 0;
+        }
+    }
+
+    private void dropHeadSegment() throws IOException {
+        Segment head = segments.removeFirst();
+        Files.delete(head.path);
+        totalBytes -= head.length;
+        headOffset = 0;
+    }
+
+    private Segment startSegment(long number) throws IOException {
+        if (tailChannel != null) {
+            tailChannel.close();
+        }
+        Segment segment = new Segment(number, segmentPath(number));
+        tailChannel = FileChannel.open(segment.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private FileChannel channelOf(Segment segment) throws IOException {
+        return segment == segments.getLast() ? tailChannel : FileChannel.open(segment.path);
+    }
+
+    private void closeUnlessTail(FileChannel channel) throws IOException {
+        if (channel != null && channel != tailChannel) {
+            channel.close();
+        }
+    }
+
+    private void writeHead() throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEAD_BYTES);
+        head.putLong(segments.getFirst().number).putLong(headOffset).flip();
+        while (head.hasRemaining()) {
+            headChannel.write(head, head.position());
+        }
+        headChannel.force(false);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%020d%s", number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * One segment file and the number of bytes of whole records in it.
+     */
+    private static final class Segment {
+        private final long number;
+        private final Path path;
+        private long length;
+
+        private Segment(long number, Path path) {
+            this.number = number;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries requests from a {@link ShardedInventory} to its store nodes. Each request is a message of plain data,
+ * item IDs, sale IDs, quantities and DTOs, so it can be encoded and sent to a node on another machine. Implemented
+ * by {@link InMemoryShardTransport} for nodes running in the same process.
+ * <p>
+ * Every request returns at once with a {@link CompletableFuture}, completed with the reply of the node, or completed
+ * exceptionally if the node is unknown or the request fails.
+ */
+public interface ShardTransport {
+    /**
+     * Starts a new node with an empty catalog and makes it reachable through this transport.
+     *
+     * @param nodeID The ID of the node.
+     */
+    void startNode(String nodeID);
+
+    /**
+     * Searches a node for an item.
+     *
+     * @param nodeID The ID of the node.
+     * @param itemID The ID of the item.
+     * @return The item as an {@link ItemDTO}, or <code>null</code> if the node does not hold it.
+     */
+    CompletableFuture<ItemDTO> findItemById(String nodeID, String itemID);
+
+    /**
+     * Searches a node for several items.
+     *
+     * @param nodeID  The ID of the node.
+     * @param itemIDs The IDs of the items.
+     * @return The found items by item ID.
+     */
+    CompletableFuture<Map<String, ItemDTO>> findItemsById(String nodeID, Collection<String> itemIDs);
+
+    /**
+     * Gets the current catalog of a node.
+     *
+     * @param nodeID The ID of the node.
+     * @return The {@link ItemCatalog} of the node.
+     */
+    CompletableFuture<ItemCatalog> getCatalog(String nodeID);
+
+    /**
+     * Adds or replaces items in the catalog of a node.
+     *
+     * @param nodeID       The ID of the node.
+     * @param changedItems The new or changed items.
+     * @return The version number of the catalog the node published.
+     */
+    CompletableFuture<Long> updateCatalog(String nodeID, Collection<ItemDTO> changedItems);
+
+    /**
+     * Sets the quantity in stock of an item on a node.
+     *
+     * @param nodeID   The ID of the node.
+     * @param itemID   The ID of the item.
+     * @param quantity The new quantity.
+     * @return Completed when the node has updated the quantity.
+     */
+    CompletableFuture<Void> updateQuantity(String nodeID, String itemID, int quantity);
+
+    /**
+     * Reserves stock of an item on a node for a sale.
+     *
+     * @param nodeID   The ID of the node.
+     * @param saleID   The ID of the sale.
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity to reserve.
+     * @return <code>true</code> if the stock was reserved, <code>false</code> if it was not.
+     */
+    CompletableFuture<Boolean> reserve(String nodeID, long saleID, String itemID, int quantity);
+
+    /**
+     * Releases part of the stock of an item reserved for a sale on a node.
+     *
+     * @param nodeID   The ID of the node.
+     * @param saleID   The ID of the sale.
+     * @param itemID   The ID of the item.
+     * @param quantity The quantity to release.
+     * @return Completed when the node has released the stock.
+     */
+    CompletableFuture<Void> releaseReservation(String nodeID, long saleID, String itemID, int quantity);
+
+    /**
+     * Releases all stock reserved for a sale on a node.
+     *
+     * @param nodeID The ID of the node.
+     * @param saleID The ID of the sale.
+     * @return Completed when the node has released the stock.
+     */
+    CompletableFuture<Void> releaseReservations(String nodeID, long saleID);
+
+    /**
+     * Takes the sold quantities of a completed sale out of the stock of a node.
+     *
+     * @param nodeID  The ID of the node.
+     * @param saleDTO The sale, holding only the lines of items owned by the node.
+     * @return Completed when the node has updated its stock.
+     */
+    CompletableFuture<Void> updateInventory(String nodeID, SaleDTO saleDTO);
+
+    /**
+     * Puts the returned quantities of a refund back in the stock of a node.
+     *
+     * @param nodeID    The ID of the node.
+     * @param refundDTO The refund, holding only the lines of items owned by the node.
+     * @return Completed when the node has updated its stock.
+     */
+    CompletableFuture<Void> returnInventory(String nodeID, SaleDTO refundDTO);
+
+    /**
+     * Copies the items on a node that another node owns on a ring of the specified nodes, with their stock and
+     * reservations.
+     *
+     * @param nodeID       The ID of the node holding the items.
+     * @param ringNodeIDs  The IDs of the nodes on the ring, in the order they were added.
+     * @param virtualNodes The number of positions of each node on the ring.
+     * @param ownerID      The ID of the node whose items are copied.
+     * @return The items as {@link StockedItemDTO}s.
+     */
+    CompletableFuture<List<StockedItemDTO>> exportItems(String nodeID, List<String> ringNodeIDs, int virtualNodes,
+                                                        String ownerID);
+
+    /**
+     * Adds items moved from other nodes to a node, with their stock and reservations.
+     *
+     * @param nodeID The ID of the node.
+     * @param items  The items as {@link StockedItemDTO}s.
+     * @return Completed when the node holds the items.
+     */
+    CompletableFuture<Void> putItems(String nodeID, List<StockedItemDTO> items);
+
+    /**
+     * Removes items that have moved to another node, with their stock and reservations.
+     *
+     * @param nodeID  The ID of the node.
+     * @param itemIDs The IDs of the items.
+     * @return Completed when the node no longer holds the items.
+     */
+    CompletableFuture<Void> removeItems(String nodeID, Collection<String> itemIDs);
+}
@@ -0,0 +1,327 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * An inventory whose catalog is split across several store nodes, for catalogs that do not fit on one node.
+ * <p>
+ * Each item is owned by one node, chosen with a {@link ConsistentHashRing}, and every request about an item is sent
+ * to its owner through a {@link ShardTransport}. Requests that concern several nodes, such as a completed sale with
+ * items from different nodes, are sent to all of them at once and awaited together.
+ * <p>
+ * A node can be added while the inventory is in use. The items that the new node takes over are copied to it with
+ * their stock and the reservations of open sales, the new ring is published, and the items are then removed from
+ * their old nodes. Requests wait while the items move. Stock reserved for a moved item stays unavailable on the new
+ * node, where the sale that reserved it commits or releases it as usual.
+ */
+public class ShardedInventory implements InventorySystem {
+    private static final int VIRTUAL_NODES = 128;
+    private final ShardTransport transport;
+    private final ReadWriteLock rebalanceLock = new ReentrantReadWriteLock();
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+
+    /**
+     * Creates a new, empty inventory with the specified nodes.
+     *
+     * @param transport The transport used to reach the nodes.
+     * @param nodeIDs   The IDs of the nodes.
+     */
+    public ShardedInventory(ShardTransport transport, Collection<String> nodeIDs) {
+        this.transport = transport;
+        for (String nodeID : nodeIDs) {
+            transport.startNode(nodeID);
+            ring = ring.withNode(nodeID);
+        }
+    }
+
+    /**
+     * Adds a node and moves to it the items it now owns. Does nothing if the node is already part of the inventory.
+     *
+     * @param nodeID The ID of the new node.
+     */
+    public void addNode(String nodeID) {
+        rebalanceLock.writeLock().lock();
+        try {
+            if (ring.getNodeIDs().contains(nodeID)) {
+                return;
+            }
+            transport.startNode(nodeID);
+            ConsistentHashRing newRing = ring.withNode(nodeID);
+            List<String> newRingNodeIDs = List.copyOf(newRing.getNodeIDs());
+            Map<String, CompletableFuture<List<StockedItemDTO>>> moving = new HashMap<>();
+            for (String oldNodeID : ring.getNodeIDs()) {
+                moving.put(oldNodeID,
+                        transport.exportItems(oldNodeID, newRingNodeIDs, newRing.getVirtualNodes(), nodeID));
+            }
+            Map<String, List<String>> movedItemIDs = new HashMap<>();
+            List<StockedItemDTO> movedItems = new ArrayList<>();
+            moving.forEach((oldNodeID, items) -> {
+                List<StockedItemDTO> fromNode = await(items);
+                movedItems.addAll(fromNode);
+                movedItemIDs.put(oldNodeID, fromNode.stream().map(stocked -> stocked.item().id()).toList());
+            });
+            await(transport.putItems(nodeID, movedItems));
+            ring = newRing;
+            awaitAll(movedItemIDs.entrySet().stream()
+                    .map(moved -> transport.removeItems(moved.getKey(), moved.getValue()))
+                    .toList());
+        } finally {
+            rebalanceLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the IDs of all nodes.
+     *
+     * @return The node IDs, in the order they were added.
+     */
+    public Set<String> getNodeIDs() {
+        return ring.getNodeIDs();
+    }
+
+    /**
+     * Finds the node that owns an item.
+     *
+     * @param itemID The ID of the item.
+     * @return The ID of the owning node.
+     */
+    public String findOwner(String itemID) {
+        return ring.ownerOf(itemID);
+    }
+
+    @Override
+    public ItemDTO findItemById(String itemID) {
+        if (itemID == null) {
+            return null;
+        }
+        return onOwner(itemID, nodeID -> transport.findItemById(nodeID, itemID));
+    }
+
+    @Override
+    public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+        rebalanceLock.readLock().lock();
+        try {
+            Map<String, List<String>> byNode = groupByOwner(itemIDs, Function.identity());
+            Map<String, ItemDTO> foundItems = new HashMap<>(itemIDs.size() * 2);
+            awaitAll(byNode.entrySet().stream()
+                    .map(ids -> transport.findItemsById(ids.getKey(), ids.getValue()))
+                    .toList())
+                    .forEach(foundItems::putAll);
+            return foundItems;
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the current catalog of every node, combined into one catalog. The version number is the sum of the
+     * version numbers of the nodes, so it grows whenever any node publishes a new version.
+     *
+     * @return The current {@link ItemCatalog}.
+     */
+    @Override
+    public ItemCatalog getCatalog() {
+        rebalanceLock.readLock().lock();
+        try {
+            ConsistentHashRing currentRing = ring;
+            Map<String, CompletableFuture<ItemCatalog>> requests = new HashMap<>();
+            for (String nodeID : currentRing.getNodeIDs()) {
+                requests.put(nodeID, transport.getCatalog(nodeID));
+            }
+            Map<String, ItemCatalog> catalogs = new HashMap<>();
+            requests.forEach((nodeID, request) -> catalogs.put(nodeID, await(request)));
+            return new ShardedCatalog(currentRing, catalogs);
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long updateCatalog(Collection<ItemDTO> changedItems) {
+        rebalanceLock.readLock().lock();
+        try {
+            Map<String, List<ItemDTO>> byNode = groupByOwner(changedItems, ItemDTO::id);
+            awaitAll(byNode.entrySet().stream()
+                    .map(items -> transport.updateCatalog(items.getKey(), items.getValue()))
+                    .toList());
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+        return getCatalog().getVersion();
+    }
+
+    @Override
+    public void updateQuantity(String itemID, int quantity) {
+        if (itemID == null) {
+            return;
+        }
+        onOwner(itemID, nodeID -> transport.updateQuantity(nodeID, itemID, quantity));
+    }
+
+    @Override
+    public boolean reserve(long saleID, String itemID, int quantity) {
+        if (itemID == null) {
+            return false;
+        }
+        return onOwner(itemID, nodeID -> transport.reserve(nodeID, saleID, itemID, quantity));
+    }
+
+    @Override
+    public void releaseReservation(long saleID, String itemID, int quantity) {
+        if (itemID == null) {
+            return;
+        }
+        onOwner(itemID, nodeID -> transport.releaseReservation(nodeID, saleID, itemID, quantity));
+    }
+
+    /**
+     * Releases all stock reserved for a sale on every node, since a sale can hold reservations on any of them.
+     *
+     * @param saleID The ID of the sale.
+     */
+    @Override
+    public void releaseReservations(long saleID) {
+        rebalanceLock.readLock().lock();
+        try {
+            awaitAll(ring.getNodeIDs().stream()
+                    .map(nodeID -> transport.releaseReservations(nodeID, saleID))
+                    .toList());
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sends each node a copy of the sale that holds only the lines of the items it owns. The nodes are updated in
+     * parallel, and this method returns when all of them are done.
+     *
+     * @param saleDTO The <code>SaleDTO</code> containing sale information.
+     */
+    @Override
+    public void updateInventory(SaleDTO saleDTO) {
+        rebalanceLock.readLock().lock();
+        try {
+            Map<String, List<SaleItemDTO>> byNode = groupByOwner(saleDTO.items(), line -> line.item().id());
+            awaitAll(byNode.entrySet().stream()
+                    .map(lines -> transport.updateInventory(lines.getKey(), new SaleDTO(saleDTO.saleID(),
+                            lines.getValue(), saleDTO.total(), saleDTO.totalVat(), saleDTO.vatRateTotals(),
+                            saleDTO.laneID(), saleDTO.timeOfSale())))
+                    .toList());
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sends each node a copy of the refund that holds only the lines of the items it owns, in parallel.
+     *
+     * @param refundDTO The returned lines, as created by {@link se.kth.iv1350.pos.model.Refund Refund}.
+     */
+    @Override
+    public void returnInventory(SaleDTO refundDTO) {
+        rebalanceLock.readLock().lock();
+        try {
+            Map<String, List<SaleItemDTO>> byNode = groupByOwner(refundDTO.items(), line -> line.item().id());
+            awaitAll(byNode.entrySet().stream()
+                    .map(lines -> transport.returnInventory(lines.getKey(), new SaleDTO(refundDTO.saleID(),
+                            lines.getValue(), refundDTO.total(), refundDTO.totalVat(), refundDTO.vatRateTotals(),
+                            refundDTO.laneID(), refundDTO.timeOfSale())))
+                    .toList());
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+    }
+
+    private <T> T onOwner(String itemID, Function<String, CompletableFuture<T>> request) {
+        rebalanceLock.readLock().lock();
+        try {
+            return await(request.apply(ring.ownerOf(itemID)));
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+    }
+
+    private <E> Map<String, List<E>> groupByOwner(Collection<E> elements, Function<E, String> itemIDOf) {
+        ConsistentHashRing currentRing = ring;
+        Map<String, List<E>> byNode = new HashMap<>();
+        for (E element : elements) {
+            String itemID = itemIDOf.apply(element);
+            if (itemID != null) {
+                byNode.computeIfAbsent(currentRing.ownerOf(itemID), nodeID -> new ArrayList<>()).add(element);
+            }
+        }
+        return byNode;
+    }
+
+    private static <T> List<T> awaitAll(List<CompletableFuture<T>> requests) {
+        List<T> results = new ArrayList<>(requests.size());
+        for (CompletableFuture<T> request : requests) {
+            results.add(await(request));
+        }
+        return results;
+    }
+
+    private static <T> T await(CompletableFuture<T> request) {
+        try {
+            return request.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The catalogs of all nodes at one point in time, looked up through the ring that was current then.
+     */
+    private static final class ShardedCatalog implements ItemCatalog {
+        private final ConsistentHashRing ring;
+        private final Map<String, ItemCatalog> catalogs;
+        private final long version;
+
+        private ShardedCatalog(ConsistentHashRing ring, Map<String, ItemCatalog> catalogs) {
+            this.ring = ring;
+            this.catalogs = catalogs;
+            this.version = catalogs.values().stream().mapToLong(ItemCatalog::getVersion).sum();
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public ItemDTO findItemById(String itemID) {
+            if (itemID == null) {
+                return null;
+            }
+            return catalogs.get(ring.ownerOf(itemID)).findItemById(itemID);
+        }
+
+        @Override
+        public Map<String, ItemDTO> findItemsById(Collection<String> itemIDs) {
+            Map<String, ItemDTO> foundItems = new HashMap<>(itemIDs.size() * 2);
+            for (String itemID : itemIDs) {
+                ItemDTO item = findItemById(itemID);
+                if (item != null) {
+                    foundItems.put(itemID, item);
+                }
+            }
+            return foundItems;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies the delays drawn from a {@link LatencyModel}, shared by the delayed stand-ins of the backend systems.
+ * Blocking calls park the calling thread, while asynchronous calls are scheduled to run after the delay so that no
+ * thread waits meanwhile.
+ */
+final class SimulatedLatency {
+    private final LatencyModel latencyModel;
+
+    SimulatedLatency(LatencyModel latencyModel) {
+        this.latencyModel = latencyModel;
+    }
+
+    /**
+     * Blocks the calling thread for the next delay. Returns early, keeping the interrupt status, if the thread is
+     * interrupted.
+     */
+    void pause() {
+        long deadline = System.nanoTime() + latencyModel.nextDelayNanos();
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets an executor that runs its task on the common fork-join pool after the next delay.
+     *
+     * @return The delayed {@link Executor}.
+     */
+    Executor after() {
+        return CompletableFuture.delayedExecutor(latencyModel.nextDelayNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,124 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Space-Saving algorithm, keeping the heaviest keys of a weighted stream with a fixed number of counters.
+ * <p>
+ * When all counters are taken, a new key replaces the key with the smallest count and inherits that count as its
+ * possible error. With <code>k</code> counters and a stream total of <code>N</code>, every key whose true count is
+ * above <code>N / k</code> is guaranteed to be kept, and every kept count overestimates the true count by at most its
+ * recorded error, which is never more than <code>N / k</code>.
+ * <p>
+ * The counters are kept in a min-heap indexed by key, so each update costs <code>O(log k)</code>.
+ */
+class SpaceSaving {
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    /**
+     * Creates a new instance with the specified number of counters.
+     *
+     * @param capacity The number of counters.
+     */
+    SpaceSaving(int capacity) {
+        keys = new String[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Adds the specified amount to the count of a key.
+     *
+     * @param key    The key to count.
+     * @param amount The amount to add, must not be negative.
+     */
+    void add(String key, long amount) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += amount;
+            siftDown(position);
+            return;
+        }
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = amount;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        positions.remove(keys[0]);
+        errors[0] = counts[0];
+        counts[0] += amount;
+        keys[0] = key;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    /**
+     * Gets the keys with the highest counts.
+     *
+     * @param n The maximum number of keys to return.
+     * @return Up to <code>n</code> keys as {@link TopItemDTO}, highest count first.
+     */
+    List<TopItemDTO> top(int n) {
+        List<TopItemDTO> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            all.add(new TopItemDTO(keys[i], counts[i], errors[i]));
+        }
+        all.sort((first, second) -> Long.compare(second.estimate(), first.estimate()));
+        return List.copyOf(all.subList(0, Math.min(n, all.size())));
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        String key = keys[first];
+        keys[first] = keys[second];
+        keys[second] = key;
+        long count = counts[first];
+        counts[first] = counts[second];
+        counts[second] = count;
+        long error = errors[first];
+        errors[first] = errors[second];
+        errors[second] = error;
+        positions.put(keys[first], first);
+        positions.put(keys[second], second);
+    }
+}
@@ -0,0 +1,42 @@
+package se.kth.iv1350.pos.integration;
+
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.util.List;
+
+/**
+ * Holds completed sales that could not be sent to a backend, in the order they were added, until they can be
+ * replayed. Sales are read from the head with {@link #peek(int)} and only removed with {@link #remove(int)} once the
+ * backend has taken them, so a sale is never lost if the replay fails halfway.
+ */
+public interface SpillQueue {
+    /**
+     * Adds a sale to the tail of the queue.
+     *
+     * @param saleDTO The sale to add.
+     * @return <code>true</code> if the sale was added, <code>false</code> if the queue is full.
+     */
+    boolean offer(SaleDTO saleDTO);
+
+    /**
+     * Reads sales from the head of the queue without removing them.
+     *
+     * @param maxCount The largest number of sales to read.
+     * @return Up to <code>maxCount</code> sales, oldest first. Empty if the queue is empty.
+     */
+    List<SaleDTO> peek(int maxCount);
+
+    /**
+     * Removes sales from the head of the queue, normally the ones just read with {@link #peek(int)}.
+     *
+     * @param count The number of sales to remove.
+     */
+    void remove(int count);
+
+    /**
+     * Gets the number of sales in the queue.
+     *
+     * @return The number of sales.
+     */
+    int size();
+}
@@ -0,0 +1,11 @@
+package se.kth.iv1350.pos.integration;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object for an item that moves from one store node to another. Contains the item as an
+ * {@link ItemDTO}, its quantity in stock, and the quantity reserved for each open sale, by sale ID, so the stock
+ * those sales have reserved stays unavailable to other sales on the new node.
+ */
+public record StockedItemDTO(ItemDTO item, int quantity, Map<Long, Integer> reservations) {
+}
@@ -0,0 +1,9 @@
+package se.kth.iv1350.pos.integration;
+
+/**
+ * Data Transfer Object for one entry in a best-seller list, used to transfer analytics data between layers.
+ * Contains the <code>itemID</code>, the estimated quantity or revenue in öre, and the largest possible overestimate,
+ * so the true value is between <code>estimate - maxError</code> and <code>estimate</code>.
+ */
+public record TopItemDTO(String itemID, long estimate, long maxError) {
+}
@@ -36,6 +36,36 @@ public class Amount {
         return new Amount(BigDecimal.valueOf(value));
     }
 
+    /**
+     * Creates an <code>Amount</code> object from a whole number of öre. Unlike {@link #of(double)}, the value may be
+     * negative, which is needed for net totals such as report figures that include refunds.
+     *
+     * @param ore The value in öre.
+     * @return An <code>Amount</code> object representing the specified value.
+     */
+    public static Amount ofOre(long ore) {
+        return new Amount(BigDecimal.valueOf(ore, 2));
+    }
+
+    /**
+     * Creates an <code>Amount</code> object with the exact specified value, without going through <code>double</code>.
+     *
+     * @param value The exact value of the amount.
+     * @return An <code>Amount</code> object representing the specified value.
+     */
+    static Amount exactly(BigDecimal value) {
+        return new Amount(value);
+    }
+
+    /**
+     * Gets the exact value of this <code>Amount</code>, used for fixed-point calculations within the model.
+     *
+     * @return The value as a <code>BigDecimal</code>.
+     */
+    BigDecimal getExactValue() {
+        return value;
+    }
+
     /**
      * Creates an <code>Amount</code> object with the specified value.
      *
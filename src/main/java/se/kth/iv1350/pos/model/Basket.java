@@ -0,0 +1,364 @@
+package se.kth.iv1350.pos.model;
+
+import se.kth.iv1350.pos.integration.ItemDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Stores the lines of a {@link Sale} in insertion order.
+ * The lines are kept as a structure of arrays: the item, the hash of its ID, the quantity, the unit price in öre, and
+ * the cached line total and line VAT in öre each have a plain array of their own. The line VAT is extracted only when
+ * a line is added or its quantity changes, so reading a line's quantity, total or VAT is an array read that allocates
+ * nothing. A {@link SaleItem} view, which is created when a whole line is read, only wraps the cached values.
+ * <p>
+ * Small baskets are searched with a linear scan, and once the basket grows past {@link #LINEAR_SCAN_LIMIT} lines an
+ * open-addressing index of <code>int</code> positions is built, so lookups stay constant time for very large baskets.
+ * Only the last line can be removed, which matches how {@link Sale#updateQuantity(int)} works.
+ */
+class Basket implements Iterable<SaleItem> {
+    static final int LINEAR_SCAN_LIMIT = 16;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int EMPTY_SLOT = 0;
+    private static final int ORE_DECIMALS = 2;
+
+    private ItemDTO[] items;
+    private int[] hashes;
+    private int[] quantities;
+    private long[] unitPrices;
+    private long[] lineTotals;
+    private long[] lineVats;
+    private int size;
+    private int[] index;
+
+    /**
+     * Creates a new, empty <code>Basket</code>.
+     */
+    Basket() {
+        items = new ItemDTO[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        quantities = new int[INITIAL_CAPACITY];
+        unitPrices = new long[INITIAL_CAPACITY];
+        lineTotals = new long[INITIAL_CAPACITY];
+        lineVats = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Finds the position of the line for the item with the specified ID.
+     *
+     * @param itemID The ID of the item to find.
+     * @return The position of the line, or <code>-1</code> if the item is not in the basket.
+     */
+    int positionOf(String itemID) {
+        int hash = itemID.hashCode();
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == hash && matches(i, itemID)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = spread(hash) & mask; index[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            int position = index[slot] - 1;
+            if (hashes[position] == hash && matches(position, itemID)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the line for the item with the specified ID.
+     *
+     * @param itemID The ID of the item to find.
+     * @return A {@link SaleItem} view of the line, or <code>null</code> if the item is not in the basket.
+     */
+    SaleItem find(String itemID) {
+        int position = positionOf(itemID);
+        if (position < 0) {
+            return null;
+        }
+        return get(position);
+    }
+
+    /**
+     * Checks if the basket contains a line for the item with the specified ID.
+     *
+     * @param itemID The ID of the item.
+     * @return <code>true</code> if the item is in the basket.
+     */
+    boolean contains(String itemID) {
+        return positionOf(itemID) >= 0;
+    }
+
+    /**
+     * Appends a new line to the basket. The caller must make sure the item is not already in the basket.
+     *
+     * @param item     The item of the line.
+     * @param quantity The quantity of the item.
+     * @return The position of the new line.
+     */
+    int add(ItemDTO item, int quantity) {
+        if (size == items.length) {
+            grow();
+        }
+        items[size] = item;
+        hashes[size] = item.id().hashCode();
+        unitPrices[size] = toOre(item.price());
+        size++;
+        updateLine(size - 1, quantity);
+        if (index != null) {
+            if (size * 2 > index.length) {
+                rebuildIndex(index.length * 2);
+            } else {
+                insertIntoIndex(size - 1);
+            }
+        } else if (size > LINEAR_SCAN_LIMIT) {
+            rebuildIndex(Integer.highestOneBit(size) * 4);
+        }
+        return size - 1;
+    }
+
+    /**
+     * Changes the quantity of a line, and its cached line total and line VAT with it. Negative quantities are ignored.
+     *
+     * @param position The position of the line.
+     * @param quantity The new quantity.
+     */
+    void setQuantity(int position, int quantity) {
+        checkPosition(position);
+        if (quantity < 0) {
+            return;
+        }
+        updateLine(position, quantity);
+    }
+
+    /**
+     * Gets the item of a line.
+     *
+     * @param position The position of the line.
+     * @return The {@link ItemDTO} of the line.
+     */
+    ItemDTO getItem(int position) {
+        checkPosition(position);
+        return items[position];
+    }
+
+    /**
+     * Gets the quantity of a line.
+     *
+     * @param position The position of the line.
+     * @return The quantity.
+     */
+    int getQuantity(int position) {
+        checkPosition(position);
+        return quantities[position];
+    }
+
+    /**
+     * Gets the cached line total (price × quantity) of a line.
+     *
+     * @param position The position of the line.
+     * @return The line total, in öre.
+     */
+    long getLineTotal(int position) {
+        checkPosition(position);
+        return lineTotals[position];
+    }
+
+    /**
+     * Gets the cached VAT of a line, extracted from its line total.
+     *
+     * @param position The position of the line.
+     * @return The line VAT, in öre.
+     */
+    long getLineVat(int position) {
+        checkPosition(position);
+        return lineVats[position];
+    }
+
+    /**
+     * Gets the most recently added line.
+     *
+     * @return A {@link SaleItem} view of the last line, or <code>null</code> if the basket is empty.
+     */
+    SaleItem last() {
+        if (size == 0) {
+            return null;
+        }
+        return get(size - 1);
+    }
+
+    /**
+     * Removes the most recently added line. Does nothing if the basket is empty.
+     */
+    void removeLast() {
+        if (size == 0) {
+            return;
+        }
+        int position = size - 1;
+        if (index != null) {
+            removeFromIndex(position);
+        }
+        items[position] = null;
+        size--;
+    }
+
+    /**
+     * Gets the line at the specified position, in insertion order.
+     *
+     * @param position The position of the line.
+     * @return A {@link SaleItem} view of the line at the position.
+     */
+    SaleItem get(int position) {
+        checkPosition(position);
+        return new SaleItem(items[position], quantities[position], lineTotals[position], lineVats[position]);
+    }
+
+    /**
+     * Gets the number of lines in the basket.
+     *
+     * @return The number of lines.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the basket has no lines.
+     *
+     * @return <code>true</code> if the basket is empty.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Iterates over the lines in insertion order, creating a {@link SaleItem} view of each.
+     *
+     * @return An iterator over the lines, which does not support removal.
+     */
+    @Override
+    public Iterator<SaleItem> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public SaleItem next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Converts a VAT-included unit price to whole öre, rounding half up.
+     *
+     * @param price The price in SEK.
+     * @return The price in öre.
+     */
+    static long toOre(double price) {
+        return BigDecimal.valueOf(price).setScale(ORE_DECIMALS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Extracts the VAT from a VAT-included amount, rounding half up to whole öre.
+     *
+     * @param gross   The VAT-included amount, in öre.
+     * @param vatRate The VAT rate.
+     * @return The VAT, in öre.
+     */
+    static long extractVat(long gross, double vatRate) {
+        BigDecimal rate = BigDecimal.valueOf(vatRate);
+        return BigDecimal.valueOf(gross).multiply(rate).divide(BigDecimal.ONE.add(rate), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    private void updateLine(int position, int quantity) {
+        quantities[position] = quantity;
+        lineTotals[position] = unitPrices[position] * quantity;
+        lineVats[position] = extractVat(lineTotals[position], items[position].vatRate());
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+    }
+
+    private boolean matches(int position, String itemID) {
+        return items[position].id().equals(itemID);
+    }
+
+    private void grow() {
+        int capacity = items.length * 2;
+        ItemDTO[] grownItems = new ItemDTO[capacity];
+        int[] grownHashes = new int[capacity];
+        int[] grownQuantities = new int[capacity];
+        long[] grownUnitPrices = new long[capacity];
+        long[] grownLineTotals = new long[capacity];
+        long[] grownLineVats = new long[capacity];
+        System.arraycopy(items, 0, grownItems, 0, size);
+        System.arraycopy(hashes, 0, grownHashes, 0, size);
+        System.arraycopy(quantities, 0, grownQuantities, 0, size);
+        System.arraycopy(unitPrices, 0, grownUnitPrices, 0, size);
+        System.arraycopy(lineTotals, 0, grownLineTotals, 0, size);
+        System.arraycopy(lineVats, 0, grownLineVats, 0, size);
+        items = grownItems;
+        hashes = grownHashes;
+        quantities = grownQuantities;
+        unitPrices = grownUnitPrices;
+        lineTotals = grownLineTotals;
+        lineVats = grownLineVats;
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertIntoIndex(i);
+        }
+    }
+
+    private void insertIntoIndex(int position) {
+        int mask = index.length - 1;
+        int slot = spread(hashes[position]) & mask;
+        while (index[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private void removeFromIndex(int position) {
+        int mask = index.length - 1;
+        int slot = spread(hashes[position]) & mask;
+        while (index[slot] != position + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // Backward-shift deletion keeps every probe sequence unbroken without tombstones.
+        int next = (slot + 1) & mask;
+        while (index[next] != EMPTY_SLOT) {
+            int ideal = spread(hashes[index[next] - 1]) & mask;
+            if (((next - ideal) & mask) >= ((next - slot) & mask)) {
+                index[slot] = index[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[slot] = EMPTY_SLOT;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
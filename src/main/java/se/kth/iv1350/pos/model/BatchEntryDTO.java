@@ -0,0 +1,11 @@
+package se.kth.iv1350.pos.model;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the result of entering a batch of items, used to transfer sale data between layers.
+ * Contains the number of items entered, the IDs that were not found, the IDs that are out of stock, and the running total and VAT as {@link Amount}.
+ */
+public record BatchEntryDTO(int enteredQuantity, List<String> unknownItemIDs, List<String> unavailableItemIDs,
+                            Amount total, Amount totalVat) {
+}
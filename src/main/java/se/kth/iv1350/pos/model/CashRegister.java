@@ -2,19 +2,50 @@ package se.kth.iv1350.pos.model;
 
 import se.kth.iv1350.pos.controller.Controller;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Represents a <code>CashRegister</code> that handles the store's cash.
- * Updated by {@link Controller} during payment.
+ * Represents a <code>CashRegister</code> that handles the cash of one checkout lane.
+ * Updated by {@link Controller} during payment, and when a {@link Refund} is paid out.
+ * <p>
+ * The balance is kept in whole öre in one <code>long</code>, together with a count of the updates, and is updated
+ * with compare-and-set without locking, so the registers of all lanes can be read while sales are paid. The count lets
+ * {@link CashRegisters} see whether a register changed between two reads, even if it went back to the same balance.
  */
 public class CashRegister {
-    private static final double INITIAL_BALANCE = 1000;
-    private Amount balance;
+    private static final long INITIAL_BALANCE_ORE = 100_000;
+    private static final int DEFAULT_LANE_ID = 1;
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int ORE_DECIMALS = 2;
+    private final int laneID;
+    private final AtomicLong state = new AtomicLong(INITIAL_BALANCE_ORE << COUNT_BITS);
 
     /**
-     * Creates a new instance with the initial balance.
+     * Creates a new instance with the initial balance, for the default lane.
      */
     public CashRegister() {
-        this.balance = Amount.of(INITIAL_BALANCE);
+        this(DEFAULT_LANE_ID);
+    }
+
+    /**
+     * Creates a new instance with the initial balance, for the specified checkout lane.
+     *
+     * @param laneID The ID of the checkout lane this cash register belongs to.
+     */
+    public CashRegister(int laneID) {
+        this.laneID = laneID;
+    }
+
+    /**
+     * Gets the ID of the checkout lane this cash register belongs to.
+     *
+     * @return The lane ID.
+     */
+    public int getLaneID() {
+        return laneID;
     }
 
     /**
@@ -23,7 +54,16 @@ public class CashRegister {
      * @return The current balance.
      */
     public Amount getBalance() {
-        return balance;
+        return toAmount(balanceOf(state.get()));
+    }
+
+    /**
+     * Gets the balance the cash register was opened with, before any sale was paid.
+     *
+     * @return The opening balance.
+     */
+    public Amount getOpeningBalance() {
+        return toAmount(INITIAL_BALANCE_ORE);
     }
 
     /**
@@ -32,6 +72,80 @@ public class CashRegister {
      * @param amount The amount to add to the balance.
      */
     void updateBalance(Amount amount) {
-        balance = balance.add(amount);
+        long ore = toOre(amount);
+        long current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, next(current, ore)));
+    }
+
+    /**
+     * Takes the specified amount out of the cash register, if it holds that much.
+     *
+     * @param amount The amount to take out.
+     * @return <code>true</code> if the amount was taken out, <code>false</code> if the balance is too low.
+     */
+    boolean payOut(Amount amount) {
+        long ore = toOre(amount);
+        long current;
+        do {
+            current = state.get();
+            if (balanceOf(current) < ore) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, next(current, -ore)));
+        return true;
+    }
+
+    /**
+     * Reads the balance and update count of the cash register in one step.
+     *
+     * @return The state, to be read with {@link #balanceOf(long)}.
+     */
+    long readState() {
+        return state.get();
+    }
+
+    /**
+     * Gets the balance in öre of a state read with {@link #readState()}.
+     *
+     * @param state The state.
+     * @return The balance in öre.
+     */
+    static long balanceOf(long state) {
+        return state >> COUNT_BITS;
+    }
+
+    /**
+     * Gets the opening balance of every cash register, in öre.
+     *
+     * @return The opening balance in öre.
+     */
+    static long openingBalanceOre() {
+        return INITIAL_BALANCE_ORE;
+    }
+
+    /**
+     * Converts an amount to whole öre, rounded half up.
+     *
+     * @param amount The amount.
+     * @return The amount in öre.
+     */
+    static long toOre(Amount amount) {
+        return amount.getExactValue().setScale(ORE_DECIMALS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts whole öre to an exact amount, which may be negative.
+     *
+     * @param ore The amount in öre.
+     * @return The amount.
+     */
+    static Amount toAmount(long ore) {
+        return Amount.exactly(BigDecimal.valueOf(ore, ORE_DECIMALS));
+    }
+
+    private static long next(long current, long ore) {
+        return ((balanceOf(current) + ore) << COUNT_BITS) | ((current + 1) & COUNT_MASK);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package se.kth.iv1350.pos.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds the {@link CashRegister} of every checkout lane of the store, for till counts and the end-of-day
+ * reconciliation against the revenue booked in accounting.
+ * <p>
+ * A till count reads every register twice, and retries until both reads are the same. Since every update changes
+ * the update count of its register, equal reads mean that no register changed in between, so the count shows the
+ * balances as they all were at one point in time, without stopping any lane.
+ */
+public class CashRegisters {
+    private final Map<Integer, CashRegister> registers = new ConcurrentSkipListMap<>();
+
+    /**
+     * Creates a new instance without any cash registers. A register is opened for a lane when it is first asked for.
+     */
+    public CashRegisters() {
+    }
+
+    /**
+     * Gets the cash register of a lane, opening it with the initial balance if the lane has none yet.
+     *
+     * @param laneID The ID of the checkout lane.
+     * @return The {@link CashRegister} of the lane.
+     */
+    public CashRegister getCashRegister(int laneID) {
+        return registers.computeIfAbsent(laneID, CashRegister::new);
+    }
+
+    /**
+     * Counts the cash in every cash register, as it all was at one point in time.
+     *
+     * @return A {@link TillCountDTO} with the balance of every lane and the total.
+     */
+    public TillCountDTO countTills() {
+        Snapshot snapshot = takeSnapshot();
+        Map<Integer, Amount> balances = new LinkedHashMap<>();
+        long totalOre = 0;
+        for (int i = 0; i < snapshot.lanes.size(); i++) {
+            long balanceOre = CashRegister.balanceOf(snapshot.states[i]);
+            balances.put(snapshot.lanes.get(i), CashRegister.toAmount(balanceOre));
+            totalOre += balanceOre;
+        }
+        return new TillCountDTO(balances, CashRegister.toAmount(totalOre));
+    }
+
+    /**
+     * Compares the cash taken by every cash register since opening with the revenue booked for its lane. The lanes
+     * are compared in parallel, and a lane is flagged if the two differ by one öre or more, for example because a sale
+     * has not yet reached accounting. Lanes with booked revenue but no register, and registers without booked revenue,
+     * are included.
+     *
+     * @param bookedRevenuePerLane The revenue booked in accounting, by lane ID.
+     * @return A {@link LaneReconciliationDTO} for every lane, ordered by lane ID.
+     */
+    public List<LaneReconciliationDTO> reconcile(Map<Integer, Amount> bookedRevenuePerLane) {
+        Snapshot snapshot = takeSnapshot();
+        Map<Integer, Long> takingsPerLane = new LinkedHashMap<>();
+        for (int i = 0; i < snapshot.lanes.size(); i++) {
+            takingsPerLane.put(snapshot.lanes.get(i), CashRegister.balanceOf(snapshot.states[i]) - CashRegister.openingBalanceOre());
+        }
+        TreeSet<Integer> lanes = new TreeSet<>(takingsPerLane.keySet());
+        lanes.addAll(bookedRevenuePerLane.keySet());
+        return lanes.parallelStream()
+                .map(laneID -> reconcileLane(laneID, takingsPerLane.getOrDefault(laneID, 0L),
+                        bookedRevenuePerLane.containsKey(laneID) ? bookedRevenuePerLane.get(laneID) : Amount.zero()))
+                .sorted(Comparator.comparingInt(LaneReconciliationDTO::laneID))
+                .toList();
+    }
+
+    private static LaneReconciliationDTO reconcileLane(int laneID, long takingsOre, Amount bookedRevenue) {
+        Amount takings = CashRegister.toAmount(takingsOre);
+        long differenceOre = takingsOre - CashRegister.toOre(bookedRevenue);
+        return new LaneReconciliationDTO(laneID, takings, bookedRevenue, CashRegister.toAmount(differenceOre),
+                differenceOre == 0);
+    }
+
+    private Snapshot takeSnapshot() {
+        while (true) {
+            List<Integer> lanes = new ArrayList<>(registers.keySet());
+            List<CashRegister> lanesRegisters = new ArrayList<>(lanes.size());
+            for (Integer laneID : lanes) {
+                lanesRegisters.add(registers.get(laneID));
+            }
+            long[] first = readStates(lanesRegisters);
+            long[] second = readStates(lanesRegisters);
+            if (Arrays.equals(first, second) && registers.size() == lanes.size()) {
+                return new Snapshot(lanes, second);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static long[] readStates(List<CashRegister> lanesRegisters) {
+        long[] states = new long[lanesRegisters.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = lanesRegisters.get(i).readState();
+        }
+        return states;
+    }
+
+    /**
+     * The state of every cash register at one point in time, in the order of the lane IDs.
+     */
+    private record Snapshot(List<Integer> lanes, long[] states) {
+    }
+}
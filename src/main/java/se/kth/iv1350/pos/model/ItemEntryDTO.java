@@ -0,0 +1,8 @@
+package se.kth.iv1350.pos.model;
+
+/**
+ * Data Transfer Object for one entry in a batch of scanned or imported items, used to transfer item data between layers.
+ * Contains the <code>itemID</code> and the <code>quantity</code> to enter.
+ */
+public record ItemEntryDTO(String itemID, int quantity) {
+}
@@ -0,0 +1,11 @@
+package se.kth.iv1350.pos.model;
+
+/**
+ * Data Transfer Object for the end-of-day reconciliation of one checkout lane, used to transfer data between layers.
+ * Contains the lane ID, the cash taken by its register since opening, the revenue booked for the lane in accounting,
+ * their difference, and whether they match. The booked revenue and the difference are <code>null</code> if the
+ * booked revenue is not known.
+ */
+public record LaneReconciliationDTO(int laneID, Amount drawerTakings, Amount bookedRevenue, Amount difference,
+                                    boolean balanced) {
+}
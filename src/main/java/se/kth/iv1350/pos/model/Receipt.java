@@ -5,14 +5,14 @@ import se.kth.iv1350.pos.integration.Printer;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
 
 /**
  * Represents a <code>Receipt</code> for a completed <code>Sale</code>, including all sale details and formatting.
- * Created by {@link Sale} and printed by {@link Printer}.
+ * Created by {@link Sale} and printed by {@link Printer}, or recreated from an archived {@link SaleDTO} to print it again.
  */
 public class Receipt {
     private final Sale sale;
+    private final SaleDTO saleDTO;
     private final Amount amountPaid;
     private final Amount change;
 
@@ -25,6 +25,21 @@ public class Receipt {
      */
     public Receipt(Sale sale, Amount amountPaid, Amount change) {
         this.sale = sale;
+        this.saleDTO = null;
+        this.amountPaid = amountPaid;
+        this.change = change;
+    }
+
+    /**
+     * Recreates the receipt of a sale that was paid earlier, from the data of the paid sale.
+     *
+     * @param saleDTO    The paid sale proved by this receipt.
+     * @param amountPaid How much was paid for the sale.
+     * @param change     The amount of change returned to the customer.
+     */
+    public Receipt(SaleDTO saleDTO, Amount amountPaid, Amount change) {
+        this.sale = null;
+        this.saleDTO = saleDTO;
         this.amountPaid = amountPaid;
         this.change = change;
     }
@@ -46,25 +61,28 @@ public class Receipt {
 
     private void appendReceiptHeader(StringBuilder builder) {
         appendLine(builder, "------------------- Begin receipt -------------------");
-        appendLine(builder, "Time of Sale: " + getCurrentTime());
+        appendLine(builder, "Time of Sale: " + formatTime(saleData().timeOfSale()));
         endSection(builder);
     }
 
     private void appendSaleItems(StringBuilder builder) {
-        Map<String, SaleItem> items = sale.getItems();
-        for (SaleItem item : items.values()) {
-            ItemDTO itemInfo = item.getItem();
-            int quantity = item.getQuantity();
+        for (SaleItemDTO item : saleData().items()) {
+            ItemDTO itemInfo = item.item();
+            int quantity = item.quantity();
             double price = itemInfo.price();
-            Amount lineTotal = item.getLineTotal();
+            Amount lineTotal = item.total();
             appendLine(builder, itemInfo.name() + " " + quantity + " x " + formatPrice(price) + " " + formatAmount(lineTotal));
         }
         endSection(builder);
     }
 
     private void appendReceiptTotal(StringBuilder builder) {
-        appendLine(builder, "Total: " + formatAmount(sale.getTotalCost()));
-        appendLine(builder, "VAT: " + formatPrice(sale.getTotalVat().getValue()));
+        SaleDTO saleDTO = saleData();
+        appendLine(builder, "Total: " + formatAmount(saleDTO.total()));
+        appendLine(builder, "VAT: " + formatPrice(saleDTO.totalVat().getValue()));
+        for (VatRateTotalDTO vatRateTotal : saleDTO.vatRateTotals()) {
+            appendLine(builder, "  VAT " + formatPercentage(vatRateTotal.vatRate()) + ": " + formatAmount(vatRateTotal.vat()));
+        }
         endSection(builder);
     }
 
@@ -77,10 +95,13 @@ public class Receipt {
         appendLine(builder, "------------------- End receipt ---------------------");
     }
 
-    private String getCurrentTime() {
-        LocalDateTime now = LocalDateTime.now();
+    private SaleDTO saleData() {
+        return sale != null ? sale.toDTO() : saleDTO;
+    }
+
+    private String formatTime(LocalDateTime time) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        return now.format(formatter);
+        return time.format(formatter);
     }
 
     private String formatAmount(Amount amount) {
@@ -92,6 +113,10 @@ public class Receipt {
         return String.format("%.2f", price).replace('.', ':');
     }
 
+    private String formatPercentage(double rate) {
+        return Math.round(rate * 100) + "%";
+    }
+
     private void appendLine(StringBuilder builder, String line) {
         builder.append(line);
         builder.append("\n");
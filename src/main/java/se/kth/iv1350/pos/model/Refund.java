@@ -0,0 +1,132 @@
+package se.kth.iv1350.pos.model;
+
+import se.kth.iv1350.pos.integration.ItemDTO;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a <code>Refund</code> of items returned from an earlier, paid sale.
+ * <p>
+ * The returned items are priced as they were in the original sale, with its prices and VAT rates, so that returning
+ * every item of a sale refunds exactly what was paid for it. A quantity can only be returned if the original sale
+ * holds that many of the item, less what has been returned before. The refund has an ID of its own, so it is booked
+ * once, apart from the original sale.
+ * <p>
+ * <b>Note:</b> Methods that encounter invalid operations return <code>false</code> or <code>null</code>.
+ */
+public class Refund {
+    private final long originalSaleID;
+    private final Map<String, ItemDTO> originalItems = new HashMap<>();
+    private final Map<String, Integer> returnableQuantities = new HashMap<>();
+    private final Sale returnedItems;
+    private final CashRegister cashRegister;
+    private boolean paidOut;
+
+    /**
+     * Creates a new, empty refund of the specified sale.
+     *
+     * @param cashRegister     The cash register the refund is paid out from.
+     * @param originalSale     The paid sale the items are returned from.
+     * @param returnedQuantity The quantity of each item that has already been returned from the sale, by item ID.
+     */
+    public Refund(CashRegister cashRegister, SaleDTO originalSale, Map<String, Integer> returnedQuantity) {
+        this.originalSaleID = originalSale.saleID();
+        this.cashRegister = cashRegister;
+        this.returnedItems = new Sale(cashRegister);
+        for (SaleItemDTO line : originalSale.items()) {
+            String itemID = line.item().id();
+            originalItems.putIfAbsent(itemID, line.item());
+            returnableQuantities.merge(itemID, line.quantity(), Integer::sum);
+        }
+        returnedQuantity.forEach((itemID, quantity) -> returnableQuantities.computeIfPresent(itemID,
+                (id, returnable) -> returnable - quantity));
+    }
+
+    /**
+     * Adds returned items to the refund.
+     *
+     * @param itemID   The ID of the returned item.
+     * @param quantity The returned quantity.
+     * @return <code>true</code> if the items were added, <code>false</code> if the item is not in the original sale,
+     * the quantity is below one or more than can still be returned, or the refund is already paid out.
+     */
+    public boolean addItem(String itemID, int quantity) {
+        if (paidOut || quantity < 1) {
+            return false;
+        }
+        int returnable = returnableQuantities.getOrDefault(itemID, 0);
+        if (quantity > returnable) {
+            return false;
+        }
+        returnableQuantities.put(itemID, returnable - quantity);
+        returnedItems.addItems(List.of(originalItems.get(itemID)), new int[]{quantity});
+        return true;
+    }
+
+    /**
+     * Gets the ID of the sale the items are returned from.
+     *
+     * @return The ID of the original sale.
+     */
+    public long getOriginalSaleID() {
+        return originalSaleID;
+    }
+
+    /**
+     * Gets the amount to pay back for the returned items.
+     *
+     * @return The total of the returned items as an {@link Amount}.
+     */
+    public Amount getTotal() {
+        return returnedItems.getTotalCost();
+    }
+
+    /**
+     * Checks whether the cash register holds enough cash to pay out the refund.
+     *
+     * @return <code>true</code> if the refund can be paid out.
+     */
+    public boolean canPayOut() {
+        return !paidOut && cashRegister.getBalance().subtract(getTotal()) != null;
+    }
+
+    /**
+     * Pays out the refund from the cash register. Once paid out, no more items can be added.
+     *
+     * @return The amount paid out, or <code>null</code> if nothing is returned, the refund is already paid out, or
+     * the cash register does not hold enough cash.
+     */
+    public Amount payOut() {
+        if (paidOut || returnedItems.getItems().size() == 0 || !cashRegister.payOut(getTotal())) {
+            return null;
+        }
+        paidOut = true;
+        return getTotal();
+    }
+
+    /**
+     * Puts a paid out refund back in the cash register, for example when the return can not be recorded afterwards.
+     *
+     * @return <code>true</code> if the payout was cancelled, <code>false</code> if the refund is not paid out.
+     */
+    public boolean cancelPayOut() {
+        if (!paidOut) {
+            return false;
+        }
+        cashRegister.updateBalance(getTotal());
+        paidOut = false;
+        return true;
+    }
+
+    /**
+     * Creates a {@link SaleDTO} with the returned lines, their totals and the totals per VAT rate, for transfer
+     * between layers. Its ID is the ID of the refund, and its lane is the lane that pays out the refund.
+     *
+     * @return a <code>SaleDTO</code> with the returned lines.
+     */
+    public SaleDTO toDTO() {
+        return returnedItems.toDTO();
+    }
+}
@@ -2,31 +2,54 @@ package se.kth.iv1350.pos.model;
 
 import se.kth.iv1350.pos.integration.ItemDTO;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a <code>Sale</code> transaction, containing items, totals, and receipt generation.
  * The <code>Sale</code> is managed by the {@link se.kth.iv1350.pos.controller.Controller Controller} and provides data via {@link SaleDTO}.
  * <p>
  * <b>Note:</b> Methods that encounter invalid operations (e.g., adding quantity with no items, invalid payment amount) will return <code>null</code>.
+ * Once the <code>Sale</code> is paid it is frozen: items can no longer be changed, and {@link #toDTO()} returns the same
+ * snapshot every time, so every stage after payment shares one instance.
  */
 public class Sale {
-    private final LinkedHashMap<String, SaleItem> items;
+    private static final AtomicLong NEXT_SALE_ID = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final long saleID;
+    private final Basket items;
+    private final VatRateTotals vatRateTotals;
     private final CashRegister cashRegister;
     private Amount total;
     private Amount totalVat;
     private Receipt receipt;
+    private SaleDTO snapshot;
+    private LocalDateTime timeOfSale;
 
     /**
      * Creates a new instance of <code>Sale</code>.
-     * Initializes an empty sale with no items and zero totals.
+     * Initializes an empty sale with no items and zero totals, and gives it an ID that no other sale has.
      */
     public Sale(CashRegister cashRegister) {
-        this.items = new LinkedHashMap<>();
+        this(cashRegister, NEXT_SALE_ID.getAndIncrement(), LocalDateTime.now());
+    }
+
+    /**
+     * Recreates an empty <code>Sale</code> that was started earlier, for example to resume it from a checkpoint
+     * after a crash. Its items are added again with {@link #addItems(List, int[])}.
+     *
+     * @param cashRegister The cash register of the lane the sale belongs to.
+     * @param saleID       The ID the sale was given when it was started.
+     * @param timeOfSale   The time the sale was started.
+     */
+    public Sale(CashRegister cashRegister, long saleID, LocalDateTime timeOfSale) {
+        this.saleID = saleID;
+        this.items = new Basket();
+        this.vatRateTotals = new VatRateTotals();
         this.cashRegister = cashRegister;
+        this.timeOfSale = timeOfSale;
         this.total = Amount.zero();
         this.totalVat = Amount.zero();
     }
@@ -35,40 +58,80 @@ public class Sale {
      * Adds an item to the current <code>Sale</code>.
      *
      * @param item The {@link ItemDTO} to add.
-     * @return A {@link SaleItemDTO} with updated sale information.
+     * @return A {@link SaleItemDTO} with updated sale information, or <code>null</code> if the sale is already paid
+     * or the quantity of the item can not grow any further.
      */
     public SaleItemDTO addItem(ItemDTO item) {
-        if (items.containsKey(item.id())) {
-            items.get(item.id()).incrementQuantity();
+        if (isPaid()) {
+            return null;
+        }
+        int position = items.positionOf(item.id());
+        if (position >= 0 && items.getQuantity(position) == Integer.MAX_VALUE) {
+            return null;
+        }
+        if (position >= 0) {
+            changeQuantity(position, items.getQuantity(position) + 1);
         } else {
-            items.put(item.id(), new SaleItem(item, 1));
+            position = addLine(item, 1);
+        }
+        updateRunningTotal();
+        return new SaleItemDTO(item, items.getQuantity(position), total, totalVat);
+    }
+
+    /**
+     * Adds several items to the current <code>Sale</code> and updates the running total once for the whole batch.
+     * Entries with a quantity below one are ignored, and nothing is added if the sale is already paid.
+     *
+     * @param items      The {@link ItemDTO}s to add.
+     * @param quantities The quantity of each item, where <code>quantities[i]</code> belongs to <code>items.get(i)</code>.
+     */
+    public void addItems(List<ItemDTO> items, int[] quantities) {
+        if (isPaid()) {
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            int quantity = quantities[i];
+            if (quantity < 1) {
+                continue;
+            }
+            ItemDTO item = items.get(i);
+            int position = this.items.positionOf(item.id());
+            if (position >= 0) {
+                changeQuantity(position, this.items.getQuantity(position) + quantity);
+            } else {
+                addLine(item, quantity);
+            }
         }
         updateRunningTotal();
-        return new SaleItemDTO(item, items.get(item.id()).getQuantity(), total, totalVat);
     }
 
     /**
      * Updates the quantity of the last entered item in the current <code>Sale</code>.
      *
      * @param quantity The <code>int</code> quantity to add.
-     * @return A {@link SaleItemDTO} with updated sale information, or <code>null</code> if there are no items in the sale or the quantity is invalid.
+     * @return A {@link SaleItemDTO} with updated sale information, or <code>null</code> if there are no items in the sale,
+     * the quantity is invalid, or the sale is already paid.
      */
     public SaleItemDTO updateQuantity(int quantity) {
-        if (items.isEmpty() || items.lastEntry() == null) {
+        if (isPaid()) {
+            return null;
+        }
+        int last = items.size() - 1;
+        if (last < 0) {
             return null;
         }
         if (quantity < 0) {
             return null;
         }
-        var lastEntry = items.lastEntry();
         if (quantity == 0) {
-            items.remove(lastEntry.getKey());
+            vatRateTotals.subtract(items.getItem(last).vatRate(), items.getLineTotal(last));
+            items.removeLast();
             updateRunningTotal();
             return null;
         }
-        lastEntry.getValue().updateQuantity(quantity);
+        changeQuantity(last, quantity);
         updateRunningTotal();
-        return new SaleItemDTO(lastEntry.getValue().getItem(), lastEntry.getValue().getQuantity(), total, totalVat);
+        return new SaleItemDTO(items.getItem(last), items.getQuantity(last), total, totalVat);
     }
 
     /**
@@ -82,9 +145,11 @@ public class Sale {
 
     /**
      * Registers a payment and returns the change.
+     * The amount paid goes into the cash register and the change comes out of it, so its balance grows by the total.
      *
      * @param amountPaid The amount paid as an {@link Amount}.
-     * @return The change as an {@link Amount}, or <code>null</code> if the payment amount is invalid (negative).
+     * @return The change as an {@link Amount}, or <code>null</code> if the payment amount is invalid (negative) or less
+     * than the total.
      */
     public Amount pay(Amount amountPaid) {
         if (amountPaid.getValue() < 0) {
@@ -92,8 +157,12 @@ public class Sale {
         }
         CashPayment cashPayment = new CashPayment(amountPaid);
         cashPayment.calculateTotalCost(this);
-        cashRegister.updateBalance(cashPayment.getAmountPaid());
-        Amount change = amountPaid.subtract(total);
+        Amount change = cashPayment.getAmountPaid();
+        if (change == null) {
+            return null;
+        }
+        cashRegister.updateBalance(total);
+        timeOfSale = LocalDateTime.now();
         receipt = new Receipt(this, amountPaid, change);
         return change;
     }
@@ -107,6 +176,51 @@ public class Sale {
         return receipt;
     }
 
+    /**
+     * Gets the unique ID of this sale.
+     *
+     * @return The sale ID.
+     */
+    public long getSaleID() {
+        return saleID;
+    }
+
+    /**
+     * Gets the time this sale was started, or the time of payment once it is paid.
+     *
+     * @return The time of sale.
+     */
+    public LocalDateTime getTimeOfSale() {
+        return timeOfSale;
+    }
+
+    /**
+     * Gets the line of this sale for the specified item.
+     *
+     * @param itemID The ID of the item.
+     * @return A {@link SaleItemDTO} for the line, or <code>null</code> if the item is not in the sale.
+     */
+    public SaleItemDTO findItem(String itemID) {
+        int position = items.positionOf(itemID);
+        if (position < 0) {
+            return null;
+        }
+        return new SaleItemDTO(items.getItem(position), items.getQuantity(position), total, totalVat);
+    }
+
+    /**
+     * Gets the last entered item of this sale, the one that {@link #updateQuantity(int)} changes.
+     *
+     * @return A {@link SaleItemDTO} for the last line, or <code>null</code> if there are no items in the sale.
+     */
+    public SaleItemDTO getLastItem() {
+        int last = items.size() - 1;
+        if (last < 0) {
+            return null;
+        }
+        return new SaleItemDTO(items.getItem(last), items.getQuantity(last), total, totalVat);
+    }
+
     /**
      * Gets the total cost for this sale.
      *
@@ -127,29 +241,58 @@ public class Sale {
 
     /**
      * Creates a {@link SaleDTO} representing this sale's data for transfer between layers.
+     * The time of sale is the time of payment, or the time the sale was started if it is not yet paid.
+     * After payment the snapshot is built once, on the first call, and the same instance is returned from then on.
      *
-     * @return a new <code>SaleDTO</code> with all items, total, and VAT.
+     * @return a <code>SaleDTO</code> with all items, total, VAT, and the totals per VAT rate.
      */
     public SaleDTO toDTO() {
-        List<SaleItemDTO> itemDTOs = items.values().stream().map(SaleItem::toDTO).toList();
-        return new SaleDTO(itemDTOs, total, totalVat);
+        if (!isPaid()) {
+            return createSnapshot();
+        }
+        if (snapshot == null) {
+            snapshot = createSnapshot();
+        }
+        return snapshot;
     }
 
     /**
      * Gets all items in this sale.
      *
-     * @return An unmodifiable map of item IDs to {@link SaleItem}.
+     * @return The {@link Basket} holding the {@link SaleItem} lines, in insertion order.
      */
-    Map<String, SaleItem> getItems() {
-        return Collections.unmodifiableMap(items);
+    Basket getItems() {
+        return items;
     }
 
-    private void updateRunningTotal() {
-        total = Amount.zero();
-        totalVat = Amount.zero();
-        for (SaleItem item : items.values()) {
-            total = total.add(item.getLineTotal());
-            totalVat = totalVat.add(item.getLineTotalVat());
+    private boolean isPaid() {
+        return receipt != null;
+    }
+
+    private SaleDTO createSnapshot() {
+        List<SaleItemDTO> itemDTOs = new ArrayList<>(items.size());
+        for (SaleItem item : items) {
+            itemDTOs.add(item.toDTO());
         }
+        return new SaleDTO(saleID, Collections.unmodifiableList(itemDTOs), total, totalVat, vatRateTotals.toDTOs(),
+                cashRegister.getLaneID(), timeOfSale);
+    }
+
+    private int addLine(ItemDTO item, int quantity) {
+        int position = items.add(item, quantity);
+        vatRateTotals.add(item.vatRate(), items.getLineTotal(position));
+        return position;
+    }
+
+    private void changeQuantity(int position, int quantity) {
+        double vatRate = items.getItem(position).vatRate();
+        vatRateTotals.subtract(vatRate, items.getLineTotal(position));
+        items.setQuantity(position, quantity);
+        vatRateTotals.add(vatRate, items.getLineTotal(position));
+    }
+
+    private void updateRunningTotal() {
+        total = vatRateTotals.getTotal();
+        totalVat = vatRateTotals.getTotalVat();
     }
 } 
\ No newline at end of file
@@ -1,10 +1,13 @@
 package se.kth.iv1350.pos.model;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Data Transfer Object for a completed <code>Sale</code>, used to transfer sale data between layers.
- * Contains a list of {@link SaleItemDTO}, the total {@link Amount}, and total VAT as {@link Amount}.
+ * Contains the unique ID of the sale, a list of {@link SaleItemDTO}, the total {@link Amount}, total VAT as {@link Amount},
+ * the totals per VAT rate as a list of {@link VatRateTotalDTO}, the ID of the checkout lane, and the time of sale.
  */
-public record SaleDTO(List<SaleItemDTO> items, Amount total, Amount totalVat) {
+public record SaleDTO(long saleID, List<SaleItemDTO> items, Amount total, Amount totalVat, List<VatRateTotalDTO> vatRateTotals,
+                      int laneID, LocalDateTime timeOfSale) {
 } 
\ No newline at end of file
@@ -3,18 +3,43 @@ package se.kth.iv1350.pos.model;
 import se.kth.iv1350.pos.integration.ItemDTO;
 
 /**
- * Represents an item in a <code>Sale</code>, including its quantity and price calculations.
- * Used internally by {@link Sale} and converted to {@link SaleItemDTO} for transfer between layers.
+ * A read-only view of one line of a <code>Sale</code>: an item, its quantity and its price calculations.
+ * The lines themselves are kept by {@link Basket}, which caches the line total and line VAT in whole öre whenever a
+ * quantity changes and creates a view from them when a whole line is read. Creating a view allocates the view and
+ * its two {@link Amount}s, but does no arithmetic. The view is converted to {@link SaleItemDTO} for transfer between
+ * layers.
  */
 class SaleItem {
     private final ItemDTO item;
-    private int quantity;
+    private final int quantity;
+    private final Amount lineTotal;
+    private final Amount lineTotalVat;
 
+    /**
+     * Creates a view of a line with the specified item and quantity, calculating its line total and VAT.
+     *
+     * @param item     The item of the line.
+     * @param quantity The quantity of the item.
+     */
     SaleItem(ItemDTO item, int quantity) {
+        this(item, quantity, Basket.toOre(item.price()) * quantity,
+                Basket.extractVat(Basket.toOre(item.price()) * quantity, item.vatRate()));
+    }
+
+    /**
+     * Creates a view of a line whose line total and VAT are already known.
+     *
+     * @param item      The item of the line.
+     * @param quantity  The quantity of the item.
+     * @param lineTotal The line total, in öre.
+     * @param lineVat   The line VAT, in öre.
+     */
+    SaleItem(ItemDTO item, int quantity, long lineTotal, long lineVat) {
         this.item = item;
         this.quantity = quantity;
+        this.lineTotal = Amount.ofOre(lineTotal);
+        this.lineTotalVat = Amount.ofOre(lineVat);
     }
-
     /**
      * Gets the item data.
      *
@@ -39,19 +64,16 @@ class SaleItem {
      * @return The total amount for this item line.
      */
     Amount getLineTotal() {
-        double itemPrice = item.price();
-        return Amount.of(itemPrice * quantity);
+        return lineTotal;
     }
 
     /**
-     * Gets the total VAT for this item line.
+     * Gets the total VAT for this item line, rounded to whole öre.
      *
      * @return The VAT amount for this item line.
      */
     Amount getLineTotalVat() {
-        double itemPrice = item.price();
-        double vatRate = item.vatRate();
-        return Amount.of(itemPrice * vatRate * quantity / (1 + vatRate)); // Extract VAT from VAT-included price
+        return lineTotalVat;
     }
 
     /**
@@ -60,25 +82,6 @@ class SaleItem {
      * @return The {@link SaleItemDTO} representing this item.
      */
     SaleItemDTO toDTO() {
-        return new SaleItemDTO(item, quantity, getLineTotal(), getLineTotalVat());
-    }
-
-    /**
-     * Updates the quantity of this item in the sale. Negative quantities are ignored.
-     *
-     * @param quantity The quantity to add (must be non-negative).
-     */
-    void updateQuantity(int quantity) {
-        if (quantity < 0) {
-            return;
-        }
-        this.quantity = quantity;
-    }
-
-    /**
-     * Increments the quantity of this item in the sale by 1.
-     */
-    void incrementQuantity() {
-        this.quantity++;
+        return new SaleItemDTO(item, quantity, lineTotal, lineTotalVat);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package se.kth.iv1350.pos.model;
+
+/**
+ * Calculates line totals and line VAT one line at a time. This is the {@link BulkLineCalculator} created by
+ * {@link BulkLineCalculator#create()}.
+ */
+class ScalarLineCalculator implements BulkLineCalculator {
+    private static final long BASIS_POINTS = 10_000;
+
+    @Override
+    public void calculate(long[] prices, int[] quantities, int[] vatRates, long[] lineTotals, long[] lineVats, int length) {
+        for (int i = 0; i < length; i++) {
+            long total = prices[i] * quantities[i];
+            long divisor = BASIS_POINTS + vatRates[i];
+            lineTotals[i] = total;
+            lineVats[i] = (2 * total * vatRates[i] + divisor) / (2 * divisor);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package se.kth.iv1350.pos.model;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object for a count of the cash in every cash register of the store, used to transfer data between
+ * layers. Contains the balance of each lane as an {@link Amount}, ordered by lane ID, and the total of all lanes.
+ * All balances are read at the same point in time.
+ */
+public record TillCountDTO(Map<Integer, Amount> balancePerLane, Amount total) {
+}
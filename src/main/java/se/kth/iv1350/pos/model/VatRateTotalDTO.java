@@ -0,0 +1,8 @@
+package se.kth.iv1350.pos.model;
+
+/**
+ * Data Transfer Object for the totals of one VAT rate in a <code>Sale</code>, used to transfer sale data between layers.
+ * Contains the <code>vatRate</code>, the VAT-included total of all items with that rate, and the VAT of that total as {@link Amount}.
+ */
+public record VatRateTotalDTO(double vatRate, Amount total, Amount vat) {
+}
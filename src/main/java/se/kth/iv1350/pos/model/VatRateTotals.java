@@ -0,0 +1,130 @@
+package se.kth.iv1350.pos.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the VAT-included totals of a {@link Sale} grouped by VAT rate.
+ * Only the gross total is kept per bucket, in whole öre, so adding or subtracting a line is a single addition. The VAT is
+ * extracted from the bucket totals when it is read, once per rate instead of once per line, and rounded to whole
+ * öre, so the total VAT does not drift with the number of lines. The total and total VAT are cached until the next
+ * change, so reading them again allocates nothing. There are only a few VAT rates, so the buckets are kept in small
+ * arrays and searched linearly.
+ */
+class VatRateTotals {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private double[] vatRates;
+    private long[] grossTotals;
+    private int size;
+    private long total;
+    private Amount cachedTotal;
+    private Amount cachedTotalVat;
+
+    /**
+     * Creates a new instance with no buckets and zero totals.
+     */
+    VatRateTotals() {
+        vatRates = new double[INITIAL_CAPACITY];
+        grossTotals = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a line total to the bucket of its VAT rate.
+     *
+     * @param vatRate   The VAT rate of the line.
+     * @param lineTotal The VAT-included line total, in öre.
+     */
+    void add(double vatRate, long lineTotal) {
+        adjust(vatRate, lineTotal);
+    }
+
+    /**
+     * Subtracts a line total from the bucket of its VAT rate.
+     * Must be called before the quantity of the line is changed.
+     *
+     * @param vatRate   The VAT rate of the line.
+     * @param lineTotal The VAT-included line total, in öre.
+     */
+    void subtract(double vatRate, long lineTotal) {
+        adjust(vatRate, -lineTotal);
+    }
+
+    /**
+     * Gets the VAT-included total of all buckets.
+     *
+     * @return The total as an {@link Amount}.
+     */
+    Amount getTotal() {
+        if (cachedTotal == null) {
+            cachedTotal = Amount.ofOre(total);
+        }
+        return cachedTotal;
+    }
+
+    /**
+     * Gets the sum of the VAT of all buckets, extracting the VAT of each bucket from its total.
+     *
+     * @return The total VAT as an {@link Amount}.
+     */
+    Amount getTotalVat() {
+        if (cachedTotalVat == null) {
+            long totalVat = 0;
+            for (int i = 0; i < size; i++) {
+                totalVat += Basket.extractVat(grossTotals[i], vatRates[i]);
+            }
+            cachedTotalVat = Amount.ofOre(totalVat);
+        }
+        return cachedTotalVat;
+    }
+
+    /**
+     * Creates one {@link VatRateTotalDTO} for each VAT rate that has a non-zero total, ordered by rate.
+     *
+     * @return An unmodifiable list of the totals per VAT rate.
+     */
+    List<VatRateTotalDTO> toDTOs() {
+        List<VatRateTotalDTO> dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (grossTotals[i] != 0) {
+                dtos.add(new VatRateTotalDTO(vatRates[i], Amount.ofOre(grossTotals[i]),
+                        Amount.ofOre(Basket.extractVat(grossTotals[i], vatRates[i]))));
+            }
+        }
+        dtos.sort((first, second) -> Double.compare(first.vatRate(), second.vatRate()));
+        return Collections.unmodifiableList(dtos);
+    }
+
+    private void adjust(double vatRate, long delta) {
+        int bucket = bucketOf(vatRate);
+        grossTotals[bucket] += delta;
+        total += delta;
+        cachedTotal = null;
+        cachedTotalVat = null;
+    }
+
+    private int bucketOf(double vatRate) {
+        for (int i = 0; i < size; i++) {
+            if (vatRates[i] == vatRate) {
+                return i;
+            }
+        }
+        if (size == vatRates.length) {
+            grow();
+        }
+        vatRates[size] = vatRate;
+        grossTotals[size] = 0;
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = vatRates.length * 2;
+        double[] grownRates = new double[capacity];
+        long[] grownGrossTotals = new long[capacity];
+        System.arraycopy(vatRates, 0, grownRates, 0, size);
+        System.arraycopy(grossTotals, 0, grownGrossTotals, 0, size);
+        vatRates = grownRates;
+        grossTotals = grownGrossTotals;
+    }
+}
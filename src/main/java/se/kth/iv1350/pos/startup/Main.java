@@ -1,10 +1,15 @@
 package se.kth.iv1350.pos.startup;
 
 import se.kth.iv1350.pos.controller.Controller;
+import se.kth.iv1350.pos.controller.SaleMonitor;
 import se.kth.iv1350.pos.integration.Printer;
 import se.kth.iv1350.pos.integration.RegistryCreator;
+import se.kth.iv1350.pos.model.CashRegisters;
+import se.kth.iv1350.pos.view.CheckoutServer;
 import se.kth.iv1350.pos.view.View;
 
+import java.io.IOException;
+
 /**
  * Entry point for the Point of Sale (POS) application.
  * Initializes the system and starts the user interface.
@@ -12,16 +17,26 @@ import se.kth.iv1350.pos.view.View;
 public class Main {
 
     /**
-     * Starts the application.
+     * Starts the application. Without arguments, a sample sale is run through the {@link View}. With a port number,
+     * a {@link CheckoutServer} is started on that port instead, serving every checkout lane of the store.
      *
-     * @param args Command line arguments, not used in this application.
+     * @param args Optionally the port of the checkout server.
+     * @throws IOException If the checkout server can not be started.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         RegistryCreator registryCreator = new RegistryCreator();
         Printer printer = new Printer();
+        if (args.length > 0) {
+            SaleMonitor saleMonitor = new SaleMonitor();
+            CashRegisters cashRegisters = new CashRegisters();
+            CheckoutServer server = new CheckoutServer(laneID -> new Controller(registryCreator, printer, saleMonitor,
+                    null, cashRegisters, laneID), Integer.parseInt(args[0]));
+            System.out.printf("Checkout server listening on port %d.%n", server.getPort());
+            return;
+        }
         Controller controller = new Controller(registryCreator, printer);
 
         new View(controller).sampleExecution();
 
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+package se.kth.iv1350.pos.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timer wheel, running an action for each scheduled element once its delay has passed.
+ * <p>
+ * Time is divided into ticks. The wheel has a fixed number of slots, and an element is placed in the slot of the tick
+ * it expires at, together with the number of whole turns of the wheel left before then. Each slot is a doubly linked
+ * list, so scheduling and cancelling cost <code>O(1)</code> however many elements are pending, and each tick only
+ * looks at the elements of one slot. Expiry is accurate to one tick.
+ * <p>
+ * The wheel is advanced either by calling {@link #advance()}, or by one daemon thread started with
+ * {@link #start(String)}. All methods are thread safe. The expiry action is called on the thread that advances the
+ * wheel, outside the lock, so it may schedule or cancel other elements.
+ *
+ * @param <T> The type of the scheduled elements.
+ */
+public class TimerWheel<T> {
+    private final Slot<T>[] slots;
+    private final long tickMillis;
+    private final LongSupplier currentTimeMillis;
+    private final Consumer<T> expiryAction;
+    private long currentTick;
+    private int size;
+    private Thread ticker;
+
+    /**
+     * Creates a new timer wheel.
+     *
+     * @param tickMillis        The length of one tick, in milliseconds.
+     * @param slotCount         The number of slots. Delays up to <code>tickMillis * slotCount</code> expire in the
+     *                          first turn of the wheel; longer delays wait for more turns.
+     * @param currentTimeMillis Gives the current time in milliseconds.
+     * @param expiryAction      Called with each element when its delay has passed.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(long tickMillis, int slotCount, LongSupplier currentTimeMillis, Consumer<T> expiryAction) {
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot<>();
+        }
+        this.tickMillis = tickMillis;
+        this.currentTimeMillis = currentTimeMillis;
+        this.expiryAction = expiryAction;
+        this.currentTick = currentTimeMillis.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Schedules an element to expire after the specified delay.
+     *
+     * @param element     The element, passed to the expiry action.
+     * @param delayMillis The delay, in milliseconds.
+     * @return A {@link Timeout} that can be used to cancel the expiry.
+     */
+    public synchronized Timeout<T> schedule(T element, long delayMillis) {
+        long expiryTick = Math.max(currentTimeMillis.getAsLong() + delayMillis, 0) / tickMillis;
+        long ticksLeft = Math.max(expiryTick - currentTick, 1);
+        Timeout<T> timeout = new Timeout<>(this, element);
+        timeout.remainingTurns = (ticksLeft - 1) / slots.length;
+        timeout.slot = slots[(int) Math.floorMod(currentTick + ticksLeft, (long) slots.length)];
+        timeout.slot.append(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the current time, running the expiry action for every element whose delay has passed.
+     *
+     * @return The number of expired elements.
+     */
+    public int advance() {
+        Timeout<T> expired = collectExpired(currentTimeMillis.getAsLong() / tickMillis);
+        int count = 0;
+        for (Timeout<T> timeout = expired; timeout != null; timeout = timeout.next) {
+            expiryAction.accept(timeout.element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Starts one daemon thread that advances the wheel once every tick. Does nothing if the thread is already started.
+     *
+     * @param name The name of the thread.
+     */
+    public synchronized void start(String name) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                advance();
+            }
+        }, name);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Gets the number of pending elements.
+     *
+     * @return The number of elements that are scheduled and neither expired nor cancelled.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized Timeout<T> collectExpired(long targetTick) {
+        Timeout<T> expiredHead = null;
+        Timeout<T> expiredTail = null;
+        long ticks = Math.min(targetTick - currentTick, slots.length);
+        for (long tick = targetTick - ticks + 1; tick <= targetTick; tick++) {
+            // After a long pause each slot is visited once, so the turns skipped since the last visit are counted here.
+            long skippedTurns = (tick - currentTick - 1) / slots.length;
+            Slot<T> slot = slots[(int) Math.floorMod(tick, (long) slots.length)];
+            Timeout<T> timeout = slot.head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.remainingTurns -= skippedTurns;
+                if (timeout.remainingTurns <= 0) {
+                    slot.remove(timeout);
+                    timeout.slot = null;
+                    size--;
+                    if (expiredTail == null) {
+                        expiredHead = timeout;
+                    } else {
+                        expiredTail.next = timeout;
+                    }
+                    expiredTail = timeout;
+                    timeout.next = null;
+                } else {
+                    timeout.remainingTurns--;
+                }
+                timeout = next;
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return expiredHead;
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.slot == null) {
+            return false;
+        }
+        timeout.slot.remove(timeout);
+        timeout.slot = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * A scheduled element, which can be cancelled before it expires.
+     *
+     * @param <T> The type of the scheduled element.
+     */
+    public static final class Timeout<T> {
+        private final TimerWheel<T> wheel;
+        private final T element;
+        private Slot<T> slot;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        private long remainingTurns;
+
+        private Timeout(TimerWheel<T> wheel, T element) {
+            this.wheel = wheel;
+            this.element = element;
+        }
+
+        /**
+         * Cancels the expiry, so the expiry action is never called for this element.
+         *
+         * @return <code>true</code> if the element was pending, <code>false</code> if it had already expired or been
+         * cancelled.
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+
+        /**
+         * Gets the scheduled element.
+         *
+         * @return The element.
+         */
+        public T getElement() {
+            return element;
+        }
+    }
+
+    /**
+     * The elements expiring at the ticks that map to one slot, as a doubly linked list.
+     */
+    private static final class Slot<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        private void append(Timeout<T> timeout) {
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout<T> timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.previous = null;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package se.kth.iv1350.pos.view;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import se.kth.iv1350.pos.controller.Controller;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+/**
+ * An HTTP interface to the POS, so that thin-client registers and load tests can drive many checkout lanes in one
+ * process. Like {@link View}, it only calls the {@link Controller}.
+ * <p>
+ * The server listens on the loopback address only. Lane IDs run from 1 to the highest lane ID given when the server
+ * is started, and every lane has its own <code>Controller</code>, created when the lane is first used. Every request
+ * is handled on a virtual thread of its own, so a request that waits for the inventory or the accounting system holds
+ * no platform thread, and thousands of lanes can have requests in progress.
+ * <p>
+ * All requests use <code>POST</code>, with the parameters in the query string, and answer with compact JSON:
+ * <ul>
+ * <li><code>/lanes/{laneID}/sale</code> starts a sale.</li>
+ * <li><code>/lanes/{laneID}/items?id={itemID}</code> enters an item.</li>
+ * <li><code>/lanes/{laneID}/quantity?value={quantity}</code> sets the quantity of the last entered item.</li>
+ * <li><code>/lanes/{laneID}/end</code> ends the sale and gives the total.</li>
+ * <li><code>/lanes/{laneID}/payment?amount={amount}</code> pays the sale and gives the change.</li>
+ * </ul>
+ * A request the controller refuses, such as an unknown item or a payment without a sale, is answered with status
+ * 409 and an error message.
+ */
+public class CheckoutServer implements Closeable {
+    /**
+     * The default highest lane ID.
+     */
+    public static final int DEFAULT_MAX_LANES = 65_536;
+    private static final int BACKLOG = 4096;
+    private static final String LANES_PATH = "/lanes/";
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int CONFLICT = 409;
+    private static final int INTERNAL_ERROR = 500;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final IntFunction<Controller> laneFactory;
+    private final Map<Integer, Controller> lanes = new ConcurrentHashMap<>();
+    private final int maxLanes;
+
+    /**
+     * Starts a server on the specified port of the loopback address, for lane IDs up to {@link #DEFAULT_MAX_LANES}.
+     *
+     * @param laneFactory Creates the <code>Controller</code> of a lane from its lane ID.
+     * @param port        The port, or <code>0</code> to use any free port.
+     * @throws IOException If the server can not be started.
+     */
+    public CheckoutServer(IntFunction<Controller> laneFactory, int port) throws IOException {
+        this(laneFactory, port, DEFAULT_MAX_LANES);
+    }
+
+    /**
+     * Starts a server on the specified port of the loopback address.
+     *
+     * @param laneFactory Creates the <code>Controller</code> of a lane from its lane ID.
+     * @param port        The port, or <code>0</code> to use any free port.
+     * @param maxLanes    The highest lane ID. Requests for lanes above it are not found.
+     * @throws IOException If the server can not be started.
+     */
+    public CheckoutServer(IntFunction<Controller> laneFactory, int port, int maxLanes) throws IOException {
+        this.laneFactory = laneFactory;
+        this.maxLanes = maxLanes;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(LANES_PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the number of lanes that have been used.
+     *
+     * @return The number of lanes.
+     */
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Stops the server. Requests in progress are not waited for.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, METHOD_NOT_ALLOWED, error("Use POST"));
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring(LANES_PATH.length()).split("/");
+            Integer laneID = path.length == 2 ? parseInt(path[0]) : null;
+            if (laneID == null || laneID < 1 || laneID > maxLanes) {
+                respond(exchange, NOT_FOUND, error("Unknown path"));
+                return;
+            }
+            Controller lane = lanes.computeIfAbsent(laneID, laneFactory::apply);
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            switch (path[1]) {
+                case "sale" -> startSale(exchange, lane);
+                case "items" -> enterItem(exchange, lane, parameters.get("id"));
+                case "quantity" -> enterQuantity(exchange, lane, parseInt(parameters.get("value")));
+                case "end" -> endSale(exchange, lane);
+                case "payment" -> enterPayment(exchange, lane, parseAmount(parameters.get("amount")));
+                default -> respond(exchange, NOT_FOUND, error("Unknown path"));
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, INTERNAL_ERROR, error("Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void startSale(HttpExchange exchange, Controller lane) throws IOException {
+        if (!lane.startSale()) {
+            respond(exchange, CONFLICT, error("Sale not started"));
+            return;
+        }
+        respond(exchange, OK, "{\"started\":true}");
+    }
+
+    private void enterItem(HttpExchange exchange, Controller lane, String itemID) throws IOException {
+        if (itemID == null) {
+            respond(exchange, BAD_REQUEST, error("Missing id"));
+            return;
+        }
+        SaleItemDTO item = lane.enterItem(itemID);
+        if (item == null) {
+            respond(exchange, CONFLICT, error("Item not found or out of stock"));
+            return;
+        }
+        respond(exchange, OK, toJson(item));
+    }
+
+    private void enterQuantity(HttpExchange exchange, Controller lane, Integer quantity) throws IOException {
+        if (quantity == null) {
+            respond(exchange, BAD_REQUEST, error("Missing or invalid value"));
+            return;
+        }
+        SaleItemDTO item = lane.enterQuantity(quantity);
+        if (item == null && quantity == 0) {
+            respond(exchange, OK, "{\"quantity\":0}");
+            return;
+        }
+        if (item == null) {
+            respond(exchange, CONFLICT, error("No item to update"));
+            return;
+        }
+        respond(exchange, OK, toJson(item));
+    }
+
+    private void endSale(HttpExchange exchange, Controller lane) throws IOException {
+        Amount total = lane.endSale();
+        if (total == null) {
+            respond(exchange, CONFLICT, error("No sale started"));
+            return;
+        }
+        respond(exchange, OK, "{\"total\":" + formatAmount(total) + "}");
+    }
+
+    private void enterPayment(HttpExchange exchange, Controller lane, Amount amountPaid) throws IOException {
+        if (amountPaid == null) {
+            respond(exchange, BAD_REQUEST, error("Missing or invalid amount"));
+            return;
+        }
+        Amount change = lane.enterPayment(amountPaid);
+        if (change == null) {
+            respond(exchange, CONFLICT, error("Payment not accepted"));
+            return;
+        }
+        respond(exchange, OK, "{\"change\":" + formatAmount(change) + "}");
+    }
+
+    private static String toJson(SaleItemDTO item) {
+        return "{\"id\":" + quote(item.item().id())
+                + ",\"name\":" + quote(item.item().name())
+                + ",\"price\":" + String.format(Locale.ROOT, "%.2f", item.item().price())
+                + ",\"vatRate\":" + item.item().vatRate()
+                + ",\"quantity\":" + item.quantity()
+                + ",\"total\":" + formatAmount(item.total())
+                + ",\"totalVat\":" + formatAmount(item.totalVat()) + "}";
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String formatAmount(Amount amount) {
+        return String.format(Locale.ROOT, "%.2f", amount.getValue());
+    }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                default -> {
+                    if (c < ' ') {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static Integer parseInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Amount parseAmount(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Amount.of(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -13,7 +13,7 @@ import se.kth.iv1350.pos.model.SaleItemDTO;
 public class View {
     private static final String ENTER_ITEM = "Add 1 item with item id ";
     private static final String ENTER_QUANTITY = "Set quantity of last item added to %d";
-    private static final String NOT_FOUND = "Item not found";
+    private static final String NOT_FOUND = "Item not found or out of stock";
     private static final String NO_ITEM_TO_UPDATE = "No item to update";
     private static final String END_SALE = "End sale:";
     private static final String PAYMENT = "Amount paid: %s SEK";
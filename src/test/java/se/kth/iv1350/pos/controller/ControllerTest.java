@@ -3,11 +3,29 @@ package se.kth.iv1350.pos.controller;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.iv1350.pos.integration.InMemoryShardTransport;
+import se.kth.iv1350.pos.integration.ItemDTO;
 import se.kth.iv1350.pos.integration.Printer;
+import se.kth.iv1350.pos.integration.ReceiptPrinter;
 import se.kth.iv1350.pos.integration.RegistryCreator;
+import se.kth.iv1350.pos.integration.SaleCheckpoint;
+import se.kth.iv1350.pos.integration.ShardedInventory;
 import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.BatchEntryDTO;
+import se.kth.iv1350.pos.model.CashRegisters;
+import se.kth.iv1350.pos.model.ItemEntryDTO;
+import se.kth.iv1350.pos.model.LaneReconciliationDTO;
+import se.kth.iv1350.pos.model.SaleDTO;
 import se.kth.iv1350.pos.model.SaleItemDTO;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -78,4 +96,253 @@ public class ControllerTest {
         // The item with ID "1" has price 10 and VAT 0, so total is 10, change should be 90
         assertEquals(90.0, change.getValue(), 0.001, "Change should be payment minus total (VAT-inclusive).");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Verifies that a batch of items is entered with one result listing the unknown IDs.
+     */
+    @Test
+    public void testEnterItems() {
+        controller.startSale();
+        BatchEntryDTO result = controller.enterItems(List.of(
+                new ItemEntryDTO("1", 2),
+                new ItemEntryDTO("unknown", 1),
+                new ItemEntryDTO("4", 1),
+                new ItemEntryDTO("1", 1),
+                new ItemEntryDTO("3", 0)));
+        assertEquals(4, result.enteredQuantity(), "All valid quantities of known items should be entered.");
+        assertEquals(List.of("unknown"), result.unknownItemIDs(), "Unknown IDs should be listed.");
+        assertEquals(70.0, result.total().getValue(), 0.001, "Total should include every entered item.");
+        assertEquals(70.0, controller.endSale().getValue(), 0.001, "The sale total should match the batch result.");
+    }
+
+    /**
+     * Verifies that entering a batch without a started sale returns null.
+     */
+    @Test
+    public void testEnterItemsWithoutSale() {
+        assertNull(controller.enterItems(List.of(new ItemEntryDTO("1", 1))), "Should return null when no sale is started.");
+    }
+
+    /**
+     * Verifies that a sale keeps its prices when the catalog is updated, and the next sale uses the new prices.
+     */
+    @Test
+    public void testSaleKeepsCatalogVersion() {
+        RegistryCreator registryCreator = new RegistryCreator();
+        controller = new Controller(registryCreator, new Printer());
+        controller.startSale();
+        controller.enterItem("1");
+        registryCreator.getInventorySystem().updateCatalog(List.of(new ItemDTO("1", "Medicine", "Pain relief medicine", 15, 0.0)));
+        assertEquals(20.0, controller.enterItem("1").total().getValue(), 0.001, "The running sale should keep the old price.");
+        controller.startSale();
+        assertEquals(15.0, controller.enterItem("1").total().getValue(), 0.001, "A new sale should use the new price.");
+    }
+
+    /**
+     * Verifies that two lanes can not both sell the last item, and that an abandoned sale releases it.
+     */
+    @Test
+    public void testLastItemIsReserved() {
+        RegistryCreator registryCreator = new RegistryCreator();
+        registryCreator.getInventorySystem().updateQuantity("4", 1);
+        Controller firstLane = new Controller(registryCreator, new Printer());
+        Controller secondLane = new Controller(registryCreator, new Printer());
+        firstLane.startSale();
+        secondLane.startSale();
+        assertNotNull(firstLane.enterItem("4"), "The first lane should get the last phone.");
+        assertNull(secondLane.enterItem("4"), "The second lane should not get the reserved phone.");
+        firstLane.startSale();
+        assertNotNull(secondLane.enterItem("4"), "The phone should be released when the first sale is abandoned.");
+    }
+
+    /**
+     * Verifies that changing the quantity of the last line changes its reservation.
+     */
+    @Test
+    public void testEnterQuantityFollowsReservation() {
+        RegistryCreator registryCreator = new RegistryCreator();
+        registryCreator.getInventorySystem().updateQuantity("4", 3);
+        controller = new Controller(registryCreator, new Printer());
+        Controller otherLane = new Controller(registryCreator, new Printer());
+        otherLane.startSale();
+        controller.startSale();
+        controller.enterItem("4");
+        assertNull(controller.enterQuantity(4), "A quantity above the stock should not be entered.");
+        assertNotNull(controller.enterQuantity(3), "A quantity within the stock should be entered.");
+        assertNull(otherLane.enterItem("4"), "The whole stock should be reserved.");
+        assertNull(controller.enterQuantity(0), "A quantity of zero should remove the line.");
+        assertNotNull(otherLane.enterItem("4"), "A removed line should release its reservation.");
+    }
+
+    /**
+     * Verifies that entries of a batch that are out of stock are listed and not added.
+     */
+    @Test
+    public void testEnterItemsOutOfStock() {
+        controller.startSale();
+        BatchEntryDTO result = controller.enterItems(List.of(new ItemEntryDTO("1", 5), new ItemEntryDTO("2", 1)));
+        assertEquals(List.of("1"), result.unavailableItemIDs(), "Entries above the stock should be listed.");
+        assertEquals(1, result.enteredQuantity(), "Only entries in stock should be entered.");
+    }
+
+    /**
+     * Verifies that entries whose combined quantity would overflow are listed as unavailable, without wrapping around
+     * to a negative quantity.
+     */
+    @Test
+    public void testEnterItemsQuantityOverflow() {
+        controller.startSale();
+        BatchEntryDTO result = controller.enterItems(List.of(
+                new ItemEntryDTO("1", Integer.MAX_VALUE),
+                new ItemEntryDTO("1", Integer.MAX_VALUE),
+                new ItemEntryDTO("1", 2),
+                new ItemEntryDTO("2", 1)));
+        assertEquals(List.of("1"), result.unavailableItemIDs(), "An overflowing total should be listed as unavailable.");
+        assertEquals(1, result.enteredQuantity(), "Only the entry that fits should be entered.");
+        assertEquals(1, controller.enterItem("1").quantity(), "The overflowing entry should not be in the sale.");
+    }
+
+    /**
+     * Verifies that a sale in progress is resumed by a new controller for the lane, with the same ID and totals.
+     */
+    @Test
+    public void testResumeSaleFromCheckpoint(@TempDir Path directory) throws IOException {
+        RegistryCreator registryCreator = new RegistryCreator();
+        Path file = directory.resolve("lane-1.checkpoint");
+        try (SaleCheckpoint checkpoint = new SaleCheckpoint(file)) {
+            Controller crashedLane = new Controller(registryCreator, new Printer(), new SaleMonitor(), checkpoint);
+            crashedLane.startSale();
+            crashedLane.enterItem("2");
+            crashedLane.enterItems(List.of(new ItemEntryDTO("3", 2), new ItemEntryDTO("1", 1)));
+            crashedLane.enterQuantity(2);
+        }
+        Amount expectedTotal = Amount.of(20 + 2 * 30 + 2 * 10);
+        try (SaleCheckpoint checkpoint = new SaleCheckpoint(file)) {
+            controller = new Controller(registryCreator, new Printer(), new SaleMonitor(), checkpoint);
+            assertTrue(controller.resumeSale(), "The sale in progress should be resumed.");
+            assertFalse(controller.resumeSale(), "A sale in progress should not be replaced.");
+            assertEquals(expectedTotal.getValue(), controller.endSale().getValue(), 0.001, "The total should be restored.");
+            assertNotNull(controller.enterPayment(Amount.of(1000)), "The resumed sale should be paid.");
+            assertFalse(controller.resumeSale(), "A paid sale should not be resumed again.");
+        }
+    }
+
+    /**
+     * Verifies that the receipt of a paid sale is printed again with the same content.
+     */
+    @Test
+    public void testReprintReceipt(@TempDir Path directory) throws IOException {
+        List<String> printed = new ArrayList<>();
+        ReceiptPrinter printer = printed::add;
+        ShardedInventory inventory = new ShardedInventory(new InMemoryShardTransport(), List.of("store"));
+        inventory.updateCatalog(List.of(new ItemDTO("2", "Newspaper", "Daily news", 20, 0.06),
+                new ItemDTO("3", "Egg", "Organic eggs", 30, 0.12)));
+        inventory.updateQuantity("2", 5);
+        inventory.updateQuantity("3", 5);
+        RegistryCreator registryCreator = new RegistryCreator(inventory, directory);
+        controller = new Controller(registryCreator, printer);
+        controller.startSale();
+        controller.enterItem("2");
+        controller.enterItem("3");
+        controller.endSale();
+        controller.enterPayment(Amount.of(100));
+        long saleID = registryCreator.getReceiptArchive().findByTime(LocalDateTime.MIN, LocalDateTime.MAX).get(0).sale().saleID();
+        assertTrue(controller.reprintReceipt(saleID), "The receipt should be printed again.");
+        assertEquals(printed.get(0), printed.get(1), "The copy should match the original receipt.");
+        assertFalse(controller.reprintReceipt(saleID + 1), "An unknown sale should not be printed.");
+        registryCreator.getReceiptArchive().close();
+    }
+
+    /**
+     * Verifies that returned items are refunded at their sale price, put back in stock and taken off the accounts,
+     * and that they can not be returned twice.
+     */
+    @Test
+    public void testRefund(@TempDir Path directory) throws IOException {
+        ShardedInventory inventory = new ShardedInventory(new InMemoryShardTransport(), List.of("store"));
+        inventory.updateCatalog(List.of(new ItemDTO("3", "Egg", "Organic eggs", 30, 0.12)));
+        inventory.updateQuantity("3", 5);
+        RegistryCreator registryCreator = new RegistryCreator(inventory, directory);
+        controller = new Controller(registryCreator, new Printer());
+        controller.startSale();
+        controller.enterItem("3");
+        controller.enterQuantity(3);
+        controller.endSale();
+        controller.enterPayment(Amount.of(100));
+        long saleID = registryCreator.getReceiptArchive().findByTime(LocalDateTime.MIN, LocalDateTime.MAX).get(0).sale().saleID();
+        inventory.updateCatalog(List.of(new ItemDTO("3", "Egg", "Organic eggs", 35, 0.12)));
+        Controller otherLane = new Controller(registryCreator, new Printer());
+        assertNull(otherLane.refund(saleID, List.of(new ItemEntryDTO("3", 4))), "More eggs than were sold should not be refunded.");
+        Amount refunded = otherLane.refund(saleID, List.of(new ItemEntryDTO("3", 2)));
+        assertEquals(60.0, refunded.getValue(), 0.001, "The eggs should be refunded at their sale price.");
+        assertTrue(inventory.reserve(1, "3", 4), "The returned eggs should be back in stock.");
+        assertEquals(1L, registryCreator.getAccountingRegistry().getSalesStore().getQuantityPerItem().get("3"), "Only one egg should count as sold.");
+        assertNull(otherLane.refund(saleID, List.of(new ItemEntryDTO("3", 2))), "Returned eggs should not be refunded twice.");
+        assertNull(otherLane.refund(saleID + 1, List.of(new ItemEntryDTO("3", 1))), "An unknown sale should not be refunded.");
+        registryCreator.getReceiptArchive().close();
+    }
+
+    /**
+     * Verifies that a refund whose inventory update fails is still paid out and booked, and that the stock is put
+     * back once the inventory works again.
+     */
+    @Test
+    public void testRefundWithFailingInventory(@TempDir Path directory) throws IOException {
+        AtomicBoolean inventoryDown = new AtomicBoolean();
+        ShardedInventory inventory = new ShardedInventory(new InMemoryShardTransport(), List.of("store")) {
+            @Override
+            public void returnInventory(SaleDTO refundDTO) {
+                if (inventoryDown.get()) {
+                    throw new IllegalStateException("Inventory down");
+                }
+                super.returnInventory(refundDTO);
+            }
+        };
+        inventory.updateCatalog(List.of(new ItemDTO("3", "Egg", "Organic eggs", 30, 0.12)));
+        inventory.updateQuantity("3", 5);
+        RegistryCreator registryCreator = new RegistryCreator(inventory, directory);
+        controller = new Controller(registryCreator, new Printer());
+        controller.startSale();
+        controller.enterItem("3");
+        controller.enterQuantity(3);
+        controller.endSale();
+        controller.enterPayment(Amount.of(100));
+        long saleID = registryCreator.getReceiptArchive().findByTime(LocalDateTime.MIN, LocalDateTime.MAX).get(0).sale().saleID();
+        inventoryDown.set(true);
+        Amount refunded = controller.refund(saleID, List.of(new ItemEntryDTO("3", 2)));
+        assertEquals(60.0, refunded.getValue(), 0.001, "The refund should be paid out although the inventory failed.");
+        assertEquals(1, controller.getPendingRefunds(), "The failed inventory update should be queued.");
+        assertEquals(1L, registryCreator.getAccountingRegistry().getSalesStore().getQuantityPerItem().get("3"), "The refund should be booked.");
+        inventoryDown.set(false);
+        controller.startSale();
+        controller.enterItem("3");
+        controller.endSale();
+        controller.enterPayment(Amount.of(100));
+        assertEquals(0, controller.getPendingRefunds(), "The queued refund should be sent after the next sale.");
+        assertTrue(inventory.reserve(1, "3", 3), "The returned eggs should be back in stock.");
+        registryCreator.getReceiptArchive().close();
+    }
+
+    /**
+     * Verifies that the cash taken by every lane matches the revenue booked for it, and that the till count includes
+     * every lane.
+     */
+    @Test
+    public void testReconcileCashRegisters() {
+        RegistryCreator registryCreator = new RegistryCreator();
+        CashRegisters cashRegisters = new CashRegisters();
+        Controller firstLane = new Controller(registryCreator, new Printer(), new SaleMonitor(), null, cashRegisters, 1);
+        Controller secondLane = new Controller(registryCreator, new Printer(), new SaleMonitor(), null, cashRegisters, 2);
+        firstLane.startSale();
+        firstLane.enterItem("4");
+        firstLane.enterPayment(Amount.of(100));
+        secondLane.startSale();
+        secondLane.enterItem("2");
+        secondLane.enterItem("3");
+        secondLane.enterPayment(Amount.of(50));
+        List<LaneReconciliationDTO> result = firstLane.reconcileCashRegisters();
+        assertEquals(2, result.size(), "Both lanes should be reconciled.");
+        assertTrue(result.stream().allMatch(LaneReconciliationDTO::balanced), "Every lane should balance: " + result);
+        assertEquals("2090.00 SEK", secondLane.countTills().total().toString(), "The till count should include the takings of both lanes.");
+    }
+}
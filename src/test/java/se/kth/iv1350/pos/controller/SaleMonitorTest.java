@@ -0,0 +1,133 @@
+package se.kth.iv1350.pos.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.integration.Printer;
+import se.kth.iv1350.pos.integration.RegistryCreator;
+import se.kth.iv1350.pos.model.Amount;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SaleMonitor} class.
+ * Covers reclaiming idle sales, keeping active and paid sales, and watching many lanes with one monitor.
+ */
+public class SaleMonitorTest {
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private AtomicLong now;
+    private SaleMonitor saleMonitor;
+    private RegistryCreator registryCreator;
+
+    /**
+     * Sets up a new SaleMonitor with a controllable clock before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        saleMonitor = new SaleMonitor(IDLE_TIMEOUT, now::get);
+        registryCreator = new RegistryCreator();
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        saleMonitor = null;
+        registryCreator = null;
+        now = null;
+    }
+
+    /**
+     * Tests that an idle sale is reclaimed, its stock released, and it is counted as abandoned.
+     */
+    @Test
+    public void testIdleSaleIsReclaimed() {
+        registryCreator.getInventorySystem().updateQuantity("4", 1);
+        Controller lane = createLane();
+        lane.startSale();
+        lane.enterItem("4");
+        now.addAndGet(IDLE_TIMEOUT.toMillis() + 1000);
+        saleMonitor.reclaimIdleSales();
+        assertEquals(1, saleMonitor.getAbandonedSaleCount(), "The idle sale should be counted as abandoned.");
+        assertNull(lane.endSale(), "The reclaimed sale should be gone from its lane.");
+        Controller otherLane = createLane();
+        otherLane.startSale();
+        assertNotNull(otherLane.enterItem("4"), "The stock of the reclaimed sale should be released.");
+    }
+
+    /**
+     * Tests that activity restarts the idle timeout.
+     */
+    @Test
+    public void testActivityRestartsTimeout() {
+        Controller lane = createLane();
+        lane.startSale();
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(IDLE_TIMEOUT.toMillis() / 2);
+            saleMonitor.reclaimIdleSales();
+            assertNotNull(lane.endSale(), "An active sale should not be reclaimed.");
+        }
+        assertEquals(0, saleMonitor.getAbandonedSaleCount(), "No sale should be abandoned.");
+        assertEquals(1, saleMonitor.getActiveSaleCount(), "The active sale should be watched once.");
+    }
+
+    /**
+     * Tests that a paid sale is no longer watched.
+     */
+    @Test
+    public void testPaidSaleIsNotReclaimed() {
+        Controller lane = createLane();
+        lane.startSale();
+        lane.enterItem("1");
+        lane.enterPayment(Amount.of(100));
+        assertEquals(0, saleMonitor.getActiveSaleCount(), "A paid sale should not be watched.");
+        now.addAndGet(IDLE_TIMEOUT.toMillis() * 2);
+        saleMonitor.reclaimIdleSales();
+        assertEquals(0, saleMonitor.getAbandonedSaleCount(), "A paid sale should not be abandoned.");
+    }
+
+    /**
+     * Tests that a sale replaced by a new one is counted as abandoned.
+     */
+    @Test
+    public void testReplacedSaleIsAbandoned() {
+        Controller lane = createLane();
+        lane.startSale();
+        lane.enterItem("1");
+        lane.startSale();
+        assertEquals(1, saleMonitor.getAbandonedSaleCount(), "The replaced sale should be counted as abandoned.");
+        assertEquals(1, saleMonitor.getActiveSaleCount(), "Only the new sale should be watched.");
+    }
+
+    /**
+     * Tests that one monitor watches thousands of lanes and reclaims only the idle ones.
+     */
+    @Test
+    public void testManyLanes() {
+        List<Controller> lanes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Controller lane = createLane();
+            lane.startSale();
+            lanes.add(lane);
+        }
+        now.addAndGet(IDLE_TIMEOUT.toMillis() / 2);
+        for (int i = 0; i < lanes.size(); i += 2) {
+            lanes.get(i).endSale();
+        }
+        now.addAndGet(IDLE_TIMEOUT.toMillis() / 2 + 1000);
+        saleMonitor.reclaimIdleSales();
+        assertEquals(1000, saleMonitor.getAbandonedSaleCount(), "Only the idle half of the lanes should be reclaimed.");
+        assertEquals(1000, saleMonitor.getActiveSaleCount(), "The active half should still be watched.");
+    }
+
+    private Controller createLane() {
+        return new Controller(registryCreator, new Printer(), saleMonitor);
+    }
+}
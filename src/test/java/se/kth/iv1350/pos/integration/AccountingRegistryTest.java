@@ -3,7 +3,15 @@ package se.kth.iv1350.pos.integration;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.model.CashRegister;
+import se.kth.iv1350.pos.model.Sale;
+import se.kth.iv1350.pos.model.SaleDTO;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 /**
@@ -35,4 +43,94 @@ public class AccountingRegistryTest {
     public void testConstructor() {
         assertNotNull(accountingRegistry, "AccountingRegistry should be created.");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Tests that the VAT of each sale is booked per VAT rate.
+     */
+    @Test
+    public void testVatIsBookedPerRate() {
+        for (int i = 0; i < 2; i++) {
+            Sale sale = new Sale(new CashRegister());
+            sale.addItem(new ItemDTO("1", "Phone", "Smartphone", 125.0, 0.25));
+            sale.addItem(new ItemDTO("2", "Newspaper", "Aftonbladet", 10.6, 0.06));
+            accountingRegistry.updateAccounting(sale.toDTO());
+        }
+        assertEquals(50.0, accountingRegistry.getVatForRate(0.25).getValue(), "VAT for 25% should be booked for both sales.");
+        assertEquals(1.2, accountingRegistry.getVatForRate(0.06).getValue(), "VAT for 6% should be booked for both sales.");
+        assertEquals(0.0, accountingRegistry.getVatForRate(0.12).getValue(), "A rate without sales should have zero VAT.");
+    }
+
+    /**
+     * Tests that sales are counted in the rolling revenue window and leave it when they get too old.
+     */
+    @Test
+    public void testRevenueForLastPeriod() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        AccountingRegistry timedRegistry = new AccountingRegistry(now::get);
+        timedRegistry.updateAccounting(createPhoneSale().toDTO());
+        now.addAndGet(Duration.ofMinutes(10).toMillis());
+        timedRegistry.updateAccounting(createPhoneSale().toDTO());
+        RevenueWindowDTO lastFiveMinutes = timedRegistry.getRevenueForLast(Duration.ofMinutes(5));
+        assertEquals(125.0, lastFiveMinutes.revenue().getValue(), 0.001, "Only the recent sale should be in the last five minutes.");
+        assertEquals(1, lastFiveMinutes.saleCount(), "Only the recent sale should be counted.");
+        RevenueWindowDTO lastHour = timedRegistry.getRevenueForLast(Duration.ofHours(1));
+        assertEquals(250.0, lastHour.revenue().getValue(), 0.001, "Both sales should be in the last hour.");
+        assertEquals(50.0, lastHour.vat().getValue(), 0.001, "The VAT of both sales should be in the last hour.");
+    }
+
+    /**
+     * Tests that a sale sent twice, for example when a spill queue is replayed, is booked only once.
+     */
+    @Test
+    public void testSaleIsBookedOnce() {
+        SaleDTO sale = createPhoneSale().toDTO();
+        accountingRegistry.updateAccounting(sale);
+        accountingRegistry.updateAccounting(sale);
+        assertEquals(25.0, accountingRegistry.getVatForRate(0.25).getValue(), 0.001, "The VAT should be booked once.");
+        assertEquals(1, accountingRegistry.getSalesStore().getLineCount(), "The lines should be stored once.");
+        assertEquals(1, accountingRegistry.getRevenueForLast(Duration.ofMinutes(1)).saleCount(), "The sale should be counted once.");
+    }
+
+    /**
+     * Tests that a refund is taken off the booked VAT and the stored lines, and is booked once.
+     */
+    @Test
+    public void testRefundIsBookedOnce() {
+        Sale sale = new Sale(new CashRegister());
+        ItemDTO phone = new ItemDTO("1", "Phone", "Smartphone", 125.0, 0.25);
+        sale.addItems(List.of(phone), new int[]{3});
+        accountingRegistry.updateAccounting(sale.toDTO());
+        Sale returned = new Sale(new CashRegister());
+        returned.addItem(phone);
+        accountingRegistry.refundAccounting(returned.toDTO());
+        accountingRegistry.refundAccounting(returned.toDTO());
+        assertEquals(50.0, accountingRegistry.getVatForRate(0.25).getValue(), 0.001, "The refunded VAT should be taken off once.");
+        assertEquals(2L, accountingRegistry.getSalesStore().getQuantityPerItem().get("1"), "The returned phone should not count as sold.");
+        assertEquals(250.0, accountingRegistry.getSalesStore().getRevenuePerItem().get("1").getValue(), 0.001, "The refund should be taken off the revenue.");
+    }
+
+    /**
+     * Tests that a refund of a sale booked in an earlier run, which this registry has never seen, gives negative
+     * report values instead of missing ones.
+     */
+    @Test
+    public void testRefundOfEarlierRunIsSigned() {
+        Sale returned = new Sale(new CashRegister());
+        returned.addItem(new ItemDTO("1", "Phone", "Smartphone", 125.0, 0.25));
+        accountingRegistry.refundAccounting(returned.toDTO());
+        SalesStore salesStore = accountingRegistry.getSalesStore();
+        assertEquals(-25.0, accountingRegistry.getVatForRate(0.25).getValue(), 0.001, "The refunded VAT should be taken off.");
+        assertEquals(-1L, salesStore.getQuantityPerItem().get("1"), "The returned phone should count as minus one sold.");
+        assertEquals(-125.0, salesStore.getRevenuePerItem().get("1").getValue(), 0.001, "Revenue per item should be negative.");
+        assertEquals(-125.0, salesStore.getRevenuePerVatRate().get(0.25).getValue(), 0.001, "Revenue per VAT rate should be negative.");
+        assertEquals(-25.0, salesStore.getVatPerVatRate().get(0.25).getValue(), 0.001, "VAT per VAT rate should be negative.");
+        assertEquals(-125.0, salesStore.getRevenuePerHour().values().iterator().next().getValue(), 0.001, "Revenue per hour should be negative.");
+        assertEquals(-125.0, salesStore.getRevenuePerLane().values().iterator().next().getValue(), 0.001, "Revenue per lane should be negative.");
+    }
+
+    private static Sale createPhoneSale() {
+        Sale sale = new Sale(new CashRegister());
+        sale.addItem(new ItemDTO("1", "Phone", "Smartphone", 125.0, 0.25));
+        return sale;
+    }
+}
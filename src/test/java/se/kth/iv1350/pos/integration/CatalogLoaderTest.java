@@ -0,0 +1,136 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CatalogLoader} class.
+ * Covers parallel CSV parsing across chunk borders, malformed lines, and the binary snapshot round trip.
+ */
+public class CatalogLoaderTest {
+    private static final String HEADER = "id,name,description,price,vatRate,quantity\n";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Verifies that every line is parsed when the file is split into many small chunks.
+     */
+    @Test
+    public void testLoadCsvInManyChunks() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 1000; i++) {
+            csv.append(i).append(",Item ").append(i).append(",Description ").append(i).append(",").append(i).append(".5,0.25,").append(i % 7).append("\n");
+        }
+        Path csvFile = writeCsv(csv.toString());
+        InventoryRegistry registry = CatalogLoader.loadCsv(csvFile, 100);
+        assertEquals(1000, registry.size(), "Every line should be loaded.");
+        ItemDTO item = registry.findItemById("999");
+        assertEquals("Item 999", item.name(), "Item name should match.");
+        assertEquals(999.5, item.price(), "Item price should match.");
+    }
+
+    /**
+     * Verifies that descriptions with commas are kept and that malformed lines are ignored.
+     */
+    @Test
+    public void testLoadCsvWithCommasAndMalformedLines() throws IOException {
+        Path csvFile = writeCsv(HEADER
+                + "1,Egg,Free-range, organic eggs,30,0.12,8\r\n"
+                + "2,Broken,Missing fields\n"
+                + "3,Milk,Whole milk,not-a-price,0.12,5\n"
+                + "\n"
+                + "4,Phone,Smartphone,40,0.25,8");
+        InventoryRegistry registry = CatalogLoader.loadCsv(csvFile, CatalogLoader.DEFAULT_CHUNK_SIZE);
+        assertEquals(2, registry.size(), "Only valid lines should be loaded.");
+        assertEquals("Free-range, organic eggs", registry.findItemById("1").description(), "Commas in the description should be kept.");
+        assertNotNull(registry.findItemById("4"), "A last line without a line break should be loaded.");
+    }
+
+    /**
+     * Verifies that a snapshot written after a CSV load is used on the next load and holds the same items.
+     */
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        Path csvFile = writeCsv(HEADER + "1,Medicine,Pain relief,10,0,4\n2,Newspaper,Aftonbladet,20,0.06,6\n");
+        Path snapshotFile = directory.resolve("catalog.snapshot");
+        CatalogLoader.load(csvFile, snapshotFile);
+        assertTrue(Files.exists(snapshotFile), "A snapshot should be written after a CSV load.");
+        Files.delete(csvFile);
+        InventoryRegistry registry = CatalogLoader.load(csvFile, snapshotFile);
+        assertEquals(2, registry.size(), "The snapshot should hold every item.");
+        assertEquals(new ItemDTO("2", "Newspaper", "Aftonbladet", 20, 0.06), registry.findItemById("2"), "Item data should survive the snapshot.");
+    }
+
+    /**
+     * Verifies that a file that is not a snapshot is rejected.
+     */
+    @Test
+    public void testLoadInvalidSnapshot() throws IOException {
+        Path snapshotFile = writeCsv(HEADER);
+        assertThrows(IOException.class, () -> CatalogLoader.loadSnapshot(snapshotFile), "An invalid snapshot should be rejected.");
+    }
+
+    /**
+     * Tests that a line with only five fields, which leaves no room for a description, is skipped
+     * without failing the load.
+     */
+    @Test
+    public void testLoadCsvWithoutDescriptionField() throws IOException {
+        Path csvFile = writeCsv(HEADER
+                + "1,Name,10,0.25,5\n"
+                + "2,Milk,Whole milk,12,0.12,5\n");
+        InventoryRegistry registry = CatalogLoader.loadCsv(csvFile, CatalogLoader.DEFAULT_CHUNK_SIZE);
+        assertEquals(1, registry.size(), "Only the complete line should be loaded.");
+        assertNotNull(registry.findItemById("2"), "The line after the short line should be loaded.");
+    }
+
+    /**
+     * Verifies that a snapshot is read correctly through windows far smaller than its values, as a snapshot larger
+     * than one mapping is.
+     */
+    @Test
+    public void testLoadSnapshotInSmallWindows() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 500; i++) {
+            csv.append(i).append(",Item ").append(i).append(",Description of item ").append(i).append(",")
+                    .append(i % 50 + 1).append(",0.25,").append(i).append('\n');
+        }
+        Path csvFile = writeCsv(csv.toString());
+        Path snapshotFile = directory.resolve("catalog.snapshot");
+        CatalogLoader.load(csvFile, snapshotFile);
+        InventoryRegistry registry = CatalogLoader.loadSnapshot(snapshotFile, 7);
+        assertEquals(500, registry.size(), "Every item should be read across the windows.");
+        assertEquals(new ItemDTO("499", "Item 499", "Description of item 499", 50, 0.25), registry.findItemById("499"),
+                "Item data should survive the window boundaries.");
+        assertEquals(499, registry.getQuantity("499"), "The quantity should survive the window boundaries.");
+    }
+
+    /**
+     * Verifies that a snapshot that can not be read is replaced by parsing the CSV file again.
+     */
+    @Test
+    public void testUnreadableSnapshotFallsBackToCsv() throws IOException {
+        Path csvFile = writeCsv(HEADER + "1,Medicine,Pain relief,10,0,4\n");
+        Path snapshotFile = directory.resolve("catalog.snapshot");
+        CatalogLoader.load(csvFile, snapshotFile);
+        Files.write(snapshotFile, Arrays.copyOf(Files.readAllBytes(snapshotFile), 20));
+        InventoryRegistry registry = CatalogLoader.load(csvFile, snapshotFile);
+        assertEquals(1, registry.size(), "The CSV file should be parsed when the snapshot can not be read.");
+        assertEquals(1, CatalogLoader.loadSnapshot(snapshotFile).size(), "A new snapshot should be written.");
+    }
+
+    private Path writeCsv(String content) throws IOException {
+        Path csvFile = directory.resolve("catalog.csv");
+        Files.writeString(csvFile, content, StandardCharsets.UTF_8);
+        return csvFile;
+    }
+}
@@ -0,0 +1,93 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link ChangeFeed} class.
+ * Covers combining repeated changes, rejected records, and the report counts.
+ */
+public class ChangeFeedTest {
+    private InventoryRegistry inventoryRegistry;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Sets up a new InventoryRegistry instance before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        inventoryRegistry = new InventoryRegistry();
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        inventoryRegistry = null;
+    }
+
+    /**
+     * Tests that repeated changes to the same item are combined and only the last values are applied.
+     */
+    @Test
+    public void testRepeatedChangesAreCombined() throws IOException {
+        Path changeFile = writeFeed("""
+                PRICE,1,11
+                STOCK,1,20
+                PRICE,1,12.5
+                STOCK,1,25
+                STOCK,2,3
+                """);
+        long versionBefore = inventoryRegistry.getCatalog().getVersion();
+        ChangeFeedReportDTO report = inventoryRegistry.applyChangeFeed(changeFile);
+        assertEquals(5, report.records(), "Every record should be counted.");
+        assertEquals(5, report.appliedRecords(), "Every combined record should count as applied.");
+        assertEquals(0, report.rejectedRecords(), "No record should be rejected.");
+        assertTrue(report.recordsPerSecond() > 0, "Throughput should be reported.");
+        assertEquals(12.5, inventoryRegistry.findItemById("1").price(), "The last price should be applied.");
+        assertEquals(25, inventoryRegistry.getQuantity("1"), "The last quantity should be applied.");
+        assertEquals(3, inventoryRegistry.getQuantity("2"), "Stock changes to other items should be applied.");
+        assertEquals(versionBefore + 1, inventoryRegistry.getCatalog().getVersion(), "All prices should be published as one version.");
+    }
+
+    /**
+     * Tests that malformed records, negative values and unknown items are rejected.
+     */
+    @Test
+    public void testInvalidRecordsAreRejected() throws IOException {
+        Path changeFile = writeFeed("""
+                PRICE,1,abc
+                STOCK,2,-1
+                DISCOUNT,3,5
+                PRICE,unknown,10
+                PRICE,unknown,11
+                STOCK,unknown,10
+                STOCK,4
+                STOCK,4,1
+                """);
+        ChangeFeedReportDTO report = inventoryRegistry.applyChangeFeed(changeFile);
+        assertEquals(8, report.records(), "Every record should be counted.");
+        assertEquals(1, report.appliedRecords(), "Only the valid record should be applied.");
+        assertEquals(7, report.rejectedRecords(), "Every invalid record should be rejected, also when combined.");
+        assertEquals(10.0, inventoryRegistry.findItemById("1").price(), "A rejected price should not change the item.");
+        assertEquals(1, inventoryRegistry.getQuantity("4"), "The valid change should be applied.");
+    }
+
+    private Path writeFeed(String content) throws IOException {
+        Path changeFile = directory.resolve("changes.csv");
+        Files.writeString(changeFile, content);
+        return changeFile;
+    }
+}
@@ -0,0 +1,75 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ChangeLog} class.
+ * Covers sequencing, reading in batches, and requiring a snapshot once entries are no longer kept.
+ */
+public class ChangeLogTest {
+    private static final ItemDTO EGG = new ItemDTO("3", "Egg", "Free-range eggs", 30, 0.12);
+    private ChangeLog changeLog;
+
+    /**
+     * Sets up a new ChangeLog keeping eight entries before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        changeLog = new ChangeLog(8);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        changeLog = null;
+    }
+
+    /**
+     * Tests that entries get consecutive sequence numbers and are read in batches.
+     */
+    @Test
+    public void testReadInBatches() {
+        for (int quantity = 1; quantity <= 5; quantity++) {
+            int current = quantity;
+            changeLog.append("3", itemID -> new ItemChangeDTO(0, EGG, current));
+        }
+        ChangeBatchDTO first = changeLog.read(0, 3);
+        assertEquals(3, first.changes().size(), "At most the requested number of entries should be read.");
+        assertEquals(1, first.changes().get(0).sequence(), "The first entry should have sequence number one.");
+        assertEquals(5, first.lastSequence(), "The batch should tell the newest sequence number.");
+        ChangeBatchDTO rest = changeLog.read(3, 10);
+        assertEquals(2, rest.changes().size(), "The remaining entries should be read.");
+        assertEquals(5, rest.changes().get(1).quantity(), "The entries should hold the appended state.");
+        assertTrue(changeLog.read(5, 10).changes().isEmpty(), "Nothing should be read after the newest entry.");
+    }
+
+    /**
+     * Tests that a reader asking for entries that are no longer kept is told to start from a snapshot.
+     */
+    @Test
+    public void testSnapshotRequiredWhenTooFarBehind() {
+        for (int quantity = 0; quantity < 20; quantity++) {
+            int current = quantity;
+            changeLog.append("3", itemID -> new ItemChangeDTO(0, EGG, current));
+        }
+        assertTrue(changeLog.read(5, 10).snapshotRequired(), "Entries that were overwritten should require a snapshot.");
+        ChangeBatchDTO kept = changeLog.read(12, 10);
+        assertFalse(kept.snapshotRequired(), "Kept entries should be read.");
+        assertEquals(13, kept.changes().get(0).sequence(), "Reading should start right after the requested sequence.");
+    }
+
+    /**
+     * Tests that nothing is appended for an item that no longer exists.
+     */
+    @Test
+    public void testMissingItemIsNotAppended() {
+        changeLog.append("gone", itemID -> null);
+        assertEquals(0, changeLog.getLastSequence(), "Nothing should be appended for a missing item.");
+    }
+}
@@ -0,0 +1,87 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CircuitBreaker} class.
+ */
+public class CircuitBreakerTest {
+    private AtomicLong now;
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * Sets up a breaker that opens after three failures, for ten seconds, with a controlled clock.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong();
+        circuitBreaker = new CircuitBreaker(3, Duration.ofSeconds(10), now::get);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        circuitBreaker = null;
+        now = null;
+    }
+
+    /**
+     * Verifies that the breaker opens after the threshold of failures in a row, and that a success resets the count.
+     */
+    @Test
+    public void testOpensAfterFailuresInRow() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.allowRequest(), "Two failures in a row should not open the breaker.");
+        circuitBreaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(), "Three failures in a row should open the breaker.");
+        assertFalse(circuitBreaker.allowRequest(), "An open breaker should reject calls.");
+    }
+
+    /**
+     * Verifies that an open breaker lets one trial call through after the open period, and closes if it succeeds.
+     */
+    @Test
+    public void testTrialCallClosesBreaker() {
+        open();
+        now.addAndGet(10_000);
+        assertTrue(circuitBreaker.allowRequest(), "The trial call should be let through.");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState(), "The breaker should be half open.");
+        assertFalse(circuitBreaker.allowRequest(), "Only one trial call should be let through.");
+        circuitBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(), "A successful trial should close the breaker.");
+        assertTrue(circuitBreaker.allowRequest(), "A closed breaker should let calls through.");
+    }
+
+    /**
+     * Verifies that a failed trial call opens the breaker for another period.
+     */
+    @Test
+    public void testFailedTrialReopensBreaker() {
+        open();
+        now.addAndGet(10_000);
+        circuitBreaker.allowRequest();
+        circuitBreaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(), "A failed trial should open the breaker.");
+        now.addAndGet(9_999);
+        assertFalse(circuitBreaker.allowRequest(), "The breaker should stay open for the whole period.");
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure();
+        }
+    }
+}
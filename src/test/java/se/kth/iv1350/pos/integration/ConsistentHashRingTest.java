@@ -0,0 +1,77 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ConsistentHashRing} class.
+ * Covers an even spread of items and that adding a node only moves items to that node.
+ */
+public class ConsistentHashRingTest {
+    private static final int ITEM_COUNT = 100_000;
+    private ConsistentHashRing ring;
+
+    /**
+     * Sets up a ring with four nodes before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        ring = new ConsistentHashRing(128).withNode("a").withNode("b").withNode("c").withNode("d");
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        ring = null;
+    }
+
+    /**
+     * Tests that every node owns close to an equal share of the items.
+     */
+    @Test
+    public void testEvenSpread() {
+        Map<String, Integer> itemsPerNode = new HashMap<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            itemsPerNode.merge(ring.ownerOf("item" + i), 1, Integer::sum);
+        }
+        assertEquals(4, itemsPerNode.size(), "Every node should own items.");
+        for (int count : itemsPerNode.values()) {
+            assertEquals(ITEM_COUNT / 4.0, count, ITEM_COUNT / 4.0 * 0.3, "Each node should own about a quarter of the items.");
+        }
+    }
+
+    /**
+     * Tests that adding a node moves only about one fifth of the items, all of them to the new node.
+     */
+    @Test
+    public void testAddingNodeMovesFewItems() {
+        ConsistentHashRing grown = ring.withNode("e");
+        int moved = 0;
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            String before = ring.ownerOf("item" + i);
+            String after = grown.ownerOf("item" + i);
+            if (!before.equals(after)) {
+                assertEquals("e", after, "Items should only move to the new node.");
+                moved++;
+            }
+        }
+        assertEquals(ITEM_COUNT / 5.0, moved, ITEM_COUNT / 5.0 * 0.3, "About one fifth of the items should move.");
+        assertEquals(4, ring.getNodeIDs().size(), "The original ring should not change.");
+    }
+
+    /**
+     * Tests that an empty ring has no owner for any item.
+     */
+    @Test
+    public void testEmptyRing() {
+        assertNull(new ConsistentHashRing(16).ownerOf("item"), "An empty ring should have no owner.");
+    }
+}
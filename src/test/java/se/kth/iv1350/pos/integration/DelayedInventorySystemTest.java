@@ -0,0 +1,94 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.controller.Controller;
+import se.kth.iv1350.pos.model.Amount;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link DelayedInventorySystem} class and the other delayed stand-ins.
+ */
+public class DelayedInventorySystemTest {
+    private static final Duration DELAY = Duration.ofMillis(50);
+    private InventoryRegistry inventoryRegistry;
+    private DelayedInventorySystem inventorySystem;
+
+    /**
+     * Sets up an inventory whose calls are delayed.
+     */
+    @BeforeEach
+    public void setUp() {
+        inventoryRegistry = new InventoryRegistry();
+        inventorySystem = new DelayedInventorySystem(inventoryRegistry, LatencyModel.fixed(DELAY));
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        inventorySystem = null;
+        inventoryRegistry = null;
+    }
+
+    /**
+     * Verifies that a blocking lookup waits for the delay and returns the item of the inventory behind it.
+     */
+    @Test
+    public void testFindItemByIdIsDelayed() {
+        long start = System.nanoTime();
+        ItemDTO item = inventorySystem.findItemById("1");
+        assertTrue(System.nanoTime() - start >= DELAY.toNanos(), "The lookup should wait for the delay.");
+        assertEquals(inventoryRegistry.findItemById("1"), item, "The item of the inventory should be returned.");
+    }
+
+    /**
+     * Verifies that an asynchronous lookup returns before the delay and completes with the item afterwards.
+     */
+    @Test
+    public void testFindItemByIdAsync() throws Exception {
+        CompletableFuture<ItemDTO> lookup = inventorySystem.findItemByIdAsync("1");
+        assertFalse(lookup.isDone(), "The lookup should not be done before the delay.");
+        assertEquals("1", lookup.get(1, TimeUnit.SECONDS).id(), "The lookup should complete with the item.");
+        assertNull(inventorySystem.findItemByIdAsync("unknown").get(1, TimeUnit.SECONDS), "An unknown item should complete with null.");
+    }
+
+    /**
+     * Verifies that lookups in a catalog handed out by the stand-in are delayed too.
+     */
+    @Test
+    public void testCatalogLookupsAreDelayed() {
+        ItemCatalog catalog = inventorySystem.getCatalog();
+        long start = System.nanoTime();
+        assertNotNull(catalog.findItemById("1"), "The catalog should find the item.");
+        assertTrue(System.nanoTime() - start >= DELAY.toNanos(), "The catalog lookup should wait for the delay.");
+    }
+
+    /**
+     * Verifies that a payment updates the delayed accounting system and inventory at the same time, so it takes
+     * about one delay and not two.
+     */
+    @Test
+    public void testPaymentUpdatesRegistriesInParallel() {
+        Duration backendDelay = Duration.ofMillis(200);
+        RegistryCreator registryCreator = new RegistryCreator(LatencyModel.fixed(backendDelay), LatencyModel.fixed(backendDelay));
+        Controller controller = new Controller(registryCreator,
+                new DelayedReceiptPrinter(new Printer(), LatencyModel.none()));
+        controller.startSale();
+        controller.enterItem("2");
+        controller.endSale();
+        long start = System.nanoTime();
+        assertNotNull(controller.enterPayment(Amount.of(100)), "The payment should be accepted.");
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= backendDelay.toNanos(), "The payment should wait for the backends.");
+        assertTrue(elapsed < 2 * backendDelay.toNanos(), "The backends should be updated at the same time, took " + elapsed);
+        assertTrue(registryCreator.getAccountingRegistry().getSalesStore().getLineCount() > 0, "The sale should be booked.");
+    }
+}
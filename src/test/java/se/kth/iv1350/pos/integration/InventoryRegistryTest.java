@@ -4,13 +4,32 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Unit tests for the {@link InventoryRegistry} class.
  */
 public class InventoryRegistryTest {
+    private static final AtomicLong SALE_IDS = new AtomicLong(1_000_000);
     private InventoryRegistry inventoryRegistry;
 
     /**
@@ -39,4 +58,279 @@ public class InventoryRegistryTest {
         assertEquals("1", item.id(), "Item ID should match.");
         assertEquals("Medicine", item.name(), "Item name should match.");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Tests that findItemsById returns every known item and leaves out unknown IDs.
+     */
+    @Test
+    public void testFindItemsById() {
+        Map<String, ItemDTO> items = inventoryRegistry.findItemsById(Arrays.asList("1", "3", "unknown", null, "1"));
+        assertEquals(2, items.size(), "Only known items should be returned.");
+        assertEquals("Egg", items.get("3").name(), "Item name should match.");
+    }
+
+    /**
+     * Tests that a catalog update is visible to new lookups, while an earlier catalog keeps the old prices.
+     */
+    @Test
+    public void testUpdateCatalog() {
+        ItemCatalog before = inventoryRegistry.getCatalog();
+        long version = inventoryRegistry.updateCatalog(List.of(
+                new ItemDTO("1", "Medicine", "Pain relief medicine", 12, 0.0),
+                new ItemDTO("5", "Milk", "Whole milk", 15, 0.12)));
+        assertEquals(before.getVersion() + 1, version, "The new catalog should have the next version number.");
+        assertEquals(12.0, inventoryRegistry.findItemById("1").price(), "New lookups should see the new price.");
+        assertEquals("Milk", inventoryRegistry.findItemById("5").name(), "New items should be found.");
+        assertEquals(10.0, before.findItemById("1").price(), "An earlier catalog should keep the old price.");
+        assertNull(before.findItemById("5"), "An earlier catalog should not see new items.");
+    }
+
+    /**
+     * Tests that loaded items are published as one version, and that a published catalog can not be changed by
+     * loading more items.
+     */
+    @Test
+    public void testPutItemOnlyWhileLoading() {
+        InventoryRegistry loadingRegistry = new InventoryRegistry(16);
+        assertTrue(loadingRegistry.putItem(new ItemDTO("1", "Phone", "Smartphone", 40, 0.25), 3), "An item should be added while loading.");
+        assertNull(loadingRegistry.findItemById("1"), "A loaded item should not be found before loading finishes.");
+        loadingRegistry.finishLoading();
+        ItemCatalog loaded = loadingRegistry.getCatalog();
+        assertEquals("Phone", loaded.findItemById("1").name(), "A loaded item should be found after loading finishes.");
+        assertFalse(loadingRegistry.putItem(new ItemDTO("2", "Egg", "Free-range eggs", 30, 0.12), 8), "No item should be added after loading.");
+        loadingRegistry.updateCatalog(List.of(new ItemDTO("1", "Phone", "Smartphone", 45, 0.25)));
+        assertFalse(loadingRegistry.putItem(new ItemDTO("2", "Egg", "Free-range eggs", 30, 0.12), 8), "No item should be added after an update.");
+        assertNull(loaded.findItemById("2"), "A published catalog should never change.");
+        assertEquals(40.0, loaded.findItemById("1").price(), "A published catalog should keep its prices.");
+    }
+
+    /**
+     * Tests that many catalog updates are folded into the base without losing items.
+     */
+    @Test
+    public void testManyCatalogUpdates() {
+        List<ItemDTO> changes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            changes.add(new ItemDTO("new" + i, "Item", "Description", i, 0.25));
+            if (changes.size() == 500) {
+                inventoryRegistry.updateCatalog(changes);
+                changes.clear();
+            }
+        }
+        assertEquals(4999.0, inventoryRegistry.findItemById("new4999").price(), "The last item should be found.");
+        assertEquals(0.0, inventoryRegistry.findItemById("new0").price(), "The first item should survive compaction.");
+        assertEquals("Phone", inventoryRegistry.findItemById("4").name(), "Original items should survive compaction.");
+    }
+
+    /**
+     * Tests that a completed sale takes the sold quantities out of stock.
+     */
+    @Test
+    public void testUpdateInventoryDecreasesStock() {
+        inventoryRegistry.updateInventory(createSale(inventoryRegistry.findItemById("3"), 3));
+        assertEquals(5, inventoryRegistry.getQuantity("3"), "The sold quantity should be taken out of stock.");
+    }
+
+    /**
+     * Tests that a sale or refund that is sent twice changes the stock once.
+     */
+    @Test
+    public void testSaleIsAppliedOnce() {
+        ItemDTO egg = inventoryRegistry.findItemById("3");
+        SaleDTO sale = createSale(1, egg, 3);
+        inventoryRegistry.updateInventory(sale);
+        inventoryRegistry.updateInventory(sale);
+        assertEquals(5, inventoryRegistry.getQuantity("3"), "The sale should be taken out of stock once.");
+        SaleDTO refund = createSale(2, egg, 1);
+        inventoryRegistry.returnInventory(refund);
+        inventoryRegistry.returnInventory(refund);
+        assertEquals(6, inventoryRegistry.getQuantity("3"), "The refund should be put back in stock once.");
+    }
+
+    /**
+     * Tests that one event is published when the stock crosses the reorder threshold, and none for later sales.
+     */
+    @Test
+    public void testLowStockEventOnCrossing() throws InterruptedException {
+        LinkedBlockingQueue<LowStockEvent> events = new LinkedBlockingQueue<>();
+        inventoryRegistry.addLowStockObserver(events::add);
+        inventoryRegistry.setReorderThreshold("4", 5);
+        ItemDTO phone = inventoryRegistry.findItemById("4");
+        inventoryRegistry.updateInventory(createSale(phone, 2));
+        inventoryRegistry.updateInventory(createSale(phone, 2));
+        inventoryRegistry.updateInventory(createSale(phone, 2));
+        LowStockEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "An event should be delivered when the stock crosses the threshold.");
+        assertEquals(new LowStockEvent("4", 4, 5), event, "The event should describe the crossing sale.");
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS), "Sales below the threshold should not publish more events.");
+        inventoryRegistry.updateQuantity("4", 10);
+        inventoryRegistry.updateInventory(createSale(phone, 5));
+        assertNotNull(events.poll(5, TimeUnit.SECONDS), "A restocked item should publish again when it runs low.");
+    }
+
+    /**
+     * Tests that crossings are dropped and counted, without blocking the stock change, while the observers are too
+     * far behind to take them.
+     */
+    @Test
+    public void testLowStockEventsDroppedWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        inventoryRegistry.addLowStockObserver(event -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        inventoryRegistry.setReorderThreshold("4", 5);
+        inventoryRegistry.updateQuantity("4", 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS), "The first event should be taken by the observer.");
+        int crossings = LowStockNotifier.DEFAULT_QUEUE_CAPACITY + 10;
+        for (int i = 0; i < crossings; i++) {
+            inventoryRegistry.updateQuantity("4", 10);
+            inventoryRegistry.updateQuantity("4", 0);
+        }
+        assertEquals(10, inventoryRegistry.getDroppedLowStockEvents(), "Crossings beyond the queue capacity should be dropped and counted.");
+        release.countDown();
+    }
+
+    /**
+     * Tests that exactly one event is published when many threads sell the same item at the same time.
+     */
+    @Test
+    public void testLowStockEventOnceUnderConcurrency() throws InterruptedException {
+        inventoryRegistry.updateQuantity("1", 100_000);
+        inventoryRegistry.setReorderThreshold("1", 50_000);
+        LinkedBlockingQueue<LowStockEvent> events = new LinkedBlockingQueue<>();
+        inventoryRegistry.addLowStockObserver(events::add);
+        ItemDTO item = inventoryRegistry.findItemById("1");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    inventoryRegistry.updateInventory(createSale(item, 1));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20_000, inventoryRegistry.getQuantity("1"), "No concurrent decrement should be lost.");
+        assertNotNull(events.poll(5, TimeUnit.SECONDS), "The crossing should be published.");
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS), "The crossing should be published exactly once.");
+    }
+
+    /**
+     * Tests that items without a reorder threshold never publish events.
+     */
+    @Test
+    public void testNoThresholdNoEvent() throws InterruptedException {
+        LinkedBlockingQueue<LowStockEvent> events = new LinkedBlockingQueue<>();
+        inventoryRegistry.addLowStockObserver(events::add);
+        inventoryRegistry.updateInventory(createSale(inventoryRegistry.findItemById("2"), 10));
+        assertTrue(inventoryRegistry.getQuantity("2") < 0, "The stock should still be decreased.");
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS), "Items without a threshold should not publish events.");
+    }
+
+    /**
+     * Tests that reserved stock can not be reserved by another sale, and is committed when the sale is booked.
+     */
+    @Test
+    public void testReserveAndCommit() {
+        assertTrue(inventoryRegistry.reserve(1, "4", 6), "Available stock should be reserved.");
+        assertFalse(inventoryRegistry.reserve(2, "4", 3), "Reserved stock should not be reserved again.");
+        assertTrue(inventoryRegistry.reserve(2, "4", 2), "The rest of the stock should be reserved.");
+        inventoryRegistry.updateInventory(createSale(1, inventoryRegistry.findItemById("4"), 5));
+        assertEquals(3, inventoryRegistry.getQuantity("4"), "The sold quantity should be taken out of stock.");
+        assertEquals(1, inventoryRegistry.getAvailableQuantity("4"), "Reserved stock that was not sold should be released.");
+    }
+
+    /**
+     * Tests that released stock is available again, and that no more than the reserved quantity is released.
+     */
+    @Test
+    public void testReleaseReservation() {
+        inventoryRegistry.reserve(1, "3", 5);
+        inventoryRegistry.releaseReservation(1, "3", 2);
+        assertEquals(5, inventoryRegistry.getAvailableQuantity("3"), "Released stock should be available.");
+        inventoryRegistry.releaseReservation(1, "3", 10);
+        assertEquals(8, inventoryRegistry.getAvailableQuantity("3"), "No more than the reserved stock should be released.");
+        inventoryRegistry.reserve(2, "3", 4);
+        inventoryRegistry.reserve(2, "4", 4);
+        inventoryRegistry.releaseReservations(2);
+        assertEquals(8, inventoryRegistry.getAvailableQuantity("4"), "All reservations of an abandoned sale should be released.");
+        assertEquals(8, inventoryRegistry.getQuantity("3"), "Releasing should not change the stock.");
+    }
+
+    /**
+     * Tests that the reservations of a sale expire when it has not scanned anything for the timeout.
+     */
+    @Test
+    public void testReservationsExpire() {
+        AtomicLong now = new AtomicLong(0);
+        InventoryRegistry timedRegistry = new InventoryRegistry(16, now::get, 60_000);
+        timedRegistry.putItem(new ItemDTO("1", "Phone", "Smartphone", 40, 0.25), 1);
+        timedRegistry.finishLoading();
+        assertTrue(timedRegistry.reserve(1, "1", 1), "The last phone should be reserved.");
+        now.set(59_000);
+        timedRegistry.expirePendingReservations();
+        assertEquals(0, timedRegistry.getAvailableQuantity("1"), "The reservation should be kept until the timeout.");
+        now.set(61_000);
+        timedRegistry.expirePendingReservations();
+        assertEquals(1, timedRegistry.getAvailableQuantity("1"), "The reservation should be released after the timeout.");
+        assertTrue(timedRegistry.reserve(2, "1", 1), "Another sale should be able to reserve the released phone.");
+    }
+
+    /**
+     * Tests that two lanes competing for the last items never reserve more than is in stock.
+     */
+    @Test
+    public void testConcurrentReservations() throws InterruptedException {
+        inventoryRegistry.updateQuantity("4", 1000);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int lane = 0; lane < 8; lane++) {
+            long saleID = lane;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (inventoryRegistry.reserve(saleID, "4", 1)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, reserved.get(), "Exactly the stock should be reserved.");
+        assertEquals(0, inventoryRegistry.getAvailableQuantity("4"), "No stock should be left available.");
+    }
+
+    private static SaleDTO createSale(ItemDTO item, int quantity) {
+        return createSale(SALE_IDS.incrementAndGet(), item, quantity);
+    }
+
+    /**
+     * Tests that returned items are put back in stock and can be reserved again.
+     */
+    @Test
+    public void testReturnInventory() {
+        ItemDTO phone = inventoryRegistry.findItemById("4");
+        inventoryRegistry.updateInventory(createSale(1, phone, 8));
+        assertFalse(inventoryRegistry.reserve(2, "4", 1), "A sold out item should not be reserved.");
+        inventoryRegistry.returnInventory(createSale(3, phone, 2));
+        assertEquals(2, inventoryRegistry.getQuantity("4"), "The returned phones should be back in stock.");
+        assertTrue(inventoryRegistry.reserve(2, "4", 2), "The returned phones should be available again.");
+    }
+
+    private static SaleDTO createSale(long saleID, ItemDTO item, int quantity) {
+        SaleItemDTO line = new SaleItemDTO(item, quantity, Amount.of(item.price() * quantity), Amount.zero());
+        return new SaleDTO(saleID, List.of(line), line.total(), Amount.zero(), List.of(), 1, LocalDateTime.now());
+    }
+}
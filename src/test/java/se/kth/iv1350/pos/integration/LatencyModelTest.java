@@ -0,0 +1,64 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link LatencyModel} factory methods.
+ */
+public class LatencyModelTest {
+    private static final int DRAWS = 10_000;
+
+    /**
+     * Verifies that the fixed model always returns its delay and the empty model always returns zero.
+     */
+    @Test
+    public void testFixedAndNone() {
+        assertEquals(5_000_000, LatencyModel.fixed(Duration.ofMillis(5)).nextDelayNanos(), "The fixed delay should be returned.");
+        assertEquals(0, LatencyModel.none().nextDelayNanos(), "No delay should be returned.");
+    }
+
+    /**
+     * Verifies that uniform delays stay between the base and the base plus the jitter.
+     */
+    @Test
+    public void testUniformStaysInRange() {
+        LatencyModel model = LatencyModel.uniform(Duration.ofMillis(2), Duration.ofMillis(3));
+        for (int i = 0; i < DRAWS; i++) {
+            long delay = model.nextDelayNanos();
+            assertTrue(delay >= 2_000_000 && delay <= 5_000_000, "The delay should be within the range, was " + delay);
+        }
+    }
+
+    /**
+     * Verifies that normal delays are never negative, even when the deviation is larger than the mean.
+     */
+    @Test
+    public void testNormalIsNeverNegative() {
+        LatencyModel model = LatencyModel.normal(Duration.ofMillis(1), Duration.ofMillis(5));
+        for (int i = 0; i < DRAWS; i++) {
+            assertTrue(model.nextDelayNanos() >= 0, "A delay should never be negative.");
+        }
+    }
+
+    /**
+     * Verifies that about half of the log-normal delays are below the median.
+     */
+    @Test
+    public void testLogNormalMedian() {
+        LatencyModel model = LatencyModel.logNormal(Duration.ofMillis(10), 1.0);
+        int belowMedian = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            long delay = model.nextDelayNanos();
+            assertTrue(delay > 0, "A log-normal delay should be positive.");
+            if (delay < 10_000_000) {
+                belowMedian++;
+            }
+        }
+        assertEquals(DRAWS / 2.0, belowMedian, DRAWS * 0.05, "About half of the delays should be below the median.");
+    }
+}
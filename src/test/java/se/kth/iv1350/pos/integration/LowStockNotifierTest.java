@@ -0,0 +1,83 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LowStockNotifier} class.
+ * Covers asynchronous delivery and dropping events when the queue is full.
+ */
+public class LowStockNotifierTest {
+    private LowStockNotifier notifier;
+
+    /**
+     * Sets up a new LowStockNotifier with a small queue before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        notifier = new LowStockNotifier(2);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        notifier = null;
+    }
+
+    /**
+     * Tests that events are delivered on another thread than the publishing one.
+     */
+    @Test
+    public void testDeliveredOnNotifierThread() throws InterruptedException {
+        LinkedBlockingQueue<Thread> deliveringThreads = new LinkedBlockingQueue<>();
+        notifier.addObserver(event -> deliveringThreads.add(Thread.currentThread()));
+        notifier.publish(new LowStockEvent("1", 2, 3));
+        Thread deliveringThread = deliveringThreads.poll(5, TimeUnit.SECONDS);
+        assertNotNull(deliveringThread, "The event should be delivered.");
+        assertNotSame(Thread.currentThread(), deliveringThread, "The event should be delivered asynchronously.");
+    }
+
+    /**
+     * Tests that publishing never blocks, and drops events when the queue is full.
+     */
+    @Test
+    public void testFullQueueDropsEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        notifier.addObserver(event -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        notifier.publish(new LowStockEvent("1", 0, 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS), "The first event should be taken by the dispatcher.");
+        for (int i = 0; i < 5; i++) {
+            notifier.publish(new LowStockEvent("1", 0, 1));
+        }
+        assertEquals(3, notifier.getDroppedEvents(), "Events beyond the queue capacity should be dropped.");
+        release.countDown();
+    }
+
+    /**
+     * Tests that events published without observers are discarded.
+     */
+    @Test
+    public void testNoObservers() {
+        for (int i = 0; i < 5; i++) {
+            notifier.publish(new LowStockEvent("1", 0, 1));
+        }
+        assertEquals(0, notifier.getDroppedEvents(), "Events without observers should not fill the queue.");
+    }
+}
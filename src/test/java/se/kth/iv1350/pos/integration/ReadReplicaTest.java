@@ -0,0 +1,181 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ReadReplica} class.
+ * Covers catching up from a snapshot and the log tail, bounded staleness, and following a busy leader.
+ */
+public class ReadReplicaTest {
+    private static final AtomicLong SALE_IDS = new AtomicLong();
+    private static final Duration MAX_STALENESS = Duration.ofSeconds(5);
+    private AtomicLong now;
+    private InventoryRegistry leader;
+    private ReadReplica replica;
+
+    /**
+     * Sets up a leader with the sample inventory and a replica following it with a controllable clock.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        leader = new InventoryRegistry();
+        replica = new ReadReplica(new InMemoryReplicationTransport(leader, 16), MAX_STALENESS, now::get);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        replica = null;
+        leader = null;
+        now = null;
+    }
+
+    /**
+     * Tests that a new replica copies a snapshot and then applies the changes made after it.
+     */
+    @Test
+    public void testSnapshotThenTail() {
+        assertNull(replica.findItemById("1"), "Nothing should be read before the first copy.");
+        replica.replicateOnce();
+        assertEquals("Medicine", replica.findItemById("1").name(), "The snapshot should hold the items.");
+        leader.updateQuantity("1", 40);
+        leader.updateCatalog(List.of(new ItemDTO("1", "Medicine", "Pain relief medicine", 12, 0.0),
+                new ItemDTO("9", "Milk", "Whole milk", 15, 0.12)));
+        sell(leader, "3", 5);
+        assertEquals(4, replica.replicateOnce(), "Every change after the snapshot should be applied.");
+        assertEquals(40, replica.getQuantity("1"), "A quantity change should be replicated.");
+        assertEquals(12.0, replica.findItemById("1").price(), "A price change should be replicated.");
+        assertEquals("Milk", replica.findItemById("9").name(), "A new item should be replicated.");
+        assertEquals(3, replica.getQuantity("3"), "A sale should be replicated.");
+    }
+
+    /**
+     * Tests that reads are refused once the replica has not caught up within the maximum staleness.
+     */
+    @Test
+    public void testBoundedStaleness() {
+        replica.replicateOnce();
+        now.addAndGet(MAX_STALENESS.toMillis());
+        assertTrue(replica.isFresh(), "A replica within the bound should answer reads.");
+        now.addAndGet(1);
+        assertNull(replica.findItemById("1"), "A replica beyond the bound should not answer reads.");
+        assertEquals(-1, replica.getQuantity("1"), "A replica beyond the bound should not answer reads.");
+        replica.replicateOnce();
+        assertNotNull(replica.findItemById("1"), "A caught up replica should answer reads again.");
+    }
+
+    /**
+     * Tests that a replica that falls further behind than the log keeps starts over from a snapshot.
+     */
+    @Test
+    public void testCatchUpAfterFallingBehind() {
+        replica.replicateOnce();
+        for (int quantity = 0; quantity < 100; quantity++) {
+            leader.updateQuantity("2", quantity);
+        }
+        replica.replicateOnce();
+        assertEquals(99, replica.getQuantity("2"), "The replica should catch up from a new snapshot.");
+        leader.updateQuantity("2", 7);
+        replica.replicateOnce();
+        assertEquals(7, replica.getQuantity("2"), "The replica should follow the log after the new snapshot.");
+    }
+
+    /**
+     * Tests that the follower thread keeps up with a leader changed by several threads, and ends up equal to it.
+     */
+    @Test
+    public void testFollowsBusyLeader() throws InterruptedException {
+        InventoryRegistry busyLeader = new InventoryRegistry();
+        busyLeader.updateQuantity("4", 1_000_000);
+        ReadReplica follower = new ReadReplica(new InMemoryReplicationTransport(busyLeader), Duration.ofMinutes(1));
+        follower.start();
+        List<Thread> lanes = new ArrayList<>();
+        for (int lane = 0; lane < 4; lane++) {
+            Thread thread = new Thread(() -> {
+                for (int sale = 0; sale < 5000; sale++) {
+                    sell(busyLeader, "4", 1);
+                }
+            });
+            lanes.add(thread);
+            thread.start();
+        }
+        for (Thread thread : lanes) {
+            thread.join();
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (follower.getQuantity("4") != 980_000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(980_000, follower.getQuantity("4"), "The replica should end up with the leader's stock.");
+    }
+
+    /**
+     * Tests that a stock that the leader has sold below zero is replicated as it is.
+     */
+    @Test
+    public void testNegativeQuantityIsReplicated() {
+        replica.replicateOnce();
+        int stock = leader.getQuantity("3");
+        sell(leader, "3", stock + 2);
+        replica.replicateOnce();
+        assertEquals(-2, replica.getQuantity("3"), "A negative stock should be replicated.");
+    }
+
+    /**
+     * Tests that the follower thread keeps following after a failed fetch, and stops when asked to.
+     */
+    @Test
+    public void testFollowerSurvivesFailuresAndStops() throws InterruptedException {
+        ReplicationTransport working = new InMemoryReplicationTransport(leader);
+        AtomicLong failures = new AtomicLong(3);
+        ReplicationTransport flaky = new ReplicationTransport() {
+            @Override
+            public CompletableFuture<ChangeBatchDTO> fetchChanges(long afterSequence, int maxChanges) {
+                return working.fetchChanges(afterSequence, maxChanges);
+            }
+
+            @Override
+            public CompletableFuture<InventorySnapshotDTO> fetchSnapshot() {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Leader unreachable");
+                }
+                return working.fetchSnapshot();
+            }
+        };
+        ReadReplica follower = new ReadReplica(flaky, Duration.ofMinutes(1));
+        follower.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (follower.findItemById("1") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(follower.findItemById("1"), "The follower should copy the leader once it is reachable.");
+        follower.stop();
+        Thread.sleep(200);
+        leader.updateQuantity("1", 77);
+        Thread.sleep(200);
+        assertNotEquals(77, follower.getQuantity("1"), "A stopped follower should not apply new changes.");
+    }
+
+    private static void sell(InventoryRegistry registry, String itemID, int quantity) {
+        ItemDTO item = registry.findItemById(itemID);
+        SaleItemDTO line = new SaleItemDTO(item, quantity, Amount.of(item.price() * quantity), Amount.zero());
+        registry.updateInventory(new SaleDTO(SALE_IDS.incrementAndGet(), List.of(line), line.total(), Amount.zero(), List.of(), 1, LocalDateTime.now()));
+    }
+}
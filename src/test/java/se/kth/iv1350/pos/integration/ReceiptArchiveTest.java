@@ -0,0 +1,186 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.Receipt;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+import se.kth.iv1350.pos.model.VatRateTotalDTO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ReceiptArchive} class.
+ */
+public class ReceiptArchiveTest {
+    private static final int BLOCK_BYTES = 4096;
+    private static final LocalDateTime OPENING = LocalDateTime.of(2024, 5, 17, 8, 0);
+    @TempDir
+    Path directory;
+    private ReceiptArchive archive;
+
+    /**
+     * Opens an archive with small blocks in a temporary directory.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        archive = new ReceiptArchive(directory, BLOCK_BYTES);
+    }
+
+    /**
+     * Closes the archive after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        archive.close();
+        archive = null;
+    }
+
+    /**
+     * Verifies that every receipt is found by sale ID, both in compressed blocks and in the block being filled, and
+     * prints the same as the original.
+     */
+    @Test
+    public void testFindBySaleID() {
+        for (int minute = 0; minute < 200; minute++) {
+            assertTrue(archive.archive(sale(minute), Amount.of(500), Amount.of(250)), "The receipt should be archived.");
+        }
+        for (int minute = 0; minute < 200; minute += 7) {
+            ArchivedReceiptDTO found = archive.findBySaleID(saleID(minute));
+            assertNotNull(found, "Every archived receipt should be found.");
+            assertEquals(receiptText(sale(minute)), receiptText(found), "The reprint should match the original.");
+        }
+        assertNull(archive.findBySaleID(1), "A sale that is not archived should not be found.");
+    }
+
+    /**
+     * Verifies that the receipts of a period are found in order, with both ends of the period included.
+     */
+    @Test
+    public void testFindByTime() {
+        for (int minute = 0; minute < 100; minute++) {
+            archive.archive(sale(minute), Amount.of(500), Amount.of(250));
+        }
+        List<ArchivedReceiptDTO> found = archive.findByTime(OPENING.plusMinutes(10), OPENING.plusMinutes(19));
+        assertEquals(10, found.size(), "Every receipt of the period should be found.");
+        for (int i = 0; i < found.size(); i++) {
+            assertEquals(saleID(10 + i), found.get(i).sale().saleID(), "The receipts should be in order.");
+        }
+        assertTrue(archive.findByTime(OPENING.minusDays(1), OPENING.minusHours(1)).isEmpty(), "No receipts should be found before opening.");
+    }
+
+    /**
+     * Verifies that a receipt archived after a clock was set back keeps its own time, and is found in its period both
+     * before and after the archive is opened again.
+     */
+    @Test
+    public void testFindByTimeAfterClockSetBack() throws IOException {
+        for (int minute = 60; minute < 90; minute++) {
+            archive.archive(sale(minute), Amount.of(500), Amount.of(250));
+        }
+        archive.archive(sale(5), Amount.of(500), Amount.of(250));
+        archive.archive(sale(90), Amount.of(500), Amount.of(250));
+        assertEquals(OPENING.plusMinutes(5), archive.findBySaleID(saleID(5)).sale().timeOfSale(), "The time of sale should be kept.");
+        List<ArchivedReceiptDTO> early = archive.findByTime(OPENING, OPENING.plusMinutes(10));
+        assertEquals(1, early.size(), "Only the late receipt should be in the early period.");
+        assertEquals(saleID(5), early.get(0).sale().saleID(), "The late receipt should be found by its own time.");
+        archive.close();
+        archive = new ReceiptArchive(directory, BLOCK_BYTES);
+        List<ArchivedReceiptDTO> all = archive.findByTime(OPENING, OPENING.plusMinutes(90));
+        assertEquals(32, all.size(), "Every receipt should be found after a restart.");
+        assertEquals(saleID(5), all.get(0).sale().saleID(), "The receipts should be ordered by time of sale.");
+        assertEquals(saleID(90), all.get(31).sale().saleID(), "The receipts should be ordered by time of sale.");
+        assertTrue(archive.findByTime(OPENING.plusMinutes(91), OPENING.plusHours(2)).isEmpty(), "No receipts should be found after the last sale.");
+    }
+
+    /**
+     * Verifies that receipts in compressed blocks and in the unfinished block are found after the archive is opened
+     * again without being closed, as after a crash.
+     */
+    @Test
+    public void testReceiptsSurviveRestart() throws IOException {
+        for (int minute = 0; minute < 150; minute++) {
+            archive.archive(sale(minute), Amount.of(500), Amount.of(250));
+        }
+        try (ReceiptArchive reopened = new ReceiptArchive(directory, BLOCK_BYTES)) {
+            assertEquals(150, reopened.getReceiptCount(), "Every receipt should be indexed.");
+            assertEquals(saleID(0), reopened.findBySaleID(saleID(0)).sale().saleID(), "A compressed receipt should be found.");
+            assertEquals(saleID(149), reopened.findBySaleID(saleID(149)).sale().saleID(), "An unfinished block should be recovered.");
+            assertTrue(reopened.archive(sale(150), Amount.of(500), Amount.of(250)), "New receipts should be archived.");
+            assertEquals(saleID(150), reopened.findBySaleID(saleID(150)).sale().saleID(), "The new receipt should be found.");
+        }
+    }
+
+    /**
+     * Verifies that an archived receipt takes less than a quarter of its printed text.
+     */
+    @Test
+    public void testReceiptsAreCompressed() throws IOException {
+        int receipts = 1000;
+        long textBytes = 0;
+        for (int minute = 0; minute < receipts; minute++) {
+            SaleDTO sale = sale(minute);
+            archive.archive(sale, Amount.of(500), Amount.of(250));
+            textBytes += receiptText(sale).getBytes(StandardCharsets.UTF_8).length;
+        }
+        archive.close();
+        archive = new ReceiptArchive(directory, BLOCK_BYTES);
+        assertTrue(archive.getArchivedBytes() * 4 < textBytes,
+                "Archived receipts should take less than a quarter of the text: " + archive.getArchivedBytes() + " of " + textBytes);
+    }
+
+    /**
+     * Verifies that returns are limited to what the sale holds, and that earlier returns are remembered when the
+     * archive is opened again.
+     */
+    @Test
+    public void testReturnsAreLimited() throws IOException {
+        SaleDTO sale = sale(2);
+        archive.archive(sale, Amount.of(500), Amount.of(250));
+        SaleItemDTO eggs = sale.items().get(1);
+        SaleItemDTO oneEgg = new SaleItemDTO(eggs.item(), 1, Amount.of(30), Amount.of(3.21));
+        SaleItemDTO allEggs = new SaleItemDTO(eggs.item(), eggs.quantity(), eggs.total(), eggs.totalVat());
+        assertTrue(archive.recordReturn(saleID(2), List.of(oneEgg)), "One egg should be returned.");
+        assertFalse(archive.recordReturn(saleID(2), List.of(allEggs)), "More eggs than remain should not be returned.");
+        assertFalse(archive.recordReturn(saleID(3), List.of(oneEgg)), "A sale that is not archived should not be returned.");
+        archive.close();
+        archive = new ReceiptArchive(directory, BLOCK_BYTES);
+        assertEquals(1, archive.findReturnedQuantities(saleID(2)).get("3"), "The return should be remembered.");
+        assertTrue(archive.recordReturn(saleID(2), List.of(oneEgg, oneEgg)), "The remaining eggs should be returned.");
+        assertFalse(archive.recordReturn(saleID(2), List.of(oneEgg)), "No eggs should remain.");
+        assertTrue(archive.findReturnedQuantities(saleID(5)).isEmpty(), "Nothing should be returned from other sales.");
+    }
+
+    private static String receiptText(SaleDTO sale) {
+        return new Receipt(sale, Amount.of(500), Amount.of(250)).createReceiptString();
+    }
+
+    private static String receiptText(ArchivedReceiptDTO receipt) {
+        return new Receipt(receipt.sale(), receipt.amountPaid(), receipt.change()).createReceiptString();
+    }
+
+    private static long saleID(int minute) {
+        return 1_000_000L + minute;
+    }
+
+    private static SaleDTO sale(int minute) {
+        ItemDTO phone = new ItemDTO("4", "Phone", "Smartphone", 40.0, 0.25);
+        ItemDTO egg = new ItemDTO("3", "Egg", "Organic eggs", 30.0, 0.12);
+        SaleItemDTO phones = new SaleItemDTO(phone, 5, Amount.of(200.0), Amount.of(40.0));
+        SaleItemDTO eggs = new SaleItemDTO(egg, 1 + minute % 3, Amount.of(30.0 * (1 + minute % 3)), Amount.of(3.21));
+        Amount total = phones.total().add(eggs.total());
+        return new SaleDTO(saleID(minute), List.of(phones, eggs), total, Amount.of(43.21),
+                List.of(new VatRateTotalDTO(0.12, eggs.total(), eggs.totalVat()),
+                        new VatRateTotalDTO(0.25, phones.total(), phones.totalVat())),
+                1 + minute % 4, OPENING.plusMinutes(minute));
+    }
+}
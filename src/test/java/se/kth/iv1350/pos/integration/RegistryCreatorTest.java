@@ -4,6 +4,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 /**
@@ -29,11 +31,11 @@ public class RegistryCreatorTest {
     }
 
     /**
-     * Tests that getInventoryRegistry returns a non-null InventoryRegistry.
+     * Tests that getInventorySystem returns a non-null InventorySystem.
      */
     @Test
-    public void testGetInventoryRegistry() {
-        assertNotNull(registryCreator.getInventoryRegistry(), "InventoryRegistry should not be null.");
+    public void testGetInventorySystem() {
+        assertNotNull(registryCreator.getInventorySystem(), "InventorySystem should not be null.");
     }
 
     /**
@@ -43,4 +45,14 @@ public class RegistryCreatorTest {
     public void testGetAccountingRegistry() {
         assertNotNull(registryCreator.getAccountingRegistry(), "AccountingRegistry should not be null.");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Tests that sales are booked in the AccountingRegistry through a closed guard.
+     */
+    @Test
+    public void testGetAccountingSystem() {
+        assertInstanceOf(GuardedAccountingSystem.class, registryCreator.getAccountingSystem(), "Bookings should be guarded.");
+        assertEquals(CircuitBreaker.State.CLOSED, registryCreator.getAccountingGuard().getState(), "The guard should start closed.");
+        assertEquals(CircuitBreaker.State.CLOSED, registryCreator.getInventoryGuard().getState(), "The guard should start closed.");
+    }
+}
@@ -0,0 +1,209 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fault-injection tests for the {@link RegistryGuard} class, using delayed and failing stand-ins for the backend.
+ */
+public class RegistryGuardTest {
+    private static final Duration DEADLINE = Duration.ofMillis(100);
+    private AtomicLong now;
+    private AtomicBoolean backendDown;
+    private List<Long> bookedSaleIDs;
+    private AccountingSystem backend;
+
+    /**
+     * Sets up a backend that records the booked sale IDs and fails while it is down.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong();
+        backendDown = new AtomicBoolean();
+        bookedSaleIDs = new CopyOnWriteArrayList<>();
+        backend = new AccountingSystem() {
+            @Override
+            public void updateAccounting(SaleDTO saleDTO) {
+                if (backendDown.get()) {
+                    throw new IllegalStateException("Backend down");
+                }
+                bookedSaleIDs.add(saleDTO.saleID());
+            }
+
+            @Override
+            public void refundAccounting(SaleDTO refundDTO) {
+            }
+        };
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        backend = null;
+        bookedSaleIDs = null;
+        backendDown = null;
+        now = null;
+    }
+
+    /**
+     * Verifies that a fast backend gets the sale before the call returns.
+     */
+    @Test
+    public void testHealthyBackend() {
+        RegistryGuard guard = guard(backend, 4);
+        guard.submit(sale(1)).join();
+        assertEquals(List.of(1L), bookedSaleIDs, "The sale should be booked when the call returns.");
+        assertEquals(0, guard.getSpilledSales(), "Nothing should be spilled.");
+    }
+
+    /**
+     * Verifies that the caller waits no longer than the deadline for a slow backend, and that the slow call is still
+     * completed in the background without being spilled.
+     */
+    @Test
+    public void testSlowBackendMissesDeadline() throws Exception {
+        RegistryGuard guard = guard(new DelayedAccountingSystem(backend, LatencyModel.fixed(Duration.ofMillis(400))), 4);
+        long start = System.nanoTime();
+        guard.submit(sale(1)).join();
+        long waited = System.nanoTime() - start;
+        assertTrue(waited < Duration.ofMillis(300).toNanos(), "The caller should not wait for the slow backend, waited " + waited);
+        assertEquals(1, guard.getMissedDeadlines(), "The missed deadline should be counted.");
+        awaitBooked(1);
+        assertEquals(0, guard.getSpilledSales(), "A slow call that succeeds should not be spilled.");
+    }
+
+    /**
+     * Verifies that failed calls are spilled, that the breaker then spills without calling the backend, and that the
+     * spilled sales are replayed in order once the backend has recovered.
+     */
+    @Test
+    public void testFailingBackendSpillsAndReplays() throws Exception {
+        RegistryGuard guard = guard(backend, 4);
+        backendDown.set(true);
+        for (int saleID = 1; saleID <= 5; saleID++) {
+            guard.submit(sale(saleID)).join();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getState(), "Three failures should open the breaker.");
+        assertEquals(5, guard.getSpilledSales(), "Every sale should be spilled.");
+        backendDown.set(false);
+        now.addAndGet(1_000);
+        guard.submit(sale(6)).join();
+        awaitBooked(6);
+        assertEquals(List.of(6L, 1L, 2L, 3L, 4L, 5L), bookedSaleIDs, "Spilled sales should be replayed in order.");
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState(), "The breaker should close again.");
+        assertEquals(0, guard.getSpilledSales(), "The spill queue should be empty.");
+    }
+
+    /**
+     * Verifies that calls beyond the bulkhead are spilled at once instead of waiting for a stuck backend, without
+     * counting as failures of the backend.
+     */
+    @Test
+    public void testBulkheadSpillsWhenFull() {
+        CompletableFuture<Void> stuck = new CompletableFuture<>();
+        RegistryGuard guard = guard(new AccountingSystem() {
+            @Override
+            public void updateAccounting(SaleDTO saleDTO) {
+            }
+
+            @Override
+            public void refundAccounting(SaleDTO refundDTO) {
+            }
+
+            @Override
+            public CompletableFuture<Void> updateAccountingAsync(SaleDTO saleDTO) {
+                return stuck;
+            }
+        }, 2);
+        guard.submit(sale(1));
+        guard.submit(sale(2));
+        long start = System.nanoTime();
+        guard.submit(sale(3)).join();
+        assertTrue(System.nanoTime() - start < DEADLINE.toNanos(), "A call beyond the bulkhead should not wait.");
+        assertEquals(1, guard.getSpilledSales(), "The call beyond the bulkhead should be spilled.");
+        for (int saleID = 4; saleID <= 6; saleID++) {
+            guard.submit(sale(saleID)).join();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState(), "A full bulkhead should not open the breaker.");
+        stuck.complete(null);
+    }
+
+    /**
+     * Verifies that sales that can not be spilled because the queue is full are counted.
+     */
+    @Test
+    public void testFullSpillQueueDropsSales() {
+        backendDown.set(true);
+        RegistryGuard guard = new RegistryGuard(backend::updateAccountingAsync, new MemorySpillQueue(2), 4, DEADLINE,
+                new CircuitBreaker(3, Duration.ofSeconds(1), now::get));
+        for (int saleID = 1; saleID <= 3; saleID++) {
+            guard.submit(sale(saleID)).join();
+        }
+        assertEquals(2, guard.getSpilledSales(), "The spill queue should be full.");
+        assertEquals(1, guard.getDroppedSales(), "The sale that did not fit should be counted.");
+    }
+
+    /**
+     * Verifies that sales spilled to disk are replayed after a restart, and that a sale spilled twice is booked once.
+     */
+    @Test
+    public void testDiskSpillReplaysAfterRestart(@TempDir Path directory) throws Exception {
+        backendDown.set(true);
+        try (SegmentFileQueue spillQueue = new SegmentFileQueue(directory)) {
+            RegistryGuard guard = new RegistryGuard(backend::updateAccountingAsync, spillQueue, 4, DEADLINE,
+                    new CircuitBreaker(3, Duration.ofSeconds(1), now::get));
+            guard.submit(sale(1)).join();
+            guard.submit(sale(2)).join();
+            guard.submit(sale(1)).join();
+        }
+        AccountingRegistry accountingRegistry = new AccountingRegistry();
+        try (SegmentFileQueue spillQueue = new SegmentFileQueue(directory)) {
+            assertEquals(3, spillQueue.size(), "The spilled sales should survive the restart.");
+            RegistryGuard guard = new RegistryGuard(accountingRegistry::updateAccountingAsync, spillQueue, 4, DEADLINE,
+                    new CircuitBreaker(3, Duration.ofSeconds(1), now::get));
+            guard.submit(sale(3)).join();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (guard.getSpilledSales() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, guard.getSpilledSales(), "The spilled sales should be replayed.");
+        }
+        assertEquals(3, accountingRegistry.getRevenueForLast(Duration.ofMinutes(1)).saleCount(),
+                "Every sale should be booked exactly once.");
+    }
+
+    private RegistryGuard guard(AccountingSystem accountingSystem, int maxConcurrentCalls) {
+        return new RegistryGuard(accountingSystem::updateAccountingAsync, new MemorySpillQueue(), maxConcurrentCalls,
+                DEADLINE, new CircuitBreaker(3, Duration.ofSeconds(1), now::get));
+    }
+
+    private void awaitBooked(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bookedSaleIDs.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, bookedSaleIDs.size(), "The expected number of sales should be booked.");
+    }
+
+    private static SaleDTO sale(long saleID) {
+        return new SaleDTO(saleID, List.of(), Amount.of(10), Amount.zero(), List.of(), 1, LocalDateTime.now());
+    }
+}
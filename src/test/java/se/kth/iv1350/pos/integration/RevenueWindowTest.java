@@ -0,0 +1,94 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link RevenueWindow} class.
+ * Covers sliding periods, reuse of ring slots, and concurrent recording.
+ */
+public class RevenueWindowTest {
+    private AtomicLong now;
+    private RevenueWindow revenueWindow;
+
+    /**
+     * Sets up a new RevenueWindow with one-second buckets covering one minute, and a controllable clock.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        revenueWindow = new RevenueWindow(Duration.ofSeconds(1), 60, now::get);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        revenueWindow = null;
+        now = null;
+    }
+
+    /**
+     * Tests that a query sums only the buckets within the requested period.
+     */
+    @Test
+    public void testSlidingPeriod() {
+        for (int second = 0; second < 30; second++) {
+            now.set(second * 1000L + 500);
+            revenueWindow.record(100, 20);
+        }
+        RevenueWindowDTO lastTenSeconds = revenueWindow.query(Duration.ofSeconds(10));
+        assertEquals(10, lastTenSeconds.saleCount(), "One sale per second should be counted for the last ten seconds.");
+        assertEquals(10.0, lastTenSeconds.revenue().getValue(), 0.001, "The revenue of the last ten seconds should be summed.");
+        assertEquals(2.0, lastTenSeconds.vat().getValue(), 0.001, "The VAT of the last ten seconds should be summed.");
+        assertEquals(30, revenueWindow.query(Duration.ofHours(1)).saleCount(), "A longer period should be limited to the ring.");
+    }
+
+    /**
+     * Tests that a slot reused after a whole ring starts from zero.
+     */
+    @Test
+    public void testSlotReuse() {
+        revenueWindow.record(100, 0);
+        now.set(60_000);
+        revenueWindow.record(300, 0);
+        RevenueWindowDTO lastMinute = revenueWindow.query(Duration.ofMinutes(1));
+        assertEquals(1, lastMinute.saleCount(), "The sale from a minute ago should have been replaced.");
+        assertEquals(3.0, lastMinute.revenue().getValue(), 0.001, "Only the new sale should be counted.");
+        now.set(200_000);
+        assertEquals(0, revenueWindow.query(Duration.ofMinutes(1)).saleCount(), "Old buckets should not be counted.");
+    }
+
+    /**
+     * Tests that sales recorded by many threads at the same time are all counted.
+     */
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        int threadCount = 8;
+        int salesPerThread = 50_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                for (int sale = 0; sale < salesPerThread; sale++) {
+                    revenueWindow.record(1, 0);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RevenueWindowDTO total = revenueWindow.query(Duration.ofSeconds(1));
+        assertEquals((long) threadCount * salesPerThread, total.saleCount(), "No concurrent sale should be lost.");
+    }
+}
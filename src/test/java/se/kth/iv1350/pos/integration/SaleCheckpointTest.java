@@ -0,0 +1,131 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SaleCheckpoint} class.
+ */
+public class SaleCheckpointTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 17, 9, 15, 30, 250_000_000);
+    private static final ItemDTO MILK = new ItemDTO("1", "Milk", "Whole milk 1 l", 15.9, 0.12);
+    private static final ItemDTO PHONE = new ItemDTO("4", "Phone", "Smartphone", 1250.0, 0.25);
+    @TempDir
+    Path directory;
+    private SaleCheckpoint checkpoint;
+
+    /**
+     * Opens a small checkpoint file in a temporary directory.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        checkpoint = open();
+    }
+
+    /**
+     * Closes the checkpoint after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        checkpoint.close();
+        checkpoint = null;
+    }
+
+    /**
+     * Verifies that a new file holds no sale.
+     */
+    @Test
+    public void testEmptyCheckpoint() {
+        assertNull(checkpoint.restore(), "A new checkpoint should hold no sale.");
+    }
+
+    /**
+     * Verifies that the lines of a sale are restored in order, with the last quantity of each line, after the file
+     * is opened again.
+     */
+    @Test
+    public void testRestoreAfterReopen() throws IOException {
+        checkpoint.startSale(7, START);
+        checkpoint.recordLine(MILK, 1);
+        checkpoint.recordLine(PHONE, 1);
+        checkpoint.recordLine(MILK, 2);
+        checkpoint.close();
+        checkpoint = open();
+        SaleCheckpointDTO sale = checkpoint.restore();
+        assertEquals(7, sale.saleID(), "The sale ID should be restored.");
+        assertEquals(START, sale.timeOfSale(), "The start time should be restored.");
+        assertEquals(List.of(new CheckpointLineDTO(MILK, 2), new CheckpointLineDTO(PHONE, 1)), sale.lines(),
+                "The lines should be restored in order with their last quantity.");
+    }
+
+    /**
+     * Verifies that a removed line is not restored, and that an item entered again is restored last.
+     */
+    @Test
+    public void testRemovedLine() {
+        checkpoint.startSale(7, START);
+        checkpoint.recordLine(MILK, 1);
+        checkpoint.recordLine(PHONE, 1);
+        checkpoint.recordLine(PHONE, 0);
+        assertEquals(List.of(new CheckpointLineDTO(MILK, 1)), checkpoint.restore().lines(), "The removed line should be gone.");
+        checkpoint.recordLine(MILK, 0);
+        checkpoint.recordLine(MILK, 3);
+        assertEquals(List.of(new CheckpointLineDTO(MILK, 3)), checkpoint.restore().lines(), "The line should be entered again.");
+    }
+
+    /**
+     * Verifies that a cleared checkpoint holds no sale, and that a new sale replaces the old one.
+     */
+    @Test
+    public void testClearAndNewSale() {
+        checkpoint.startSale(7, START);
+        checkpoint.recordLine(MILK, 1);
+        checkpoint.clear();
+        assertNull(checkpoint.restore(), "A paid sale should not be restored.");
+        assertFalse(checkpoint.recordLine(MILK, 2), "Lines should not be recorded without a sale.");
+        checkpoint.startSale(8, START);
+        checkpoint.recordLine(PHONE, 1);
+        assertEquals(List.of(new CheckpointLineDTO(PHONE, 1)), checkpoint.restore().lines(), "Only the new sale should be restored.");
+    }
+
+    /**
+     * Verifies that the log is compacted when it is full, keeping the current lines.
+     */
+    @Test
+    public void testCompaction() {
+        checkpoint.startSale(7, START);
+        for (int quantity = 1; quantity <= 1000; quantity++) {
+            assertTrue(checkpoint.recordLine(MILK, quantity), "Each change should be recorded.");
+            assertTrue(checkpoint.recordLine(PHONE, quantity), "Each change should be recorded.");
+        }
+        assertEquals(List.of(new CheckpointLineDTO(MILK, 1000), new CheckpointLineDTO(PHONE, 1000)),
+                checkpoint.restore().lines(), "The last quantities should survive compaction.");
+    }
+
+    /**
+     * Verifies that the checkpoint is dropped when the lines no longer fit in the file.
+     */
+    @Test
+    public void testDroppedWhenFull() {
+        checkpoint.startSale(7, START);
+        boolean recorded = true;
+        for (int i = 0; recorded && i < 1000; i++) {
+            recorded = checkpoint.recordLine(new ItemDTO("item-" + i, "Item", "Item", 1.0, 0.25), 1);
+        }
+        assertFalse(recorded, "A sale larger than the file should not fit.");
+        assertNull(checkpoint.restore(), "A sale that does not fit should not be restored.");
+    }
+
+    private SaleCheckpoint open() throws IOException {
+        return new SaleCheckpoint(directory.resolve("lane-1.checkpoint"), 4096);
+    }
+}
@@ -0,0 +1,151 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SalesAnalytics} class.
+ * Checks the documented accuracy bounds against exact counts of a skewed stream of sales.
+ */
+public class SalesAnalyticsTest {
+    private static final int TRACKED_ITEMS = 100;
+    private static final double EPSILON = 0.001;
+    private static final int DISTINCT_ITEMS = 5000;
+    private SalesAnalytics salesAnalytics;
+    private Map<String, Long> exactQuantities;
+    private Map<String, Long> exactRevenue;
+
+    /**
+     * Sets up a new SalesAnalytics instance and records a skewed stream of sales before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        salesAnalytics = new SalesAnalytics(TRACKED_ITEMS, EPSILON, 0.001);
+        exactQuantities = new HashMap<>();
+        exactRevenue = new HashMap<>();
+        Random random = new Random(7);
+        for (int sale = 0; sale < 20_000; sale++) {
+            List<SaleItemDTO> lines = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                int rank = (int) Math.pow(DISTINCT_ITEMS, random.nextDouble());
+                ItemDTO item = new ItemDTO("item" + rank, "Item", "Description", 5 + rank % 20, 0.25);
+                int quantity = 1 + random.nextInt(3);
+                lines.add(new SaleItemDTO(item, quantity, Amount.of(item.price() * quantity), Amount.zero()));
+                exactQuantities.merge(item.id(), (long) quantity, Long::sum);
+                exactRevenue.merge(item.id(), Math.round(item.price() * quantity * 100), Long::sum);
+            }
+            salesAnalytics.recordSale(new SaleDTO(sale, lines, Amount.zero(), Amount.zero(), List.of(), 1, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        salesAnalytics = null;
+        exactQuantities = null;
+        exactRevenue = null;
+    }
+
+    /**
+     * Tests that best sellers by quantity stay within the Space-Saving bounds, and that every item above the
+     * guaranteed share of the total is listed.
+     */
+    @Test
+    public void testTopItemsByQuantityWithinBounds() {
+        assertWithinSpaceSavingBounds(salesAnalytics.getTopItemsByQuantity(TRACKED_ITEMS), exactQuantities);
+    }
+
+    /**
+     * Tests that best sellers by revenue stay within the Space-Saving bounds, and that every item above the
+     * guaranteed share of the total is listed.
+     */
+    @Test
+    public void testTopItemsByRevenueWithinBounds() {
+        assertWithinSpaceSavingBounds(salesAnalytics.getTopItemsByRevenue(TRACKED_ITEMS), exactRevenue);
+    }
+
+    /**
+     * Tests that the true top items are found in the correct order when the stream is skewed.
+     */
+    @Test
+    public void testTopItemsMatchExactRanking() {
+        List<TopItemDTO> top = salesAnalytics.getTopItemsByQuantity(3);
+        List<String> expected = exactQuantities.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(3).map(Map.Entry::getKey).toList();
+        assertEquals(expected, top.stream().map(TopItemDTO::itemID).toList(), "The heaviest items should be ranked first.");
+    }
+
+    /**
+     * Tests that quantity estimates are never too low and at most epsilon of the total too high.
+     */
+    @Test
+    public void testQuantityEstimatesWithinBounds() {
+        long total = salesAnalytics.getTotalQuantity();
+        assertEquals(exactQuantities.values().stream().mapToLong(Long::longValue).sum(), total, "The total quantity should be exact.");
+        for (Map.Entry<String, Long> entry : exactQuantities.entrySet()) {
+            long estimate = salesAnalytics.estimateQuantity(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), "An estimate should never be below the true quantity.");
+            assertTrue(estimate - entry.getValue() <= EPSILON * total, "An estimate should be at most epsilon of the total too high.");
+        }
+        assertTrue(salesAnalytics.estimateQuantity("never sold") <= EPSILON * total, "An unsold item should be estimated close to zero.");
+    }
+
+    /**
+     * Tests that keys with the same {@link String#hashCode()} are not counted together.
+     */
+    @Test
+    public void testKeysWithEqualStringHashesAreSeparate() {
+        SalesAnalytics collisions = new SalesAnalytics();
+        ItemDTO item = new ItemDTO("Aa", "Item", "Description", 10, 0.25);
+        SaleItemDTO line = new SaleItemDTO(item, 1000, Amount.of(10_000), Amount.zero());
+        collisions.recordSale(new SaleDTO(1, List.of(line), Amount.zero(), Amount.zero(), List.of(), 1, LocalDateTime.now()));
+        assertEquals("Aa".hashCode(), "BB".hashCode(), "The keys should collide on String.hashCode.");
+        assertEquals(1000, collisions.estimateQuantity("Aa"), "The sold item should be estimated exactly.");
+        assertEquals(0, collisions.estimateQuantity("BB"), "A colliding key should not get the sold quantity.");
+    }
+
+    /**
+     * Tests that an empty instance returns no best sellers.
+     */
+    @Test
+    public void testNoSales() {
+        SalesAnalytics empty = new SalesAnalytics();
+        assertTrue(empty.getTopItemsByQuantity(10).isEmpty(), "No items should be listed before any sale.");
+        assertEquals(0, empty.estimateQuantity("1"), "No quantity should be estimated before any sale.");
+    }
+
+    private static void assertWithinSpaceSavingBounds(List<TopItemDTO> top, Map<String, Long> exact) {
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        for (TopItemDTO entry : top) {
+            long trueValue = exact.get(entry.itemID());
+            assertTrue(entry.estimate() >= trueValue, "An estimate should never be below the true value.");
+            assertTrue(entry.estimate() - entry.maxError() <= trueValue, "The true value should be within the reported error.");
+            assertTrue(entry.maxError() <= total / TRACKED_ITEMS, "The error should be at most the total divided by the tracked items.");
+        }
+        for (Map.Entry<String, Long> item : exact.entrySet()) {
+            if (item.getValue() > total / TRACKED_ITEMS) {
+                assertTrue(top.stream().anyMatch(entry -> entry.itemID().equals(item.getKey())),
+                        "Every item above the guaranteed share should be listed.");
+            }
+        }
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).estimate() >= top.get(i).estimate(), "Items should be listed highest first.");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link SalesStore} class.
+ * Covers each report, and that parallel aggregation over many lines matches a sequential sum.
+ */
+public class SalesStoreTest {
+    private static final ItemDTO PHONE = new ItemDTO("4", "Phone", "Smartphone", 40, 0.25);
+    private static final ItemDTO EGG = new ItemDTO("3", "Egg", "Free-range eggs", 30, 0.12);
+    private SalesStore salesStore;
+
+    /**
+     * Sets up a new SalesStore instance before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        salesStore = new SalesStore();
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        salesStore = null;
+    }
+
+    /**
+     * Tests that every report aggregates the appended lines.
+     */
+    @Test
+    public void testReports() {
+        salesStore.append(createSale(1, LocalDateTime.of(2026, 10, 19, 9, 15), line(PHONE, 2), line(EGG, 1)));
+        salesStore.append(createSale(2, LocalDateTime.of(2026, 10, 19, 14, 5), line(EGG, 3)));
+        assertEquals(3, salesStore.getLineCount(), "Every line should be stored.");
+        assertEquals(80.0, salesStore.getRevenuePerItem().get("4").getValue(), 0.001, "Revenue per item should match.");
+        assertEquals(4L, salesStore.getQuantityPerItem().get("3"), "Quantity per item should match.");
+        assertEquals(120.0, salesStore.getRevenuePerVatRate().get(0.12).getValue(), 0.001, "Revenue per VAT rate should match.");
+        assertEquals(16.0, salesStore.getVatPerVatRate().get(0.25).getValue(), 0.001, "VAT per VAT rate should match.");
+        Map<Integer, Amount> perHour = salesStore.getRevenuePerHour();
+        assertEquals(110.0, perHour.get(9).getValue(), 0.001, "Revenue per hour should match.");
+        assertEquals(90.0, perHour.get(14).getValue(), 0.001, "Revenue per hour should match.");
+        assertEquals(90.0, salesStore.getRevenuePerLane().get(2).getValue(), 0.001, "Revenue per lane should match.");
+    }
+
+    /**
+     * Tests that parallel aggregation over many lines gives the same result as a sequential sum.
+     */
+    @Test
+    public void testManyLinesMatchSequentialSum() {
+        Random random = new Random(42);
+        long[] expectedPerLane = new long[8];
+        for (int sale = 0; sale < 50_000; sale++) {
+            int lane = random.nextInt(expectedPerLane.length);
+            List<SaleItemDTO> lines = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int quantity = 1 + random.nextInt(5);
+                ItemDTO item = new ItemDTO("item" + random.nextInt(1000), "Item", "Description", 1 + random.nextInt(500) / 4.0, 0.25);
+                lines.add(line(item, quantity));
+                expectedPerLane[lane] += Math.round(item.price() * quantity * 100);
+            }
+            salesStore.append(createSale(lane, LocalDateTime.of(2026, 10, 19, 12, 0), lines.toArray(new SaleItemDTO[0])));
+        }
+        Map<Integer, Amount> perLane = salesStore.getRevenuePerLane();
+        for (int lane = 0; lane < expectedPerLane.length; lane++) {
+            assertEquals(expectedPerLane[lane], Math.round(perLane.get(lane).getValue() * 100), "Revenue per lane should match the sequential sum.");
+        }
+    }
+
+    /**
+     * Tests that sparse and negative lane IDs are reported by their own IDs, without sizing anything by them.
+     */
+    @Test
+    public void testSparseLaneIDs() {
+        salesStore.append(createSale(Integer.MAX_VALUE, LocalDateTime.of(2026, 10, 19, 9, 15), line(PHONE, 1)));
+        salesStore.append(createSale(-3, LocalDateTime.of(2026, 10, 19, 9, 15), line(EGG, 1)));
+        Map<Integer, Amount> perLane = salesStore.getRevenuePerLane();
+        assertEquals(2, perLane.size(), "Only the two lanes should be reported.");
+        assertEquals(40.0, perLane.get(Integer.MAX_VALUE).getValue(), 0.001, "The largest lane ID should be reported.");
+        assertEquals(30.0, perLane.get(-3).getValue(), 0.001, "A negative lane ID should be reported.");
+    }
+
+    private static SaleItemDTO line(ItemDTO item, int quantity) {
+        double total = item.price() * quantity;
+        return new SaleItemDTO(item, quantity, Amount.of(total), Amount.of(total * item.vatRate() / (1 + item.vatRate())));
+    }
+
+    private static SaleDTO createSale(int laneID, LocalDateTime timeOfSale, SaleItemDTO... lines) {
+        Amount total = Amount.zero();
+        for (SaleItemDTO line : lines) {
+            total = total.add(line.total());
+        }
+        return new SaleDTO(0, List.of(lines), total, Amount.zero(), List.of(), laneID, timeOfSale);
+    }
+}
@@ -0,0 +1,170 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+import se.kth.iv1350.pos.model.VatRateTotalDTO;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link SegmentFileQueue} class.
+ */
+public class SegmentFileQueueTest {
+    private static final int SEGMENT_BYTES = 1024;
+    @TempDir
+    Path directory;
+    private SegmentFileQueue queue;
+
+    /**
+     * Opens a queue with small segments in a temporary directory.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        queue = new SegmentFileQueue(directory, SEGMENT_BYTES, 64 * 1024);
+    }
+
+    /**
+     * Closes the queue after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        queue.close();
+        queue = null;
+    }
+
+    /**
+     * Verifies that a sale is read back with every field.
+     */
+    @Test
+    public void testSaleRoundTrip() {
+        SaleDTO sale = sale(42);
+        queue.offer(sale);
+        SaleDTO read = queue.peek(1).get(0);
+        assertEquals(sale.saleID(), read.saleID(), "The sale ID should be kept.");
+        assertEquals(sale.laneID(), read.laneID(), "The lane should be kept.");
+        assertEquals(sale.timeOfSale(), read.timeOfSale(), "The time of sale should be kept.");
+        assertEquals(sale.total().getValue(), read.total().getValue(), "The total should be kept.");
+        assertEquals(sale.items().get(0).item(), read.items().get(0).item(), "The item should be kept.");
+        assertEquals(sale.items().get(0).quantity(), read.items().get(0).quantity(), "The quantity should be kept.");
+        assertEquals(sale.vatRateTotals().get(0).vat().getValue(), read.vatRateTotals().get(0).vat().getValue(), "The VAT should be kept.");
+    }
+
+    /**
+     * Verifies that sales are read in order across segments, and that removed sales are not read again.
+     */
+    @Test
+    public void testOrderAcrossSegments() {
+        for (long saleID = 1; saleID <= 50; saleID++) {
+            assertTrue(queue.offer(sale(saleID)), "The sale should be added.");
+        }
+        assertTrue(segmentCount() > 1, "The sales should fill several segments.");
+        assertEquals(List.of(1L, 2L, 3L), saleIDs(queue.peek(3)), "The oldest sales should be read first.");
+        queue.remove(30);
+        assertEquals(20, queue.size(), "Removed sales should not be counted.");
+        assertEquals(31L, queue.peek(1).get(0).saleID(), "The head should follow the removed sales.");
+        assertEquals(20, queue.peek(100).size(), "Every remaining sale should be read.");
+    }
+
+    /**
+     * Verifies that the sales and the head position survive reopening the queue.
+     */
+    @Test
+    public void testSurvivesReopen() throws IOException {
+        for (long saleID = 1; saleID <= 20; saleID++) {
+            queue.offer(sale(saleID));
+        }
+        queue.remove(5);
+        queue.close();
+        queue = new SegmentFileQueue(directory, SEGMENT_BYTES, 64 * 1024);
+        assertEquals(15, queue.size(), "The remaining sales should be found again.");
+        assertEquals(6L, queue.peek(1).get(0).saleID(), "Removed sales should stay removed.");
+    }
+
+    /**
+     * Verifies that a partly written record at the end of the queue is cut off when the queue is opened.
+     */
+    @Test
+    public void testTornWriteIsCutOff() throws IOException {
+        queue.offer(sale(1));
+        queue.offer(sale(2));
+        queue.close();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        queue = new SegmentFileQueue(directory, SEGMENT_BYTES, 64 * 1024);
+        assertEquals(List.of(1L), saleIDs(queue.peek(10)), "Only the whole record should be kept.");
+        assertTrue(queue.offer(sale(3)), "New sales should be added after the whole records.");
+        assertEquals(List.of(1L, 3L), saleIDs(queue.peek(10)), "The new sale should follow the kept one.");
+    }
+
+    /**
+     * Verifies that drained segments are deleted and the disk usage goes back to zero when the queue is empty.
+     */
+    @Test
+    public void testDrainedSegmentsAreCompacted() {
+        for (long saleID = 1; saleID <= 50; saleID++) {
+            queue.offer(sale(saleID));
+        }
+        int segmentsBefore = segmentCount();
+        queue.remove(25);
+        assertTrue(segmentCount() < segmentsBefore, "Drained segments should be deleted.");
+        queue.remove(25);
+        assertEquals(0, queue.getDiskBytes(), "An empty queue should take no space.");
+        assertEquals(1, segmentCount(), "Only the segment for new sales should be left.");
+    }
+
+    /**
+     * Verifies that sales are refused when the files are full.
+     */
+    @Test
+    public void testRefusesWhenFull() throws IOException {
+        queue.close();
+        queue = new SegmentFileQueue(directory, SEGMENT_BYTES, 2 * SEGMENT_BYTES);
+        int added = 0;
+        while (queue.offer(sale(added))) {
+            added++;
+        }
+        assertTrue(queue.getDiskBytes() <= 2 * SEGMENT_BYTES, "The files should not grow past the limit.");
+        queue.remove(added);
+        assertTrue(queue.offer(sale(added)), "Sales should be accepted again when the queue is drained.");
+    }
+
+    private int segmentCount() {
+        return segments().size();
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).sorted().toList();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<Long> saleIDs(List<SaleDTO> sales) {
+        return sales.stream().map(SaleDTO::saleID).toList();
+    }
+
+    private static SaleDTO sale(long saleID) {
+        ItemDTO phone = new ItemDTO("4", "Phone", "Smartphone", 125.0, 0.25);
+        SaleItemDTO line = new SaleItemDTO(phone, 2, Amount.of(250.0), Amount.of(50.0));
+        return new SaleDTO(saleID, List.of(line), Amount.of(250.0), Amount.of(50.0),
+                List.of(new VatRateTotalDTO(0.25, Amount.of(250.0), Amount.of(50.0))), 3,
+                LocalDateTime.of(2024, 5, 17, 12, 30, 15, 123_000_000));
+    }
+}
@@ -0,0 +1,174 @@
+package se.kth.iv1350.pos.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.controller.Controller;
+import se.kth.iv1350.pos.model.Amount;
+import se.kth.iv1350.pos.model.SaleDTO;
+import se.kth.iv1350.pos.model.SaleItemDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ShardedInventory} class.
+ * Covers routing to the owning node, fan-out of sales over several nodes, and moving items when a node is added.
+ */
+public class ShardedInventoryTest {
+    private static final int ITEM_COUNT = 2000;
+    private InMemoryShardTransport transport;
+    private ShardedInventory inventory;
+
+    /**
+     * Sets up an inventory with three nodes holding a catalog of many items.
+     */
+    @BeforeEach
+    public void setUp() {
+        transport = new InMemoryShardTransport();
+        inventory = new ShardedInventory(transport, List.of("north", "south", "east"));
+        List<ItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(new ItemDTO("item" + i, "Item", "Description", i, 0.25));
+        }
+        inventory.updateCatalog(items);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            inventory.updateQuantity("item" + i, i);
+        }
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        inventory = null;
+        transport = null;
+    }
+
+    /**
+     * Tests that every item is stored on its owning node only, and that the items are spread over all nodes.
+     */
+    @Test
+    public void testItemsAreSpreadOverNodes() {
+        Map<String, Integer> itemsPerNode = new HashMap<>();
+        for (String nodeID : inventory.getNodeIDs()) {
+            itemsPerNode.put(nodeID, transport.getRegistry(nodeID).size());
+        }
+        assertEquals(ITEM_COUNT, itemsPerNode.values().stream().mapToInt(Integer::intValue).sum(), "Each item should be stored once.");
+        for (int count : itemsPerNode.values()) {
+            assertTrue(count > ITEM_COUNT / 6, "Each node should own a fair share of the items.");
+        }
+        String owner = inventory.findOwner("item42");
+        assertNotNull(transport.getRegistry(owner).findItemById("item42"), "The owner should hold the item.");
+    }
+
+    /**
+     * Tests that lookups through the inventory and through its catalog find items on every node.
+     */
+    @Test
+    public void testLookups() {
+        assertEquals(1234.0, inventory.findItemById("item1234").price(), "An item should be found on its node.");
+        assertNull(inventory.findItemById("missing"), "An unknown item should not be found.");
+        Map<String, ItemDTO> found = inventory.findItemsById(List.of("item1", "item2", "item3", "missing"));
+        assertEquals(3, found.size(), "Items on different nodes should be found in one call.");
+        ItemCatalog catalog = inventory.getCatalog();
+        inventory.updateCatalog(List.of(new ItemDTO("item1", "Item", "Description", 99, 0.25)));
+        assertEquals(1.0, catalog.findItemById("item1").price(), "An earlier catalog should keep the old price.");
+        assertEquals(99.0, inventory.getCatalog().findItemById("item1").price(), "A new catalog should see the new price.");
+        assertTrue(inventory.getCatalog().getVersion() > catalog.getVersion(), "A new catalog should have a higher version.");
+    }
+
+    /**
+     * Tests that a sale with items on several nodes updates the stock on every node.
+     */
+    @Test
+    public void testUpdateInventoryFansOut() {
+        List<SaleItemDTO> lines = new ArrayList<>();
+        for (int i = 100; i < 110; i++) {
+            assertTrue(inventory.reserve(7, "item" + i, 2), "Stock should be reserved on the owning node.");
+            lines.add(new SaleItemDTO(inventory.findItemById("item" + i), 2, Amount.of(2 * i), Amount.zero()));
+        }
+        inventory.updateInventory(new SaleDTO(7, lines, Amount.zero(), Amount.zero(), List.of(), 1, LocalDateTime.now()));
+        for (int i = 100; i < 110; i++) {
+            String itemID = "item" + i;
+            int quantity = transport.getRegistry(inventory.findOwner(itemID)).getQuantity(itemID);
+            assertEquals(i - 2, quantity, "The sold quantity should be taken out of stock on the owning node.");
+        }
+    }
+
+    /**
+     * Tests that adding a node moves about a fair share of the items to it, keeping every item and its stock.
+     */
+    @Test
+    public void testAddNodeRebalances() {
+        Map<String, String> ownersBefore = new HashMap<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            ownersBefore.put("item" + i, inventory.findOwner("item" + i));
+        }
+        inventory.addNode("west");
+        int moved = 0;
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            String itemID = "item" + i;
+            String owner = inventory.findOwner(itemID);
+            if (!owner.equals(ownersBefore.get(itemID))) {
+                assertEquals("west", owner, "Items should only move to the new node.");
+                moved++;
+            }
+            assertEquals((double) i, inventory.findItemById(itemID).price(), "Every item should still be found.");
+            int quantity = transport.getRegistry(owner).getQuantity(itemID);
+            assertEquals(i, quantity, "Every item should keep its stock.");
+        }
+        assertTrue(moved > ITEM_COUNT / 8 && moved < ITEM_COUNT / 2, "About a quarter of the items should move.");
+        int stored = 0;
+        for (String nodeID : inventory.getNodeIDs()) {
+            stored += transport.getRegistry(nodeID).size();
+        }
+        assertEquals(ITEM_COUNT, stored, "Moved items should be removed from their old nodes.");
+    }
+
+    /**
+     * Tests that stock reserved by an open sale stays reserved when its items move to a new node, and is released
+     * there when the sale is abandoned.
+     */
+    @Test
+    public void testAddNodeMovesReservations() {
+        for (int i = 1; i < 200; i++) {
+            assertTrue(inventory.reserve(9, "item" + i, i), "All stock of the item should be reserved.");
+        }
+        inventory.addNode("west");
+        int moved = 0;
+        for (int i = 1; i < 200; i++) {
+            String itemID = "item" + i;
+            if (inventory.findOwner(itemID).equals("west")) {
+                moved++;
+                assertEquals(0, transport.getRegistry("west").getAvailableQuantity(itemID), "Reserved stock should stay unavailable.");
+                assertFalse(inventory.reserve(10, itemID, 1), "Another sale should not get the reserved stock.");
+            }
+        }
+        assertTrue(moved > 0, "Some reserved items should move to the new node.");
+        inventory.releaseReservations(9);
+        for (int i = 1; i < 200; i++) {
+            String itemID = "item" + i;
+            assertEquals(i, transport.getRegistry(inventory.findOwner(itemID)).getAvailableQuantity(itemID),
+                    "Abandoning the sale should release its stock on the new owner.");
+        }
+    }
+
+    /**
+     * Tests that the controller works unchanged on a sharded inventory.
+     */
+    @Test
+    public void testControllerOnShardedInventory() {
+        Controller controller = new Controller(new RegistryCreator(inventory), new Printer());
+        controller.startSale();
+        assertNotNull(controller.enterItem("item10"), "An item should be entered from its node.");
+        assertNotNull(controller.enterItem("item1500"), "An item should be entered from its node.");
+        assertEquals(1510.0, controller.endSale().getValue(), 0.001, "The total should include both items.");
+    }
+}
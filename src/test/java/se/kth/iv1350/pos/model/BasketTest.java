@@ -0,0 +1,169 @@
+package se.kth.iv1350.pos.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.integration.ItemDTO;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Basket} class.
+ * Covers lookups with and without the hash index, insertion order, quantity changes, and removal of the last line.
+ */
+public class BasketTest {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private Basket basket;
+
+    /**
+     * Sets up a new Basket instance before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        basket = new Basket();
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        basket = null;
+    }
+
+    /**
+     * Verifies that lines are found by item ID in a small basket.
+     */
+    @Test
+    public void testFindInSmallBasket() {
+        ItemDTO item = createItem("item1");
+        basket.add(item, 1);
+        basket.add(createItem("item2"), 1);
+        assertSame(item, basket.find("item1").getItem(), "The added line should be found by its item ID.");
+        assertEquals(1, basket.positionOf("item2"), "The position should follow insertion order.");
+        assertNull(basket.find("missing"), "An unknown item ID should not be found.");
+    }
+
+    /**
+     * Verifies that lines are still found after the basket switches to the hash index.
+     */
+    @Test
+    public void testFindInLargeBasket() {
+        int lineCount = Basket.LINEAR_SCAN_LIMIT * 20;
+        for (int i = 0; i < lineCount; i++) {
+            add("item" + i);
+        }
+        assertEquals(lineCount, basket.size(), "All lines should be stored.");
+        for (int i = 0; i < lineCount; i++) {
+            assertEquals("item" + i, basket.find("item" + i).getItem().id(), "Every line should be found by its item ID.");
+        }
+        assertFalse(basket.contains("missing"), "An unknown item ID should not be found.");
+    }
+
+    /**
+     * Verifies that iteration and positional access follow insertion order.
+     */
+    @Test
+    public void testInsertionOrder() {
+        for (int i = 0; i < Basket.LINEAR_SCAN_LIMIT * 2; i++) {
+            add("item" + i);
+        }
+        int position = 0;
+        for (SaleItem line : basket) {
+            assertEquals("item" + position, line.getItem().id(), "Lines should be iterated in insertion order.");
+            assertSame(line.getItem(), basket.getItem(position), "Positional access should match iteration order.");
+            position++;
+        }
+        assertEquals("item" + (position - 1), basket.last().getItem().id(), "The last line should be the most recently added.");
+    }
+
+    /**
+     * Verifies that removing the last line keeps the remaining lines reachable.
+     */
+    @Test
+    public void testRemoveLast() {
+        int lineCount = Basket.LINEAR_SCAN_LIMIT * 4;
+        for (int i = 0; i < lineCount; i++) {
+            add("item" + i);
+        }
+        for (int i = lineCount - 1; i >= lineCount / 2; i--) {
+            basket.removeLast();
+            assertFalse(basket.contains("item" + i), "A removed line should no longer be found.");
+        }
+        for (int i = 0; i < lineCount / 2; i++) {
+            assertTrue(basket.contains("item" + i), "Remaining lines should still be found.");
+        }
+        add("item" + lineCount);
+        assertEquals("item" + lineCount, basket.last().getItem().id(), "A line added after removal should be last.");
+    }
+
+    /**
+     * Verifies that an empty basket has no last line and ignores removal.
+     */
+    @Test
+    public void testEmptyBasket() {
+        assertTrue(basket.isEmpty(), "A new basket should be empty.");
+        assertNull(basket.last(), "An empty basket should have no last line.");
+        basket.removeLast();
+        assertEquals(0, basket.size(), "Removing from an empty basket should do nothing.");
+    }
+
+    /**
+     * Verifies that the cached line total and VAT follow the quantity, and that negative quantities are ignored.
+     */
+    @Test
+    public void testLineTotalFollowsQuantity() {
+        int position = basket.add(createItem("item1"), 2);
+        assertEquals(2000, basket.getLineTotal(position), "The line total should be price times quantity, in öre.");
+        basket.setQuantity(position, 5);
+        assertEquals(5, basket.getQuantity(position), "The quantity should be updated.");
+        assertEquals(5000, basket.getLineTotal(position), "The line total should follow the quantity.");
+        assertEquals(1000, basket.getLineVat(position), "The line VAT should follow the quantity.");
+        basket.setQuantity(position, -100);
+        assertEquals(5, basket.getQuantity(position), "A negative quantity should be ignored.");
+        assertEquals(50.0, basket.find("item1").getLineTotal().getValue(), "A view should show the current line total.");
+        assertEquals(10.0, basket.find("item1").getLineTotalVat().getValue(), "A view should show the current line VAT.");
+    }
+
+    /**
+     * Verifies that reading the quantity, line total and line VAT of every line allocates nothing, since they are read
+     * from the cached arrays. Creating a {@link SaleItem} view does allocate, and is not measured.
+     */
+    @Test
+    public void testReadingLinesDoesNotAllocate() {
+        for (int i = 0; i < Basket.LINEAR_SCAN_LIMIT * 4; i++) {
+            add("item" + i);
+        }
+        long checksum = 0;
+        long allocated = Long.MAX_VALUE;
+        // The least of several rounds is taken, so that a round disturbed by the JIT compiler is not counted.
+        for (int round = 0; round < 5; round++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                checksum += readAllLines();
+            }
+            allocated = Math.min(allocated, THREADS.getCurrentThreadAllocatedBytes() - before);
+        }
+        assertTrue(checksum > 0, "The lines should have been read.");
+        assertEquals(0, allocated, "Reading cached line values should not allocate.");
+    }
+
+    private long readAllLines() {
+        long sum = 0;
+        for (int position = 0; position < basket.size(); position++) {
+            sum += basket.getQuantity(position) + basket.getLineTotal(position) + basket.getLineVat(position);
+        }
+        return sum + basket.positionOf("item3");
+    }
+
+    private void add(String itemID) {
+        basket.add(createItem(itemID), 1);
+    }
+
+    private ItemDTO createItem(String itemID) {
+        return new ItemDTO(itemID, "Item", "Description", 10.0, 0.25);
+    }
+}
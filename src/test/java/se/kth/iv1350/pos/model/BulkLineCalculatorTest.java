@@ -0,0 +1,65 @@
+package se.kth.iv1350.pos.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.integration.ItemDTO;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link BulkLineCalculator} class.
+ * Covers that the bulk calculation matches {@link SaleItem}.
+ */
+public class BulkLineCalculatorTest {
+    private static final int[] SWEDISH_VAT_RATES = {0, 600, 1200, 2500};
+    private static final int LINE_COUNT = 10_007;
+    private long[] prices;
+    private int[] quantities;
+    private int[] vatRates;
+
+    /**
+     * Sets up random lines before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        Random random = new Random(7);
+        prices = new long[LINE_COUNT];
+        quantities = new int[LINE_COUNT];
+        vatRates = new int[LINE_COUNT];
+        for (int i = 0; i < LINE_COUNT; i++) {
+            prices[i] = 1 + random.nextInt(500_000);
+            quantities[i] = 1 + random.nextInt(100);
+            vatRates[i] = SWEDISH_VAT_RATES[random.nextInt(SWEDISH_VAT_RATES.length)];
+        }
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        prices = null;
+        quantities = null;
+        vatRates = null;
+    }
+
+    /**
+     * Verifies that the bulk calculation matches the line totals and VAT of {@link SaleItem}.
+     */
+    @Test
+    public void testMatchesSaleItem() {
+        int lines = 200;
+        long[] totals = new long[lines];
+        long[] vats = new long[lines];
+        BulkLineCalculator.create().calculate(prices, quantities, vatRates, totals, vats, lines);
+        for (int i = 0; i < lines; i++) {
+            ItemDTO item = new ItemDTO("item", "Item", "Description", prices[i] / 100.0, vatRates[i] / 10_000.0);
+            SaleItem saleItem = new SaleItem(item, quantities[i]);
+            assertEquals(saleItem.getLineTotal().getExactValue().movePointRight(2).longValueExact(), totals[i], "Line total should match SaleItem.");
+            assertEquals(saleItem.getLineTotalVat().getExactValue().movePointRight(2).longValueExact(), vats[i], "Line VAT should match SaleItem.");
+        }
+    }
+}
@@ -5,7 +5,12 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Unit tests for the {@link CashRegister} class.
@@ -43,4 +48,37 @@ public class CashRegisterTest {
         assertEquals(expectedBalance.getValue(), actualBalance.getValue(),
                 "Balance was not correctly updated after updateBalance().");
     }
+
+    /**
+     * Tests that cash is paid out only if the register holds enough.
+     */
+    @Test
+    public void testPayOut() {
+        assertTrue(cashRegister.payOut(Amount.of(400)), "An amount within the balance should be paid out.");
+        assertEquals(600.0, cashRegister.getBalance().getValue(), 0.001, "The balance should be reduced.");
+        assertFalse(cashRegister.payOut(Amount.of(601)), "An amount above the balance should not be paid out.");
+        assertEquals(600.0, cashRegister.getBalance().getValue(), 0.001, "The balance should be unchanged.");
+    }
+
+    /**
+     * Tests that no update is lost when several threads update the balance at the same time.
+     */
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    cashRegister.updateBalance(Amount.of(0.25));
+                    cashRegister.payOut(Amount.of(0.10));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("7000.00 SEK", cashRegister.getBalance().toString(), "Every update should be counted.");
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,88 @@
+package se.kth.iv1350.pos.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CashRegisters} class.
+ */
+public class CashRegistersTest {
+    private CashRegisters cashRegisters;
+
+    /**
+     * Creates the cash registers of a store before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        cashRegisters = new CashRegisters();
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        cashRegisters = null;
+    }
+
+    /**
+     * Verifies that each lane has one cash register, opened with the initial balance.
+     */
+    @Test
+    public void testOneRegisterPerLane() {
+        CashRegister lane = cashRegisters.getCashRegister(2);
+        assertSame(lane, cashRegisters.getCashRegister(2), "A lane should keep its register.");
+        assertEquals(2, lane.getLaneID(), "The register should belong to the lane.");
+        cashRegisters.getCashRegister(1).updateBalance(Amount.of(50));
+        TillCountDTO count = cashRegisters.countTills();
+        assertEquals(List.of(1, 2), List.copyOf(count.balancePerLane().keySet()), "Every lane should be counted in order.");
+        assertEquals("2050.00 SEK", count.total().toString(), "The total should include every lane.");
+    }
+
+    /**
+     * Verifies that a till count never shows a later update without an earlier one, while a lane pays into lane 1
+     * and then into lane 2 over and over.
+     */
+    @Test
+    public void testTillCountIsConsistent() throws InterruptedException {
+        CashRegister first = cashRegisters.getCashRegister(1);
+        CashRegister second = cashRegisters.getCashRegister(2);
+        Thread payments = new Thread(() -> {
+            for (int i = 0; i < 50_000; i++) {
+                first.updateBalance(Amount.of(1));
+                second.updateBalance(Amount.of(1));
+            }
+        });
+        payments.start();
+        while (payments.isAlive()) {
+            Map<Integer, Amount> balances = cashRegisters.countTills().balancePerLane();
+            double difference = balances.get(1).getValue() - balances.get(2).getValue();
+            assertTrue(difference == 0 || difference == 1, "Lane 1 should be paid first, or equal: " + difference);
+        }
+        payments.join();
+    }
+
+    /**
+     * Verifies that lanes whose takings differ from the booked revenue are flagged, including lanes only one side
+     * knows about.
+     */
+    @Test
+    public void testReconcile() {
+        cashRegisters.getCashRegister(1).updateBalance(Amount.of(120));
+        cashRegisters.getCashRegister(2).updateBalance(Amount.of(80));
+        cashRegisters.getCashRegister(3).updateBalance(Amount.of(10));
+        List<LaneReconciliationDTO> result = cashRegisters.reconcile(Map.of(1, Amount.of(120), 2, Amount.of(60), 4, Amount.of(5)));
+        assertEquals(List.of(1, 2, 3, 4), result.stream().map(LaneReconciliationDTO::laneID).toList(), "Every lane should be reconciled in order.");
+        assertTrue(result.get(0).balanced(), "Matching takings should balance.");
+        assertFalse(result.get(1).balanced(), "Missing revenue should be flagged.");
+        assertEquals("20.00 SEK", result.get(1).difference().toString(), "The difference should be shown.");
+        assertFalse(result.get(2).balanced(), "A lane without booked revenue should be flagged.");
+        assertEquals("-5.00 SEK", result.get(3).difference().toString(), "Revenue without takings should be flagged.");
+    }
+}
@@ -0,0 +1,107 @@
+package se.kth.iv1350.pos.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.integration.ItemDTO;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Refund} class.
+ */
+public class RefundTest {
+    private static final ItemDTO PHONE = new ItemDTO("4", "Phone", "Smartphone", 40, 0.25);
+    private static final ItemDTO EGG = new ItemDTO("3", "Egg", "Free-range eggs", 30, 0.12);
+    private CashRegister cashRegister;
+    private SaleDTO originalSale;
+
+    /**
+     * Creates a paid sale of two phones and three eggs before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        cashRegister = new CashRegister();
+        Sale sale = new Sale(cashRegister);
+        sale.addItems(List.of(PHONE, EGG), new int[]{2, 3});
+        sale.pay(Amount.of(500));
+        originalSale = sale.toDTO();
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        cashRegister = null;
+        originalSale = null;
+    }
+
+    /**
+     * Verifies that returning every item refunds exactly the total and VAT of the original sale.
+     */
+    @Test
+    public void testFullRefundMatchesSale() {
+        Refund refund = new Refund(cashRegister, originalSale, Map.of());
+        assertTrue(refund.addItem("3", 3), "The eggs should be returned.");
+        assertTrue(refund.addItem("4", 2), "The phones should be returned.");
+        SaleDTO refundDTO = refund.toDTO();
+        assertEquals(originalSale.total().toString(), refundDTO.total().toString(), "The whole total should be refunded.");
+        assertEquals(originalSale.totalVat().toString(), refundDTO.totalVat().toString(), "The whole VAT should be refunded.");
+        assertNotEquals(originalSale.saleID(), refundDTO.saleID(), "The refund should have an ID of its own.");
+        assertEquals(originalSale.saleID(), refund.getOriginalSaleID(), "The original sale should be kept.");
+    }
+
+    /**
+     * Verifies that no more can be returned than was sold and not already returned.
+     */
+    @Test
+    public void testQuantityIsLimited() {
+        Refund refund = new Refund(cashRegister, originalSale, Map.of("3", 2));
+        assertFalse(refund.addItem("3", 2), "More eggs than remain should not be returned.");
+        assertTrue(refund.addItem("3", 1), "The remaining egg should be returned.");
+        assertFalse(refund.addItem("3", 1), "The egg should not be returned twice.");
+        assertFalse(refund.addItem("1", 1), "An item that was not sold should not be returned.");
+        assertFalse(refund.addItem("4", 0), "A quantity below one should not be returned.");
+        assertEquals(30.0, refund.getTotal().getValue(), 0.001, "Only the returned egg should be refunded.");
+    }
+
+    /**
+     * Verifies that the refund is paid out from the cash register once, and only if it holds enough cash.
+     */
+    @Test
+    public void testPayOut() {
+        Refund empty = new Refund(cashRegister, originalSale, Map.of());
+        assertNull(empty.payOut(), "An empty refund should not be paid out.");
+        Refund refund = new Refund(cashRegister, originalSale, Map.of());
+        refund.addItem("4", 1);
+        double balance = cashRegister.getBalance().getValue();
+        assertEquals(40.0, refund.payOut().getValue(), 0.001, "The phone should be paid out.");
+        assertEquals(balance - 40, cashRegister.getBalance().getValue(), 0.001, "The cash should leave the register.");
+        assertNull(refund.payOut(), "A refund should be paid out once.");
+        assertFalse(refund.addItem("4", 1), "No items should be added after the payout.");
+        cashRegister.payOut(cashRegister.getBalance());
+        Refund uncovered = new Refund(cashRegister, originalSale, Map.of());
+        uncovered.addItem("4", 1);
+        assertFalse(uncovered.canPayOut(), "An empty register should not cover the refund.");
+        assertNull(uncovered.payOut(), "An empty register should not pay out.");
+    }
+
+    /**
+     * Verifies that a cancelled payout puts the cash back in the register.
+     */
+    @Test
+    public void testCancelPayOut() {
+        Refund refund = new Refund(cashRegister, originalSale, Map.of());
+        refund.addItem("4", 1);
+        assertFalse(refund.cancelPayOut(), "A refund that is not paid out should not be cancelled.");
+        double balance = cashRegister.getBalance().getValue();
+        refund.payOut();
+        assertTrue(refund.cancelPayOut(), "A paid out refund should be cancelled.");
+        assertEquals(balance, cashRegister.getBalance().getValue(), 0.001, "The cash should be back in the register.");
+        assertFalse(refund.cancelPayOut(), "A payout should be cancelled once.");
+    }
+}
@@ -6,10 +6,11 @@ import org.junit.jupiter.api.Test;
 import se.kth.iv1350.pos.integration.ItemDTO;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * Unit tests for the {@link SaleItem} class.
- * Covers line total calculation, VAT edge cases, quantity handling, and DTO conversion.
+ * Covers line total calculation, VAT edge cases, and DTO conversion.
  */
 public class SaleItemTest {
     private SaleItem saleItem;
@@ -33,16 +34,6 @@ public class SaleItemTest {
         testItem = null;
     }
 
-    /**
-     * Verifies that negative quantity does not decrease below zero.
-     */
-    @Test
-    public void testNegativeQuantityNotAllowed() {
-        int before = saleItem.getQuantity();
-        saleItem.updateQuantity(-100);
-        assertEquals(before, saleItem.getQuantity(), "Quantity should not decrease below zero.");
-    }
-
     /**
      * Verifies that toDTO returns correct data.
      */
@@ -52,4 +43,24 @@ public class SaleItemTest {
         assertEquals(saleItem.getItem(), dto.item(), "DTO item should match.");
         assertEquals(saleItem.getQuantity(), dto.quantity(), "DTO quantity should match.");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Verifies that the line total and line VAT are calculated exactly.
+     */
+    @Test
+    public void testLineTotals() {
+        assertEquals(200.0, saleItem.getLineTotal().getValue(), "Line total should be price times quantity.");
+        assertEquals(40.0, saleItem.getLineTotalVat().getValue(), "Line VAT should be extracted from the VAT-included price.");
+    }
+
+    /**
+     * Verifies that a view created from a known line total and VAT shows them unchanged.
+     */
+    @Test
+    public void testKnownLineTotal() {
+        SaleItem view = new SaleItem(testItem, 5, 50000, 10000);
+        assertSame(view.getLineTotal(), view.getLineTotal(), "Line total should be created once per view.");
+        assertEquals(500.0, view.getLineTotal().getValue(), "Line total should be the known total.");
+        assertEquals(100.0, view.getLineTotalVat().getValue(), "Line VAT should be the known VAT.");
+    }
+}
@@ -5,7 +5,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import se.kth.iv1350.pos.integration.ItemDTO;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -39,7 +45,7 @@ public class SaleTest {
         ItemDTO testItem = new ItemDTO("test1", "Test Item", "Test Description", 100.0, 0.0);
         sale.addItem(testItem);
         assertEquals(100.0, sale.getTotalCost().getValue(), 0.001, "Total cost should be updated after adding item.");
-        assertTrue(sale.getItems().containsKey("test1"), "Item should be present in the sale after adding.");
+        assertTrue(sale.getItems().contains("test1"), "Item should be present in the sale after adding.");
     }
 
     /**
@@ -51,7 +57,7 @@ public class SaleTest {
         sale.addItem(testItem);
         sale.addItem(testItem);
         assertEquals(200.0, sale.getTotalCost().getValue(), 0.001, "Total should double after adding the same item twice.");
-        assertEquals(2, sale.getItems().get("test1").getQuantity(), "Quantity should be 2 after adding the same item twice.");
+        assertEquals(2, sale.getItems().find("test1").getQuantity(), "Quantity should be 2 after adding the same item twice.");
     }
 
     /**
@@ -103,7 +109,7 @@ public class SaleTest {
         ItemDTO testItem = new ItemDTO("test1", "Test Item", "Test Description", 100.0, 0.0);
         sale.addItem(testItem);
         assertEquals(100.0, sale.getTotalCost().getValue(), 0.001, "Total cost should be updated after adding item.");
-        assertTrue(sale.getItems().containsKey("test1"), "Item should be present in the sale after adding.");
+        assertTrue(sale.getItems().contains("test1"), "Item should be present in the sale after adding.");
     }
 
     @Test
@@ -114,4 +120,116 @@ public class SaleTest {
         sale.updateQuantity(0);
         assertEquals(0, sale.getTotalCost().getValue(), 0.001, "Total should not change after adding zero quantity.");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Verifies that totals are grouped per VAT rate and that the VAT is extracted once per rate.
+     */
+    @Test
+    public void testVatRateTotals() {
+        ItemDTO food = new ItemDTO("food", "Food", "Desc", 10.01, 0.12);
+        ItemDTO phone = new ItemDTO("phone", "Phone", "Desc", 125.0, 0.25);
+        for (int i = 0; i < 3; i++) {
+            sale.addItem(food);
+        }
+        sale.addItem(phone);
+        List<VatRateTotalDTO> vatRateTotals = sale.toDTO().vatRateTotals();
+        assertEquals(2, vatRateTotals.size(), "There should be one bucket per VAT rate.");
+        assertEquals(0.12, vatRateTotals.get(0).vatRate(), "Buckets should be ordered by VAT rate.");
+        assertEquals(30.03, vatRateTotals.get(0).total().getValue(), "Bucket total should sum the lines with that rate.");
+        assertEquals(3.22, vatRateTotals.get(0).vat().getValue(), "Bucket VAT should be extracted from the bucket total.");
+        assertEquals(25.0, vatRateTotals.get(1).vat().getValue(), "Bucket VAT should be extracted from the bucket total.");
+        assertEquals(28.22, sale.getTotalVat().getValue(), "Total VAT should be the sum of the bucket VATs.");
+    }
+
+    /**
+     * Verifies that removing the last line removes its amount from its VAT bucket.
+     */
+    @Test
+    public void testVatRateTotalsAfterRemovingLine() {
+        sale.addItem(new ItemDTO("food", "Food", "Desc", 10.0, 0.12));
+        sale.addItem(new ItemDTO("phone", "Phone", "Desc", 125.0, 0.25));
+        sale.updateQuantity(0);
+        List<VatRateTotalDTO> vatRateTotals = sale.toDTO().vatRateTotals();
+        assertEquals(1, vatRateTotals.size(), "An emptied bucket should not be listed.");
+        assertEquals(10.0, sale.getTotalCost().getValue(), "Total should only include the remaining line.");
+    }
+
+    /**
+     * Verifies that a batch of items is added with the correct quantities and totals.
+     */
+    @Test
+    public void testAddItems() {
+        ItemDTO item1 = new ItemDTO("item1", "Item 1", "Desc 1", 50.0, 0.12);
+        ItemDTO item2 = new ItemDTO("item2", "Item 2", "Desc 2", 30.0, 0.25);
+        sale.addItem(item1);
+        sale.addItems(List.of(item1, item2), new int[]{2, 3});
+        assertEquals(3, sale.getItems().find("item1").getQuantity(), "Batch quantity should be added to an existing line.");
+        assertEquals(3, sale.getItems().find("item2").getQuantity(), "A new line should get the batch quantity.");
+        assertEquals(240.0, sale.getTotalCost().getValue(), 0.001, "Total should include the whole batch.");
+    }
+
+    /**
+     * Verifies that a paid sale shares one snapshot, while an unpaid sale builds a new one for every call.
+     */
+    @Test
+    public void testSnapshotIsSharedAfterPayment() {
+        sale.addItem(new ItemDTO("test1", "Test Item", "Test Description", 100.0, 0.0));
+        assertNotSame(sale.toDTO(), sale.toDTO(), "An unpaid sale can still change and should not be cached.");
+        sale.pay(Amount.of(200));
+        SaleDTO snapshot = sale.toDTO();
+        assertSame(snapshot, sale.toDTO(), "A paid sale should return the same snapshot every time.");
+        assertEquals(1, snapshot.items().size(), "The snapshot should contain the sale's items.");
+    }
+
+    /**
+     * Verifies that items can not be changed after the sale is paid.
+     */
+    @Test
+    public void testPaidSaleIsFrozen() {
+        ItemDTO testItem = new ItemDTO("test1", "Test Item", "Test Description", 100.0, 0.0);
+        sale.addItem(testItem);
+        sale.pay(Amount.of(200));
+        assertNull(sale.addItem(testItem), "Adding an item to a paid sale should return null.");
+        assertNull(sale.updateQuantity(5), "Updating quantity of a paid sale should return null.");
+        sale.addItems(List.of(testItem), new int[]{3});
+        assertEquals(100.0, sale.getTotalCost().getValue(), 0.001, "Total of a paid sale should not change.");
+    }
+
+    /**
+     * Verifies that every sale gets its own ID, which is carried by its snapshot.
+     */
+    @Test
+    public void testSaleIDIsUnique() {
+        Sale other = new Sale(new CashRegister());
+        assertNotEquals(sale.getSaleID(), other.getSaleID(), "Two sales should not share an ID.");
+        assertEquals(sale.getSaleID(), sale.toDTO().saleID(), "The snapshot should carry the sale ID.");
+    }
+
+    /**
+     * Verifies that the last item is the most recently entered line.
+     */
+    @Test
+    public void testGetLastItem() {
+        assertNull(sale.getLastItem(), "An empty sale should have no last item.");
+        sale.addItem(new ItemDTO("test1", "Test Item", "Test Description", 100.0, 0.0));
+        sale.addItem(new ItemDTO("test2", "Other Item", "Test Description", 50.0, 0.0));
+        sale.addItem(new ItemDTO("test2", "Other Item", "Test Description", 50.0, 0.0));
+        assertEquals("test2", sale.getLastItem().item().id(), "The last item should be the most recently entered line.");
+        assertEquals(2, sale.getLastItem().quantity(), "The last item should have the line's quantity.");
+    }
+
+    /**
+     * Verifies that a sale recreated with its ID and lines has exactly the same totals as the original.
+     */
+    @Test
+    public void testRecreatedSaleHasSameTotals() {
+        ItemDTO milk = new ItemDTO("1", "Milk", "Whole milk", 15.9, 0.12);
+        ItemDTO phone = new ItemDTO("4", "Phone", "Smartphone", 1249.99, 0.25);
+        sale.addItem(milk);
+        sale.addItem(phone);
+        sale.addItem(milk);
+        Sale recreated = new Sale(new CashRegister(), sale.getSaleID(), sale.getTimeOfSale());
+        recreated.addItems(List.of(milk, phone), new int[]{sale.findItem("1").quantity(), sale.findItem("4").quantity()});
+        assertEquals(sale.toDTO().toString(), recreated.toDTO().toString(), "The recreated sale should have exactly the same lines and totals.");
+    }
+}
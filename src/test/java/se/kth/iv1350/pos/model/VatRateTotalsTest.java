@@ -0,0 +1,73 @@
+package se.kth.iv1350.pos.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link VatRateTotals} class.
+ * Covers the totals per VAT rate, and that the cached totals are read without allocating until the next change.
+ */
+public class VatRateTotalsTest {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private VatRateTotals vatRateTotals;
+
+    /**
+     * Sets up totals with lines at two VAT rates before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        vatRateTotals = new VatRateTotals();
+        vatRateTotals.add(0.25, 10_000);
+        vatRateTotals.add(0.12, 5_600);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        vatRateTotals = null;
+    }
+
+    /**
+     * Verifies that the total VAT is extracted per rate from the bucket totals.
+     */
+    @Test
+    public void testTotals() {
+        assertEquals(156.0, vatRateTotals.getTotal().getValue(), 0.001, "The total should be the sum of the lines.");
+        assertEquals(26.0, vatRateTotals.getTotalVat().getValue(), 0.001, "The VAT should be extracted per rate.");
+        assertEquals(2, vatRateTotals.toDTOs().size(), "There should be one total per rate.");
+    }
+
+    /**
+     * Verifies that the totals are calculated once per change, so reading them again allocates nothing, and that
+     * they follow the next change.
+     */
+    @Test
+    public void testReadingTotalsDoesNotAllocate() {
+        Amount total = vatRateTotals.getTotal();
+        Amount totalVat = vatRateTotals.getTotalVat();
+        long allocated = Long.MAX_VALUE;
+        // The least of several rounds is taken, so that a round disturbed by the JIT compiler is not counted.
+        for (int round = 0; round < 5; round++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                vatRateTotals.getTotal();
+                vatRateTotals.getTotalVat();
+            }
+            allocated = Math.min(allocated, THREADS.getCurrentThreadAllocatedBytes() - before);
+        }
+        assertEquals(0, allocated, "Reading cached totals should not allocate.");
+        assertSame(total, vatRateTotals.getTotal(), "The total should be cached between changes.");
+        assertSame(totalVat, vatRateTotals.getTotalVat(), "The VAT should be cached between changes.");
+        vatRateTotals.subtract(0.25, 10_000);
+        assertEquals(56.0, vatRateTotals.getTotal().getValue(), 0.001, "The total should follow a change.");
+        assertEquals(6.0, vatRateTotals.getTotalVat().getValue(), 0.001, "The VAT should follow a change.");
+    }
+}
@@ -0,0 +1,117 @@
+package se.kth.iv1350.pos.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link TimerWheel} class.
+ * Covers expiry within one turn and after several turns, cancelling, and advancing after a long pause.
+ */
+public class TimerWheelTest {
+    private static final long TICK_MILLIS = 100;
+    private static final int SLOT_COUNT = 8;
+    private AtomicLong now;
+    private List<String> expired;
+    private TimerWheel<String> timerWheel;
+
+    /**
+     * Sets up a new TimerWheel with a controllable clock before each test.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        expired = new ArrayList<>();
+        timerWheel = new TimerWheel<>(TICK_MILLIS, SLOT_COUNT, now::get, expired::add);
+    }
+
+    /**
+     * Cleans up after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        timerWheel = null;
+        expired = null;
+        now = null;
+    }
+
+    /**
+     * Tests that an element expires when its delay has passed, and not before.
+     */
+    @Test
+    public void testExpiresAfterDelay() {
+        timerWheel.schedule("a", 300);
+        now.set(200);
+        assertEquals(0, timerWheel.advance(), "The element should not expire before its delay.");
+        now.set(300);
+        assertEquals(1, timerWheel.advance(), "The element should expire when its delay has passed.");
+        assertEquals(List.of("a"), expired, "The expiry action should get the element.");
+        assertEquals(0, timerWheel.size(), "No element should be pending after expiry.");
+    }
+
+    /**
+     * Tests that delays longer than one turn of the wheel wait for the right turn.
+     */
+    @Test
+    public void testExpiresAfterSeveralTurns() {
+        long delay = TICK_MILLIS * SLOT_COUNT * 3 + 200;
+        timerWheel.schedule("late", delay);
+        for (long time = TICK_MILLIS; time < delay; time += TICK_MILLIS) {
+            now.set(time);
+            timerWheel.advance();
+        }
+        assertTrue(expired.isEmpty(), "The element should not expire in an earlier turn.");
+        now.set(delay);
+        timerWheel.advance();
+        assertEquals(List.of("late"), expired, "The element should expire in its own turn.");
+    }
+
+    /**
+     * Tests that a cancelled element never expires.
+     */
+    @Test
+    public void testCancel() {
+        TimerWheel.Timeout<String> timeout = timerWheel.schedule("cancelled", 100);
+        timerWheel.schedule("kept", 100);
+        assertTrue(timeout.cancel(), "A pending element should be cancelled.");
+        assertFalse(timeout.cancel(), "An element should only be cancelled once.");
+        now.set(1000);
+        timerWheel.advance();
+        assertEquals(List.of("kept"), expired, "Only the element that was not cancelled should expire.");
+    }
+
+    /**
+     * Tests that advancing after a pause longer than several turns expires exactly the elements that are due.
+     */
+    @Test
+    public void testAdvanceAfterLongPause() {
+        for (int i = 1; i <= 100; i++) {
+            timerWheel.schedule("element" + i, i * TICK_MILLIS);
+        }
+        now.set(50 * TICK_MILLIS);
+        assertEquals(50, timerWheel.advance(), "Every element due within the pause should expire.");
+        assertEquals(50, timerWheel.size(), "Elements not yet due should stay pending.");
+        now.set(100 * TICK_MILLIS);
+        assertEquals(50, timerWheel.advance(), "The remaining elements should expire when due.");
+    }
+
+    /**
+     * Tests that many elements can be scheduled and expired.
+     */
+    @Test
+    public void testManyElements() {
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            timerWheel.schedule("element", (i % 1000) * TICK_MILLIS);
+        }
+        assertEquals(count, timerWheel.size(), "Every element should be pending.");
+        now.set(1000 * TICK_MILLIS);
+        assertEquals(count, timerWheel.advance(), "Every element should expire.");
+    }
+}
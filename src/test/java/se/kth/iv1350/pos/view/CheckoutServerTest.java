@@ -0,0 +1,134 @@
+package se.kth.iv1350.pos.view;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.iv1350.pos.controller.Controller;
+import se.kth.iv1350.pos.controller.SaleMonitor;
+import se.kth.iv1350.pos.integration.InMemoryShardTransport;
+import se.kth.iv1350.pos.integration.ItemDTO;
+import se.kth.iv1350.pos.integration.Printer;
+import se.kth.iv1350.pos.integration.RegistryCreator;
+import se.kth.iv1350.pos.integration.ShardedInventory;
+import se.kth.iv1350.pos.model.CashRegisters;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CheckoutServer} class.
+ */
+public class CheckoutServerTest {
+    private static final int LANES = 10_000;
+    private static final int SALES_IN_FLIGHT = 100;
+    private CheckoutServer server;
+    private HttpClient client;
+
+    /**
+     * Starts a server on a free port, whose inventory holds enough eggs for every lane.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        ShardedInventory inventory = new ShardedInventory(new InMemoryShardTransport(), List.of("store"));
+        inventory.updateCatalog(List.of(new ItemDTO("3", "Egg", "Free-range \"organic\" eggs", 30, 0.12)));
+        inventory.updateQuantity("3", 10 * LANES);
+        RegistryCreator registryCreator = new RegistryCreator(inventory);
+        SaleMonitor saleMonitor = new SaleMonitor();
+        CashRegisters cashRegisters = new CashRegisters();
+        server = new CheckoutServer(laneID -> new Controller(registryCreator, new Printer(), saleMonitor, null,
+                cashRegisters, laneID), 0);
+        client = HttpClient.newHttpClient();
+    }
+
+    /**
+     * Stops the server after each test.
+     */
+    @AfterEach
+    public void tearDown() {
+        server.close();
+        server = null;
+        client = null;
+    }
+
+    /**
+     * Verifies that a whole sale is made through the endpoints, with compact JSON answers.
+     */
+    @Test
+    public void testSale() throws Exception {
+        assertEquals("{\"started\":true}", post("/lanes/1/sale").body(), "The sale should be started.");
+        assertEquals("{\"id\":\"3\",\"name\":\"Egg\",\"price\":30.00,\"vatRate\":0.12,\"quantity\":1,\"total\":30.00,\"totalVat\":3.21}",
+                post("/lanes/1/items?id=3").body(), "The entered item should be described.");
+        assertTrue(post("/lanes/1/quantity?value=3").body().contains("\"quantity\":3"), "The quantity should be set.");
+        assertEquals("{\"total\":90.00}", post("/lanes/1/end").body(), "The total should be given.");
+        assertEquals("{\"change\":10.00}", post("/lanes/1/payment?amount=100").body(), "The change should be given.");
+    }
+
+    /**
+     * Verifies that refused and malformed requests get error answers, and that lanes are independent.
+     */
+    @Test
+    public void testErrors() throws Exception {
+        assertEquals(409, post("/lanes/2/payment?amount=100").statusCode(), "A payment without a sale should be refused.");
+        post("/lanes/2/sale");
+        assertEquals(409, post("/lanes/2/items?id=unknown").statusCode(), "An unknown item should be refused.");
+        assertEquals(400, post("/lanes/2/quantity?value=many").statusCode(), "An invalid quantity should be a bad request.");
+        assertEquals(404, post("/lanes/two/sale").statusCode(), "An invalid lane should not be found.");
+        assertEquals(404, post("/lanes/" + (CheckoutServer.DEFAULT_MAX_LANES + 1) + "/sale").statusCode(), "A lane above the highest lane ID should not be found.");
+        assertEquals(404, post("/lanes/" + Integer.MAX_VALUE + "/sale").statusCode(), "The largest lane ID should not be found.");
+        assertEquals(404, post("/lanes/2/refund").statusCode(), "An unknown action should not be found.");
+        assertEquals(409, post("/lanes/3/end").statusCode(), "Another lane should have no sale.");
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(uri("/lanes/2/end")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, get.statusCode(), "Only POST should be allowed.");
+    }
+
+    /**
+     * Verifies that many lanes make sales at the same time, each on its own controller. The client keeps at most
+     * {@link #SALES_IN_FLIGHT} sales going at once: the JDK HTTP server closes idle connections above its limit of 200,
+     * and the client may already have picked such a connection for its next request.
+     */
+    @Test
+    public void testConcurrentLanes() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(SALES_IN_FLIGHT);
+        List<CompletableFuture<String>> sales = new ArrayList<>();
+        for (int lane = 1; lane <= LANES; lane++) {
+            String path = "/lanes/" + lane;
+            inFlight.acquire();
+            sales.add(postAsync(path + "/sale")
+                    .thenCompose(started -> postAsync(path + "/items?id=3"))
+                    .thenCompose(entered -> postAsync(path + "/end"))
+                    .thenCompose(ended -> postAsync(path + "/payment?amount=50"))
+                    .thenApply(HttpResponse::body)
+                    .whenComplete((body, failure) -> inFlight.release()));
+        }
+        for (CompletableFuture<String> sale : sales) {
+            assertEquals("{\"change\":20.00}", sale.join(), "Every lane should be paid.");
+        }
+        assertEquals(LANES, server.getLaneCount(), "Every lane should have its own controller.");
+    }
+
+    private HttpResponse<String> post(String path) throws IOException, InterruptedException {
+        return client.send(request(path), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> postAsync(String path) {
+        return client.sendAsync(request(path), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}